@@ -10,6 +10,10 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import modules.ExecutorModuleScheduler;
+import modules.ModuleScheduler;
+import modules.RingBuffer;
+
 /**
  * Provides a CLI to run module trees.
  * @author Marcel Boeing
@@ -23,6 +27,8 @@ public class ModuleBatchRunner {
 		Options options = new Options();
 		options.addOption("c", "config", true, "Module tree configuration file");
 		options.addOption("u", "update", true, "Update module tree configuration file and write it to the specified location");
+		options.addOption("p", "pipebuffer", true, "Ring buffer capacity of the pipes between modules in chars/bytes (0 uses java.io piped streams)");
+		options.addOption("s", "scheduler", true, "Threads to run the modules on: 'thread' (a new thread per module, default), 'virtual' (virtual threads, needs Java 21+) or the amount of threads a pool keeps (it grows while more modules run)");
 		options.addOption("h", "help", false, "Show help and exit");
 		
 		// Instantiate parser for CLI options
@@ -58,6 +64,33 @@ public class ModuleBatchRunner {
 			updatedFilePath = commandLine.getOptionValue("u");
 		}
 		
+		// Pipe buffer capacity
+		int pipeBufferCapacity = RingBuffer.DEFAULT_CAPACITY;
+		if(commandLine.hasOption("p")) {
+			try {
+				pipeBufferCapacity = Integer.parseInt(commandLine.getOptionValue("p"));
+			} catch (NumberFormatException e) {
+				Logger.getLogger("").log(Level.SEVERE, "The pipe buffer capacity must be an integer.", e);
+				System.exit(1);
+			}
+		}
+		
+		// Module scheduler
+		ModuleScheduler moduleScheduler = null;
+		if(commandLine.hasOption("s")) {
+			String scheduler = commandLine.getOptionValue("s");
+			if (scheduler.equals("virtual")) {
+				moduleScheduler = ExecutorModuleScheduler.virtualThreads();
+			} else if (!scheduler.equals("thread")) {
+				try {
+					moduleScheduler = ExecutorModuleScheduler.pooled(Integer.parseInt(scheduler));
+				} catch (IllegalArgumentException e) {
+					Logger.getLogger("").log(Level.SEVERE, "The scheduler must be 'thread', 'virtual' or a positive integer.", e);
+					System.exit(1);
+				}
+			}
+		}
+		
 		/*
 		 *  All options are read, now to create a controller and reconstruct the module tree from the config file
 		 */
@@ -65,7 +98,7 @@ public class ModuleBatchRunner {
 		// Create new controller
 		ModuleWorkbenchController controller = null;
 		try {
-			controller = new ModuleWorkbenchController();
+			controller = new ModuleWorkbenchController(pipeBufferCapacity);
 		} catch (Exception e) {
 			Logger.getLogger("").log(Level.SEVERE, "Could not instantiate a new module workbench controller.", e);
 			System.exit(1);
@@ -91,6 +124,10 @@ public class ModuleBatchRunner {
 			System.exit(1);
 		}
 		
+		// Set the threads to run the modules on
+		if (moduleScheduler != null)
+			controller.getModuleNetwork().setModuleScheduler(moduleScheduler);
+		
 		// Finally: Run the module tree
 		try {
 			controller.getModuleNetwork().runModules(true);
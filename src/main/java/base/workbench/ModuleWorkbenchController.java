@@ -26,6 +26,7 @@ import modules.ModuleImpl;
 import modules.ModuleNetwork;
 import modules.ModuleNetworkGsonDeserializer;
 import modules.ModuleNetworkGsonSerializer;
+import modules.RingBuffer;
 import modules.bag_of_words.BagsOfWordsDistancesModule;
 import modules.bag_of_words.BagsOfWordsModule;
 import modules.basic_text_processing.CaseChangerModule;
@@ -123,11 +124,20 @@ public class ModuleWorkbenchController{ // TODO anderer Listener
 	 * @throws Exception Thrown if initialization fails
 	 */
 	public ModuleWorkbenchController() throws Exception {
+		this(RingBuffer.DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Instantiates a new ModuleWorkbenchController
+	 * @param pipeBufferCapacity Capacity of the ring buffers used for the pipes of module networks loaded (values below 1 select java.io piped streams)
+	 * @throws Exception Thrown if initialization fails
+	 */
+	public ModuleWorkbenchController(int pipeBufferCapacity) throws Exception {
 		
 		// Initialize JSON converter
 		GsonBuilder gsonBuilder = new GsonBuilder();
 		gsonBuilder.registerTypeAdapter(ModuleNetwork.class, new ModuleNetworkGsonSerializer());
-		gsonBuilder.registerTypeAdapter(ModuleNetwork.class, new ModuleNetworkGsonDeserializer());
+		gsonBuilder.registerTypeAdapter(ModuleNetwork.class, new ModuleNetworkGsonDeserializer(pipeBufferCapacity));
 		this.jsonConverter = gsonBuilder.setPrettyPrinting().create();
 		
 		// Add jlist handler to logger
@@ -0,0 +1,265 @@
+package common;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a matrix written by a BinaryMatrixWriter one row at a time. After the
+ * header has been read on construction, every call to nextRow() moves on to
+ * the next row, whose entries can then be read by index. Dense matrices have
+ * an entry for every column, sparse ones only for the values stored.
+ */
+public class BinaryMatrixReader {
+
+	private final InputStream input;
+	private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+	private final boolean sparse;
+	private final List<String> rowNames;
+	private final List<String> colNames;
+	private final long entryAmount;
+
+	// the current row and its entries
+	private int row = -1;
+	private int rowEntryAmount = 0;
+	private int[] cols;
+	private double[] values;
+
+	// the amount of sparse entries read, including one read ahead
+	private long entriesRead = 0;
+	private int pendingRow = -1;
+	private int pendingCol;
+	private double pendingValue;
+
+	/**
+	 * Reads the header from the given input.
+	 *
+	 * @param input
+	 *            the input
+	 * @throws IOException
+	 *             on error reading the input or if it is no binary matrix
+	 */
+	public BinaryMatrixReader(InputStream input) throws IOException {
+		this.input = input;
+		buffer.limit(0);
+
+		ensureAvailable(BinaryMatrixWriter.MAGIC.length + 9);
+		for (byte b : BinaryMatrixWriter.MAGIC) {
+			if (buffer.get() != b) {
+				throw new IOException("The input is no binary matrix.");
+			}
+		}
+		final byte layout = buffer.get();
+		if (layout != BinaryMatrixWriter.LAYOUT_DENSE && layout != BinaryMatrixWriter.LAYOUT_SPARSE) {
+			throw new IOException("Unknown binary matrix layout: " + layout);
+		}
+		this.sparse = layout == BinaryMatrixWriter.LAYOUT_SPARSE;
+		final int rowAmount = buffer.getInt();
+		final int colAmount = buffer.getInt();
+		if (rowAmount < 0 || colAmount < 0) {
+			throw new IOException("Malformed binary matrix dimensions: " + rowAmount + " x " + colAmount);
+		}
+
+		this.rowNames = Collections.unmodifiableList(readNames(rowAmount));
+		this.colNames = Collections.unmodifiableList(readNames(colAmount));
+
+		if (sparse) {
+			ensureAvailable(8);
+			this.entryAmount = buffer.getLong();
+			if (entryAmount < 0) {
+				throw new IOException("Malformed binary matrix entry amount: " + entryAmount);
+			}
+			this.cols = new int[16];
+			this.values = new double[16];
+			readPendingEntry();
+		} else {
+			this.entryAmount = (long) rowAmount * colAmount;
+			this.cols = new int[colAmount];
+			this.values = new double[colAmount];
+			for (int i = 0; i < colAmount; i++) {
+				this.cols[i] = i;
+			}
+		}
+	}
+
+	/**
+	 * @return The row names in order.
+	 */
+	public List<String> getRowNames() {
+		return rowNames;
+	}
+
+	/**
+	 * @return The column names in order.
+	 */
+	public List<String> getColumnNames() {
+		return colNames;
+	}
+
+	/**
+	 * @return Whether the matrix is stored in the sparse layout.
+	 */
+	public boolean isSparse() {
+		return sparse;
+	}
+
+	/**
+	 * @return The amount of entries of the whole matrix.
+	 */
+	public long getEntryAmount() {
+		return entryAmount;
+	}
+
+	/**
+	 * Reads the next row, rows without entries included.
+	 *
+	 * @return false if all rows have been read.
+	 * @throws IOException
+	 *             on error reading the input
+	 */
+	public boolean nextRow() throws IOException {
+		if (row + 1 >= rowNames.size()) {
+			row = rowNames.size();
+			rowEntryAmount = 0;
+			return false;
+		}
+		row++;
+
+		if (sparse) {
+			rowEntryAmount = 0;
+			while (pendingRow == row) {
+				if (rowEntryAmount == cols.length) {
+					cols = Arrays.copyOf(cols, rowEntryAmount * 2);
+					values = Arrays.copyOf(values, rowEntryAmount * 2);
+				}
+				cols[rowEntryAmount] = pendingCol;
+				values[rowEntryAmount] = pendingValue;
+				rowEntryAmount++;
+				readPendingEntry();
+			}
+		} else {
+			for (int i = 0; i < values.length;) {
+				ensureAvailable(8);
+				final int amount = Math.min(values.length - i, buffer.remaining() / 8);
+				for (int end = i + amount; i < end; i++) {
+					values[i] = buffer.getDouble();
+				}
+			}
+			rowEntryAmount = values.length;
+		}
+		return true;
+	}
+
+	/**
+	 * @return The index of the current row.
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * @return The name of the current row.
+	 */
+	public String getRowName() {
+		return rowNames.get(row);
+	}
+
+	/**
+	 * @return The amount of entries in the current row.
+	 */
+	public int getRowEntryAmount() {
+		return rowEntryAmount;
+	}
+
+	/**
+	 * @param i
+	 *            the entry's index within the current row
+	 * @return The column of the entry.
+	 */
+	public int getColumn(int i) {
+		return cols[i];
+	}
+
+	/**
+	 * @param i
+	 *            the entry's index within the current row
+	 * @return The value of the entry.
+	 */
+	public double getValue(int i) {
+		return values[i];
+	}
+
+	// reads the next sparse entry ahead, checking its position
+	private void readPendingEntry() throws IOException {
+		if (entriesRead == entryAmount) {
+			pendingRow = -1;
+			return;
+		}
+		ensureAvailable(16);
+		final int entryRow = buffer.getInt();
+		final int entryCol = buffer.getInt();
+		if (entryRow < pendingRow || entryRow >= rowNames.size() || entryCol < 0 || entryCol >= colNames.size()
+				|| (entryRow == pendingRow && entryCol <= pendingCol)) {
+			throw new IOException("Malformed binary matrix entry: " + entryRow + ", " + entryCol);
+		}
+		pendingRow = entryRow;
+		pendingCol = entryCol;
+		pendingValue = buffer.getDouble();
+		entriesRead++;
+	}
+
+	private List<String> readNames(int amount) throws IOException {
+		final List<String> result = new ArrayList<String>(amount);
+		for (int i = 0; i < amount; i++) {
+			ensureAvailable(4);
+			final int length = buffer.getInt();
+			if (length < 0) {
+				throw new IOException("Malformed binary matrix name length: " + length);
+			}
+			if (length <= buffer.capacity()) {
+				ensureAvailable(length);
+				result.add(new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8));
+				buffer.position(buffer.position() + length);
+			} else {
+				// names longer than the buffer are read separately
+				final byte[] bytes = new byte[length];
+				final int buffered = buffer.remaining();
+				buffer.get(bytes, 0, buffered);
+				for (int read = buffered; read < length;) {
+					final int amountRead = input.read(bytes, read, length - read);
+					if (amountRead < 0) {
+						throw new EOFException("Unexpected end of binary matrix.");
+					}
+					read += amountRead;
+				}
+				result.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+		}
+		return result;
+	}
+
+	// makes sure the given amount of bytes can be read from the buffer
+	private void ensureAvailable(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes) {
+			return;
+		}
+		buffer.compact();
+		while (buffer.position() < bytes) {
+			final int read = input.read(buffer.array(), buffer.position(), buffer.remaining());
+			if (read < 0) {
+				throw new EOFException("Unexpected end of binary matrix.");
+			}
+			buffer.position(buffer.position() + read);
+		}
+		buffer.flip();
+	}
+
+}
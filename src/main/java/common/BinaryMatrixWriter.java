@@ -0,0 +1,204 @@
+package common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes a matrix with named rows and columns in a compact binary format,
+ * meant to pass matrices between modules without formatting and parsing
+ * decimal text. All numbers are little-endian:
+ *
+ * <pre>
+ * magic       4 bytes   'N' 'F' 'M' and the format version
+ * layout      1 byte    0 for dense, 1 for sparse
+ * rows        int
+ * columns     int
+ * names       for every row, then every column: int byte length, UTF-8 bytes
+ * dense:      rows * columns doubles, row by row
+ * sparse:     long amount of entries, then every entry as
+ *             int row, int column, double value, ordered by row and column
+ * </pre>
+ *
+ * Entries are handed to the writer in row major order. The writer chooses
+ * the sparse layout if it takes fewer bytes than the dense one, filling in
+ * zeros between the entries otherwise.
+ */
+public class BinaryMatrixWriter {
+
+	/** The bytes every binary matrix starts with */
+	public static final byte[] MAGIC = { 'N', 'F', 'M', 1 };
+
+	static final byte LAYOUT_DENSE = 0;
+	static final byte LAYOUT_SPARSE = 1;
+
+	// bytes per entry of both layouts
+	private static final int DENSE_ENTRY_BYTES = 8;
+	private static final int SPARSE_ENTRY_BYTES = 16;
+
+	private final OutputStream output;
+	private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+	private boolean sparse;
+	private int rowAmount = -1;
+	private int colAmount;
+	private long entryAmount;
+
+	// the amount of entries written and the position following the last one
+	private long entriesWritten = 0;
+	private int nextRow = 0;
+	private int nextCol = 0;
+
+	/**
+	 * @param output
+	 *            the output
+	 */
+	public BinaryMatrixWriter(OutputStream output) {
+		this.output = output;
+	}
+
+	/**
+	 * Writes the header, which has to be done before writing any entries.
+	 *
+	 * @param rowNames
+	 *            the names of the rows in order
+	 * @param colNames
+	 *            the names of the columns in order
+	 * @param entryAmount
+	 *            the amount of entries that will be written
+	 * @throws IOException
+	 *             on error writing the output
+	 */
+	public void writeHeader(List<String> rowNames, List<String> colNames, long entryAmount) throws IOException {
+		if (rowAmount >= 0) {
+			throw new IllegalStateException("The header has already been written.");
+		}
+		this.rowAmount = rowNames.size();
+		this.colAmount = colNames.size();
+		this.entryAmount = entryAmount;
+		this.sparse = entryAmount * SPARSE_ENTRY_BYTES < (long) rowAmount * colAmount * DENSE_ENTRY_BYTES;
+
+		buffer.put(MAGIC);
+		buffer.put(sparse ? LAYOUT_SPARSE : LAYOUT_DENSE);
+		buffer.putInt(rowAmount);
+		buffer.putInt(colAmount);
+		for (String name : rowNames) {
+			writeName(name);
+		}
+		for (String name : colNames) {
+			writeName(name);
+		}
+		if (sparse) {
+			ensureSpace(8);
+			buffer.putLong(entryAmount);
+		}
+	}
+
+	/**
+	 * @return Whether the sparse layout has been chosen.
+	 */
+	public boolean isSparse() {
+		return sparse;
+	}
+
+	/**
+	 * Writes an entry, which has to follow the previous one in row major
+	 * order.
+	 *
+	 * @param row
+	 *            the row index
+	 * @param col
+	 *            the column index
+	 * @param value
+	 *            the value
+	 * @throws IOException
+	 *             on error writing the output
+	 */
+	public void writeEntry(int row, int col, double value) throws IOException {
+		if (rowAmount < 0) {
+			throw new IllegalStateException("The header has not been written yet.");
+		}
+		if (row < nextRow || (row == nextRow && col < nextCol) || row >= rowAmount || col < 0 || col >= colAmount) {
+			throw new IllegalArgumentException("Entry out of order or range: " + row + ", " + col);
+		}
+		if (++entriesWritten > entryAmount) {
+			throw new IllegalStateException("More entries written than announced: " + entryAmount);
+		}
+
+		if (sparse) {
+			ensureSpace(SPARSE_ENTRY_BYTES);
+			buffer.putInt(row);
+			buffer.putInt(col);
+			buffer.putDouble(value);
+		} else {
+			fillZerosUpTo(row, col);
+			ensureSpace(DENSE_ENTRY_BYTES);
+			buffer.putDouble(value);
+		}
+
+		nextRow = row;
+		nextCol = col + 1;
+	}
+
+	/**
+	 * Completes the matrix and flushes the output.
+	 *
+	 * @throws IOException
+	 *             on error writing the output or if fewer entries have been
+	 *             written than announced
+	 */
+	public void finish() throws IOException {
+		if (entriesWritten != entryAmount) {
+			throw new IOException("Only " + entriesWritten + " of " + entryAmount + " announced entries written.");
+		}
+		if (!sparse) {
+			fillZerosUpTo(rowAmount, 0);
+		}
+		output.write(buffer.array(), 0, buffer.position());
+		buffer.clear();
+		output.flush();
+	}
+
+	// writes zeros for all cells from the one following the last entry up to
+	// (excluding) the given one
+	private void fillZerosUpTo(int row, int col) throws IOException {
+		long cells = ((long) row - nextRow) * colAmount + col - nextCol;
+		nextRow = row;
+		nextCol = col;
+		while (cells > 0) {
+			ensureSpace(DENSE_ENTRY_BYTES);
+			final int amount = (int) Math.min(cells, buffer.remaining() / DENSE_ENTRY_BYTES);
+			for (int i = 0; i < amount; i++) {
+				buffer.putDouble(0d);
+			}
+			cells -= amount;
+		}
+	}
+
+	private void writeName(String name) throws IOException {
+		final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		ensureSpace(4);
+		buffer.putInt(bytes.length);
+		if (bytes.length > buffer.remaining()) {
+			flushBuffer();
+			output.write(bytes);
+		} else {
+			buffer.put(bytes);
+		}
+	}
+
+	private void ensureSpace(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flushBuffer();
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		output.write(buffer.array(), 0, buffer.position());
+		buffer.clear();
+	}
+
+}
@@ -0,0 +1,321 @@
+package common;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads csv input one row at a time without splitting it into Strings first.
+ * The fields of the current row are kept as offsets into a reusable buffer
+ * and only turned into Strings or numbers on request. Empty lines are
+ * skipped.
+ *
+ * The delimiter is a regular expression, as for String.split(). Delimiters
+ * matching a single character (e.g. ";" or "[,;]") are recognised while
+ * scanning the chars, any other expression is applied to each line.
+ */
+public class CsvRowReader {
+
+	// powers of ten that are exactly representable as doubles
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// regular expressions matching exactly one character
+	private static final Pattern SINGLE_CHAR_REGEX = Pattern
+			.compile("\\\\.|[^\\\\\\[\\]|*+?{}()^$.]|\\[\\^?\\]?[^\\]]*\\]");
+
+	private final Reader reader;
+
+	// the chars that are delimiters, or null if the delimiter is applied to
+	// the whole line
+	private final BitSet delimiterChars;
+	private final Pattern delimiter;
+
+	private final char[] input = new char[8192];
+	private int inputPosition = 0;
+	private int inputLength = 0;
+
+	// the current line and the fields' bounds within it
+	private char[] line = new char[256];
+	private int lineLength = 0;
+	private int[] fieldStarts = new int[16];
+	private int[] fieldEnds = new int[16];
+	private int fieldAmount = 0;
+
+	private long lineNr = 0;
+
+	/**
+	 * @param reader
+	 *            the csv input
+	 * @param delimiterRegex
+	 *            a regular expression matching the delimiters between fields
+	 */
+	public CsvRowReader(Reader reader, String delimiterRegex) {
+		this.reader = reader;
+		this.delimiter = Pattern.compile(delimiterRegex);
+		if (SINGLE_CHAR_REGEX.matcher(delimiterRegex).matches()) {
+			this.delimiterChars = new BitSet(Character.MAX_VALUE + 1);
+			for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+				if (this.delimiter.matcher(String.valueOf((char) c)).matches()) {
+					this.delimiterChars.set(c);
+				}
+			}
+		} else {
+			this.delimiterChars = null;
+		}
+	}
+
+	/**
+	 * Reads the next row that is not empty.
+	 *
+	 * @return false if the input is exhausted.
+	 * @throws IOException
+	 *             on error reading the input
+	 */
+	public boolean next() throws IOException {
+		do {
+			if (!readLine()) {
+				return false;
+			}
+		} while (lineLength == 0);
+
+		splitLine();
+		return true;
+	}
+
+	/**
+	 * @return The amount of fields in the current row.
+	 */
+	public int getFieldAmount() {
+		return fieldAmount;
+	}
+
+	/**
+	 * @return The number of the line last read, starting with 1.
+	 */
+	public long getLineNr() {
+		return lineNr;
+	}
+
+	/**
+	 * @param i
+	 *            the field's index
+	 * @return Whether the field is empty.
+	 */
+	public boolean isEmpty(int i) {
+		return fieldStarts[i] == fieldEnds[i];
+	}
+
+	/**
+	 * @param i
+	 *            the field's index
+	 * @return The field as a String.
+	 */
+	public String getString(int i) {
+		return new String(line, fieldStarts[i], fieldEnds[i] - fieldStarts[i]);
+	}
+
+	/**
+	 * @return All fields of the current row as Strings.
+	 */
+	public String[] getStrings() {
+		final String[] result = new String[fieldAmount];
+		for (int i = 0; i < fieldAmount; i++) {
+			result[i] = getString(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Parses the field as a double, empty fields are read as zero.
+	 *
+	 * @param i
+	 *            the field's index
+	 * @return the value
+	 * @throws NumberFormatException
+	 *             if the field is no number
+	 */
+	public double getDouble(int i) throws NumberFormatException {
+		return parseDouble(line, fieldStarts[i], fieldEnds[i]);
+	}
+
+	/**
+	 * Parses a number from the given chars, giving the same result as
+	 * Double.parseDouble(). Plain decimals with up to 15 significant digits
+	 * are converted directly, anything else is handed to
+	 * Double.parseDouble(). An empty range is read as zero.
+	 *
+	 * @param chars
+	 *            the chars to parse
+	 * @param start
+	 *            the first char
+	 * @param end
+	 *            behind the last char
+	 * @return the value
+	 * @throws NumberFormatException
+	 *             if the chars are no number
+	 */
+	public static double parseDouble(char[] chars, int start, int end) throws NumberFormatException {
+		if (start == end) {
+			return 0d;
+		}
+
+		int i = start;
+		boolean negative = false;
+		if (chars[i] == '-' || chars[i] == '+') {
+			negative = chars[i] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean anyDigit = false;
+		for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+			anyDigit = true;
+			if (mantissa != 0 || chars[i] != '0') {
+				mantissa = mantissa * 10 + (chars[i] - '0');
+				digits++;
+			}
+		}
+		if (i < end && chars[i] == '.') {
+			for (i++; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+				anyDigit = true;
+				if (mantissa != 0 || chars[i] != '0') {
+					mantissa = mantissa * 10 + (chars[i] - '0');
+					digits++;
+				}
+				exponent--;
+			}
+		}
+		if (i < end && (chars[i] == 'e' || chars[i] == 'E') && anyDigit) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+				negativeExponent = chars[i] == '-';
+				i++;
+			}
+			int value = 0;
+			boolean exponentDigit = false;
+			for (; i < end && chars[i] >= '0' && chars[i] <= '9' && value < 10000; i++) {
+				value = value * 10 + (chars[i] - '0');
+				exponentDigit = true;
+			}
+			if (!exponentDigit) {
+				anyDigit = false;
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+
+		// the mantissa and the power of ten are both exact, so a single
+		// multiplication or division rounds correctly
+		if (i == end && anyDigit && digits <= 15 && exponent >= -22 && exponent <= 22) {
+			double result = mantissa;
+			if (exponent < 0) {
+				result /= POWERS_OF_TEN[-exponent];
+			} else {
+				result *= POWERS_OF_TEN[exponent];
+			}
+			return negative ? -result : result;
+		}
+		return Double.parseDouble(new String(chars, start, end - start));
+	}
+
+	// reads the next line into the line buffer
+	private boolean readLine() throws IOException {
+		lineLength = 0;
+		boolean readAny = false;
+		while (true) {
+			if (inputPosition == inputLength) {
+				inputLength = reader.read(input, 0, input.length);
+				inputPosition = 0;
+				if (inputLength <= 0) {
+					inputLength = 0;
+					if (readAny) {
+						lineNr++;
+					}
+					return readAny;
+				}
+			}
+			readAny = true;
+
+			// copy chars up to the next line break
+			int i = inputPosition;
+			while (i < inputLength && input[i] != '\n' && input[i] != '\r') {
+				i++;
+			}
+			append(input, inputPosition, i - inputPosition);
+			inputPosition = i;
+
+			if (i < inputLength) {
+				// skip the line break, \r\n counts as one
+				final char lineBreak = input[inputPosition++];
+				if (lineBreak == '\r') {
+					if (inputPosition == inputLength) {
+						inputLength = reader.read(input, 0, input.length);
+						inputPosition = 0;
+						if (inputLength < 0) {
+							inputLength = 0;
+						}
+					}
+					if (inputPosition < inputLength && input[inputPosition] == '\n') {
+						inputPosition++;
+					}
+				}
+				lineNr++;
+				return true;
+			}
+		}
+	}
+
+	private void append(char[] chars, int offset, int length) {
+		if (lineLength + length > line.length) {
+			line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+		}
+		System.arraycopy(chars, offset, line, lineLength, length);
+		lineLength += length;
+	}
+
+	// notes the bounds of the current line's fields
+	private void splitLine() {
+		fieldAmount = 0;
+		if (delimiterChars != null) {
+			int fieldStart = 0;
+			for (int i = 0; i < lineLength; i++) {
+				if (delimiterChars.get(line[i])) {
+					addField(fieldStart, i);
+					fieldStart = i + 1;
+				}
+			}
+			addField(fieldStart, lineLength);
+		} else {
+			final Matcher matcher = delimiter.matcher(CharBuffer.wrap(line, 0, lineLength));
+			int fieldStart = 0;
+			while (matcher.find()) {
+				// as with String.split(), an empty match at the beginning does
+				// not produce an empty leading field
+				if (matcher.end() == 0) {
+					continue;
+				}
+				addField(fieldStart, matcher.start());
+				fieldStart = matcher.end();
+			}
+			addField(fieldStart, lineLength);
+		}
+	}
+
+	private void addField(int start, int end) {
+		if (fieldAmount == fieldStarts.length) {
+			fieldStarts = Arrays.copyOf(fieldStarts, fieldAmount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldAmount * 2);
+		}
+		fieldStarts[fieldAmount] = start;
+		fieldEnds[fieldAmount] = end;
+		fieldAmount++;
+	}
+
+}
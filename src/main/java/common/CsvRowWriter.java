@@ -0,0 +1,126 @@
+package common;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes csv output one row at a time into a Writer, without building the
+ * rows as Strings first.
+ */
+public class CsvRowWriter {
+
+	// integral values up to this magnitude are formatted directly,
+	// Double.toString() switches to the scientific notation above
+	private static final double MAX_PLAIN_INTEGRAL = 1e7;
+
+	private final Writer writer;
+	private final String delimiter;
+
+	// whether a field was written to the current row already
+	private boolean rowStarted = false;
+
+	// buffer for formatting numbers
+	private final char[] digits = new char[24];
+
+	/**
+	 * @param writer
+	 *            the output
+	 * @param delimiter
+	 *            the delimiter written between fields
+	 */
+	public CsvRowWriter(Writer writer, String delimiter) {
+		this.writer = writer;
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Writes a field to the current row.
+	 *
+	 * @param field
+	 *            the field's content
+	 * @throws IOException
+	 *             on error writing the output
+	 */
+	public void writeField(String field) throws IOException {
+		writeDelimiter();
+		writer.write(field);
+	}
+
+	/**
+	 * Writes a number to the current row, formatted as by Double.toString().
+	 * Zero is written as an empty field.
+	 *
+	 * @param value
+	 *            the value
+	 * @throws IOException
+	 *             on error writing the output
+	 */
+	public void writeValue(double value) throws IOException {
+		writeDelimiter();
+		if (value != 0) {
+			writeDouble(writer, value, digits);
+		}
+	}
+
+	/**
+	 * Ends the current row with a line break.
+	 *
+	 * @throws IOException
+	 *             on error writing the output
+	 */
+	public void endRow() throws IOException {
+		writer.write('\n');
+		rowStarted = false;
+	}
+
+	/**
+	 * Flushes the underlying writer.
+	 *
+	 * @throws IOException
+	 *             on error writing the output
+	 */
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Formats a number the way writeValue() writes it.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the field's content
+	 */
+	public static String formatValue(double value) {
+		return (value == 0) ? "" : Double.toString(value);
+	}
+
+	private void writeDelimiter() throws IOException {
+		if (rowStarted) {
+			writer.write(delimiter);
+		}
+		rowStarted = true;
+	}
+
+	// writes the value as Double.toString() would, formatting small integral
+	// values without creating a String
+	private static void writeDouble(Writer writer, double value, char[] digits) throws IOException {
+		if (value != Math.rint(value) || Math.abs(value) >= MAX_PLAIN_INTEGRAL || value == 0) {
+			writer.write(Double.toString(value));
+			return;
+		}
+
+		long integral = (long) Math.abs(value);
+		int position = digits.length;
+		digits[--position] = '0';
+		digits[--position] = '.';
+		do {
+			digits[--position] = (char) ('0' + integral % 10);
+			integral /= 10;
+		} while (integral != 0);
+		if (value < 0) {
+			digits[--position] = '-';
+		}
+		writer.write(digits, position, digits.length - position);
+	}
+
+}
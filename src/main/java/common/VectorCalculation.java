@@ -29,7 +29,7 @@ public class VectorCalculation {
 	 * and the <a href="https://en.wikipedia.org/wiki/Minkowski_distance">Wikipedia page</a> about the Minkowski-Distance.
 	 * @param vectorA First vector
 	 * @param vectorB Second vector
-	 * @param power 1: Hamming distance; 2: Euclidian; or any other positive value ...
+	 * @param power 1: Hamming distance; 2: Euclidian; Double.POSITIVE_INFINITY: Chebyshev; or any other positive value ...
 	 * @return Minkowski-Distance
 	 * @throws Exception Thrown if vectors are null or of different length
 	 */
@@ -47,9 +47,15 @@ public class VectorCalculation {
 		Iterator<Double> aIterator = vectorA.iterator();
 		Iterator<Double> bIterator = vectorB.iterator();
 		while(aIterator.hasNext() && bIterator.hasNext()){
-			result += Math.pow(Math.abs(aIterator.next()-bIterator.next()),power);
+			if (power == Double.POSITIVE_INFINITY)
+				result = Math.max(result, Math.abs(aIterator.next()-bIterator.next()));
+			else
+				result += Math.pow(Math.abs(aIterator.next()-bIterator.next()),power);
 		}
-		result = Math.sqrt(result);
+		if (power == 2d)
+			result = Math.sqrt(result);
+		else if (power != 1d && power != Double.POSITIVE_INFINITY)
+			result = Math.pow(result, 1d/power);
 		
 		return result;
 	}
@@ -3,6 +3,7 @@ package common;
 import java.io.FileWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 
 public class XmlPrintWriter extends PrintWriter {
 
@@ -18,6 +19,10 @@ public class XmlPrintWriter extends PrintWriter {
 		super(new PrintWriter(sw));
 	}
 
+	public XmlPrintWriter(Writer w) {
+		super(w);
+	}
+
 	public void printTag(String tag, boolean start, int nrTabs, boolean newline) {
 		for (int i = 0; i < nrTabs; i++) {
 			this.print("\t");
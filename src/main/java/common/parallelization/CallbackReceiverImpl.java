@@ -2,11 +2,11 @@ package common.parallelization;
 
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -17,9 +17,9 @@ import java.util.logging.Logger;
 public abstract class CallbackReceiverImpl implements
 		CallbackReceiver, UncaughtExceptionHandler {
 	
-	// Maps containing the actions to perform on process callback
-	private Map<Thread, Action> successActions = new HashMap<Thread, Action>();
-	private Map<Thread, Action> failActions = new HashMap<Thread, Action>();
+	// Maps containing the actions to perform on process callback (registered and performed from different threads)
+	private Map<Thread, Action> successActions = new ConcurrentHashMap<Thread, Action>();
+	private Map<Thread, Action> failActions = new ConcurrentHashMap<Thread, Action>();
 	private List<CallbackReceiver> externalCallbackReceiverList = new ArrayList<CallbackReceiver>();
 
 	/**
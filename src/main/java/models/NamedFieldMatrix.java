@@ -1,24 +1,67 @@
 package models;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.TreeMap;
+
+import common.BinaryMatrixReader;
+import common.BinaryMatrixWriter;
+import common.CsvRowReader;
+import common.CsvRowWriter;
 
 /**
  * A dynamically resizing two-dimensional Array whose fields can be adressed by
  * pairs of Strings as well as pairs of numbers.
  * 
- * Supports output to a csv-Table and can be read from a csv-Table.
+ * Supports output to a csv-Table and can be read from a csv-Table. Between
+ * modules it can also be passed in the binary format of BinaryMatrixWriter.
+ * 
+ * The values are either kept in a dense array or, for matrices that are
+ * mostly zeros, in one hash table per row. By default the matrix starts out
+ * dense and switches to sparse storage once it grows big and is sparsely
+ * populated.
  */
 public class NamedFieldMatrix {
 
-	// the actual values in a 2-dimensional list
+	/**
+	 * How the values of the matrix are stored.
+	 */
+	public enum Storage {
+		/** Start dense, switch to sparse for big matrices with few values */
+		AUTO,
+		/** Always keep a dense array */
+		DENSE,
+		/** Always keep the rows in hash tables */
+		SPARSE
+	}
+
+	// matrices with fewer cells are never switched to sparse storage
+	private static final long AUTO_SPARSE_MIN_CELLS = 1 << 20;
+
+	// the maximum fraction of values other than zero for which big matrices
+	// are switched to sparse storage
+	private static final double AUTO_SPARSE_MAX_DENSITY = 0.1;
+
+	private final Storage storage;
+
+	// the actual values in a 2-dimensional list, if stored densely
 	private double[][] values;
 
+	// the rows, if the values are stored sparsely
+	private SparseRow[] sparseRows;
+
+	// the amount of values other than zero, or -1 if unknown because the dense
+	// array was handed out
+	private long nonZeroAmount = 0;
+
 	// current maximum of allocated elements
 	private int colMax = 100;
 	private int rowMax = 100;
@@ -28,23 +71,78 @@ public class NamedFieldMatrix {
 	private int rowAmount = 0;
 
 	// maps rows of the table to a row name and vice versa
-	private final Map<Integer, String> rowsToRowNames;
+	private final List<String> rowsToRowNames;
 	private final Map<String, Integer> rowNamesToRows;
 
 	// maps columns of the table to a column name no and vice versa
-	private final Map<Integer, String> colsToColNames;
+	private final List<String> colsToColNames;
 	private final Map<String, Integer> colNamesToCols;
 
 	private String delimiter = ",";
 
 	public NamedFieldMatrix() {
-		this.values = new double[rowMax][];
+		this(Storage.AUTO);
+	}
 
-		this.rowNamesToRows = new TreeMap<String, Integer>();
-		this.colNamesToCols = new TreeMap<String, Integer>();
+	/**
+	 * Creates an empty matrix.
+	 * 
+	 * @param storage
+	 *            How to store the matrix' values.
+	 */
+	public NamedFieldMatrix(Storage storage) {
+		this.storage = storage;
+		if (storage == Storage.SPARSE) {
+			this.sparseRows = new SparseRow[rowMax];
+		} else {
+			this.values = new double[rowMax][];
+		}
+
+		this.rowNamesToRows = new HashMap<String, Integer>();
+		this.colNamesToCols = new HashMap<String, Integer>();
 
-		this.rowsToRowNames = new TreeMap<Integer, String>();
-		this.colsToColNames = new TreeMap<Integer, String>();
+		this.rowsToRowNames = new ArrayList<String>();
+		this.colsToColNames = new ArrayList<String>();
+	}
+
+	/**
+	 * Creates a deep copy of the given matrix, fit in size to the amount of
+	 * rows and columns set (the given matrix is left unchanged). The copy uses
+	 * the same kind of storage.
+	 *
+	 * @param matrix
+	 *            The matrix to copy.
+	 */
+	public NamedFieldMatrix(NamedFieldMatrix matrix) {
+		this.storage = matrix.storage;
+		this.rowAmount = matrix.rowAmount;
+		this.colAmount = matrix.colAmount;
+		this.rowMax = matrix.rowAmount;
+		this.colMax = matrix.colAmount;
+		this.nonZeroAmount = matrix.nonZeroAmount;
+		if (matrix.isSparse()) {
+			this.sparseRows = new SparseRow[rowAmount];
+			for (int i = 0; i < rowAmount; i++) {
+				this.sparseRows[i] = matrix.sparseRows[i].copy();
+			}
+		} else {
+			this.values = new double[rowAmount][];
+			for (int i = 0; i < rowAmount; i++) {
+				if (matrix.values[i] == null) {
+					this.values[i] = new double[colAmount];
+				} else {
+					this.values[i] = Arrays.copyOf(matrix.values[i], colAmount);
+				}
+			}
+		}
+
+		this.rowNamesToRows = new HashMap<String, Integer>(matrix.rowNamesToRows);
+		this.colNamesToCols = new HashMap<String, Integer>(matrix.colNamesToCols);
+
+		this.rowsToRowNames = new ArrayList<String>(matrix.rowsToRowNames);
+		this.colsToColNames = new ArrayList<String>(matrix.colsToColNames);
+
+		this.delimiter = matrix.delimiter;
 	}
 
 	/**
@@ -63,8 +161,16 @@ public class NamedFieldMatrix {
 		int row = getOrAddRow(rowName);
 		int col = getOrAddColumn(columnName);
 
+		if (isSparse()) {
+			final double previousValue = sparseRows[row].get(col);
+			final double newValue = sparseRows[row].add(col, value);
+			countChange(previousValue, newValue);
+			return newValue;
+		}
+
 		double previousValue = values[row][col];
 		values[row][col] = previousValue + value;
+		countChange(previousValue, values[row][col]);
 
 		return values[row][col];
 	}
@@ -82,11 +188,39 @@ public class NamedFieldMatrix {
 	 * @return The previous value of the field
 	 */
 	public double setValue(String rowName, String columnName, double value) {
-		int row = getOrAddRow(rowName);
-		int col = getOrAddColumn(columnName);
+		return set(getOrAddRow(rowName), getOrAddColumn(columnName), value);
+	}
 
-		double previousValue = values[row][col];
-		values[row][col] = value;
+	/**
+	 * Set the value of the field designated by it's row and column index.
+	 * 
+	 * @param row
+	 *            The row index.
+	 * @param col
+	 *            The column index.
+	 * @param value
+	 *            The value to set
+	 * @return The previous value of the field
+	 * @throws IllegalArgumentException
+	 *             If the row or column is not set.
+	 */
+	public double setValue(int row, int col, double value) throws IllegalArgumentException {
+		if (row >= rowAmount || col >= colAmount) {
+			throw new IllegalArgumentException("Field not set: " + row + ", " + col);
+		}
+		return set(row, col, value);
+	}
+
+	// sets the value of an existing field
+	private double set(int row, int col, double value) {
+		final double previousValue;
+		if (isSparse()) {
+			previousValue = sparseRows[row].set(col, value);
+		} else {
+			previousValue = values[row][col];
+			values[row][col] = value;
+		}
+		countChange(previousValue, value);
 
 		return previousValue;
 	}
@@ -108,7 +242,7 @@ public class NamedFieldMatrix {
 		if (row == null || col == null) {
 			return null;
 		} else {
-			return values[row][col];
+			return get(row, col);
 		}
 	}
 
@@ -125,20 +259,30 @@ public class NamedFieldMatrix {
 		if (row >= rowAmount || col >= colAmount) {
 			return null;
 		} else {
-			return values[row][col];
+			return get(row, col);
 		}
 	}
 
+	// the value of an existing field
+	private double get(int row, int col) {
+		return isSparse() ? sparseRows[row].get(col) : values[row][col];
+	}
+
 	/**
 	 * Contracts the matrix' array to it's minimum length and exposes it.
 	 * 
 	 * NOTE: Once exposed the user of this method has to take care, that row and
 	 * column names match the actual values and matrix dimensions.
 	 * 
+	 * NOTE: A sparsely stored matrix is converted to dense storage for this.
+	 * 
 	 * @return a pointer to the matrix' values.
 	 */
 	public double[][] getValues() {
+		toDense();
 		contract();
+		// values may be changed through the pointer from now on
+		nonZeroAmount = -1;
 		return values;
 	}
 
@@ -165,6 +309,8 @@ public class NamedFieldMatrix {
 		this.colMax = colAmount;
 		this.rowMax = rowAmount;
 		this.values = values;
+		this.sparseRows = null;
+		this.nonZeroAmount = -1;
 	}
 
 	/**
@@ -198,9 +344,42 @@ public class NamedFieldMatrix {
 		if (row >= rowAmount) {
 			throw new IllegalArgumentException("Row not set: " + row);
 		}
+		if (isSparse()) {
+			final double[] result = new double[colAmount];
+			sparseRows[row].writeTo(result);
+			return result;
+		}
 		return Arrays.copyOf(values[row], colAmount);
 	}
 
+	/**
+	 * Gets the columns of a row that hold values other than zero. Unlike
+	 * getValues() this leaves sparse storage as it is.
+	 * 
+	 * @param row
+	 *            The index of the row.
+	 * @return The column indices in ascending order.
+	 * @throws IllegalArgumentException
+	 *             if there is no row with that index.
+	 */
+	public int[] getNonZeroColumns(int row) throws IllegalArgumentException {
+		if (row >= rowAmount) {
+			throw new IllegalArgumentException("Row not set: " + row);
+		}
+		if (isSparse()) {
+			return sparseRows[row].columns();
+		}
+		final double[] rowValues = values[row];
+		int amount = 0;
+		final int[] result = new int[colAmount];
+		for (int col = 0; rowValues != null && col < colAmount; col++) {
+			if (rowValues[col] != 0) {
+				result[amount++] = col;
+			}
+		}
+		return Arrays.copyOf(result, amount);
+	}
+
 	/**
 	 * Gets a column by it's name.
 	 * 
@@ -235,7 +414,7 @@ public class NamedFieldMatrix {
 		// simply copy the column
 		double[] result = new double[rowAmount];
 		for (int i = 0; i < rowAmount; i++) {
-			result[i] = values[i][col];
+			result[i] = get(i, col);
 		}
 		return result;
 	}
@@ -309,7 +488,7 @@ public class NamedFieldMatrix {
 	 *         table.
 	 */
 	public String getColumnName(int colNo) {
-		return colsToColNames.get(colNo);
+		return (colNo >= 0 && colNo < colAmount) ? colsToColNames.get(colNo) : null;
 	}
 
 	/**
@@ -321,7 +500,14 @@ public class NamedFieldMatrix {
 	 *         table.
 	 */
 	public String getRowName(int rowNo) {
-		return rowsToRowNames.get(rowNo);
+		return (rowNo >= 0 && rowNo < rowAmount) ? rowsToRowNames.get(rowNo) : null;
+	}
+
+	/**
+	 * @return Whether the matrix' values are currently stored sparsely.
+	 */
+	public boolean isSparse() {
+		return sparseRows != null;
 	}
 
 	/**
@@ -362,8 +548,9 @@ public class NamedFieldMatrix {
 		// write values
 		for (int col = 0; col < colAmount; col++) {
 			// Write only non-zero values
-			if (values[row][col] != 0) {
-				sb.append(values[row][col]);
+			final double value = get(row, col);
+			if (value != 0) {
+				sb.append(value);
 			}
 			sb.append(delimiter);
 		}
@@ -389,9 +576,13 @@ public class NamedFieldMatrix {
 				yResize();
 			}
 			row = rowAmount;
-			values[row] = new double[colMax];
+			if (isSparse()) {
+				sparseRows[row] = new SparseRow();
+			} else {
+				values[row] = new double[colMax];
+			}
 			rowNamesToRows.put(rowName, row);
-			rowsToRowNames.put(row, rowName);
+			rowsToRowNames.add(rowName);
 			rowAmount += 1;
 		}
 		return row;
@@ -414,7 +605,7 @@ public class NamedFieldMatrix {
 			}
 			col = colAmount;
 			colNamesToCols.put(columnName, col);
-			colsToColNames.put(col, columnName);
+			colsToColNames.add(columnName);
 			colAmount += 1;
 		}
 		return col;
@@ -426,12 +617,15 @@ public class NamedFieldMatrix {
 	private void yResize() {
 		if (rowMax < 100) {
 			rowMax = 100;
-		} else if (rowMax < 100000) {
-			rowMax *= 2;
 		} else {
-			rowMax += 50000;
+			rowMax += rowMax / 2;
+		}
+		switchToSparseIfDue();
+		if (isSparse()) {
+			sparseRows = Arrays.copyOf(sparseRows, rowMax);
+		} else {
+			values = Arrays.copyOf(values, rowMax);
 		}
-		values = Arrays.copyOf(values, rowMax);
 	}
 
 	/**
@@ -440,10 +634,13 @@ public class NamedFieldMatrix {
 	private void xResize() {
 		if (colMax < 100) {
 			colMax = 100;
-		} else if (colMax < 100000) {
-			colMax *= 2;
 		} else {
-			colMax += 50000;
+			colMax += colMax / 2;
+		}
+		switchToSparseIfDue();
+		// sparse rows do not depend on the amount of columns
+		if (isSparse()) {
+			return;
 		}
 		for (int i = 0; i < rowAmount; i++) {
 			double[] row = values[i];
@@ -453,12 +650,96 @@ public class NamedFieldMatrix {
 		}
 	}
 
+	/**
+	 * Adjusts the amount of values other than zero to a field's change.
+	 */
+	private void countChange(double previousValue, double newValue) {
+		if (nonZeroAmount < 0) {
+			return;
+		}
+		if (previousValue == 0 && newValue != 0) {
+			nonZeroAmount++;
+		} else if (previousValue != 0 && newValue == 0) {
+			nonZeroAmount--;
+		}
+	}
+
+	/**
+	 * Before the dense array grows, switches an automatically stored matrix
+	 * to sparse storage if it is big and few of it's values are other than
+	 * zero.
+	 */
+	private void switchToSparseIfDue() {
+		if (storage != Storage.AUTO || isSparse()) {
+			return;
+		}
+		final long cells = (long) rowMax * colMax;
+		if (cells < AUTO_SPARSE_MIN_CELLS) {
+			return;
+		}
+		if (nonZeroAmount < 0) {
+			nonZeroAmount = 0;
+			for (int i = 0; i < rowAmount; i++) {
+				for (int j = 0; j < colAmount; j++) {
+					if (values[i][j] != 0) {
+						nonZeroAmount++;
+					}
+				}
+			}
+		}
+		if (nonZeroAmount <= AUTO_SPARSE_MAX_DENSITY * rowAmount * colAmount) {
+			toSparse();
+		}
+	}
+
+	// moves the values from the dense array to sparse rows
+	private void toSparse() {
+		sparseRows = new SparseRow[Math.max(rowMax, rowAmount)];
+		for (int i = 0; i < rowAmount; i++) {
+			final SparseRow sparseRow = new SparseRow();
+			final double[] row = values[i];
+			if (row != null) {
+				for (int j = 0; j < colAmount && j < row.length; j++) {
+					if (row[j] != 0) {
+						sparseRow.set(j, row[j]);
+					}
+				}
+			}
+			sparseRows[i] = sparseRow;
+		}
+		values = null;
+	}
+
+	// moves the values from sparse rows to a dense array fit to the matrix
+	private void toDense() {
+		if (!isSparse()) {
+			return;
+		}
+		values = new double[rowAmount][];
+		for (int i = 0; i < rowAmount; i++) {
+			values[i] = new double[colAmount];
+			sparseRows[i].writeTo(values[i]);
+		}
+		sparseRows = null;
+		rowMax = rowAmount;
+		colMax = colAmount;
+	}
+
 	/**
 	 * Contract the matrices underlying double[][] x and y dimensions, such that
 	 * it uses exactly an amount of space equal to the rows and columns entered
 	 * so far.
 	 */
 	public void contract() {
+		if (isSparse()) {
+			if (rowAmount != sparseRows.length) {
+				sparseRows = Arrays.copyOf(sparseRows, rowAmount);
+				rowMax = rowAmount;
+			}
+			colMax = colAmount;
+			return;
+		}
+
 		// contract the array containing the rows
 		if (rowAmount != values.length) {
 			values = Arrays.copyOf(values, rowAmount);
@@ -478,6 +759,28 @@ public class NamedFieldMatrix {
 		}
 	}
 
+	/**
+	 * Creates a matrix with the rows and columns of the given matrix in the
+	 * same order, all of it's values being zero.
+	 * 
+	 * @param matrix
+	 *            The matrix to take the row and column names from.
+	 * @param storage
+	 *            How to store the new matrix' values.
+	 * @return NamedFieldMatrix instance
+	 */
+	public static NamedFieldMatrix withNamesOf(NamedFieldMatrix matrix, Storage storage) {
+		final NamedFieldMatrix result = new NamedFieldMatrix(storage);
+		for (String rowName : matrix.rowsToRowNames) {
+			result.getOrAddRow(rowName);
+		}
+		for (String colName : matrix.colsToColNames) {
+			result.getOrAddColumn(colName);
+		}
+		result.delimiter = matrix.delimiter;
+		return result;
+	}
+
 	/**
 	 * Reads CSV data from specified string and returns a NamedFieldMatrix
 	 * object instance.
@@ -507,38 +810,208 @@ public class NamedFieldMatrix {
 	 *             Thrown if the CSV input cannot be parsed
 	 */
 	public static NamedFieldMatrix parseCSV(Reader csvReader, String delimiter) throws Exception {
+		return NamedFieldMatrix.parseCSV(csvReader, delimiter, Storage.AUTO);
+	}
+
+	/**
+	 * Reads CSV data from specified reader and returns a NamedFieldMatrix
+	 * object instance using the given kind of storage.
+	 * 
+	 * @param csvReader
+	 *            Reader instance providing CSV formatted data
+	 * @param delimiter
+	 *            The input delimiter to split cells on.
+	 * @param storage
+	 *            How to store the matrix' values.
+	 * @return NamedFieldMatrix instance
+	 * @throws Exception
+	 *             Thrown if the CSV input cannot be parsed
+	 */
+	public static NamedFieldMatrix parseCSV(Reader csvReader, String delimiter, Storage storage) throws Exception {
 
 		// Instantiate matrix
-		NamedFieldMatrix matrix = new NamedFieldMatrix();
+		NamedFieldMatrix matrix = new NamedFieldMatrix(storage);
 
-		// Use scanner for input
-		Scanner input = new Scanner(csvReader);
-		input.useDelimiter("\\R");
+		// The input is read row by row
+		final CsvRowReader input = new CsvRowReader(csvReader, delimiter);
 
 		// Read csv head row
 		String[] colNames = null;
-		if (input.hasNext()) {
-			colNames = input.next().split(delimiter, -1);
+		if (input.next()) {
+			colNames = input.getStrings();
 		} else {
-			input.close();
 			throw new IOException("Cannot parse CSV data -- no head row found.");
 		}
 
 		// Read data rows
-		while (input.hasNext()) {
-			String[] data = input.next().split(delimiter, -1);
+		while (input.next()) {
 			// Store data into matrix (assuming the first column contains the
-			// dataset names)
-			for (int i = 1; i < data.length && i < colNames.length; i++) {
-				Double value = 0d; // Default value for empty string input
-				if (data[i] != null && !data[i].isEmpty())
-					value = Double.parseDouble(data[i]);
-				matrix.addValue(data[0], colNames[i], value);
+			// dataset names), empty fields are read as zero
+			final String rowName = input.getString(0);
+			for (int i = 1; i < input.getFieldAmount() && i < colNames.length; i++) {
+				matrix.addValue(rowName, colNames[i], input.getDouble(i));
 			}
 		}
 
-		input.close();
 		return matrix;
 	}
 
+	/**
+	 * Writes the matrix as csv, using the matrix' delimiter.
+	 * 
+	 * @param writer
+	 *            The writer to write to.
+	 * @throws IOException
+	 *             on error writing the output
+	 */
+	public void writeCSV(Writer writer) throws IOException {
+		final CsvRowWriter output = new CsvRowWriter(writer, delimiter);
+
+		// the first header field is empty
+		output.writeField("");
+		for (int col = 0; col < colAmount; col++) {
+			output.writeField(colsToColNames.get(col));
+		}
+		output.endRow();
+
+		// only non-zero values are written
+		for (int row = 0; row < rowAmount; row++) {
+			output.writeField(rowsToRowNames.get(row));
+			for (int col = 0; col < colAmount; col++) {
+				output.writeValue(get(row, col));
+			}
+			output.endRow();
+		}
+		output.flush();
+	}
+
+	/**
+	 * Reads a matrix in binary format from the specified stream.
+	 * 
+	 * @param input
+	 *            The stream providing the binary matrix.
+	 * @return NamedFieldMatrix instance
+	 * @throws IOException
+	 *             Thrown if the input cannot be read or is malformed
+	 * @see common.BinaryMatrixWriter
+	 */
+	public static NamedFieldMatrix parseBinary(InputStream input) throws IOException {
+		return NamedFieldMatrix.parseBinary(input, Storage.AUTO);
+	}
+
+	/**
+	 * Reads a matrix in binary format from the specified stream using the
+	 * given kind of storage.
+	 * 
+	 * @param input
+	 *            The stream providing the binary matrix.
+	 * @param storage
+	 *            How to store the matrix' values.
+	 * @return NamedFieldMatrix instance
+	 * @throws IOException
+	 *             Thrown if the input cannot be read or is malformed
+	 * @see common.BinaryMatrixWriter
+	 */
+	public static NamedFieldMatrix parseBinary(InputStream input, Storage storage) throws IOException {
+		final BinaryMatrixReader reader = new BinaryMatrixReader(input);
+		final NamedFieldMatrix matrix = new NamedFieldMatrix(storage);
+
+		// the dimensions are known upfront, so the names are set and the
+		// storage allocated at once
+		final List<String> rowNames = reader.getRowNames();
+		final List<String> colNames = reader.getColumnNames();
+		for (String name : rowNames) {
+			if (matrix.rowNamesToRows.put(name, matrix.rowsToRowNames.size()) != null) {
+				throw new IOException("Duplicate row name in binary matrix: " + name);
+			}
+			matrix.rowsToRowNames.add(name);
+		}
+		for (String name : colNames) {
+			if (matrix.colNamesToCols.put(name, matrix.colsToColNames.size()) != null) {
+				throw new IOException("Duplicate column name in binary matrix: " + name);
+			}
+			matrix.colsToColNames.add(name);
+		}
+		matrix.rowAmount = matrix.rowMax = rowNames.size();
+		matrix.colAmount = matrix.colMax = colNames.size();
+
+		// automatically stored matrices are kept sparse under the same
+		// conditions they would have been switched to sparse storage
+		final long cells = (long) matrix.rowAmount * matrix.colAmount;
+		final boolean sparse = storage == Storage.SPARSE || (storage == Storage.AUTO && reader.isSparse()
+				&& cells >= AUTO_SPARSE_MIN_CELLS && reader.getEntryAmount() <= AUTO_SPARSE_MAX_DENSITY * cells);
+		if (sparse) {
+			matrix.values = null;
+			matrix.sparseRows = new SparseRow[matrix.rowAmount];
+		} else {
+			matrix.values = new double[matrix.rowAmount][];
+		}
+
+		while (reader.nextRow()) {
+			final int row = reader.getRow();
+			if (sparse) {
+				final SparseRow sparseRow = new SparseRow();
+				for (int i = 0; i < reader.getRowEntryAmount(); i++) {
+					matrix.countChange(sparseRow.set(reader.getColumn(i), reader.getValue(i)), reader.getValue(i));
+				}
+				matrix.sparseRows[row] = sparseRow;
+			} else {
+				final double[] values = new double[matrix.colAmount];
+				for (int i = 0; i < reader.getRowEntryAmount(); i++) {
+					final double value = reader.getValue(i);
+					values[reader.getColumn(i)] = value;
+					if (value != 0) {
+						matrix.nonZeroAmount++;
+					}
+				}
+				matrix.values[row] = values;
+			}
+		}
+
+		return matrix;
+	}
+
+	/**
+	 * Writes the matrix in binary format, storing only the values other than
+	 * zero if that takes less space.
+	 * 
+	 * @param output
+	 *            The stream to write to.
+	 * @throws IOException
+	 *             on error writing the output
+	 * @see common.BinaryMatrixWriter
+	 */
+	public void writeBinary(OutputStream output) throws IOException {
+		// the values may have been changed through the exposed array, so
+		// they have to be counted again
+		long entryAmount = nonZeroAmount;
+		if (entryAmount < 0) {
+			entryAmount = 0;
+			for (int row = 0; row < rowAmount; row++) {
+				for (int col = 0; col < colAmount; col++) {
+					if (values[row][col] != 0) {
+						entryAmount++;
+					}
+				}
+			}
+		}
+
+		final BinaryMatrixWriter writer = new BinaryMatrixWriter(output);
+		writer.writeHeader(rowsToRowNames, colsToColNames, entryAmount);
+		for (int row = 0; row < rowAmount; row++) {
+			if (isSparse()) {
+				for (int col : sparseRows[row].columns()) {
+					writer.writeEntry(row, col, sparseRows[row].get(col));
+				}
+			} else {
+				for (int col = 0; col < colAmount; col++) {
+					if (values[row][col] != 0) {
+						writer.writeEntry(row, col, values[row][col]);
+					}
+				}
+			}
+		}
+		writer.finish();
+	}
+
 }
@@ -0,0 +1,181 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * A row of a sparse matrix, mapping column indices to values other than zero
+ * in a hash table with linear probing. Setting a value to zero removes it.
+ */
+final class SparseRow {
+
+	private static final int EMPTY = -1;
+
+	private int[] cols;
+	private double[] vals;
+	private int size = 0;
+
+	SparseRow() {
+		this(4);
+	}
+
+	private SparseRow(int capacity) {
+		this.cols = new int[capacity];
+		this.vals = new double[capacity];
+		Arrays.fill(this.cols, EMPTY);
+	}
+
+	/**
+	 * @return A deep copy of this row.
+	 */
+	SparseRow copy() {
+		final SparseRow result = new SparseRow(0);
+		result.cols = Arrays.copyOf(this.cols, this.cols.length);
+		result.vals = Arrays.copyOf(this.vals, this.vals.length);
+		result.size = this.size;
+		return result;
+	}
+
+	/**
+	 * @return The amount of values stored.
+	 */
+	int size() {
+		return size;
+	}
+
+	double get(int col) {
+		final int slot = find(col);
+		return (cols[slot] == EMPTY) ? 0d : vals[slot];
+	}
+
+	/**
+	 * Sets the value of the column.
+	 *
+	 * @return The previous value.
+	 */
+	double set(int col, double value) {
+		final int slot = find(col);
+		if (cols[slot] == EMPTY) {
+			if (value != 0) {
+				insert(slot, col, value);
+			}
+			return 0d;
+		}
+		final double previous = vals[slot];
+		if (value == 0) {
+			remove(slot);
+		} else {
+			vals[slot] = value;
+		}
+		return previous;
+	}
+
+	/**
+	 * Adds to the value of the column.
+	 *
+	 * @return The new value.
+	 */
+	double add(int col, double value) {
+		final int slot = find(col);
+		if (cols[slot] == EMPTY) {
+			if (value != 0) {
+				insert(slot, col, value);
+			}
+			return value;
+		}
+		final double result = vals[slot] + value;
+		if (result == 0) {
+			remove(slot);
+		} else {
+			vals[slot] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Writes all values into the given dense row.
+	 */
+	void writeTo(double[] row) {
+		for (int slot = 0; slot < cols.length; slot++) {
+			if (cols[slot] != EMPTY) {
+				row[cols[slot]] = vals[slot];
+			}
+		}
+	}
+
+	/**
+	 * @return The columns holding values, in ascending order.
+	 */
+	int[] columns() {
+		final int[] result = new int[size];
+		int i = 0;
+		for (int slot = 0; slot < cols.length; slot++) {
+			if (cols[slot] != EMPTY) {
+				result[i++] = cols[slot];
+			}
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	// the slot holding the column or the empty slot it would be inserted at
+	private int find(int col) {
+		final int mask = cols.length - 1;
+		int slot = hash(col) & mask;
+		while (cols[slot] != EMPTY && cols[slot] != col) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(int col) {
+		final int h = col * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void insert(int slot, int col, double value) {
+		cols[slot] = col;
+		vals[slot] = value;
+		size++;
+		// keep the load factor at or below 1/2
+		if (size * 2 > cols.length) {
+			rehash(cols.length * 2);
+		}
+	}
+
+	// removes the slot's entry, moving back entries of the same probe
+	// sequence so that no gaps are left in it
+	private void remove(int slot) {
+		final int mask = cols.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (cols[next] != EMPTY) {
+			final int home = hash(cols[next]) & mask;
+			// the entry may be moved into the gap if its home slot does not
+			// lie cyclically between the gap and its current slot
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				cols[gap] = cols[next];
+				vals[gap] = vals[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		cols[gap] = EMPTY;
+		size--;
+	}
+
+	private void rehash(int capacity) {
+		final int[] oldCols = cols;
+		final double[] oldVals = vals;
+		cols = new int[capacity];
+		vals = new double[capacity];
+		Arrays.fill(cols, EMPTY);
+		for (int slot = 0; slot < oldCols.length; slot++) {
+			if (oldCols[slot] != EMPTY) {
+				final int newSlot = find(oldCols[slot]);
+				cols[newSlot] = oldCols[slot];
+				vals[newSlot] = oldVals[slot];
+			}
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package modules;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 
@@ -63,7 +64,26 @@ public abstract class AbstractPort implements Port {
 	 */
 	@Override
 	public boolean supportsPipeClass(Class<? extends Pipe> pipeClass) {
-		return this.supportedPipes.containsKey(pipeClass.getCanonicalName());
+		return this.getSupportedPipeClass(pipeClass) != null;
+	}
+	
+	/**
+	 * Determines which of the supported pipe classes the specified class
+	 * belongs to (subclasses of a supported pipe class are supported, too).
+	 * @param pipeClass Pipe class
+	 * @return Supported pipe class or null
+	 */
+	protected Class<? extends Pipe> getSupportedPipeClass(Class<? extends Pipe> pipeClass) {
+		Class<? extends Pipe> supportedPipeClass = this.supportedPipes.get(pipeClass.getCanonicalName());
+		if (supportedPipeClass != null)
+			return supportedPipeClass;
+		Iterator<Class<? extends Pipe>> supportedPipeClasses = this.supportedPipes.values().iterator();
+		while (supportedPipeClasses.hasNext()){
+			supportedPipeClass = supportedPipeClasses.next();
+			if (supportedPipeClass.isAssignableFrom(pipeClass))
+				return supportedPipeClass;
+		}
+		return null;
 	}
 
 	/* (non-Javadoc)
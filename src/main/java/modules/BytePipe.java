@@ -1,23 +1,44 @@
 package modules;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 
 public class BytePipe implements Pipe {
 	
-	private PipedInputStream input;
-	private PipedOutputStream output;
+	private InputStream input;
+	private OutputStream output;
 
 	public BytePipe() throws IOException {
 		this.reset();
 	}
 	
+	/**
+	 * Constructor for subclasses that provide their own stream pair.
+	 * @param input Stream to read from
+	 * @param output Stream connected to the input stream
+	 */
+	protected BytePipe(InputStream input, OutputStream output) {
+		this.connect(input, output);
+	}
+	
+	/**
+	 * Sets the stream pair this pipe uses.
+	 * @param input Stream to read from
+	 * @param output Stream connected to the input stream
+	 */
+	protected void connect(InputStream input, OutputStream output) {
+		this.input = input;
+		this.output = output;
+	}
+	
 	/**
 	 * Get the input stream.
 	 * @return input stream
 	 */
-	public PipedInputStream getInput() {
+	public InputStream getInput() {
 		return input;
 	}
 
@@ -25,13 +46,13 @@ public class BytePipe implements Pipe {
 	 * Get the output stream.
 	 * @return output stream
 	 */
-	public PipedOutputStream getOutput() {
+	public OutputStream getOutput() {
 		return output;
 	}
 
 	/**
 	 * Writes to the output pipe.
-	 * @see PipedOutputStream#write(byte[], int, int) PipedOutputStream.write
+	 * @see OutputStream#write(byte[], int, int) OutputStream.write
 	 * @param data byte-array with data to write
 	 * @param offset write offset
 	 * @param length length of data to write
@@ -48,7 +69,7 @@ public class BytePipe implements Pipe {
 	
 	/**
 	 * Reads from the input pipe.
-	 * @see PipedInputStream#read(byte[], int, int) PipedInputStream.read
+	 * @see InputStream#read(byte[], int, int) InputStream.read
 	 * @param buffer buffer to store read input in
 	 * @param offset read offset
 	 * @param length amount of bytes to read
@@ -66,9 +87,10 @@ public class BytePipe implements Pipe {
 
 	@Override
 	public void reset() throws IOException {
-		this.input = new PipedInputStream();
-		this.output = new PipedOutputStream();
-		this.input.connect(this.output);
+		PipedInputStream pipedInputStream = new PipedInputStream();
+		PipedOutputStream pipedOutputStream = new PipedOutputStream();
+		pipedInputStream.connect(pipedOutputStream);
+		this.connect(pipedInputStream, pipedOutputStream);
 	}
 
 }
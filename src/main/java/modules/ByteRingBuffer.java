@@ -0,0 +1,134 @@
+package modules;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Single-producer ring buffer for bytes. Provides bulk transfer from and
+ * to byte arrays and ByteBuffers; each consumer reads at its own cursor.
+ */
+public class ByteRingBuffer extends RingBuffer {
+
+	private final byte[] buffer;
+
+	/**
+	 * Constructor
+	 * @param capacity Minimum capacity in bytes
+	 */
+	public ByteRingBuffer(int capacity) {
+		super(capacity);
+		this.buffer = new byte[this.getCapacity()];
+	}
+
+	/**
+	 * Reads a single byte.
+	 * @param cursor Consumer cursor
+	 * @return Byte read (0-255), or -1 if the end of stream has been reached
+	 * @throws IOException Thrown on I/O error
+	 */
+	public int read(Cursor cursor) throws IOException {
+		if (this.awaitReadable(cursor) < 0)
+			return -1;
+		int b = this.buffer[this.readIndex(cursor)] & 0xFF;
+		this.commitRead(cursor, 1);
+		return b;
+	}
+
+	/**
+	 * Reads bytes into the given array, blocking until at least one byte is available.
+	 * @param cursor Consumer cursor
+	 * @param data Destination array
+	 * @param offset Destination offset
+	 * @param length Maximum amount of bytes to read
+	 * @return Amount of bytes read, or -1 if the end of stream has been reached
+	 * @throws IOException Thrown on I/O error
+	 */
+	public int read(Cursor cursor, byte[] data, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		int available = this.awaitReadable(cursor);
+		if (available < 0)
+			return -1;
+		int amount = Math.min(length, available);
+		int index = this.readIndex(cursor);
+		int firstPart = Math.min(amount, this.buffer.length - index);
+		System.arraycopy(this.buffer, index, data, offset, firstPart);
+		if (firstPart < amount)
+			System.arraycopy(this.buffer, 0, data, offset + firstPart, amount - firstPart);
+		this.commitRead(cursor, amount);
+		return amount;
+	}
+
+	/**
+	 * Reads bytes into the given ByteBuffer, blocking until at least one byte is available.
+	 * @param cursor Consumer cursor
+	 * @param target Destination buffer
+	 * @return Amount of bytes read, or -1 if the end of stream has been reached
+	 * @throws IOException Thrown on I/O error
+	 */
+	public int read(Cursor cursor, ByteBuffer target) throws IOException {
+		if (!target.hasRemaining())
+			return 0;
+		int available = this.awaitReadable(cursor);
+		if (available < 0)
+			return -1;
+		int amount = Math.min(target.remaining(), available);
+		int index = this.readIndex(cursor);
+		int firstPart = Math.min(amount, this.buffer.length - index);
+		target.put(this.buffer, index, firstPart);
+		if (firstPart < amount)
+			target.put(this.buffer, 0, amount - firstPart);
+		this.commitRead(cursor, amount);
+		return amount;
+	}
+
+	/**
+	 * Writes a single byte, blocking while the buffer is full.
+	 * @param b Byte
+	 * @throws IOException Thrown on I/O error
+	 */
+	public void write(int b) throws IOException {
+		this.awaitWritable();
+		this.buffer[this.writeIndex()] = (byte) b;
+		this.commitWrite(1);
+	}
+
+	/**
+	 * Writes the given bytes, blocking while the buffer is full.
+	 * @param data Source array
+	 * @param offset Source offset
+	 * @param length Amount of bytes to write
+	 * @throws IOException Thrown on I/O error
+	 */
+	public void write(byte[] data, int offset, int length) throws IOException {
+		while (length > 0) {
+			int amount = Math.min(length, this.awaitWritable());
+			int index = this.writeIndex();
+			int firstPart = Math.min(amount, this.buffer.length - index);
+			System.arraycopy(data, offset, this.buffer, index, firstPart);
+			if (firstPart < amount)
+				System.arraycopy(data, offset + firstPart, this.buffer, 0, amount - firstPart);
+			this.commitWrite(amount);
+			offset += amount;
+			length -= amount;
+		}
+	}
+
+	/**
+	 * Writes the remaining content of the given ByteBuffer, blocking while the buffer is full.
+	 * @param source Source buffer
+	 * @throws IOException Thrown on I/O error
+	 */
+	public void write(ByteBuffer source) throws IOException {
+		while (source.hasRemaining()) {
+			int amount = Math.min(source.remaining(), this.awaitWritable());
+			int index = this.writeIndex();
+			int firstPart = Math.min(amount, this.buffer.length - index);
+			source.get(this.buffer, index, firstPart);
+			if (firstPart < amount)
+				source.get(this.buffer, 0, amount - firstPart);
+			this.commitWrite(amount);
+		}
+	}
+
+}
@@ -3,21 +3,42 @@ package modules;
 import java.io.IOException;
 import java.io.PipedReader;
 import java.io.PipedWriter;
+import java.io.Reader;
+import java.io.Writer;
 
 public class CharPipe implements Pipe {
 	
-	private PipedReader input;
-	private PipedWriter output;
+	private Reader input;
+	private Writer output;
 
 	public CharPipe() throws IOException {
 		this.reset();
 	}
 	
 	/**
-	 * Get input writer
+	 * Constructor for subclasses that provide their own reader/writer pair.
+	 * @param input Reader to read from
+	 * @param output Writer connected to the reader
+	 */
+	protected CharPipe(Reader input, Writer output) {
+		this.connect(input, output);
+	}
+	
+	/**
+	 * Sets the reader/writer pair this pipe uses.
+	 * @param input Reader to read from
+	 * @param output Writer connected to the reader
+	 */
+	protected void connect(Reader input, Writer output) {
+		this.input = input;
+		this.output = output;
+	}
+	
+	/**
+	 * Get input reader
 	 * @return the input
 	 */
-	public PipedReader getInput() {
+	public Reader getInput() {
 		return input;
 	}
 
@@ -25,7 +46,7 @@ public class CharPipe implements Pipe {
 	 * Get output writer
 	 * @return the output
 	 */
-	public PipedWriter getOutput() {
+	public Writer getOutput() {
 		return output;
 	}
 	
@@ -41,7 +62,7 @@ public class CharPipe implements Pipe {
 	
 	/**
 	 * Writes to the output pipe.
-	 * @see PipedWriter#write(char[], int, int) PipedReader.write
+	 * @see Writer#write(char[], int, int) Writer.write
 	 * @param data char-array with data to write
 	 * @param offset write offset
 	 * @param length length of data to write
@@ -58,7 +79,7 @@ public class CharPipe implements Pipe {
 	
 	/**
 	 * Reads from the input pipe.
-	 * @see PipedReader#read(char[], int, int) PipedReader.read
+	 * @see Reader#read(char[], int, int) Reader.read
 	 * @param buffer buffer to store read input in
 	 * @param offset read offset
 	 * @param length amount of chars to read
@@ -76,9 +97,10 @@ public class CharPipe implements Pipe {
 
 	@Override
 	public void reset() throws IOException {
-		this.input = new PipedReader();
-		this.output = new PipedWriter();
-		this.input.connect(this.output);
+		PipedReader pipedReader = new PipedReader();
+		PipedWriter pipedWriter = new PipedWriter();
+		pipedReader.connect(pipedWriter);
+		this.connect(pipedReader, pipedWriter);
 	}
 
 }
@@ -0,0 +1,156 @@
+package modules;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * Single-producer ring buffer for characters. Provides bulk transfer from
+ * and to char arrays, Strings and CharBuffers; each consumer reads at its
+ * own cursor.
+ */
+public class CharRingBuffer extends RingBuffer {
+
+	private final char[] buffer;
+
+	/**
+	 * Constructor
+	 * @param capacity Minimum capacity in characters
+	 */
+	public CharRingBuffer(int capacity) {
+		super(capacity);
+		this.buffer = new char[this.getCapacity()];
+	}
+
+	/**
+	 * Reads a single character.
+	 * @param cursor Consumer cursor
+	 * @return Character read, or -1 if the end of stream has been reached
+	 * @throws IOException Thrown on I/O error
+	 */
+	public int read(Cursor cursor) throws IOException {
+		if (this.awaitReadable(cursor) < 0)
+			return -1;
+		char c = this.buffer[this.readIndex(cursor)];
+		this.commitRead(cursor, 1);
+		return c;
+	}
+
+	/**
+	 * Reads characters into the given array, blocking until at least one character is available.
+	 * @param cursor Consumer cursor
+	 * @param data Destination array
+	 * @param offset Destination offset
+	 * @param length Maximum amount of characters to read
+	 * @return Amount of characters read, or -1 if the end of stream has been reached
+	 * @throws IOException Thrown on I/O error
+	 */
+	public int read(Cursor cursor, char[] data, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		int available = this.awaitReadable(cursor);
+		if (available < 0)
+			return -1;
+		int amount = Math.min(length, available);
+		int index = this.readIndex(cursor);
+		int firstPart = Math.min(amount, this.buffer.length - index);
+		System.arraycopy(this.buffer, index, data, offset, firstPart);
+		if (firstPart < amount)
+			System.arraycopy(this.buffer, 0, data, offset + firstPart, amount - firstPart);
+		this.commitRead(cursor, amount);
+		return amount;
+	}
+
+	/**
+	 * Reads characters into the given CharBuffer, blocking until at least one character is available.
+	 * @param cursor Consumer cursor
+	 * @param target Destination buffer
+	 * @return Amount of characters read, or -1 if the end of stream has been reached
+	 * @throws IOException Thrown on I/O error
+	 */
+	public int read(Cursor cursor, CharBuffer target) throws IOException {
+		if (!target.hasRemaining())
+			return 0;
+		int available = this.awaitReadable(cursor);
+		if (available < 0)
+			return -1;
+		int amount = Math.min(target.remaining(), available);
+		int index = this.readIndex(cursor);
+		int firstPart = Math.min(amount, this.buffer.length - index);
+		target.put(this.buffer, index, firstPart);
+		if (firstPart < amount)
+			target.put(this.buffer, 0, amount - firstPart);
+		this.commitRead(cursor, amount);
+		return amount;
+	}
+
+	/**
+	 * Writes a single character, blocking while the buffer is full.
+	 * @param c Character
+	 * @throws IOException Thrown on I/O error
+	 */
+	public void write(int c) throws IOException {
+		this.awaitWritable();
+		this.buffer[this.writeIndex()] = (char) c;
+		this.commitWrite(1);
+	}
+
+	/**
+	 * Writes the given characters, blocking while the buffer is full.
+	 * @param data Source array
+	 * @param offset Source offset
+	 * @param length Amount of characters to write
+	 * @throws IOException Thrown on I/O error
+	 */
+	public void write(char[] data, int offset, int length) throws IOException {
+		while (length > 0) {
+			int amount = Math.min(length, this.awaitWritable());
+			int index = this.writeIndex();
+			int firstPart = Math.min(amount, this.buffer.length - index);
+			System.arraycopy(data, offset, this.buffer, index, firstPart);
+			if (firstPart < amount)
+				System.arraycopy(data, offset + firstPart, this.buffer, 0, amount - firstPart);
+			this.commitWrite(amount);
+			offset += amount;
+			length -= amount;
+		}
+	}
+
+	/**
+	 * Writes a portion of the given String, blocking while the buffer is full.
+	 * @param data Source String
+	 * @param offset Source offset
+	 * @param length Amount of characters to write
+	 * @throws IOException Thrown on I/O error
+	 */
+	public void write(String data, int offset, int length) throws IOException {
+		while (length > 0) {
+			int amount = Math.min(length, this.awaitWritable());
+			int index = this.writeIndex();
+			int firstPart = Math.min(amount, this.buffer.length - index);
+			data.getChars(offset, offset + firstPart, this.buffer, index);
+			if (firstPart < amount)
+				data.getChars(offset + firstPart, offset + amount, this.buffer, 0);
+			this.commitWrite(amount);
+			offset += amount;
+			length -= amount;
+		}
+	}
+
+	/**
+	 * Writes the remaining content of the given CharBuffer, blocking while the buffer is full.
+	 * @param source Source buffer
+	 * @throws IOException Thrown on I/O error
+	 */
+	public void write(CharBuffer source) throws IOException {
+		while (source.hasRemaining()) {
+			int amount = Math.min(source.remaining(), this.awaitWritable());
+			int index = this.writeIndex();
+			int firstPart = Math.min(amount, this.buffer.length - index);
+			source.get(this.buffer, index, firstPart);
+			if (firstPart < amount)
+				source.get(this.buffer, 0, amount - firstPart);
+			this.commitWrite(amount);
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package modules;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Module scheduler backed by an Executor. Provides factory methods for a
+ * new thread per module (as the module network always used to do), for a
+ * thread pool and for virtual threads.
+ */
+public class ExecutorModuleScheduler implements ModuleScheduler {
+
+	private final Executor executor;
+	private final int maxParallelism;
+
+	/**
+	 * Constructor
+	 * @param executor Executor to run the modules on
+	 * @param maxParallelism Maximum amount of modules the executor runs at the same time (-1 if unbounded)
+	 */
+	public ExecutorModuleScheduler(Executor executor, int maxParallelism) {
+		super();
+		this.executor = executor;
+		this.maxParallelism = maxParallelism;
+	}
+
+	/**
+	 * Creates a scheduler that starts a new platform thread for every module.
+	 * @return Scheduler
+	 */
+	public static ExecutorModuleScheduler threadPerModule() {
+		return new ExecutorModuleScheduler(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				new Thread(command).start();
+			}
+		}, -1);
+	}
+
+	/**
+	 * Creates a scheduler that runs the modules on a pool of (daemon) threads,
+	 * keeping the given amount of threads for later runs. All modules
+	 * connected to each other have to run at the same time, so the pool grows
+	 * beyond that for networks with more modules; the additional threads end
+	 * after a minute without a module to run.
+	 * @param threads Amount of threads kept
+	 * @return Scheduler
+	 */
+	public static ExecutorModuleScheduler pooled(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The module thread pool needs at least one thread.");
+		return new ExecutorModuleScheduler(new ThreadPoolExecutor(threads, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = this.defaultFactory.newThread(runnable);
+				thread.setDaemon(true);
+				return thread;
+			}
+		}), -1);
+	}
+
+	/**
+	 * Creates a scheduler that runs every module on a virtual thread. Falls
+	 * back to a platform thread per module if the JVM does not provide
+	 * virtual threads (they need Java 21 or later).
+	 * @return Scheduler
+	 */
+	public static ExecutorModuleScheduler virtualThreads() {
+		try {
+			// Looked up reflectively, since the source level predates virtual threads
+			ExecutorService executor = (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			return new ExecutorModuleScheduler(executor, -1);
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			Logger.getLogger(ExecutorModuleScheduler.class.getSimpleName()).log(Level.WARNING,
+					"Virtual threads are not available on this JVM, starting a platform thread per module instead.");
+			return threadPerModule();
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> schedule(Runnable task) {
+		return CompletableFuture.runAsync(task, this.executor);
+	}
+
+	@Override
+	public int getMaxParallelism() {
+		return this.maxParallelism;
+	}
+
+	@Override
+	public void shutdown() {
+		if (this.executor instanceof ExecutorService)
+			((ExecutorService) this.executor).shutdown();
+	}
+
+}
@@ -1,8 +1,8 @@
 package modules;
 
 import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedReader;
+import java.io.InputStream;
+import java.io.Reader;
 
 
 public class InputPort extends AbstractPort {
@@ -34,9 +34,9 @@ public class InputPort extends AbstractPort {
 	 * @return Input stream
 	 * @throws NotSupportedException Thrown if something goes wrong
 	 */
-	public PipedInputStream getInputStream() throws NotSupportedException {
+	public InputStream getInputStream() throws NotSupportedException {
 		if (this.pipe == null) return null;
-		if (!this.pipe.getClass().equals(BytePipe.class)){
+		if (!BytePipe.class.isInstance(this.pipe)){
 			throw new NotSupportedException("This port ("+this.toString()+") does not provide byte stream input.");
 		} else {
 			BytePipe bytePipe = (BytePipe) this.pipe;
@@ -49,9 +49,9 @@ public class InputPort extends AbstractPort {
 	 * @return Input reader
 	 * @throws NotSupportedException Thrown if something goes wrong
 	 */
-	public PipedReader getInputReader() throws NotSupportedException {
+	public Reader getInputReader() throws NotSupportedException {
 		if (this.pipe == null) return null;
-		if (!this.pipe.getClass().equals(CharPipe.class)){
+		if (!CharPipe.class.isInstance(this.pipe)){
 			throw new NotSupportedException("This port ("+this.toString()+") does not provide character stream input.");
 		} else {
 			CharPipe charPipe = (CharPipe) this.pipe;
@@ -71,7 +71,7 @@ public class InputPort extends AbstractPort {
 	 */
 	public int read(byte[] buffer, int offset, int length) throws NotSupportedException, IOException {
 		if (this.pipe == null) throw new IOException("There is no pipe to read from.");
-		if (!this.pipe.getClass().equals(BytePipe.class)){
+		if (!BytePipe.class.isInstance(this.pipe)){
 			throw new NotSupportedException("This port ("+this.toString()+") does not provide byte stream input.");
 		} else {
 			BytePipe bytePipe = (BytePipe) this.pipe;
@@ -91,7 +91,7 @@ public class InputPort extends AbstractPort {
 	 */
 	public int read(char[] buffer, int offset, int length) throws NotSupportedException, IOException {
 		if (this.pipe == null) throw new IOException("There is no pipe to read from.");
-		if (!this.pipe.getClass().equals(CharPipe.class)){
+		if (!CharPipe.class.isInstance(this.pipe)){
 			throw new NotSupportedException("This port ("+this.toString()+") does not provide character stream input.");
 		} else {
 			CharPipe charPipe = (CharPipe) this.pipe;
@@ -99,6 +99,33 @@ public class InputPort extends AbstractPort {
 		}
 	}
 
+	/**
+	 * Reads the next object from the input.
+	 * @see modules.ObjectPipe#read(Class)
+	 * @param type Expected type of the object
+	 * @param <T> Expected type of the object
+	 * @return Object read (null if input is closed)
+	 * @throws NotSupportedException Thrown if this port does not provide object input after all
+	 * @throws IOException Thrown if something goes wrong
+	 */
+	public <T> T readObject(Class<T> type) throws NotSupportedException, IOException {
+		if (this.pipe == null) throw new IOException("There is no pipe to read from.");
+		if (!ObjectPipe.class.isInstance(this.pipe)){
+			throw new NotSupportedException("This port ("+this.toString()+") does not provide object input.");
+		} else {
+			ObjectPipe objectPipe = (ObjectPipe) this.pipe;
+			return objectPipe.read(type);
+		}
+	}
+	
+	/**
+	 * Returns whether this port receives objects (rather than serialised data).
+	 * @return True if connected through an object pipe
+	 */
+	public boolean providesObjects() {
+		return ObjectPipe.class.isInstance(this.pipe);
+	}
+
 	@Override
 	public void addPipe(Pipe pipe, Port connectedPort) throws NotSupportedException, OccupiedException {
 		if (super.supportsPipe(pipe)){
@@ -6,6 +6,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,9 +30,18 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	// List of started threads
 	private Map<Module,Thread> startedThreads = new HashMap<Module,Thread>();
 
+	// Futures of the modules scheduled (completed once the respective module has finished)
+	private Map<Module,CompletableFuture<Void>> scheduledModules = new ConcurrentHashMap<Module,CompletableFuture<Void>>();
+
+	// Scheduler that determines the threads modules are run on
+	private ModuleScheduler moduleScheduler = ExecutorModuleScheduler.threadPerModule();
+
+	// Capacity of the ring buffers used for new pipes (values below 1 select the java.io piped streams)
+	private int pipeBufferCapacity = RingBuffer.DEFAULT_CAPACITY;
+
 	/**
 	 * Determines which pipe to use between both given module ports (prefers
-	 * byte pipe).
+	 * object pipe, then byte pipe), with ring buffers of the default capacity.
 	 * 
 	 * @param port1
 	 *            Module port 1
@@ -42,17 +55,123 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	 */
 	public static Pipe getCompatiblePipe(Port port1,
 			Port port2) throws NotSupportedException, IOException {
-		Pipe pipe = new BytePipe();
-		if (!(port2.supportsPipe(pipe) && port1
-				.supportsPipe(pipe))) {
-			pipe = new CharPipe();
-			if (!(port2.supportsPipe(pipe) && port1
-					.supportsPipe(pipe))) {
-				throw new NotSupportedException (
-						"The I/O of those two module ports does not seem to be compatible.");
+		return ModuleNetwork.getCompatiblePipe(port1, port2, RingBuffer.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Determines which pipe to use between both given module ports (prefers
+	 * object pipe, then byte pipe).
+	 * 
+	 * @param port1
+	 *            Module port 1
+	 * @param port2
+	 *            Module port 2
+	 * @param pipeBufferCapacity
+	 *            Capacity of new ring buffers in chars/bytes (values below 1 select java.io piped streams)
+	 * @return Compatible pipe
+	 * @throws IOException
+	 *             Thrown if an I/O error occurs
+	 * @throws NotSupportedException
+	 *             Thrown if the module ports' I/O is not compatible
+	 */
+	public static Pipe getCompatiblePipe(Port port1,
+			Port port2, int pipeBufferCapacity) throws NotSupportedException, IOException {
+		
+		// Determine the output port (if any), so that new pipes can share its existing ring buffer
+		OutputPort outputPort = null;
+		if (port1 instanceof OutputPort)
+			outputPort = (OutputPort) port1;
+		else if (port2 instanceof OutputPort)
+			outputPort = (OutputPort) port2;
+		
+		// Ports that can both handle objects do not need to serialise anything
+		if (port2.supportsPipeClass(ObjectPipe.class) && port1
+				.supportsPipeClass(ObjectPipe.class))
+			return ModuleNetwork.createPipe(ObjectPipe.class, outputPort, pipeBufferCapacity);
+		if (port2.supportsPipeClass(BytePipe.class) && port1
+				.supportsPipeClass(BytePipe.class))
+			return ModuleNetwork.createPipe(BytePipe.class, outputPort, pipeBufferCapacity);
+		if (port2.supportsPipeClass(CharPipe.class) && port1
+				.supportsPipeClass(CharPipe.class))
+			return ModuleNetwork.createPipe(CharPipe.class, outputPort, pipeBufferCapacity);
+		throw new NotSupportedException (
+				"The I/O of those two module ports does not seem to be compatible.");
+	}
+
+	/**
+	 * Instantiates a pipe of the given class that is to be connected to the
+	 * given output port. Plain byte and char pipes are replaced by their ring
+	 * buffer counterparts unless the pipe buffer capacity has been set to
+	 * zero; if the output port already has a ring buffer pipe of the same
+	 * kind, the new pipe shares its buffer, so the data is only written once.
+	 * 
+	 * @param pipeClass
+	 *            Pipe class
+	 * @param outputPort
+	 *            Output port the pipe will be connected to (may be null)
+	 * @param pipeBufferCapacity
+	 *            Capacity of a new ring buffer in chars/bytes
+	 * @return Pipe instance
+	 * @throws IOException
+	 *             Thrown if the pipe cannot be instantiated
+	 */
+	public static Pipe createPipe(Class<?> pipeClass, OutputPort outputPort, int pipeBufferCapacity) throws IOException {
+		if (pipeBufferCapacity > 0){
+			if (BytePipe.class.equals(pipeClass) || RingBufferBytePipe.class.equals(pipeClass)){
+				if (outputPort != null && outputPort.supportsPipeClass(BytePipe.class))
+					for (Pipe sibling : outputPort.getPipes(BytePipe.class))
+						if (sibling instanceof RingBufferBytePipe)
+							return new RingBufferBytePipe((RingBufferBytePipe) sibling);
+				return new RingBufferBytePipe(pipeBufferCapacity);
+			}
+			if (CharPipe.class.equals(pipeClass) || RingBufferCharPipe.class.equals(pipeClass)){
+				if (outputPort != null && outputPort.supportsPipeClass(CharPipe.class))
+					for (Pipe sibling : outputPort.getPipes(CharPipe.class))
+						if (sibling instanceof RingBufferCharPipe)
+							return new RingBufferCharPipe((RingBufferCharPipe) sibling);
+				return new RingBufferCharPipe(pipeBufferCapacity);
 			}
 		}
-		return pipe;
+		try {
+			return (Pipe) pipeClass.getConstructor().newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IOException("Cannot instantiate pipe class "+pipeClass.getCanonicalName()+".", e);
+		}
+	}
+
+	/**
+	 * Returns the ring buffer capacity used for the pipes this network creates.
+	 * @return Capacity in chars/bytes (values below 1 mean java.io piped streams are used)
+	 */
+	public int getPipeBufferCapacity() {
+		return pipeBufferCapacity;
+	}
+
+	/**
+	 * Sets the ring buffer capacity used for the pipes this network creates
+	 * from now on.
+	 * @param pipeBufferCapacity Capacity in chars/bytes (values below 1 select java.io piped streams)
+	 */
+	public void setPipeBufferCapacity(int pipeBufferCapacity) {
+		this.pipeBufferCapacity = pipeBufferCapacity;
+	}
+
+	/**
+	 * Returns the scheduler that determines the threads this network's
+	 * modules are run on.
+	 * @return Module scheduler
+	 */
+	public ModuleScheduler getModuleScheduler() {
+		return moduleScheduler;
+	}
+
+	/**
+	 * Sets the scheduler that determines the threads this network's modules
+	 * are run on (a new platform thread per module by default).
+	 * @param moduleScheduler Module scheduler
+	 */
+	public void setModuleScheduler(ModuleScheduler moduleScheduler) {
+		this.moduleScheduler = moduleScheduler;
 	}
 
 	/**
@@ -96,6 +215,16 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 		return (this.startedThreads.values().remove(thread));
 	}
 	
+	/**
+	 * Removes the thread of a finished module from the list of the ones
+	 * started in a thread-safe manner (without interrupting it).
+	 * @param module Module that has finished
+	 * @param thread Thread the module ran on
+	 */
+	private synchronized void removeFinishedThread(Module module, Thread thread){
+		this.startedThreads.remove(module, thread);
+	}
+	
 	/**
 	 * Removes dead threads from the list of the ones started in a thread-safe manner.
 	 */
@@ -143,7 +272,7 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 			throws NotSupportedException, OccupiedException, IOException {
 
 		// Determine pipe that connects both modules
-		Pipe pipe = ModuleNetwork.getCompatiblePipe(port1, port2);
+		Pipe pipe = ModuleNetwork.getCompatiblePipe(port1, port2, this.pipeBufferCapacity);
 
 		// Jump to more detailed method
 		return this.addConnection(port1, port2, pipe);
@@ -250,11 +379,18 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 			
 		// Check whether there are running threads and if not, write a
 		// message into the log
-		if (this.startedThreads.isEmpty())
+		if (this.startedThreads.isEmpty() && this.scheduledModules.isEmpty())
 			Logger.getLogger("")
 					.log(Level.WARNING,
 							"Excuse me, but there are no running threads to interrupt.");
 
+		// Cancel modules that have not been started yet
+		Iterator<CompletableFuture<Void>> futures = this.scheduledModules.values().iterator();
+		while (futures.hasNext()) {
+			futures.next().cancel(false);
+			futures.remove();
+		}
+
 		// Interrupt running threads
 		this.interruptAllThreads();
 		
@@ -293,28 +429,26 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	 *            If true, the method runs until all spawned threads have
 	 *            finished
 	 * @param interval
-	 *            Interval to check for thread completion in milliseconds
+	 *            Interval to log the modules' status in milliseconds (while
+	 *            waiting for them to finish)
 	 * @throws Exception Thrown if something goes wrong
 	 */
 	public void runModules(boolean runUntilAllThreadsAreDone, long interval)
 			throws Exception {
 
-		// Loop over all modules
-		Iterator<Module> modules = this.moduleList.iterator();
-		while (modules.hasNext()){
-			// Run module
-			this.runModule(modules.next());
-		}
+		// Start all modules
+		CompletableFuture<Void> completion = this.runModulesAsync();
 		
 		// Determine runtime environment
 		Runtime rt = Runtime.getRuntime();
 		long maxBelegterHauptspeicher = 0l;
 
-		// Wait for threads to finish, if requested
-		while (runUntilAllThreadsAreDone && !this.startedThreads.isEmpty()) {
+		// Wait for modules to finish, if requested (returns as soon as the last one is done)
+		while (runUntilAllThreadsAreDone) {
 			try {
-				// Sleep for a quarter second
-				Thread.sleep(interval);
+				completion.get(interval, TimeUnit.MILLISECONDS);
+				break;
+			} catch (TimeoutException e) {
 
 				// Print pretty overview
 				Logger.getLogger(this.getClass().getSimpleName()).log(
@@ -327,10 +461,6 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 			    	maxBelegterHauptspeicher = belegterHauptspeicher;
 			    Logger.getLogger(this.getClass().getSimpleName()).log(Level.INFO, "Hauptspeicher belegt (MB):" + belegterHauptspeicher + "; bisheriges Max.:"+maxBelegterHauptspeicher);
 
-				// Test which threads are still active and remove the rest from
-				// the list
-				this.removeDeadThreads();
-
 			} catch (InterruptedException e) {
 				break;
 			}
@@ -338,68 +468,146 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	}
 
 	/**
-	 * Runs the specified module (within a separate thread).
+	 * Starts all modules using the module scheduler and returns without
+	 * waiting for them. Connected modules wait for each other, so all modules
+	 * have to run at the same time: a scheduler running fewer tasks at a time
+	 * than there are modules is rejected (the schedulers created by
+	 * ExecutorModuleScheduler are all unbounded).
+	 * 
+	 * @return Future that completes once all modules have finished
+	 * @throws IllegalStateException Thrown if the scheduler runs fewer tasks at the same time than there are modules
+	 * @throws Exception Thrown if something goes wrong
+	 */
+	public CompletableFuture<Void> runModulesAsync() throws Exception {
+
+		// Connected modules wait for each other, so all of them have to run at the same time
+		int maxParallelism = moduleScheduler.getMaxParallelism();
+		if (maxParallelism > 0 && maxParallelism < this.moduleList.size())
+			throw new IllegalStateException("The module scheduler runs at most " + maxParallelism
+					+ " modules at the same time, but there are " + this.moduleList.size()
+					+ ". Modules waiting for input from one that has not been started yet would block forever.");
+
+		// Loop over all modules
+		List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+		Iterator<Module> modules = this.moduleList.iterator();
+		while (modules.hasNext()){
+			// Run module
+			futures.add(this.runModule(modules.next()));
+		}
+		
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+	}
+
+	/**
+	 * Runs the specified module (on a thread provided by the module scheduler).
 	 * 
 	 * @param module Module to run
+	 * @return Future that completes once the module has finished
 	 * @throws Exception
 	 */
-	private void runModule(Module module) throws Exception {
-
-		// Initialize thread
-		final Thread moduleThread = new Thread(module);
-		moduleThread.setName(module.getName());
+	private CompletableFuture<Void> runModule(final Module module) throws Exception {
 
 		// Final list of started threads
 		final ModuleNetwork moduleNetworkInstance = this;
 
-		// Define action to perform on success (note that this merely means the
-		// module finished without throwing an exception -- not necessarily that
-		// the module's own computation was successful)
-		Action successAction = new Action() {
+		// Define the task to run (the thread is only known once it has started)
+		Runnable task = new Runnable() {
 			@Override
-			public void perform(Object processResult) {
-				Boolean result = Boolean.parseBoolean(processResult.toString());
-				if (result)
-					Logger.getLogger("").log(
-							Level.INFO,
-							"Module " + module.getName()
-									+ " has successfully finished processing.");
-				else
-					Logger.getLogger("")
-							.log(Level.WARNING,
-									"Module "
-											+ module.getName()
-											+ " did not finish processing successfully.");
-				// Remove thread from list of running ones
-				moduleNetworkInstance.removeStartedThread(moduleThread);
-			}
-		};
+			public void run() {
+				
+				// Determine the thread and name it after the module for the time being
+				final Thread moduleThread = Thread.currentThread();
+				String threadName = moduleThread.getName();
+				moduleThread.setName(module.getName());
+
+				// Define action to perform on success (note that this merely means the
+				// module finished without throwing an exception -- not necessarily that
+				// the module's own computation was successful)
+				Action successAction = new Action() {
+					@Override
+					public void perform(Object processResult) {
+						Boolean result = Boolean.parseBoolean(processResult.toString());
+						if (result)
+							Logger.getLogger("").log(
+									Level.INFO,
+									"Module " + module.getName()
+											+ " has successfully finished processing.");
+						else
+							Logger.getLogger("")
+									.log(Level.WARNING,
+											"Module "
+													+ module.getName()
+													+ " did not finish processing successfully.");
+					}
+				};
 
-		// Define action to perform on failure
-		Action failureAction = new Action() {
-			@Override
-			public void perform(Object processResult) {
 				// Since any exception already gets reported from within the
-				// super class' receiveException() method, we only need to
-				// remove the thread from our list.
-				moduleNetworkInstance.removeStartedThread(moduleThread);
+				// super class' receiveException() method, there is nothing
+				// else to do on failure.
+				Action failureAction = new Action() {};
+
+				// Add module thread to list of the ones started
+				moduleNetworkInstance.addStartedThread(module, moduleThread);
+
+				// Register callback actions
+				moduleNetworkInstance.registerSuccessCallback(moduleThread, successAction);
+				moduleNetworkInstance.registerFailureCallback(moduleThread, failureAction);
+
+				// Log thread start message & run the module
+				Logger.getLogger("").log(
+						Level.INFO,
+						"Starting to process module " + module.getName()
+								+ " on thread #" + moduleThread.getId());
+				ModuleTask moduleTask = ModuleTask.begin();
+				boolean failed = true;
+				try {
+					module.run();
+					failed = module.getStatus() == Module.STATUSCODE_FAILURE;
+				} catch (Throwable t) {
+					// The scheduler's threads do not pass on uncaught exceptions
+					moduleNetworkInstance.receiveException(moduleThread, t);
+				} finally {
+					// Peers must not wait for a failed module (its thread may live on in a pool)
+					moduleTask.end(failed);
+					if (failed)
+						closeModuleIO(module);
+					// Remove thread from list of running ones (it may be re-used for another module)
+					moduleNetworkInstance.removeFinishedThread(module, moduleThread);
+					moduleThread.setName(threadName);
+				}
 			}
 		};
 
-		// Add module thread to list of the ones started
-		this.addStartedThread(module, moduleThread);
-
-		// Register callback actions
-		this.registerSuccessCallback(moduleThread, successAction);
-		this.registerFailureCallback(moduleThread, failureAction);
-
-		// Log thread start message & fire it up 
-		Logger.getLogger("").log(
-				Level.INFO,
-				"Starting to process module " + module.getName()
-						+ " on thread #" + moduleThread.getId());
-		moduleThread.start();
+		// Schedule the task
+		CompletableFuture<Void> future = moduleScheduler.schedule(task);
+		this.scheduledModules.put(module, future);
+		future.whenComplete((result, exception) -> this.scheduledModules.remove(module, future));
+		return future;
+	}
 
+	/*
+	 * Closes all pipes of the given module, so that its peers stop waiting
+	 * for it.
+	 */
+	private static void closeModuleIO(Module module) {
+		for (OutputPort outputPort : module.getOutputPorts().values()) {
+			try {
+				outputPort.close();
+			} catch (IOException e) {
+				Logger.getLogger("").log(Level.WARNING, "Could not close output port " + outputPort.getName()
+						+ " of failed module " + module.getName() + ".", e);
+			}
+		}
+		for (InputPort inputPort : module.getInputPorts().values()) {
+			if (inputPort.getPipe() == null)
+				continue;
+			try {
+				inputPort.getPipe().readClose();
+			} catch (IOException e) {
+				Logger.getLogger("").log(Level.WARNING, "Could not close input port " + inputPort.getName()
+						+ " of failed module " + module.getName() + ".", e);
+			}
+		}
 	}
 
 	/**
@@ -435,7 +643,10 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	 */
 	public synchronized boolean removeModule(Module module){
 		
-		// If running, stop
+		// If running (or about to), stop
+		CompletableFuture<Void> moduleFuture = this.scheduledModules.remove(module);
+		if (moduleFuture != null)
+			moduleFuture.cancel(false);
 		Thread moduleThread = this.startedThreads.remove(module);
 		if (moduleThread != null)
 			moduleThread.interrupt();
@@ -20,12 +20,29 @@ import common.parallelization.CallbackReceiver;
 
 public class ModuleNetworkGsonDeserializer implements JsonDeserializer<ModuleNetwork> {
 
+	// Capacity of the ring buffers of the networks deserialized (values below 1 select the java.io piped streams)
+	private final int pipeBufferCapacity;
+
+	public ModuleNetworkGsonDeserializer() {
+		this(RingBuffer.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor
+	 * @param pipeBufferCapacity Capacity of the ring buffers used for the pipes of the networks deserialized
+	 */
+	public ModuleNetworkGsonDeserializer(int pipeBufferCapacity) {
+		super();
+		this.pipeBufferCapacity = pipeBufferCapacity;
+	}
+
 	@Override
 	public ModuleNetwork deserialize(JsonElement json, Type typeOfT,
 			JsonDeserializationContext context) throws JsonParseException {
 		
 		// Set up module tree
 		ModuleNetwork moduleNetwork = new ModuleNetwork();
+		moduleNetwork.setPipeBufferCapacity(this.pipeBufferCapacity);
 		
 		// Instantiate new JSON parser
 		Gson gson = new Gson();
@@ -119,9 +136,15 @@ public class ModuleNetworkGsonDeserializer implements JsonDeserializer<ModuleNet
 					throw new JsonParseException(
 							"The port connection mapping seems to be inconsistent. Please check the serialized input.");
 
+				// Ports that can both handle objects are connected through an
+				// object pipe, even if the network has been saved with a
+				// serialising one
+				if (inputPort.supportsPipeClass(ObjectPipe.class)
+						&& outputPort.supportsPipeClass(ObjectPipe.class))
+					pipeClass = ObjectPipe.class;
+
 				// All is well, instantiate the pipe ...
-				Constructor<?> constructor = pipeClass.getConstructor();
-				Pipe pipe = (Pipe) constructor.newInstance(new Object[] {});
+				Pipe pipe = ModuleNetwork.createPipe(pipeClass, (OutputPort) outputPort, this.pipeBufferCapacity);
 
 				// ... and connect the ports with it
 				inputPort.addPipe(pipe, outputPort);
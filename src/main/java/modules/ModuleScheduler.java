@@ -0,0 +1,31 @@
+package modules;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Determines the threads the modules of a network are run on.
+ * @see ExecutorModuleScheduler
+ */
+public interface ModuleScheduler {
+
+	/**
+	 * Runs the given task (processing a single module) asynchronously.
+	 * @param task Task to run
+	 * @return Future that completes once the task has finished
+	 */
+	public CompletableFuture<Void> schedule(Runnable task);
+
+	/**
+	 * Returns the maximum amount of tasks that can run at the same time.
+	 * Since connected modules block until their peers read or write, a
+	 * network with more modules than that is not run.
+	 * @return Maximum amount of parallel tasks (-1 if unbounded)
+	 */
+	public int getMaxParallelism();
+
+	/**
+	 * Releases the threads held by this scheduler. Tasks already scheduled
+	 * will still be run, new ones will be rejected.
+	 */
+	public void shutdown();
+}
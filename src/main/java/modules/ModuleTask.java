@@ -0,0 +1,72 @@
+package modules;
+
+/**
+ * The task a module is processed in. Pipe ends remember the task that last
+ * used them, so that a peer waiting on them notices when that task has ended
+ * -- also if the thread it ran on lives on in a thread pool. Threads not
+ * running a module task (e.g. ones started directly) count as a task of
+ * their own that ends with the thread.
+ */
+final class ModuleTask {
+
+	private static final ThreadLocal<ModuleTask> CURRENT = new ThreadLocal<ModuleTask>();
+
+	private final Thread thread;
+	private volatile boolean ended = false;
+	private volatile boolean failed = false;
+
+	private ModuleTask(Thread thread) {
+		this.thread = thread;
+	}
+
+	/**
+	 * Starts a new task on the current thread.
+	 * @return Task
+	 */
+	static ModuleTask begin() {
+		ModuleTask task = new ModuleTask(Thread.currentThread());
+		CURRENT.set(task);
+		return task;
+	}
+
+	/**
+	 * Returns the task running on the current thread.
+	 * @return Task
+	 */
+	static ModuleTask current() {
+		ModuleTask task = CURRENT.get();
+		if (task == null) {
+			task = new ModuleTask(Thread.currentThread());
+			CURRENT.set(task);
+		}
+		return task;
+	}
+
+	/**
+	 * Ends this task. Must be called on the thread running it.
+	 * @param failed Whether the module failed
+	 */
+	void end(boolean failed) {
+		this.failed = failed;
+		this.ended = true;
+		if (CURRENT.get() == this)
+			CURRENT.remove();
+	}
+
+	/**
+	 * Returns whether the task is still running.
+	 * @return True if alive
+	 */
+	boolean isAlive() {
+		return !this.ended && this.thread.isAlive();
+	}
+
+	/**
+	 * Returns whether the task ended because its module failed.
+	 * @return True if failed
+	 */
+	boolean hasFailed() {
+		return this.failed;
+	}
+
+}
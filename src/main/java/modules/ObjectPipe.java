@@ -0,0 +1,163 @@
+package modules;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipe passing in-memory objects (whole models or single records) from one
+ * module to another without serialising them. Backed by a bounded queue, so
+ * a writer producing records faster than they are consumed is held back.
+ *
+ * Objects are handed over by reference; an output port passes the same
+ * instance to all of its object pipes. Receiving modules thus must treat
+ * them as read-only (and copy them before making any changes), and the
+ * sending module must not change an object after having written it.
+ */
+public class ObjectPipe implements Pipe {
+
+	/**
+	 * Default amount of objects that can be queued before the writer blocks.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	// Upper bound for a single wait; only used to re-check whether the other end is still alive
+	private static final long WAITMILLIS = 100l;
+
+	// Queued after the last object (unless the queue is full, in which case the reader will notice the closed flag)
+	private static final Object ENDOFSTREAM = new Object();
+
+	private final int capacity;
+	private volatile BlockingQueue<Object> queue;
+	private volatile boolean readClosed = false;
+	private volatile boolean writeClosed = false;
+	private boolean endOfStreamReached = false;
+	// Task that last wrote (used to detect a dead write end, as PipedReader does)
+	private volatile ModuleTask writerTask = null;
+
+	/**
+	 * Creates a pipe with the default capacity.
+	 */
+	public ObjectPipe() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a pipe with the specified capacity.
+	 * @param capacity Amount of objects that can be queued before the writer blocks
+	 */
+	public ObjectPipe(int capacity) {
+		super();
+		if (capacity < 1)
+			throw new IllegalArgumentException("Object pipe capacity must be positive.");
+		this.capacity = capacity;
+		this.queue = new ArrayBlockingQueue<Object>(capacity);
+	}
+
+	/**
+	 * Returns the amount of objects that can be queued before the writer blocks.
+	 * @return Capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Writes an object to the pipe, blocking while the pipe is full.
+	 * @param object Object to write (must not be null)
+	 * @throws IOException Thrown if either end of the pipe is closed or the waiting thread got interrupted
+	 */
+	public void write(Object object) throws IOException {
+		if (object == null)
+			throw new IllegalArgumentException("Cannot write null to an object pipe.");
+		ModuleTask currentTask = ModuleTask.current();
+		if (this.writerTask != currentTask)
+			this.writerTask = currentTask;
+		try {
+			while (true) {
+				if (this.writeClosed || this.readClosed)
+					throw new IOException("Pipe closed");
+				if (this.queue.offer(object, WAITMILLIS, TimeUnit.MILLISECONDS))
+					return;
+			}
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting for pipe output to drain.");
+		}
+	}
+
+	/**
+	 * Reads the next object from the pipe, blocking until one is available.
+	 * @return Object read, or null if the write end has been closed and all objects have been consumed
+	 * @throws IOException Thrown if the read end is closed, the write end died or the waiting thread got interrupted
+	 */
+	public Object read() throws IOException {
+		try {
+			while (true) {
+				if (this.readClosed)
+					throw new IOException("Pipe closed");
+				if (this.endOfStreamReached)
+					return null;
+				// Determine the closed state before polling, so that the final object cannot be missed
+				boolean closed = this.writeClosed;
+				Object object = this.queue.poll(WAITMILLIS, TimeUnit.MILLISECONDS);
+				ModuleTask writer = this.writerTask;
+				if (object == ENDOFSTREAM || (object == null && closed)) {
+					// Outputs of failed modules get closed, but their objects are incomplete
+					if (writer != null && writer.hasFailed())
+						throw new IOException("Write end dead");
+					this.endOfStreamReached = true;
+					return null;
+				}
+				if (object != null)
+					return object;
+				if (writer != null && !writer.isAlive() && !this.writeClosed)
+					throw new IOException("Write end dead");
+			}
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting for pipe input.");
+		}
+	}
+
+	/**
+	 * Reads the next object from the pipe and casts it to the given type.
+	 * @param type Expected type
+	 * @param <T> Expected type
+	 * @return Object read, or null if the write end has been closed and all objects have been consumed
+	 * @throws IOException Thrown if the object is of a different type or on I/O error
+	 * @see #read()
+	 */
+	public <T> T read(Class<T> type) throws IOException {
+		Object object = this.read();
+		if (object != null && !type.isInstance(object))
+			throw new IOException("Expected an object of type " + type.getCanonicalName() + ", but received "
+					+ object.getClass().getCanonicalName() + ".");
+		return type.cast(object);
+	}
+
+	@Override
+	public void readClose() throws IOException {
+		this.readClosed = true;
+		// Objects not read anymore need not be kept
+		this.queue.clear();
+	}
+
+	@Override
+	public void writeClose() throws IOException {
+		if (this.writeClosed)
+			return;
+		this.writeClosed = true;
+		this.queue.offer(ENDOFSTREAM);
+	}
+
+	@Override
+	public void reset() throws IOException {
+		this.queue = new ArrayBlockingQueue<Object>(this.capacity);
+		this.readClosed = false;
+		this.writeClosed = false;
+		this.endOfStreamReached = false;
+		this.writerTask = null;
+	}
+
+}
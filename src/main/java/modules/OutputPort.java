@@ -1,6 +1,8 @@
 package modules;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -37,7 +39,7 @@ public class OutputPort extends AbstractPort {
 	public void addPipe(Pipe pipe, Port connectedPort) throws NotSupportedException, OccupiedException {
 		if (super.supportsPipe(pipe))
 			if (InputPort.class.isAssignableFrom(connectedPort.getClass())){
-				this.pipes.get(pipe.getClass()).add(pipe);
+				this.pipes.get(this.getSupportedPipeClass(pipe.getClass())).add(pipe);
 				this.connectedPorts.put(pipe, connectedPort);
 			} else
 				throw new NotSupportedException("This port ("+this.toString()+") can only be connected to an input port.");
@@ -73,10 +75,17 @@ public class OutputPort extends AbstractPort {
 
 	@Override
 	public void removePipe(Pipe pipe) throws NotFoundException {
-		if (!this.pipes.containsKey(pipe.getClass()) || !this.pipes.get(pipe.getClass()).remove(pipe))
+		Class<? extends Pipe> pipeClass = this.getSupportedPipeClass(pipe.getClass());
+		if (pipeClass == null || !this.pipes.get(pipeClass).remove(pipe))
 			throw new NotFoundException("The specified pipe could not be found.");
 		if (this.connectedPorts.get(pipe) != null)
 			this.connectedPorts.remove(pipe);
+		
+		// Pipes possibly sharing a ring buffer with the remaining ones must not hold back the writer anymore
+		if (pipe instanceof RingBufferCharPipe)
+			((RingBufferCharPipe) pipe).detach();
+		else if (pipe instanceof RingBufferBytePipe)
+			((RingBufferBytePipe) pipe).detach();
 	}
 	
 	/**
@@ -99,8 +108,11 @@ public class OutputPort extends AbstractPort {
 			// Determine the next output on the list
 			BytePipe outputStream = (BytePipe) outputStreams.next();
 
-			// Write file list JSON to output
-			outputStream.write(data, offset, bytesToWrite);
+			// Write data to output (pipes sharing a ring buffer only store it once)
+			if (outputStream instanceof RingBufferBytePipe)
+				((RingBufferBytePipe) outputStream).writeFromPort(data, offset, bytesToWrite);
+			else
+				outputStream.write(data, offset, bytesToWrite);
 		}
 	}
 	
@@ -124,8 +136,11 @@ public class OutputPort extends AbstractPort {
 			// Determine the next output on the list
 			CharPipe outputPipe = (CharPipe) outputPipes.next();
 
-			// Write file list JSON to output
-			outputPipe.write(data, offset, charsToWrite);
+			// Write data to output (pipes sharing a ring buffer only store it once)
+			if (outputPipe instanceof RingBufferCharPipe)
+				((RingBufferCharPipe) outputPipe).writeFromPort(data, offset, charsToWrite);
+			else
+				outputPipe.write(data, offset, charsToWrite);
 		}
 	}
 	
@@ -148,6 +163,79 @@ public class OutputPort extends AbstractPort {
 			this.outputToAllCharPipes(data.toCharArray(), 0, data.length());
 	}
 	
+	/**
+	 * Writes the given object to all object output pipes. Receivers get the
+	 * very same instance, so it must not be changed afterwards.
+	 * @param object Object to write
+	 * @throws IOException Thrown if an I/O problem occurs
+	 */
+	public void outputToAllObjectPipes(Object object) throws IOException {
+		
+		// Check whether this port does support object output
+		if (!this.supportsPipeClass(ObjectPipe.class))
+			throw new IOException("This port ("+this.toString()+") does not support object output.");
+		
+		// Loop over the defined outputs
+		Iterator<Pipe> outputPipes = this.pipes.get(ObjectPipe.class).iterator();
+		while (outputPipes.hasNext()) {
+			((ObjectPipe) outputPipes.next()).write(object);
+		}
+	}
+	
+	/**
+	 * Returns whether any object pipes are connected to this port.
+	 * @return True if objects are to be written
+	 */
+	public boolean hasObjectPipes() {
+		return this.supportsPipeClass(ObjectPipe.class) && !this.pipes.get(ObjectPipe.class).isEmpty();
+	}
+	
+	/**
+	 * Returns a writer forwarding everything written to it to all char output
+	 * pipes as it arrives, so that receivers can start reading before the
+	 * whole output is known. Closing the writer does not close the port.
+	 * @return Writer on this port's char pipes
+	 */
+	public Writer asCharWriter() {
+		final OutputPort port = this;
+		return new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				if (len > 0)
+					port.outputToAllCharPipes(cbuf, off, len);
+			}
+
+			@Override
+			public void flush() throws IOException {
+			}
+
+			@Override
+			public void close() throws IOException {
+			}
+		};
+	}
+
+	/**
+	 * Returns a stream forwarding everything written to it to all byte output
+	 * pipes as it arrives. Closing the stream does not close the port.
+	 * @return OutputStream on this port's byte pipes
+	 */
+	public OutputStream asByteStream() {
+		final OutputPort port = this;
+		return new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				port.outputToAllBytePipes(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				if (len > 0)
+					port.outputToAllBytePipes(b, off, len);
+			}
+		};
+	}
+	
 	public void close() throws IOException{
 		Iterator<List<Pipe>> pipeLists = this.getPipes().values().iterator();
 		while (pipeLists.hasNext()){
@@ -0,0 +1,346 @@
+package modules;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free single-producer ring buffer bookkeeping. Keeps track of the
+ * write position and of one read cursor per consumer, as well as of the
+ * closed state of both ends, and lets reader and writer park until the other
+ * side made progress. The actual storage is provided by subclasses.
+ *
+ * Several consumers may share one buffer (broadcast): each one reads at its
+ * own cursor, while the writer is held back by the slowest open cursor. A
+ * consumer can thus get at most one buffer capacity ahead of the others.
+ *
+ * Read and write positions grow monotonically; the index into the backing
+ * array is obtained by masking, which is why the capacity is always a power
+ * of two.
+ */
+public abstract class RingBuffer {
+
+	/**
+	 * Default capacity (in elements) for newly created ring buffers.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	// Upper bound for a single park; only used to re-check whether the other end is still alive
+	private static final long PARKNANOS = 100000000l;
+
+	private static final Cursor[] NOCURSORS = new Cursor[0];
+
+	/**
+	 * Read position of a single consumer.
+	 */
+	public static final class Cursor {
+
+		// Only ever written by the consumer owning the cursor
+		private final AtomicLong readPosition = new AtomicLong();
+		private volatile boolean closed = false;
+		// Set once the consumer reads from another buffer
+		private volatile boolean moved = false;
+		// Thread currently parked waiting for input
+		private volatile Thread waitingReader = null;
+		// Task that last read (used to detect a dead read end, as PipedWriter does)
+		private volatile ModuleTask readerTask = null;
+
+		private Cursor(long readPosition) {
+			this.readPosition.set(readPosition);
+		}
+	}
+
+	/**
+	 * Thrown to a consumer whose cursor has been moved to another buffer (see
+	 * {@link RingBuffer#moveCursor(Cursor)}); it is to read from there.
+	 */
+	static final class CursorMovedException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		CursorMovedException() {
+			super("Pipe moved to another ring buffer");
+		}
+	}
+
+	private final int capacity;
+	private final int mask;
+
+	// Only ever written by the producer
+	private final AtomicLong writePosition = new AtomicLong();
+	private volatile boolean writeClosed = false;
+	// Thread currently parked waiting for the consumers
+	private volatile Thread waitingWriter = null;
+	// Task that last wrote (used to detect a dead write end, as PipedReader does)
+	private volatile ModuleTask writerTask = null;
+
+	// Copied on change, so the writer can iterate without locking
+	private volatile Cursor[] cursors = NOCURSORS;
+
+	/**
+	 * Constructor
+	 * @param capacity Minimum capacity (will be rounded up to the next power of two)
+	 */
+	public RingBuffer(int capacity) {
+		super();
+		if (capacity < 1)
+			throw new IllegalArgumentException("Ring buffer capacity must be positive.");
+		int actualCapacity = Integer.highestOneBit(capacity);
+		if (actualCapacity < capacity)
+			actualCapacity <<= 1;
+		this.capacity = actualCapacity;
+		this.mask = actualCapacity - 1;
+	}
+
+	/**
+	 * Returns the actual capacity of this buffer.
+	 * @return Capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the total amount of elements written so far.
+	 * @return Write position
+	 */
+	public long getWritePosition() {
+		return this.writePosition.get();
+	}
+
+	/**
+	 * Adds a consumer. It will see all elements written from now on.
+	 * @return The new consumer's cursor
+	 */
+	public synchronized Cursor addCursor() {
+		Cursor cursor = new Cursor(this.writePosition.get());
+		Cursor[] newCursors = Arrays.copyOf(this.cursors, this.cursors.length + 1);
+		newCursors[newCursors.length - 1] = cursor;
+		this.cursors = newCursors;
+		return cursor;
+	}
+
+	/**
+	 * Removes a consumer, so that it does not hold back the writer anymore.
+	 * @param cursor The consumer's cursor
+	 * @return True if the cursor had been present
+	 */
+	public synchronized boolean removeCursor(Cursor cursor) {
+		Cursor[] currentCursors = this.cursors;
+		for (int i = 0; i < currentCursors.length; i++) {
+			if (currentCursors[i] == cursor) {
+				Cursor[] newCursors = new Cursor[currentCursors.length - 1];
+				System.arraycopy(currentCursors, 0, newCursors, 0, i);
+				System.arraycopy(currentCursors, i + 1, newCursors, i, newCursors.length - i);
+				this.cursors = newCursors;
+				unpark(this.waitingWriter);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Marks the given cursor as moved to another buffer. Its consumer gets a
+	 * CursorMovedException instead of waiting for input here. Must only be
+	 * called before anything has been written.
+	 * @param cursor The consumer's cursor
+	 */
+	void moveCursor(Cursor cursor) {
+		cursor.moved = true;
+		unpark(cursor.waitingReader);
+	}
+
+	/**
+	 * Returns whether the read end of the given cursor has been closed.
+	 * @param cursor Consumer cursor
+	 * @return True if closed
+	 */
+	public boolean isReadClosed(Cursor cursor) {
+		return cursor.closed;
+	}
+
+	/**
+	 * Empties the buffer and re-opens both ends (for re-use after close). Must
+	 * not be called while the buffer is in use.
+	 */
+	public synchronized void reset() {
+		this.writePosition.set(0l);
+		this.writeClosed = false;
+		this.writerTask = null;
+		for (Cursor cursor : this.cursors) {
+			cursor.readPosition.set(0l);
+			cursor.closed = false;
+			cursor.readerTask = null;
+		}
+	}
+
+	/**
+	 * Returns the amount of elements that can currently be read at the given cursor without blocking.
+	 * @param cursor Consumer cursor
+	 * @return Available elements
+	 */
+	public int available(Cursor cursor) {
+		return (int) (this.writePosition.get() - cursor.readPosition.get());
+	}
+
+	/**
+	 * Returns the array index of the next element to read at the given cursor.
+	 * @param cursor Consumer cursor
+	 * @return Index
+	 */
+	protected int readIndex(Cursor cursor) {
+		return (int) (cursor.readPosition.get() & this.mask);
+	}
+
+	/**
+	 * Returns the array index of the next element to write.
+	 * @return Index
+	 */
+	protected int writeIndex() {
+		return (int) (this.writePosition.get() & this.mask);
+	}
+
+	/**
+	 * Blocks until at least one element can be read at the given cursor or the write end has been closed.
+	 * @param cursor Consumer cursor
+	 * @return Amount of readable elements, or -1 if the write end has been closed and all elements have been consumed
+	 * @throws IOException Thrown if the read end is closed, the write end died or the waiting thread got interrupted
+	 */
+	protected int awaitReadable(Cursor cursor) throws IOException {
+		Thread currentThread = Thread.currentThread();
+		ModuleTask currentTask = ModuleTask.current();
+		if (cursor.readerTask != currentTask)
+			cursor.readerTask = currentTask;
+
+		while (true) {
+			if (cursor.moved)
+				throw new CursorMovedException();
+			if (cursor.closed)
+				throw new IOException("Pipe closed");
+			int available = this.available(cursor);
+			if (available > 0)
+				return available;
+			ModuleTask writer = this.writerTask;
+			if (this.writeClosed) {
+				// The final write happens before closing, so check once more
+				available = this.available(cursor);
+				if (available > 0)
+					return available;
+				// Outputs of failed modules get closed, but their data is incomplete
+				if (writer != null && writer.hasFailed())
+					throw new IOException("Write end dead");
+				return -1;
+			}
+			if (writer != null && !writer.isAlive())
+				throw new IOException("Write end dead");
+
+			// Announce ourselves before re-checking, so that the writer either sees us or we see its progress
+			cursor.waitingReader = currentThread;
+			if (this.available(cursor) == 0 && !this.writeClosed && !cursor.moved)
+				LockSupport.parkNanos(this, PARKNANOS);
+			cursor.waitingReader = null;
+
+			if (Thread.interrupted())
+				throw new InterruptedIOException("Interrupted while waiting for pipe input.");
+		}
+	}
+
+	/**
+	 * Blocks until at least one element can be written, i.e. until the slowest open consumer has caught up far enough.
+	 * @return Amount of writable elements
+	 * @throws IOException Thrown if the write end or all read ends are closed, a read end died or the waiting thread got interrupted
+	 */
+	protected int awaitWritable() throws IOException {
+		Thread currentThread = Thread.currentThread();
+		ModuleTask currentTask = ModuleTask.current();
+		if (this.writerTask != currentTask)
+			this.writerTask = currentTask;
+
+		while (true) {
+			if (this.writeClosed)
+				throw new IOException("Pipe closed");
+			int free = this.free();
+			if (free > 0)
+				return free;
+
+			this.waitingWriter = currentThread;
+			if (this.free() == 0)
+				LockSupport.parkNanos(this, PARKNANOS);
+			this.waitingWriter = null;
+
+			if (Thread.interrupted())
+				throw new InterruptedIOException("Interrupted while waiting for pipe output to drain.");
+		}
+	}
+
+	/*
+	 * Determines the free space behind the slowest open cursor.
+	 */
+	private int free() throws IOException {
+		long writePosition = this.writePosition.get();
+		long slowestReadPosition = writePosition;
+		boolean open = false;
+		for (Cursor cursor : this.cursors) {
+			if (cursor.closed)
+				continue;
+			long readPosition = cursor.readPosition.get();
+			if (writePosition - readPosition == this.capacity) {
+				ModuleTask reader = cursor.readerTask;
+				if (reader != null && !reader.isAlive())
+					throw new IOException("Read end dead");
+			}
+			if (readPosition < slowestReadPosition)
+				slowestReadPosition = readPosition;
+			open = true;
+		}
+		if (!open)
+			throw new IOException("Pipe closed");
+		return this.capacity - (int) (writePosition - slowestReadPosition);
+	}
+
+	/**
+	 * Marks the given amount of elements as consumed at the given cursor and wakes up the writer if necessary.
+	 * @param cursor Consumer cursor
+	 * @param amount Amount of elements read
+	 */
+	protected void commitRead(Cursor cursor, int amount) {
+		cursor.readPosition.set(cursor.readPosition.get() + amount);
+		unpark(this.waitingWriter);
+	}
+
+	/**
+	 * Publishes the given amount of written elements and wakes up waiting readers.
+	 * @param amount Amount of elements written
+	 */
+	protected void commitWrite(int amount) {
+		this.writePosition.set(this.writePosition.get() + amount);
+		for (Cursor cursor : this.cursors)
+			unpark(cursor.waitingReader);
+	}
+
+	/**
+	 * Closes the read end of the given cursor. It will not hold back the writer anymore.
+	 * @param cursor Consumer cursor
+	 */
+	public void closeRead(Cursor cursor) {
+		cursor.closed = true;
+		unpark(this.waitingWriter);
+	}
+
+	/**
+	 * Closes the write end. Readers will receive the remaining elements and then the end of stream.
+	 */
+	public void closeWrite() {
+		this.writeClosed = true;
+		for (Cursor cursor : this.cursors)
+			unpark(cursor.waitingReader);
+	}
+
+	private static void unpark(Thread thread) {
+		if (thread != null)
+			LockSupport.unpark(thread);
+	}
+
+}
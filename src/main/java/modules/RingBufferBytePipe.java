@@ -0,0 +1,258 @@
+package modules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Byte pipe backed by a lock-free ring buffer instead of
+ * java.io.PipedInputStream/PipedOutputStream. Can be used wherever a
+ * BytePipe is supported.
+ *
+ * Like RingBufferCharPipe, pipes connected to the same output port can
+ * share one ring buffer (broadcast) for data written through the port.
+ * @see RingBufferCharPipe
+ */
+public class RingBufferBytePipe extends BytePipe implements RingBufferGroup.Member {
+
+	// A buffer along with this pipe's cursor on it
+	private static final class Channel {
+		private final ByteRingBuffer buffer;
+		private final RingBuffer.Cursor cursor;
+
+		private Channel(ByteRingBuffer buffer) {
+			this.buffer = buffer;
+			this.cursor = buffer.addCursor();
+		}
+	}
+
+	// Replaced once if the pipe moves from a shared buffer onto its own
+	private volatile Channel channel;
+	// Pipes sharing the buffer (null if not shared)
+	private volatile RingBufferGroup group;
+
+	/**
+	 * Creates a pipe with the default ring buffer capacity.
+	 */
+	public RingBufferBytePipe() {
+		this(RingBuffer.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a pipe with the specified ring buffer capacity.
+	 * @param capacity Minimum capacity in bytes
+	 */
+	public RingBufferBytePipe(int capacity) {
+		super(null, null);
+		this.channel = new Channel(new ByteRingBuffer(capacity));
+		this.connect(new PipeInputStream(), new PipeOutputStream());
+	}
+
+	/**
+	 * Creates a pipe that shares the ring buffer of the given pipe. Both
+	 * have to be connected to the same output port, and the new pipe has to
+	 * be created before anything is written.
+	 * @param sibling Pipe to share the buffer with
+	 */
+	public RingBufferBytePipe(RingBufferBytePipe sibling) {
+		super(null, null);
+		synchronized (sibling) {
+			if (sibling.group == null)
+				sibling.group = new RingBufferGroup(sibling.channel.buffer, sibling);
+		}
+		this.group = sibling.group;
+		this.group.add(this);
+		this.channel = new Channel(sibling.channel.buffer);
+		this.connect(new PipeInputStream(), new PipeOutputStream());
+	}
+
+	/**
+	 * Returns the capacity of the underlying ring buffer.
+	 * @return Capacity in bytes
+	 */
+	public int getCapacity() {
+		return this.channel.buffer.getCapacity();
+	}
+
+	/**
+	 * Returns whether this pipe shares its ring buffer with the given one.
+	 * @param pipe Other pipe
+	 * @return True if both use the same buffer
+	 */
+	public boolean sharesBufferWith(RingBufferBytePipe pipe) {
+		return this.channel.buffer == pipe.channel.buffer;
+	}
+
+	@Override
+	public void separate(boolean writeClosed) {
+		Channel shared = this.channel;
+		Channel own = new Channel(new ByteRingBuffer(shared.buffer.getCapacity()));
+		if (writeClosed)
+			own.buffer.closeWrite();
+		if (shared.buffer.isReadClosed(shared.cursor))
+			own.buffer.closeRead(own.cursor);
+		this.channel = own;
+		shared.buffer.moveCursor(shared.cursor);
+	}
+
+	/*
+	 * Returns the buffer to write data for this pipe alone to.
+	 */
+	private ByteRingBuffer ownBuffer() throws IOException {
+		if (this.group != null)
+			this.group.separate();
+		return this.channel.buffer;
+	}
+
+	@Override
+	public void write(byte[] data, int offset, int length) throws IOException {
+		this.ownBuffer().write(data, offset, length);
+	}
+
+	/**
+	 * Writes the remaining content of the given buffer to the pipe.
+	 * @param data Buffer with data to write
+	 * @throws IOException thrown on I/O error
+	 */
+	public void write(ByteBuffer data) throws IOException {
+		this.ownBuffer().write(data);
+	}
+
+	/**
+	 * Writes data the output port sends to all of its pipes. If the pipe
+	 * shares its buffer, only one pipe of the group actually stores it.
+	 * @param data Data to write
+	 * @param offset Offset in the data
+	 * @param length Amount of bytes to write
+	 * @throws IOException thrown on I/O error
+	 */
+	void writeFromPort(byte[] data, int offset, int length) throws IOException {
+		if (this.group == null || this.group.writesForPort(this))
+			this.channel.buffer.write(data, offset, length);
+	}
+
+	@Override
+	public void writeClose() throws IOException {
+		if (this.group == null || !this.group.close(this))
+			this.channel.buffer.closeWrite();
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		while (true) {
+			Channel channel = this.channel;
+			try {
+				return channel.buffer.read(channel.cursor, buffer, offset, length);
+			} catch (RingBuffer.CursorMovedException e) {
+				// Read from the pipe's own buffer
+			}
+		}
+	}
+
+	/**
+	 * Reads from the pipe into the given buffer.
+	 * @param target buffer to store read input in
+	 * @return amount of bytes read (-1 if the pipe is closed)
+	 * @throws IOException thrown on I/O error
+	 */
+	public int read(ByteBuffer target) throws IOException {
+		while (true) {
+			Channel channel = this.channel;
+			try {
+				return channel.buffer.read(channel.cursor, target);
+			} catch (RingBuffer.CursorMovedException e) {
+				// Read from the pipe's own buffer
+			}
+		}
+	}
+
+	/*
+	 * Reads a single byte.
+	 */
+	private int read() throws IOException {
+		while (true) {
+			Channel channel = this.channel;
+			try {
+				return channel.buffer.read(channel.cursor);
+			} catch (RingBuffer.CursorMovedException e) {
+				// Read from the pipe's own buffer
+			}
+		}
+	}
+
+	@Override
+	public void readClose() throws IOException {
+		Channel channel = this.channel;
+		channel.buffer.closeRead(channel.cursor);
+		// The pipe might just have moved onto its own buffer
+		if (this.channel != channel)
+			this.channel.buffer.closeRead(this.channel.cursor);
+	}
+
+	/**
+	 * Detaches this pipe's reader from the (possibly shared) ring buffer, so
+	 * that it does not hold back the writer anymore.
+	 */
+	public void detach() {
+		this.channel.buffer.removeCursor(this.channel.cursor);
+		if (this.group != null)
+			this.group.remove(this);
+	}
+
+	@Override
+	public void reset() throws IOException {
+		this.channel.buffer.reset();
+		if (this.group != null)
+			this.group.reset(this);
+	}
+
+	/*
+	 * Input stream view on this pipe's cursor.
+	 */
+	private class PipeInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			return RingBufferBytePipe.this.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return RingBufferBytePipe.this.read(b, off, len);
+		}
+
+		@Override
+		public int available() throws IOException {
+			Channel channel = RingBufferBytePipe.this.channel;
+			return channel.buffer.available(channel.cursor);
+		}
+
+		@Override
+		public void close() throws IOException {
+			RingBufferBytePipe.this.readClose();
+		}
+	}
+
+	/*
+	 * Output stream view writing to this pipe alone.
+	 */
+	private class PipeOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			RingBufferBytePipe.this.ownBuffer().write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			RingBufferBytePipe.this.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			RingBufferBytePipe.this.writeClose();
+		}
+	}
+
+}
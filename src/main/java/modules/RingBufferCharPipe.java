@@ -0,0 +1,281 @@
+package modules;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Character pipe backed by a lock-free ring buffer instead of
+ * java.io.PipedReader/PipedWriter. Can be used wherever a CharPipe is
+ * supported.
+ *
+ * Pipes connected to the same output port can share one ring buffer
+ * (broadcast): the data is stored once and each pipe reads at its own
+ * cursor, while the slowest reader holds back the writer. This only applies
+ * to data written through the port (OutputPort.outputToAll*); if a module
+ * writes to the pipes one by one instead, each pipe gets a buffer of its
+ * own (see RingBufferGroup).
+ */
+public class RingBufferCharPipe extends CharPipe implements RingBufferGroup.Member {
+
+	// A buffer along with this pipe's cursor on it
+	private static final class Channel {
+		private final CharRingBuffer buffer;
+		private final RingBuffer.Cursor cursor;
+
+		private Channel(CharRingBuffer buffer) {
+			this.buffer = buffer;
+			this.cursor = buffer.addCursor();
+		}
+	}
+
+	// Replaced once if the pipe moves from a shared buffer onto its own
+	private volatile Channel channel;
+	// Pipes sharing the buffer (null if not shared)
+	private volatile RingBufferGroup group;
+
+	/**
+	 * Creates a pipe with the default ring buffer capacity.
+	 */
+	public RingBufferCharPipe() {
+		this(RingBuffer.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a pipe with the specified ring buffer capacity.
+	 * @param capacity Minimum capacity in characters
+	 */
+	public RingBufferCharPipe(int capacity) {
+		super(null, null);
+		this.channel = new Channel(new CharRingBuffer(capacity));
+		this.connect(new PipeReader(), new PipeWriter());
+	}
+
+	/**
+	 * Creates a pipe that shares the ring buffer of the given pipe. Both
+	 * have to be connected to the same output port, and the new pipe has to
+	 * be created before anything is written.
+	 * @param sibling Pipe to share the buffer with
+	 */
+	public RingBufferCharPipe(RingBufferCharPipe sibling) {
+		super(null, null);
+		synchronized (sibling) {
+			if (sibling.group == null)
+				sibling.group = new RingBufferGroup(sibling.channel.buffer, sibling);
+		}
+		this.group = sibling.group;
+		this.group.add(this);
+		this.channel = new Channel(sibling.channel.buffer);
+		this.connect(new PipeReader(), new PipeWriter());
+	}
+
+	/**
+	 * Returns the capacity of the underlying ring buffer.
+	 * @return Capacity in characters
+	 */
+	public int getCapacity() {
+		return this.channel.buffer.getCapacity();
+	}
+
+	/**
+	 * Returns whether this pipe shares its ring buffer with the given one.
+	 * @param pipe Other pipe
+	 * @return True if both use the same buffer
+	 */
+	public boolean sharesBufferWith(RingBufferCharPipe pipe) {
+		return this.channel.buffer == pipe.channel.buffer;
+	}
+
+	@Override
+	public void separate(boolean writeClosed) {
+		Channel shared = this.channel;
+		Channel own = new Channel(new CharRingBuffer(shared.buffer.getCapacity()));
+		if (writeClosed)
+			own.buffer.closeWrite();
+		if (shared.buffer.isReadClosed(shared.cursor))
+			own.buffer.closeRead(own.cursor);
+		this.channel = own;
+		shared.buffer.moveCursor(shared.cursor);
+	}
+
+	/*
+	 * Returns the buffer to write data for this pipe alone to.
+	 */
+	private CharRingBuffer ownBuffer() throws IOException {
+		if (this.group != null)
+			this.group.separate();
+		return this.channel.buffer;
+	}
+
+	@Override
+	public void write(String data) throws IOException {
+		this.ownBuffer().write(data, 0, data.length());
+	}
+
+	@Override
+	public void write(char[] data, int offset, int length) throws IOException {
+		this.ownBuffer().write(data, offset, length);
+	}
+
+	/**
+	 * Writes the remaining content of the given buffer to the pipe.
+	 * @param data Buffer with data to write
+	 * @throws IOException thrown on I/O error
+	 */
+	public void write(CharBuffer data) throws IOException {
+		this.ownBuffer().write(data);
+	}
+
+	/**
+	 * Writes data the output port sends to all of its pipes. If the pipe
+	 * shares its buffer, only one pipe of the group actually stores it.
+	 * @param data Data to write
+	 * @param offset Offset in the data
+	 * @param length Amount of chars to write
+	 * @throws IOException thrown on I/O error
+	 */
+	void writeFromPort(char[] data, int offset, int length) throws IOException {
+		if (this.group == null || this.group.writesForPort(this))
+			this.channel.buffer.write(data, offset, length);
+	}
+
+	@Override
+	public void writeClose() throws IOException {
+		if (this.group == null || !this.group.close(this))
+			this.channel.buffer.closeWrite();
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		while (true) {
+			Channel channel = this.channel;
+			try {
+				return channel.buffer.read(channel.cursor, buffer, offset, length);
+			} catch (RingBuffer.CursorMovedException e) {
+				// Read from the pipe's own buffer
+			}
+		}
+	}
+
+	/**
+	 * Reads from the pipe into the given buffer.
+	 * @param target buffer to store read input in
+	 * @return amount of chars read (-1 if the pipe is closed)
+	 * @throws IOException thrown on I/O error
+	 */
+	public int read(CharBuffer target) throws IOException {
+		while (true) {
+			Channel channel = this.channel;
+			try {
+				return channel.buffer.read(channel.cursor, target);
+			} catch (RingBuffer.CursorMovedException e) {
+				// Read from the pipe's own buffer
+			}
+		}
+	}
+
+	/*
+	 * Reads a single char.
+	 */
+	private int read() throws IOException {
+		while (true) {
+			Channel channel = this.channel;
+			try {
+				return channel.buffer.read(channel.cursor);
+			} catch (RingBuffer.CursorMovedException e) {
+				// Read from the pipe's own buffer
+			}
+		}
+	}
+
+	@Override
+	public void readClose() throws IOException {
+		Channel channel = this.channel;
+		channel.buffer.closeRead(channel.cursor);
+		// The pipe might just have moved onto its own buffer
+		if (this.channel != channel)
+			this.channel.buffer.closeRead(this.channel.cursor);
+	}
+
+	/**
+	 * Detaches this pipe's reader from the (possibly shared) ring buffer, so
+	 * that it does not hold back the writer anymore.
+	 */
+	public void detach() {
+		this.channel.buffer.removeCursor(this.channel.cursor);
+		if (this.group != null)
+			this.group.remove(this);
+	}
+
+	@Override
+	public void reset() throws IOException {
+		this.channel.buffer.reset();
+		if (this.group != null)
+			this.group.reset(this);
+	}
+
+	/*
+	 * Reader view on this pipe's cursor.
+	 */
+	private class PipeReader extends Reader {
+
+		@Override
+		public int read() throws IOException {
+			return RingBufferCharPipe.this.read();
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			return RingBufferCharPipe.this.read(cbuf, off, len);
+		}
+
+		@Override
+		public int read(CharBuffer target) throws IOException {
+			return RingBufferCharPipe.this.read(target);
+		}
+
+		@Override
+		public boolean ready() throws IOException {
+			Channel channel = RingBufferCharPipe.this.channel;
+			return channel.buffer.available(channel.cursor) > 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			RingBufferCharPipe.this.readClose();
+		}
+	}
+
+	/*
+	 * Writer view writing to this pipe alone.
+	 */
+	private class PipeWriter extends Writer {
+
+		@Override
+		public void write(int c) throws IOException {
+			RingBufferCharPipe.this.ownBuffer().write(c);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			RingBufferCharPipe.this.write(cbuf, off, len);
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			RingBufferCharPipe.this.ownBuffer().write(str, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// Written data is visible to the readers immediately
+		}
+
+		@Override
+		public void close() throws IOException {
+			RingBufferCharPipe.this.writeClose();
+		}
+	}
+
+}
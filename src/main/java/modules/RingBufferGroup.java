@@ -0,0 +1,148 @@
+package modules;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pipes of one output port that share a ring buffer (see
+ * RingBufferCharPipe and RingBufferBytePipe).
+ *
+ * Sharing only works as long as every pipe receives the same data, which is
+ * only certain for data written through the port (OutputPort.outputToAll*).
+ * So the first write decides: if it is made through the port, the data is
+ * stored once in the shared buffer from then on, and writing to a single pipe
+ * of the group fails. If it is made to a single pipe, each pipe of the group
+ * moves to a buffer of its own and is written to separately.
+ *
+ * The write end of the shared buffer is only closed once every pipe of the
+ * group has been closed.
+ */
+final class RingBufferGroup {
+
+	/**
+	 * A pipe of the group.
+	 */
+	interface Member {
+
+		/**
+		 * Moves the pipe onto a ring buffer of its own.
+		 * @param writeClosed Whether the pipe's write end has already been closed
+		 */
+		void separate(boolean writeClosed);
+	}
+
+	private static final int UNDECIDED = 0;
+	private static final int SHARED = 1;
+	private static final int SEPARATE = 2;
+
+	private final RingBuffer buffer;
+	// The first member writes the data written through the port
+	private final List<Member> members = new CopyOnWriteArrayList<Member>();
+	private final List<Member> closedMembers = new ArrayList<Member>();
+	private volatile int mode = UNDECIDED;
+
+	/**
+	 * Constructor
+	 * @param buffer Shared ring buffer
+	 * @param first Pipe the buffer belongs to
+	 */
+	RingBufferGroup(RingBuffer buffer, Member first) {
+		this.buffer = buffer;
+		this.members.add(first);
+	}
+
+	/**
+	 * Returns whether the pipes have moved onto buffers of their own.
+	 * @return True if separated
+	 */
+	boolean isSeparate() {
+		return this.mode == SEPARATE;
+	}
+
+	/**
+	 * Adds a pipe to the group.
+	 * @param member Pipe
+	 */
+	synchronized void add(Member member) {
+		if (this.mode != UNDECIDED || this.buffer.getWritePosition() > 0)
+			throw new IllegalStateException("Pipes can only share a ring buffer before anything has been written.");
+		this.members.add(member);
+	}
+
+	/**
+	 * Removes a pipe from the group, e.g. when it has been disconnected.
+	 * @param member Pipe
+	 */
+	synchronized void remove(Member member) {
+		this.members.remove(member);
+		this.closedMembers.remove(member);
+		this.closeIfAllClosed();
+	}
+
+	/**
+	 * Called before data written through the port is handed to the given
+	 * pipe.
+	 * @param member Pipe
+	 * @return True if the pipe is to write the data to its buffer, false if
+	 *         another pipe of the group writes it to the shared buffer
+	 */
+	boolean writesForPort(Member member) {
+		if (this.mode == UNDECIDED) {
+			synchronized (this) {
+				if (this.mode == UNDECIDED)
+					this.mode = SHARED;
+			}
+		}
+		return this.mode == SEPARATE || this.members.get(0) == member;
+	}
+
+	/**
+	 * Called before data is written to a single pipe. Moves all pipes onto
+	 * buffers of their own if nothing has been written yet.
+	 * @throws IOException Thrown if data written through the port is already shared
+	 */
+	void separate() throws IOException {
+		if (this.mode == SEPARATE)
+			return;
+		synchronized (this) {
+			if (this.mode == SHARED)
+				throw new IOException("The pipes of this output port share a ring buffer, so data has to be written"
+						+ " through the port (OutputPort.outputToAll*), not to a single pipe.");
+			if (this.mode == UNDECIDED) {
+				for (Member member : this.members)
+					member.separate(this.closedMembers.contains(member));
+				this.mode = SEPARATE;
+			}
+		}
+	}
+
+	/**
+	 * Closes the write end of the given pipe.
+	 * @param member Pipe
+	 * @return False if the pipe has a buffer of its own, which the caller has to close
+	 */
+	synchronized boolean close(Member member) {
+		if (this.mode == SEPARATE)
+			return false;
+		if (!this.closedMembers.contains(member))
+			this.closedMembers.add(member);
+		this.closeIfAllClosed();
+		return true;
+	}
+
+	/**
+	 * Re-opens the write end of the given pipe (for re-use after close).
+	 * @param member Pipe
+	 */
+	synchronized void reset(Member member) {
+		this.closedMembers.remove(member);
+	}
+
+	private void closeIfAllClosed() {
+		if (this.mode != SEPARATE && !this.members.isEmpty() && this.closedMembers.containsAll(this.members))
+			this.buffer.closeWrite();
+	}
+
+}
@@ -5,7 +5,6 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Scanner;
 import java.util.TreeMap;
@@ -14,7 +13,6 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import common.StringUnescaper;
-import common.VectorCalculation;
 import common.parallelization.CallbackReceiver;
 import modules.CharPipe;
 import modules.InputPort;
@@ -37,6 +35,10 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 	public static final String PROPERTYKEY_DELIMITER_INPUT_REGEX = "csv input delimiter regex";
 	public static final String PROPERTYKEY_DELIMITER_OUTPUT_STRING = "csv output delimiter";
 	public static final String PROPERTYKEY_ZEROVALUE = "csv empty value";
+	public static final String PROPERTYKEY_POWER = "minkowski power";
+	public static final String PROPERTYKEY_NEIGHBOURS = "nearest neighbours";
+	public static final String PROPERTYKEY_MAXDISTANCE = "maximum distance";
+	public static final String PROPERTYKEY_MAXPARALLELTHREADS = "maximum threads";
 
 	// Define I/O IDs (must be unique for every input or output)
 	private static final String ID_INPUT = "input";
@@ -47,6 +49,10 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 	private String inputdelimiter;
 	private String outputdelimiter;
 	private String emptyValue;
+	private double power;
+	private int neighbours;
+	private double maxDistance;
+	private int maxParallelThreads;
 
 	public MinkowskiDistanceMatrixModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
 
@@ -64,6 +70,14 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 		this.getPropertyDescriptions().put(PROPERTYKEY_INPUTFORMAT, "Format of input [json|csv].");
 		this.getPropertyDescriptions().put(PROPERTYKEY_OUTPUTFORMAT, "Format of output [json|csv].");
 		this.getPropertyDescriptions().put(PROPERTYKEY_ZEROVALUE, "String to insert as empty value into the output (only applicable to CSV output).");
+		this.getPropertyDescriptions().put(PROPERTYKEY_POWER,
+				"Order of the Minkowski distance: 1 (Manhattan), 2 (Euclidean), 'infinity' (Chebyshev) or any other positive value.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_NEIGHBOURS,
+				"If above zero, only the distances of each entry to this many nearest other entries are output.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAXDISTANCE,
+				"If not negative, only distances up to this value are output.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAXPARALLELTHREADS,
+				"Maximum number of threads to compute distances with.");
 
 		// Add property defaults (_should_ be provided for every property)
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "Minkowski Distance Matrix");
@@ -72,6 +86,10 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_INPUTFORMAT, "csv");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_OUTPUTFORMAT, "csv");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_ZEROVALUE, "0");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_POWER, "2");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_NEIGHBOURS, "0");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAXDISTANCE, "-1");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAXPARALLELTHREADS, "4");
 
 		// Define I/O
 		/*
@@ -147,40 +165,37 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 		}
 
 		/*
-		 * Iterate through map, removing the current item from it and comparing
-		 * it to the remainder (to avoid comparing a pair twice [A-B and B-A] or
-		 * an element to itself).
+		 * Compare every entry with the others (A-B only, not B-A, unless the
+		 * nearest neighbours are wanted), in the map's order.
 		 */
-		Iterator<Entry<String, List<Double>>> types = aberrationValuesMap.entrySet().iterator();
-		while (types.hasNext()) {
-
-			// Remove entry
-			Entry<String, List<Double>> entry = types.next();
-			types.remove();
-
+		final List<String> keys = new ArrayList<String>(aberrationValuesMap.keySet());
+		final double[][] rows = new double[keys.size()][];
+		for (int i = 0; i < rows.length; i++) {
+			final List<Double> values = aberrationValuesMap.get(keys.get(i));
+			rows[i] = new double[values.size()];
+			for (int k = 0; k < rows[i].length; k++) {
+				rows[i][k] = values.get(k);
+			}
 			// Create result map for current entry
-			Map<String, Double> distanceMap = new HashMap<String, Double>();
-
-			// Add result map to result matrix
-			minkowskiDistanceMatrix.put(entry.getKey(), distanceMap);
-
-			// Second level iteration to compare the current entry with the rest
-			Iterator<Entry<String, List<Double>>> remainingTypes = aberrationValuesMap.entrySet().iterator();
-			while (remainingTypes.hasNext()) {
-
-				Entry<String, List<Double>> comparisonEntry = remainingTypes.next();
-
-				// Calculate distance
-				double distance = VectorCalculation.calculateMinkowskiDistance(entry.getValue(),
-						comparisonEntry.getValue());
-
-				// Store result
-				distanceMap.put(comparisonEntry.getKey(), distance);
+			minkowskiDistanceMatrix.put(keys.get(i), new HashMap<String, Double>());
+		}
+		aberrationValuesMap = null;
 
+		final Map<String, Map<String, Double>> matrix = minkowskiDistanceMatrix;
+		final MinkowskiDistances.PairHandler handler = new MinkowskiDistances.PairHandler() {
+			@Override
+			public void pair(int i, int j, double distance) {
+				matrix.get(keys.get(i)).put(keys.get(j), distance);
 			}
-
+		};
+		final MinkowskiDistances distances = new MinkowskiDistances(rows, this.power);
+		final double maxDistance = (this.maxDistance < 0d) ? Double.POSITIVE_INFINITY : this.maxDistance;
+		if (this.neighbours > 0) {
+			distances.nearestNeighbours(this.neighbours, maxDistance, this.maxParallelThreads, handler);
+		} else {
+			distances.allPairs(maxDistance, this.maxParallelThreads, handler);
 		}
-		
+
 		// Output
 		if (this.outputFormat.equals("json")) {
 			// Prepare JSON output
@@ -198,21 +213,24 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 			}
 			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes("\n");
 			
-			// Write data lines
+			// Write data lines (one write per line)
+			StringBuilder dataLine = new StringBuilder();
 			matrixFirstLevelKeys = minkowskiDistanceMatrix.keySet().iterator();
 			while (matrixFirstLevelKeys.hasNext()){
 				String matrixFirstLevelKey = matrixFirstLevelKeys.next();
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(matrixFirstLevelKey+this.outputdelimiter);
+				Map<String, Double> distanceMap = minkowskiDistanceMatrix.get(matrixFirstLevelKey);
+				dataLine.setLength(0);
+				dataLine.append(matrixFirstLevelKey).append(this.outputdelimiter);
 				Iterator<String> matrixSecondLevelKeys = minkowskiDistanceMatrix.keySet().iterator();
 				while (matrixSecondLevelKeys.hasNext()){
-					String matrixSecondLevelKey = matrixSecondLevelKeys.next();
-					Double value = minkowskiDistanceMatrix.get(matrixFirstLevelKey).get(matrixSecondLevelKey);
+					Double value = distanceMap.get(matrixSecondLevelKeys.next());
 					if (value == null)
-						this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(this.emptyValue+this.outputdelimiter);
+						dataLine.append(this.emptyValue).append(this.outputdelimiter);
 					else
-						this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(value+this.outputdelimiter);
+						dataLine.append(value).append(this.outputdelimiter);
 				}
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes("\n");
+				dataLine.append('\n');
+				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(dataLine.toString());
 			}
 			
 			
@@ -244,6 +262,30 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 		this.outputFormat = this.getProperties().getProperty(PROPERTYKEY_OUTPUTFORMAT,
 				this.getPropertyDefaultValues().get(PROPERTYKEY_OUTPUTFORMAT));
 
+		if (this.getProperties().getProperty(PROPERTYKEY_POWER) != null) {
+			String power = this.getProperties().getProperty(PROPERTYKEY_POWER).trim();
+			if (power.equalsIgnoreCase("infinity") || power.equalsIgnoreCase("inf")) {
+				this.power = Double.POSITIVE_INFINITY;
+			} else {
+				this.power = Double.parseDouble(power);
+			}
+			if (!(this.power > 0d)) {
+				throw new IllegalArgumentException("Unknown Minkowski power '" + power + "', it must be positive.");
+			}
+		}
+		if (this.getProperties().getProperty(PROPERTYKEY_NEIGHBOURS) != null) {
+			this.neighbours = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_NEIGHBOURS));
+		}
+		if (this.getProperties().getProperty(PROPERTYKEY_MAXDISTANCE) != null) {
+			this.maxDistance = Double.parseDouble(this.getProperties().getProperty(PROPERTYKEY_MAXDISTANCE));
+		}
+		if (this.getProperties().getProperty(PROPERTYKEY_MAXPARALLELTHREADS) != null) {
+			this.maxParallelThreads = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_MAXPARALLELTHREADS));
+			if (this.maxParallelThreads < 1) {
+				throw new IllegalArgumentException("Unknown number of threads " + this.maxParallelThreads + ", at least one is needed.");
+			}
+		}
+
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
 	}
@@ -0,0 +1,364 @@
+package modules.clustering.minkowskiDistance;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the Minkowski distances of all pairs of a set of vectors of equal
+ * length.
+ *
+ * Pairs are computed in tiles of rows and, within those, in blocks of columns,
+ * such that both tiles' columns stay in the cache while they are compared. The
+ * sum of each pair is carried from block to block, so a pair can be dropped as
+ * soon as it exceeds the largest distance still of interest. Each tile of rows
+ * is one task, the tasks are run in parallel, a few tiles more than there are
+ * threads ahead of the handler. Orders 1, 2 and infinity have loops of their
+ * own, other orders use Math.pow().
+ */
+public class MinkowskiDistances {
+
+	/**
+	 * Receives the pairs computed.
+	 */
+	public static interface PairHandler {
+		/**
+		 * Called on the thread that started computing for every pair handed
+		 * on.
+		 *
+		 * @param i
+		 *            the first vector's index
+		 * @param j
+		 *            the second vector's index
+		 * @param distance
+		 *            the distance of both vectors
+		 */
+		void pair(int i, int j, double distance);
+	}
+
+	// the amount of rows compared against each other at once
+	private static final int TILE_ROWS = 64;
+
+	// the amount of columns of each row compared at once
+	private static final int BLOCK_COLUMNS = 256;
+
+	// the amount of tiles computed ahead of the handler, per thread
+	private static final int TILES_AHEAD = 2;
+
+	private final double[][] rows;
+	private final int columns;
+	private final double power;
+
+	/**
+	 * @param rows
+	 *            the vectors, as arrays of equal length
+	 * @param power
+	 *            the order of the distance: 1 for Manhattan, 2 for Euclidean,
+	 *            Double.POSITIVE_INFINITY for Chebyshev distance or any other
+	 *            positive value
+	 * @throws IllegalArgumentException
+	 *             if the arrays differ in length or the order is not positive
+	 */
+	public MinkowskiDistances(double[][] rows, double power) {
+		if (!(power > 0d)) {
+			throw new IllegalArgumentException("The order of Minkowski distances must be positive, not " + power);
+		}
+		this.rows = rows;
+		this.power = power;
+		this.columns = (rows.length == 0) ? 0 : rows[0].length;
+		for (double[] row : rows) {
+			if (row.length != columns) {
+				throw new IllegalArgumentException("All vectors must have the same length.");
+			}
+		}
+	}
+
+	/**
+	 * @return The amount of vectors.
+	 */
+	public int size() {
+		return rows.length;
+	}
+
+	/**
+	 * @param i
+	 *            a vector's index
+	 * @param j
+	 *            another vector's index
+	 * @return The distance of both vectors.
+	 */
+	public double distance(int i, int j) {
+		return finish(accumulate(rows[i], rows[j], 0, columns, 0d));
+	}
+
+	/**
+	 * Computes the distances of every pair of different vectors, handing on
+	 * those of at most the maximum distance as (i, j) with i < j. The handler
+	 * receives the pairs tile by tile, in ascending order of the tiles of their
+	 * first index.
+	 *
+	 * @param maxDistance
+	 *            the largest distance handed on, Double.POSITIVE_INFINITY for
+	 *            all pairs
+	 * @param threads
+	 *            the amount of threads to compute with
+	 * @param handler
+	 *            the handler receiving the pairs
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the distances
+	 * @throws ExecutionException
+	 *             if computing failed
+	 */
+	public void allPairs(final double maxDistance, int threads, PairHandler handler)
+			throws InterruptedException, ExecutionException {
+		run(threads, handler, new TileTask() {
+			@Override
+			public double[] compute(int from) {
+				return pairsOfTile(from, maxDistance);
+			}
+		});
+	}
+
+	/**
+	 * Computes the nearest neighbours of every vector, handing on (i, j) for
+	 * each of the k vectors j nearest to i (of those at most the maximum
+	 * distance away), the nearest first and those of equal distance by
+	 * ascending index. The handler receives the neighbours in ascending order
+	 * of i.
+	 *
+	 * @param k
+	 *            the amount of neighbours of each vector
+	 * @param maxDistance
+	 *            the largest distance of neighbours, Double.POSITIVE_INFINITY
+	 *            for no limit
+	 * @param threads
+	 *            the amount of threads to compute with
+	 * @param handler
+	 *            the handler receiving the pairs
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the distances
+	 * @throws ExecutionException
+	 *             if computing failed
+	 */
+	public void nearestNeighbours(final int k, final double maxDistance, int threads, PairHandler handler)
+			throws InterruptedException, ExecutionException {
+		if (k < 1) {
+			throw new IllegalArgumentException("At least one neighbour has to be searched, not " + k);
+		}
+		run(threads, handler, new TileTask() {
+			@Override
+			public double[] compute(int from) {
+				return neighboursOfTile(from, k, maxDistance);
+			}
+		});
+	}
+
+	// Computes the results of a tile of rows, as triples of (i, j, distance).
+	private static interface TileTask {
+		double[] compute(int from);
+	}
+
+	private void run(int threads, PairHandler handler, final TileTask task)
+			throws InterruptedException, ExecutionException {
+		final int poolSize = Math.max(1, threads);
+		final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+		try {
+			// the first tiles have the most pairs to compute, so they are
+			// submitted first. Tiles are handed on in order, a new one is
+			// submitted for each one handed on.
+			final Deque<Future<double[]>> window = new ArrayDeque<Future<double[]>>();
+			int tile = 0;
+			while (tile < rows.length || !window.isEmpty()) {
+				while (tile < rows.length && window.size() < poolSize * TILES_AHEAD) {
+					final int from = tile;
+					window.add(executor.submit(new Callable<double[]>() {
+						@Override
+						public double[] call() {
+							return task.compute(from);
+						}
+					}));
+					tile += TILE_ROWS;
+				}
+				final double[] pairs = window.poll().get();
+				for (int p = 0; p < pairs.length; p += 3) {
+					handler.pair((int) pairs[p], (int) pairs[p + 1], pairs[p + 2]);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// Computes the tile of rows starting at from against itself and all
+	// following rows. Returns the pairs of at most the maximum distance.
+	private double[] pairsOfTile(int from, double maxDistance) {
+		final int to = Math.min(from + TILE_ROWS, rows.length);
+		final double[] sums = new double[TILE_ROWS * TILE_ROWS];
+		final double limit = limit(maxDistance);
+		double[] result = new double[48];
+		int resultLength = 0;
+
+		for (int otherFrom = from; otherFrom < rows.length; otherFrom += TILE_ROWS) {
+			final int otherTo = Math.min(otherFrom + TILE_ROWS, rows.length);
+			compareTiles(from, to, otherFrom, otherTo, true, sums, limit, null);
+
+			for (int i = from; i < to; i++) {
+				final int row = (i - from) * TILE_ROWS - otherFrom;
+				for (int j = Math.max(otherFrom, i + 1); j < otherTo; j++) {
+					final double distance = finish(sums[row + j]);
+					if (distance <= maxDistance || maxDistance == Double.POSITIVE_INFINITY) {
+						if (resultLength + 3 > result.length) {
+							result = Arrays.copyOf(result, result.length * 2);
+						}
+						result[resultLength++] = i;
+						result[resultLength++] = j;
+						result[resultLength++] = distance;
+					}
+				}
+			}
+		}
+
+		return Arrays.copyOf(result, resultLength);
+	}
+
+	// Computes the tile of rows starting at from against all rows. Returns the
+	// nearest neighbours of each row.
+	private double[] neighboursOfTile(int from, int k, double maxDistance) {
+		final int to = Math.min(from + TILE_ROWS, rows.length);
+		final double[] sums = new double[TILE_ROWS * TILE_ROWS];
+		// the neighbours found so far of each row, nearest first
+		final int[] neighbours = new int[TILE_ROWS * k];
+		final double[] distances = new double[TILE_ROWS * k];
+		final int[] found = new int[TILE_ROWS];
+		final double[] limits = new double[TILE_ROWS];
+		Arrays.fill(limits, limit(maxDistance));
+
+		for (int otherFrom = 0; otherFrom < rows.length; otherFrom += TILE_ROWS) {
+			final int otherTo = Math.min(otherFrom + TILE_ROWS, rows.length);
+			compareTiles(from, to, otherFrom, otherTo, false, sums, 0d, limits);
+
+			for (int i = from; i < to; i++) {
+				final int row = (i - from) * TILE_ROWS - otherFrom;
+				final int offset = (i - from) * k;
+				for (int j = otherFrom; j < otherTo; j++) {
+					final double distance = finish(sums[row + j]);
+					if (j == i || !(distance <= maxDistance || maxDistance == Double.POSITIVE_INFINITY)) {
+						continue;
+					}
+					// insert into the neighbours, ordered by distance and index
+					int position = found[i - from];
+					while (position > 0 && (distances[offset + position - 1] > distance
+							|| (distances[offset + position - 1] == distance && neighbours[offset + position - 1] > j))) {
+						position--;
+					}
+					if (position == k) {
+						continue;
+					}
+					final int last = Math.min(found[i - from], k - 1);
+					System.arraycopy(neighbours, offset + position, neighbours, offset + position + 1, last - position);
+					System.arraycopy(distances, offset + position, distances, offset + position + 1, last - position);
+					neighbours[offset + position] = j;
+					distances[offset + position] = distance;
+					if (found[i - from] < k) {
+						found[i - from]++;
+					}
+					if (found[i - from] == k) {
+						limits[i - from] = Math.min(limits[i - from], limit(distances[offset + k - 1]));
+					}
+				}
+			}
+		}
+
+		final double[] result = new double[3 * (to - from) * k];
+		int resultLength = 0;
+		for (int i = from; i < to; i++) {
+			for (int n = 0; n < found[i - from]; n++) {
+				result[resultLength++] = i;
+				result[resultLength++] = neighbours[(i - from) * k + n];
+				result[resultLength++] = distances[(i - from) * k + n];
+			}
+		}
+		return Arrays.copyOf(result, resultLength);
+	}
+
+	/*
+	 * Accumulates the sums of the pairs of both tiles block by block, leaving
+	 * out the blocks of pairs whose sum already exceeds the limit (of the
+	 * pair's row if limits are given). Pairs left out keep a sum above the
+	 * limit.
+	 */
+	private void compareTiles(int from, int to, int otherFrom, int otherTo, boolean upper, double[] sums,
+			double limit, double[] limits) {
+		Arrays.fill(sums, 0d);
+		for (int c = 0; c < columns; c += BLOCK_COLUMNS) {
+			final int columnsTo = Math.min(c + BLOCK_COLUMNS, columns);
+			for (int i = from; i < to; i++) {
+				final double[] a = rows[i];
+				final int row = (i - from) * TILE_ROWS - otherFrom;
+				final double rowLimit = (limits == null) ? limit : limits[i - from];
+				for (int j = upper ? Math.max(otherFrom, i + 1) : otherFrom; j < otherTo; j++) {
+					if (sums[row + j] <= rowLimit) {
+						sums[row + j] = accumulate(a, rows[j], c, columnsTo, sums[row + j]);
+					}
+				}
+			}
+		}
+	}
+
+	// the sum of a pair of at least the given distance, with some room for
+	// rounding
+	private double limit(double distance) {
+		if (distance == Double.POSITIVE_INFINITY || distance < 0d) {
+			return Double.POSITIVE_INFINITY;
+		}
+		final double sum;
+		if (power == 1d || power == Double.POSITIVE_INFINITY) {
+			sum = distance;
+		} else if (power == 2d) {
+			sum = distance * distance;
+		} else {
+			sum = Math.pow(distance, power);
+		}
+		return sum * (1d + 1e-9) + Double.MIN_NORMAL;
+	}
+
+	// adds the given columns of the pair to the sum
+	private double accumulate(double[] a, double[] b, int from, int to, double sum) {
+		if (power == 2d) {
+			for (int c = from; c < to; c++) {
+				final double difference = a[c] - b[c];
+				sum += difference * difference;
+			}
+		} else if (power == 1d) {
+			for (int c = from; c < to; c++) {
+				sum += Math.abs(a[c] - b[c]);
+			}
+		} else if (power == Double.POSITIVE_INFINITY) {
+			for (int c = from; c < to; c++) {
+				sum = Math.max(sum, Math.abs(a[c] - b[c]));
+			}
+		} else {
+			for (int c = from; c < to; c++) {
+				sum += Math.pow(Math.abs(a[c] - b[c]), power);
+			}
+		}
+		return sum;
+	}
+
+	// the distance of a pair of the given sum
+	private double finish(double sum) {
+		if (power == 1d || power == Double.POSITIVE_INFINITY) {
+			return sum;
+		}
+		if (power == 2d) {
+			return Math.sqrt(sum);
+		}
+		return Math.pow(sum, 1d / power);
+	}
+
+}
@@ -54,6 +54,15 @@ public class SuffixTreeClusteringModuleWrapper extends ModuleImpl {
 		// this property saves the name of the used corpus
 	public static final String PROPERTYKEY_CORPNAME = "corpus/text name";
 	
+		// this property saves whether Neighbor Joining searches the pairs to join RapidNJ-style
+	public static final String PROPERTYKEY_RAPIDNJ = "rapid neighbor joining";
+	
+		// this property saves the number of threads computing distances and clustering with "KM"
+	public static final String PROPERTYKEY_MAXTHREADS = "maximum threads";
+	
+		// this property saves the size of the samples clustered with "KM" in CLARA mode
+	public static final String PROPERTYKEY_SAMPLESIZE = "clara sample size";
+	
 	// variables:
 	
 		//input stream for kwipStreamReader
@@ -84,6 +93,15 @@ public class SuffixTreeClusteringModuleWrapper extends ModuleImpl {
 		// the name of the corpus
 	private String corpusName;
 	
+		// whether Neighbor Joining searches the pairs to join in sorted rows
+	private boolean rapidNeighborJoining;
+	
+		// the number of threads clustering with "KM"
+	private int maxThreads;
+	
+		// the size of the samples clustered with "KM" in CLARA mode, 0 to cluster all types at once
+	private int sampleSize;
+	
 		//the result of the clustering
 	private String clustResult;
 	
@@ -116,12 +134,20 @@ public class SuffixTreeClusteringModuleWrapper extends ModuleImpl {
 		this.getPropertyDescriptions().put(PROPERTYKEY_VECTYPE, "The feature type of the vector. Possible inputs:"
 				+ " \"TF-IDF\", \"TF-DF\", \"binary\"");
 		this.getPropertyDescriptions().put(PROPERTYKEY_CORPNAME, "Insert corpus/text name");
+		this.getPropertyDescriptions().put(PROPERTYKEY_RAPIDNJ, "Search the pairs to join in sorted rows (RapidNJ) with \"NJ\": "
+				+ "the same tree, faster for clustered types, slower for types without structure");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAXTHREADS, "Number of threads computing distances and clustering with \"KM\", at least 1");
+		this.getPropertyDescriptions().put(PROPERTYKEY_SAMPLESIZE, "Cluster random samples of this many types with \"KM\" (CLARA) "
+				+ "instead of computing the distances of all types, 0 to cluster all types at once");
 		
 		// property defaults
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "SuffixTreeClusteringWrapper"); 
 		this.getPropertyDefaultValues().put(PROPERTYKEY_CLUST, "KM");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_VECTYPE, "TF-IDF");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_CORPNAME, "myCorpus");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_RAPIDNJ, "false");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAXTHREADS, "4");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_SAMPLESIZE, "0");
 		
 		// I/O definition
 		InputPort inputPortTreeRes = new InputPort(INPUTIDTREERES, "[text/xml] Input of an XML representation of the KWIP result.", this);
@@ -222,8 +248,8 @@ public class SuffixTreeClusteringModuleWrapper extends ModuleImpl {
 			/*
 			// for debugging
 			System.out.print("[");
-			for (Double val : doc.getVector().getValues()) {
-				System.out.print(val.doubleValue() + ", ");
+			for (double val : doc.getVector().getValues()) {
+				System.out.print(val + ", ");
 			}
 			System.out.println("]");
 			*/
@@ -268,6 +294,9 @@ public class SuffixTreeClusteringModuleWrapper extends ModuleImpl {
 		this.corpusName = this.getProperties().getProperty(PROPERTYKEY_CORPNAME, this.getPropertyDefaultValues().get(PROPERTYKEY_CORPNAME));
 		this.vecType = this.getProperties().getProperty(PROPERTYKEY_VECTYPE, this.getPropertyDefaultValues().get(PROPERTYKEY_VECTYPE));
 		this.clusterType = this.getProperties().getProperty(PROPERTYKEY_CLUST, this.getPropertyDefaultValues().get(PROPERTYKEY_CLUST));
+		this.rapidNeighborJoining = Boolean.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_RAPIDNJ, this.getPropertyDefaultValues().get(PROPERTYKEY_RAPIDNJ)));
+		this.maxThreads = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_MAXTHREADS, this.getPropertyDefaultValues().get(PROPERTYKEY_MAXTHREADS)));
+		this.sampleSize = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_SAMPLESIZE, this.getPropertyDefaultValues().get(PROPERTYKEY_SAMPLESIZE)));
 		
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
@@ -284,7 +313,7 @@ public class SuffixTreeClusteringModuleWrapper extends ModuleImpl {
 	}
 	
 	private void clusterFlat(List<Type> types, String name) {
-		FlatClusterer f_analysis = new FlatClusterer(types);
+		FlatClusterer f_analysis = new FlatClusterer(types, this.maxThreads, this.sampleSize);
 		//LOGGER.info("Flaches Clustern von " + types.size() + " Types");
 		List<FlatCluster> fClusters = f_analysis.analyse(3, 10);
 		for (FlatCluster cluster : fClusters) {
@@ -311,7 +340,7 @@ public class SuffixTreeClusteringModuleWrapper extends ModuleImpl {
 	
 	private void clusterNeighborJoin(List<Type> types) {
 		// usage of Neighbor Joining 
-		NeighborJoining nj = new NeighborJoining(types);
+		NeighborJoining nj = new NeighborJoining(types, this.rapidNeighborJoining, true);
 		//LOGGER.info("Neighbor Joining Clustern von " + types.size() + " Types");
 		nj.start();
 		this.clustResult = nj.getTree();
@@ -21,6 +21,7 @@ import modules.CharPipe;
 import modules.BytePipe;
 import modules.InputPort;
 import modules.ModuleImpl;
+import modules.ObjectPipe;
 import modules.OutputPort;
 import common.parallelization.CallbackReceiver;
 import modules.vectorization.suffixTreeVectorizationWrapper.SuffixTreeInfoSer;
@@ -54,6 +55,15 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 	// this property saves the name of the used corpus
 	public static final String PROPERTYKEY_CORPNAME = "corpus/text name";
 	
+	// this property saves whether Neighbor Joining searches the pairs to join RapidNJ-style
+	public static final String PROPERTYKEY_RAPIDNJ = "rapid neighbor joining";
+	
+	// this property saves the number of threads computing distances and clustering with "KM"
+	public static final String PROPERTYKEY_MAXTHREADS = "maximum threads";
+	
+	// this property saves the size of the samples clustered with "KM" in CLARA mode
+	public static final String PROPERTYKEY_SAMPLESIZE = "clara sample size";
+	
 	// variables:
 	
 	// variable for saving the corpus 
@@ -71,6 +81,15 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 	// the name of the corpus
 	private String corpusName;
 	
+	// whether Neighbor Joining searches the pairs to join in sorted rows
+	private boolean rapidNeighborJoining;
+	
+	// the number of threads clustering with "KM"
+	private int maxThreads;
+	
+	// the size of the samples clustered with "KM" in CLARA mode, 0 to cluster all types at once
+	private int sampleSize;
+	
 	//the result of the clustering
 	private String clustResult;
 	
@@ -103,13 +122,23 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 	
 	this.getPropertyDescriptions().put(PROPERTYKEY_CORPNAME, "Insert corpus/text name");
 	
+	this.getPropertyDescriptions().put(PROPERTYKEY_RAPIDNJ, "Search the pairs to join in sorted rows (RapidNJ) with \"NJ\": "
+		+ "the same tree, faster for clustered types, slower for types without structure");
+	this.getPropertyDescriptions().put(PROPERTYKEY_MAXTHREADS, "Number of threads computing distances and clustering with \"KM\", at least 1");
+	this.getPropertyDescriptions().put(PROPERTYKEY_SAMPLESIZE, "Cluster random samples of this many types with \"KM\" (CLARA) "
+		+ "instead of computing the distances of all types, 0 to cluster all types at once");
+	
 	// property defaults
 	this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "SuffixTreeClusteringWrapperV2"); 
 	this.getPropertyDefaultValues().put(PROPERTYKEY_CLUST, "KM");
 	this.getPropertyDefaultValues().put(PROPERTYKEY_CORPNAME, "myCorpus");
+	this.getPropertyDefaultValues().put(PROPERTYKEY_RAPIDNJ, "false");
+	this.getPropertyDefaultValues().put(PROPERTYKEY_MAXTHREADS, "4");
+	this.getPropertyDefaultValues().put(PROPERTYKEY_SAMPLESIZE, "0");
 	
 	// I/O definition
 	InputPort inputPortVec = new InputPort(INPUTID, "[byte] deserialized vector after \"SuffixTreeInfoSer\".", this);
+	inputPortVec.addSupportedPipe(ObjectPipe.class);
 	inputPortVec.addSupportedPipe(BytePipe.class);
 	
 	OutputPort outputPort = new OutputPort(OUTPUTID, "[text] Plain text character output.", this);
@@ -129,13 +158,20 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 	@Override
 	public boolean process() throws Exception {
 				
-		// byte input
-		BytePipe pipe = (BytePipe) this.getInputPorts().get(INPUTID).getPipe();
-		ObjectInputStream oiStream = new ObjectInputStream(pipe.getInput());
-		this.corpusSer = (SuffixTreeInfoSer) oiStream.readObject();
-		oiStream.close();
+		// object input (as it is) or byte input (deserialized)
+		InputPort inputPortVec = this.getInputPorts().get(INPUTID);
+		if (inputPortVec.providesObjects()) {
+			this.corpusSer = inputPortVec.readObject(SuffixTreeInfoSer.class);
+		} else {
+			BytePipe pipe = (BytePipe) inputPortVec.getPipe();
+			ObjectInputStream oiStream = new ObjectInputStream(pipe.getInput());
+			this.corpusSer = (SuffixTreeInfoSer) oiStream.readObject();
+			oiStream.close();
+		}
 		
-		// Prepare proper SuffixTreeInfo object "corpus" with all vectors.
+		// Prepare proper SuffixTreeInfo object "corpus" with all vectors. The
+		// types and nodes may be shared with other receivers of the object,
+		// clustering only reads them.
 		this.corpus = new SuffixTreeInfo();
 		this.corpus.setNumberOfNodes(this.corpusSer.getNumberOfNodes());
 		this.corpus.setNumberOfTypes(this.corpusSer.getNumberOfTypes());
@@ -192,6 +228,9 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 		// Apply own properties
 		this.corpusName = this.getProperties().getProperty(PROPERTYKEY_CORPNAME, this.getPropertyDefaultValues().get(PROPERTYKEY_CORPNAME));
 		this.clusterType = this.getProperties().getProperty(PROPERTYKEY_CLUST, this.getPropertyDefaultValues().get(PROPERTYKEY_CLUST));
+		this.rapidNeighborJoining = Boolean.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_RAPIDNJ, this.getPropertyDefaultValues().get(PROPERTYKEY_RAPIDNJ)));
+		this.maxThreads = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_MAXTHREADS, this.getPropertyDefaultValues().get(PROPERTYKEY_MAXTHREADS)));
+		this.sampleSize = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_SAMPLESIZE, this.getPropertyDefaultValues().get(PROPERTYKEY_SAMPLESIZE)));
 		
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
@@ -200,7 +239,7 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 	// methods:
 	
 	private void clusterFlat(List<Type> types, String name) {
-		FlatClusterer f_analysis = new FlatClusterer(types);
+		FlatClusterer f_analysis = new FlatClusterer(types, this.maxThreads, this.sampleSize);
 		
 		List<FlatCluster> fClusters = f_analysis.analyse(3, 10);
 		this.kmeansRes = fClusters;
@@ -228,7 +267,7 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 	
 	private void clusterNeighborJoin(List<Type> types) {
 		// usage of Neighbor Joining 
-		NeighborJoining nj = new NeighborJoining(types);
+		NeighborJoining nj = new NeighborJoining(types, this.rapidNeighborJoining, true);
 		//LOGGER.info("Neighbor Joining Clustern von " + types.size() + " Types");
 		nj.start();
 		this.clustResult = nj.getTree();
@@ -0,0 +1,230 @@
+package modules.clustering.treeSimilarityClustering;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import models.ExtensibleTreeNode;
+
+/**
+ * Finds the pairs of trees worth comparing by MinHash signatures and LSH
+ * banding, so that not every pair of trees has to be merged.
+ *
+ * A tree is represented by the set of its paths (of child node keys) up to the
+ * maximum comparison depth, each along with the value of its last node. The
+ * similarity quotient of {@link NodeComparator} is the share of the node
+ * counts on paths both trees have; for equal counts it is the Dice coefficient
+ * 2J/(1+J) of the Jaccard index J of the path sets. So pairs reaching a
+ * minimum similarity t mostly have a Jaccard index of at least t/(2-t).
+ *
+ * Signatures hold the smallest hash of all paths for each of a number of hash
+ * functions; two signatures agree at a position with a probability of J. They
+ * are cut into bands of rows, and the trees sharing a band in any of them are
+ * candidates. The rows per band are chosen as many as possible while still
+ * finding pairs of that Jaccard index with a probability of at least
+ * {@value #RECALL}. Node counts are not taken into account, so pairs sharing
+ * only few paths of high counts may be missed.
+ */
+public class MinHashCandidates {
+
+	// probability of finding a pair of the threshold Jaccard index
+	public static final double RECALL = 0.99d;
+
+	private final int maxDepth;
+	private final long[] seeds;
+	private final int rows;
+	private final int bands;
+
+	/**
+	 * Constructor.
+	 * @param signatureLength Number of hash functions
+	 * @param minSimilarity Minimum similarity quotient of the pairs to find
+	 * @param maxDepth Maximum depth of the paths (-1 for no max.)
+	 */
+	public MinHashCandidates(int signatureLength, double minSimilarity, int maxDepth) {
+		if (signatureLength < 1) {
+			throw new IllegalArgumentException("MinHash signatures need at least one hash function, not " + signatureLength);
+		}
+		this.maxDepth = maxDepth;
+		this.seeds = new long[signatureLength];
+		long seed = 0x5DEECE66DL;
+		for (int i = 0; i < signatureLength; i++) {
+			seed = mix(seed + 0x9E3779B97F4A7C15L);
+			this.seeds[i] = seed;
+		}
+
+		// as many rows as possible while finding pairs of the threshold
+		final double threshold = jaccardThreshold(minSimilarity);
+		int rows = 0;
+		for (int r = signatureLength; r >= 1 && threshold > 0d; r--) {
+			final int b = signatureLength / r;
+			if (1d - Math.pow(1d - Math.pow(threshold, r), b) >= RECALL) {
+				rows = r;
+				break;
+			}
+		}
+		if (rows == 0 && threshold > 0d) {
+			rows = 1;
+		}
+		this.rows = rows;
+		this.bands = rows > 0 ? signatureLength / rows : 0;
+	}
+
+	/**
+	 * @param minSimilarity Minimum similarity quotient
+	 * @return Jaccard index of path sets whose Dice coefficient is the given similarity
+	 */
+	public static double jaccardThreshold(double minSimilarity) {
+		if (minSimilarity <= 0d) {
+			return 0d;
+		}
+		if (minSimilarity >= 1d) {
+			return 1d;
+		}
+		return minSimilarity / (2d - minSimilarity);
+	}
+
+	/**
+	 * @return False if the minimum similarity is too low for leaving out any pairs
+	 */
+	public boolean prunes() {
+		return this.bands > 0;
+	}
+
+	public int getBands() {
+		return bands;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Computes the MinHash signature of the paths below the given nodes, the
+	 * paths of each node kept apart from those of the others.
+	 * @param trees Nodes whose subtrees to hash (may be null)
+	 * @return Signature
+	 */
+	public int[] signature(ExtensibleTreeNode... trees) {
+		final int[] signature = new int[seeds.length];
+		Arrays.fill(signature, Integer.MAX_VALUE);
+		for (int t = 0; t < trees.length; t++) {
+			if (trees[t] != null) {
+				this.addPaths(trees[t], mix(t + 1), 0, signature);
+			}
+		}
+		return signature;
+	}
+
+	private void addPaths(ExtensibleTreeNode node, long pathHash, int depth, int[] signature) {
+		if (depth >= maxDepth && maxDepth >= 0) {
+			return;
+		}
+		Iterator<Entry<String, ExtensibleTreeNode>> children = node.getChildNodes().entrySet().iterator();
+		while (children.hasNext()) {
+			Entry<String, ExtensibleTreeNode> child = children.next();
+			final long childPathHash = mix(pathHash + 0x9E3779B97F4A7C15L * (child.getKey().hashCode() + 1L));
+			final String value = child.getValue().getNodeValue();
+			final long element = mix(childPathHash ^ (value == null ? 0 : value.hashCode()));
+			for (int i = 0; i < seeds.length; i++) {
+				final int hash = (int) mix(element ^ seeds[i]);
+				if (hash < signature[i]) {
+					signature[i] = hash;
+				}
+			}
+			this.addPaths(child.getValue(), childPathHash, depth + 1, signature);
+		}
+	}
+
+	/**
+	 * Determines the candidate pairs of the trees whose signatures are given.
+	 * @param signatures Signatures of the trees
+	 * @return For each tree the (ascending) indices of the following trees to compare it to
+	 */
+	public int[][] candidates(int[][] signatures) {
+		final int n = signatures.length;
+		if (!this.prunes()) {
+			throw new IllegalStateException("The minimum similarity is too low for finding candidates.");
+		}
+
+		// pairs i < j as i << 32 | j, sorted and each one only once, as well
+		// as the pairs of the current band and a buffer to merge both into
+		long[] pairs = new long[16];
+		int pairCount = 0;
+		long[] bandPairs = new long[Math.max(16, n)];
+		long[] merged = new long[16];
+		final long[] buckets = new long[n];
+		for (int band = 0; band < bands; band++) {
+			int bandPairCount = 0;
+			// 32 bits of the band's hash and the index, sorted by the hash
+			for (int i = 0; i < n; i++) {
+				long hash = mix(band + 1L);
+				for (int row = band * rows; row < (band + 1) * rows; row++) {
+					hash = mix(hash + signatures[i][row]);
+				}
+				buckets[i] = (hash & 0xFFFFFFFF00000000L) | i;
+			}
+			Arrays.sort(buckets);
+			for (int start = 0, end; start < n; start = end) {
+				end = start + 1;
+				while (end < n && (buckets[end] >>> 32) == (buckets[start] >>> 32)) {
+					end++;
+				}
+				for (int a = start; a < end - 1; a++) {
+					for (int b = a + 1; b < end; b++) {
+						if (bandPairCount == bandPairs.length) {
+							bandPairs = Arrays.copyOf(bandPairs, bandPairs.length * 2);
+						}
+						// indices ascending within a bucket
+						bandPairs[bandPairCount++] = (buckets[a] & 0xFFFFFFFFL) << 32 | (buckets[b] & 0xFFFFFFFFL);
+					}
+				}
+			}
+
+			// a band has each pair once, pairs already found in earlier
+			// bands are dropped while merging
+			Arrays.sort(bandPairs, 0, bandPairCount);
+			if (merged.length < pairCount + bandPairCount) {
+				merged = new long[Math.max(pairCount + bandPairCount, merged.length * 2)];
+			}
+			int mergedCount = 0;
+			for (int p = 0, q = 0; p < pairCount || q < bandPairCount;) {
+				if (q == bandPairCount || (p < pairCount && pairs[p] <= bandPairs[q])) {
+					if (q < bandPairCount && bandPairs[q] == pairs[p]) {
+						q++;
+					}
+					merged[mergedCount++] = pairs[p++];
+				} else {
+					merged[mergedCount++] = bandPairs[q++];
+				}
+			}
+			final long[] swap = pairs;
+			pairs = merged;
+			merged = swap;
+			pairCount = mergedCount;
+		}
+
+		// partners of each tree
+		final int[] partnerCounts = new int[n];
+		for (int p = 0; p < pairCount; p++) {
+			partnerCounts[(int) (pairs[p] >>> 32)]++;
+		}
+		final int[][] partners = new int[n][];
+		for (int i = 0; i < n; i++) {
+			partners[i] = new int[partnerCounts[i]];
+			partnerCounts[i] = 0;
+		}
+		for (int p = 0; p < pairCount; p++) {
+			final int i = (int) (pairs[p] >>> 32);
+			partners[i][partnerCounts[i]++] = (int) pairs[p];
+		}
+		return partners;
+	}
+
+	// finalizer of SplitMix64
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,7 +1,9 @@
 package modules.clustering.treeSimilarityClustering;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map.Entry;
 import java.util.logging.Logger;
 
 import models.ExtensibleTreeNode;
@@ -42,17 +44,89 @@ public class NodeComparator {
 
 	/**
 	 * Vergleicht die Baeume miteinander, deren WurzelExtensibleTreeNode uebergeben wurden.
+	 * Der Wert ist derselbe wie der des mit verschmelzeBaeume() verschmolzenen Baumes,
+	 * dieser wird dafuer aber nicht angelegt.
 	 * @param k1 WurzelExtensibleTreeNode 1
 	 * @param k2 WurzelExtensibleTreeNode 2
 	 * @return Anteil des Trefferwerts am Gesamtwert
 	 */
 	public Double vergleiche(ExtensibleTreeNode k1, ExtensibleTreeNode k2) {
 
-		ExtensibleTreeNode verschmolzenerBaum = verschmelzeBaeume(k1, k2);
-		Double[] trefferWert = this.ermittleExtensibleTreeNodeTrefferwert(verschmolzenerBaum, this.maximaleAuswertungsEbene, this.ebenenexponent);
-		return new Double(trefferWert[0] / trefferWert[1]);
+		double[] summen = this.bewerteVerschmolzeneBaeume(k1, k2, 0, this.maximaleAuswertungsEbene, this.ebenenexponent, new double[16]);
+		return new Double(summen[0] / summen[1]);
 
 	}
+
+	/**
+	 * Wertet die Zaehlvariable der ExtensibleTreeNode des Baumes aus, den verschmelzeBaeume()
+	 * aus den uebergebenen Baeumen erzeugen wuerde, ohne ihn anzulegen: Beide Baeume werden
+	 * gleichzeitig durchlaufen, die Kinder in der (natuerlichen) Reihenfolge ihrer Namen.
+	 * Die Werte werden in derselben Reihenfolge aufaddiert wie in
+	 * ermittleExtensibleTreeNodeTrefferwert(), so dass sich genau dieselben Werte ergeben.
+	 * 
+	 * @param k1 ExtensibleTreeNode des ersten Baumes (oder null)
+	 * @param k2 ExtensibleTreeNode des zweiten Baumes (oder null)
+	 * @param ebene Die Nummer der Ebene, auf der sich der Auswertungsprozess in der Baumhierarchie befindet.
+	 * @param maxebene Tiefste Ebene der Baumhierarchie, die noch ausgewertet werden soll. <0 zum Ignorieren.
+	 * @param ebenenexponent Exponent der Ebenennummer, welche Faktor fuer die Wertung von ExtensibleTreeNode ist.
+	 * @param summen Zwischenspeicher fuer die Werte je Ebene
+	 * @return Zwischenspeicher (ggf. vergroessert) mit Trefferwert auf Index 2*ebene, Gesamtwert auf Index 2*ebene+1.
+	 */
+	private double[] bewerteVerschmolzeneBaeume(ExtensibleTreeNode k1, ExtensibleTreeNode k2, int ebene,
+			int maxebene, double ebenenexponent, double[] summen) {
+		if (summen.length < 2 * ebene + 4) {
+			summen = Arrays.copyOf(summen, Math.max(2 * summen.length, 2 * ebene + 4));
+		}
+		double trefferwert = 0d;
+		double gesamtwert = 0d;
+
+		// Zaehlerwerte ermitteln (der WurzelExtensibleTreeNode wird ignoriert)
+		if (ebene > 0) {
+			int zaehler = (k1 != null ? k1.getNodeCounter() : 0) + (k2 != null ? k2.getNodeCounter() : 0);
+			if (k1 != null && k2 != null && k1.getNodeValue().equals(k2.getNodeValue())) {
+				// Treffer - zum Ergebnis addieren
+				trefferwert += zaehler * Math.pow(ebene, ebenenexponent);
+			}
+			// Zaehlerwert zur Gesamtzahl addieren
+			if (ebenenFaktorNurAufTrefferAnwenden){
+				gesamtwert += zaehler;
+			} else {
+				gesamtwert += zaehler * Math.pow(ebene, ebenenexponent);
+			}
+		}
+
+		if (ebene < maxebene || maxebene <0) {
+			// Kinder beider Baeume im Gleichschritt durchlaufen
+			Iterator<Entry<String, ExtensibleTreeNode>> kinder1 = k1 != null ? k1.getChildNodes().entrySet().iterator() : null;
+			Iterator<Entry<String, ExtensibleTreeNode>> kinder2 = k2 != null ? k2.getChildNodes().entrySet().iterator() : null;
+			Entry<String, ExtensibleTreeNode> kind1 = kinder1 != null && kinder1.hasNext() ? kinder1.next() : null;
+			Entry<String, ExtensibleTreeNode> kind2 = kinder2 != null && kinder2.hasNext() ? kinder2.next() : null;
+			while (kind1 != null || kind2 != null) {
+				int vergleich;
+				if (kind1 == null) {
+					vergleich = 1;
+				} else if (kind2 == null) {
+					vergleich = -1;
+				} else {
+					vergleich = kind1.getKey().compareTo(kind2.getKey());
+				}
+				summen = this.bewerteVerschmolzeneBaeume(vergleich <= 0 ? kind1.getValue() : null,
+						vergleich >= 0 ? kind2.getValue() : null, ebene + 1, maxebene, ebenenexponent, summen);
+				trefferwert += summen[2 * ebene + 2];
+				gesamtwert += summen[2 * ebene + 3];
+				if (vergleich <= 0) {
+					kind1 = kinder1.hasNext() ? kinder1.next() : null;
+				}
+				if (vergleich >= 0) {
+					kind2 = kinder2.hasNext() ? kinder2.next() : null;
+				}
+			}
+		}
+
+		summen[2 * ebene] = trefferwert;
+		summen[2 * ebene + 1] = gesamtwert;
+		return summen;
+	}
 	
 	/**
 	 * Vergleicht alle uebergebenen Baeume miteinander und gibt eine Matrix aus Uebereinstimmungsquotienten zurueck.
@@ -98,17 +98,14 @@ public class NodePartnerProcessor implements CallbackProcess {
 					continue;
 				}
 				
-				// Baeume miteinander kombinieren
-				ExtensibleTreeNode kombinationsBaumWurzel = this.komparator.verschmelzeBaeume(einsamerExtensibleTreeNode.getKnoten(), ExtensibleTreeNode.getKnoten());
-				Double[] trefferWert = this.komparator.ermittleExtensibleTreeNodeTrefferwert(kombinationsBaumWurzel);
-				Double vergleichswert =  new Double(trefferWert[0] / trefferWert[1]);
+				// Baeume miteinander vergleichen (kombiniert wird nur mit dem besten Partner)
+				Double vergleichswert = this.komparator.vergleiche(einsamerExtensibleTreeNode.getKnoten(), ExtensibleTreeNode.getKnoten());
 				
 				// Ergebnis auswerten
 				if (vergleichswert > besterVergleichswert){
 					besterVergleichswert = vergleichswert;
 					besterPartner = ExtensibleTreeNode;
 					besterPartner.setUebereinstimmungsQuotient(vergleichswert);
-					besterKombinationsBaumWurzel = kombinationsBaumWurzel;
 				}
 				
 			}
@@ -122,6 +119,9 @@ public class NodePartnerProcessor implements CallbackProcess {
 			// Ansonsten werden entsprechende MetaNode geschaffen und als Kombination zurueckgegeben
 			else {
 				
+				// Baeume mit dem besten Partner kombinieren
+				besterKombinationsBaumWurzel = this.komparator.verschmelzeBaeume(einsamerExtensibleTreeNode.getKnoten(), besterPartner.getKnoten());
+				
 				// Ggf. Vergleichsbaum auf TrefferExtensibleTreeNode beschraenken
 				if (this.behalteNurTreffer){
 					besterKombinationsBaumWurzel = this.komparator.trefferBaum(besterKombinationsBaumWurzel);
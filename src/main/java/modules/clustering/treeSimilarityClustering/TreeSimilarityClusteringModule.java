@@ -14,21 +14,26 @@ import it.uniroma1.dis.wsngroup.gexf4j.core.impl.StaxGraphWriter;
 import it.uniroma1.dis.wsngroup.gexf4j.core.impl.data.AttributeImpl;
 import it.uniroma1.dis.wsngroup.gexf4j.core.impl.data.AttributeListImpl;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
 
 import models.ExtensibleTreeNode;
 import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
+import modules.ObjectPipe;
 import modules.OutputPort;
 import modules.Pipe;
 import modules.ProgressWatcher;
@@ -55,6 +60,7 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 	public static final String PROPERTYKEY_MAXCOMPARISONDEPTH = "maximum comparison depth";
 	public static final String PROPERTYKEY_PROGRESSWATCHERINTERVAL = "status update interval (ms)";
 	public static final String PROPERTYKEY_MINTOKENAMOUNT = "minimum amount of tokens";
+	public static final String PROPERTYKEY_MINHASHLENGTH = "minhash signature length";
 
 	// Define I/O IDs (must be unique for every input or output)
 	private static final String ID_INPUT = "suffix tree";
@@ -68,6 +74,7 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 	private int minTokenAmount = 1;
 	private int maxComparisonDepth = -1;
 	private long progressWatcherInterval = 10000l;
+	private int minHashLength = 0;
 	//private int minDegree = 0;
 
 	public TreeSimilarityClusteringModule(CallbackReceiver callbackReceiver,
@@ -80,10 +87,11 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		this.setDescription("Clusters elements of the first layer below the root node of specified trees by comparing them to one another, calculating a similarity quotient for each pairing in the process. The elements will then be inserted into a GEXF graph with edge weights set according to their respective similarity quotient. For details, see Magister thesis <i>Experimente zur Strukturbildung in natürlicher Sprache</i>, Marcel Boeing, Universität zu Köln, 2014.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_MINSIMILARITY, "Minimum similarity value that will result in an edge being created.");
 		//this.getPropertyDescriptions().put(PROPERTYKEY_MINDEGREE, "Minimum node degree. Nodes with fewer connections will be removed from the graph prior to output.");
-		this.getPropertyDescriptions().put(PROPERTYKEY_MAXPARALLELTHREADS, "Maximum number of parallel threads the module will spawn (in addition to its own thread and the ProgressWatcher's).");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAXPARALLELTHREADS, "Maximum number of parallel threads the module will spawn (in addition to its own thread and the ProgressWatcher's). All comparisons share a single pool of them.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_MAXCOMPARISONDEPTH, "Maximum depth of the individual tree branches that will be used for comparison (-1 for no max.).");
 		this.getPropertyDescriptions().put(PROPERTYKEY_PROGRESSWATCHERINTERVAL, "Interval (in milliseconds) that the module will give out details about the progress in. It will also calculate an estimated time remaining, so larger values may yield more precise information. Default is 10 seconds (10000 ms); minimum is 250 ms.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_MINTOKENAMOUNT, "Minimum amount of tokens a type must have to enter comparison.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MINHASHLENGTH, "Number of hash functions of the MinHash signatures computed of the types' trees. Only types whose signatures share an LSH band are compared, which is likely for pairs reaching the minimum similarity; a few of them may be missed though. 0 to compare all pairs.");
 
 		// Add property defaults (_should_ be provided for every property)
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "Tree Similarity Clustering");
@@ -93,13 +101,16 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_MAXCOMPARISONDEPTH, "-1");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_PROGRESSWATCHERINTERVAL, "10000");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_MINTOKENAMOUNT, "1");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MINHASHLENGTH, "0");
 
 		// Define I/O
 		InputPort inputPort = new InputPort(ID_INPUT,
 				"ExtensibleTreeNode atomic suffix tree.", this);
+		inputPort.addSupportedPipe(ObjectPipe.class);
 		inputPort.addSupportedPipe(CharPipe.class);
 		InputPort inputPort2 = new InputPort(ID_INPUT_REVERSED,
 				"(optional) ExtensibleTreeNode reversed atomic suffix tree.", this);
+		inputPort2.addSupportedPipe(ObjectPipe.class);
 		inputPort2.addSupportedPipe(CharPipe.class);
 		OutputPort outputPort = new OutputPort(ID_OUTPUT,
 				"GEXF graph.", this);
@@ -124,12 +135,12 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		this.setStatusDetail("Receiving/parsing input");
 		
 		// Read tree from input & parse it
-		ExtensibleTreeNode rootNode = gson.fromJson(this.getInputPorts().get(ID_INPUT).getInputReader(), ExtensibleTreeNode.class);
+		ExtensibleTreeNode rootNode = this.readTree(this.getInputPorts().get(ID_INPUT), gson);
 		
 		// Read reversed tree from input & parse it
 		ExtensibleTreeNode reversedRootNode = null;
 		if (this.getInputPorts().get(ID_INPUT_REVERSED).isConnected())
-			reversedRootNode = gson.fromJson(this.getInputPorts().get(ID_INPUT_REVERSED).getInputReader(), ExtensibleTreeNode.class);
+			reversedRootNode = this.readTree(this.getInputPorts().get(ID_INPUT_REVERSED), gson);
 		
 		// If a second (reversed) suffix tree is present, make sure it contains the same keys
 		if (reversedRootNode != null && !rootNode.getChildNodes().keySet().equals(reversedRootNode.getChildNodes().keySet())){
@@ -220,9 +231,36 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		}
 		
 
+		// Types in the order of comparison
+		List<String> typeKeys = new ArrayList<String>(typeMap.keySet());
+		int elementsToCompare = typeKeys.size();
+		
+		// Determine candidate pairs if a MinHash signature length is set (null to compare all pairs)
+		int[][] candidates = null;
+		if (this.minHashLength > 0){
+			MinHashCandidates minHash = new MinHashCandidates(this.minHashLength, this.minSimilarity, this.maxComparisonDepth);
+			if (minHash.prunes()){
+				this.setStatusDetail("Computing MinHash signatures of "+elementsToCompare+" types");
+				int[][] signatures = new int[elementsToCompare][];
+				for (int i=0; i<elementsToCompare; i++){
+					String key = typeKeys.get(i);
+					signatures[i] = minHash.signature(typeMap.get(key), reversedRootNode != null ? reversedRootNode.getChildNodes().get(key) : null);
+				}
+				candidates = minHash.candidates(signatures);
+			} else {
+				Logger.getLogger(this.getClass().getCanonicalName()).info("The minimum similarity is too low for leaving out pairs; comparing all of them.");
+			}
+		}
+
 		// Calculate amount of work that lies ahead
-		int elementsToCompare = typeMap.size();
-		long comparisonsToConduct = (long) ((Math.pow(elementsToCompare, 2)/2)-elementsToCompare);
+		long comparisonsToConduct = (long) elementsToCompare * (elementsToCompare - 1) / 2;
+		if (candidates != null){
+			long candidatePairs = 0;
+			for (int[] partners : candidates)
+				candidatePairs += partners.length;
+			Logger.getLogger(this.getClass().getCanonicalName()).info("Comparing "+candidatePairs+" of "+comparisonsToConduct+" pairs found by MinHash ("+this.minHashLength+" hash functions).");
+			comparisonsToConduct = candidatePairs;
+		}
 		
 		// Track progress
 		ProgressWatcher progress = new ProgressWatcher(comparisonsToConduct);
@@ -230,52 +268,46 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		progressIndicator.start();
 		
 		/*
-		 *  Compare every type to every other. We will do this by separating one by one
-		 *  from the list and comparing it to the remainder. 
+		 *  Compare every type to every following one (or to its candidates following it).
+		 *  Each type's comparisons form one task of a pool shared by all of them; the
+		 *  results are put into the graph in the order of the types.
 		 */
-		
-		// Loop over types again
-		types = typeMap.entrySet().iterator();
-		while(types.hasNext()){
-			
-			// Determine next type to compare
-			Entry<String, ExtensibleTreeNode> type = types.next();
-			// Remove it from list
-			types.remove();
-			
-			// Create executor service
-			ExecutorService executor = Executors.newFixedThreadPool(this.maxParallelThreads);
-			
-			// Map for comparison results
-			final ConcurrentHashMap<String,Double> comparisonResultMap = new ConcurrentHashMap<String,Double>();
-			
-			// Loop over remainder
-			Iterator<Entry<String, ExtensibleTreeNode>> typesRemainder = typeMap.entrySet().iterator();
-			while(typesRemainder.hasNext()){
-				// Determine next type to compare to the previously determined
-				Entry<String, ExtensibleTreeNode> typeToCompareTo = typesRemainder.next();
-				// Run comparison
-				Runnable comparisonProcess;
-				if (reversedRootNode != null){
-					comparisonProcess = new ComparisonProcess(this.maxComparisonDepth, new Double(this.minSimilarity), type.getValue(), typeToCompareTo.getValue(), reversedRootNode.getChildNodes().get(type.getKey()), reversedRootNode.getChildNodes().get(typeToCompareTo.getKey()), comparisonResultMap, progress);
-				} else {
-					comparisonProcess = new ComparisonProcess(this.maxComparisonDepth, new Double(this.minSimilarity), type.getValue(), typeToCompareTo.getValue(), comparisonResultMap, progress);
-				}
-				executor.execute(comparisonProcess);
+		ForkJoinPool pool = new ForkJoinPool(this.maxParallelThreads);
+		boolean compared = false;
+		try {
+			List<Future<Map<String,Double>>> rowResults = new ArrayList<Future<Map<String,Double>>>(elementsToCompare);
+			for (int i=0; i<elementsToCompare; i++){
+				rowResults.add(pool.submit(this.comparisonRow(i, typeKeys, typeMap, reversedRootNode, candidates, progress)));
 			}
 			
-			// Shutdown executor service
-			executor.shutdown();
-			executor.awaitTermination(5000l, TimeUnit.MILLISECONDS);
-			
-			// Put the results into the graph
-			Iterator<Entry<String, Double>> comparisonResults = comparisonResultMap.entrySet().iterator();
-			while(comparisonResults.hasNext()){
-				Entry<String, Double> comparisonResult = comparisonResults.next();
-				Edge edge = graphNodes.get(type.getKey()).connectTo(""+edgeId, "similar", EdgeType.UNDIRECTED, graphNodes.get(comparisonResult.getKey()));
-				edge.setWeight(comparisonResult.getValue().floatValue());
-				this.edgeId++;
+			for (int i=0; i<elementsToCompare; i++){
+				// Wait for the comparisons of the type (and release them afterwards)
+				Map<String,Double> comparisonResultMap;
+				try {
+					comparisonResultMap = rowResults.get(i).get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
+				}
+				rowResults.set(i, null);
+				
+				// Put the results into the graph
+				String typeKey = typeKeys.get(i);
+				Iterator<Entry<String, Double>> comparisonResults = comparisonResultMap.entrySet().iterator();
+				while(comparisonResults.hasNext()){
+					Entry<String, Double> comparisonResult = comparisonResults.next();
+					Edge edge = graphNodes.get(typeKey).connectTo(""+edgeId, "similar", EdgeType.UNDIRECTED, graphNodes.get(comparisonResult.getKey()));
+					edge.setWeight(comparisonResult.getValue().floatValue());
+					this.edgeId++;
+				}
 			}
+			compared = true;
+		} finally {
+			pool.shutdownNow();
+			// The progress watcher ends by itself once all pairs are compared
+			if (!compared)
+				progressIndicator.interrupt();
 		}
 		
 		// Remove nodes not reaching the minimum degree range, if one is specified // DOES NOT WORK; APPARENTLY NODES CANNOT BE REMOVED
@@ -314,6 +346,63 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		return true;
 	}
 
+	/**
+	 * Returns a task comparing a type to the types following it (or to its candidates following it).
+	 * @param i Index of the type
+	 * @param typeKeys Types in the order of comparison
+	 * @param typeMap Trees of the types
+	 * @param reversedRootNode Root node of the reversed tree (may be null)
+	 * @param candidates Candidates of each type (null to compare all pairs)
+	 * @param progress Progress watcher, counting each comparison
+	 * @return Task returning the similarity quotients above the minimum, by types
+	 */
+	private Callable<Map<String,Double>> comparisonRow(final int i, final List<String> typeKeys, final Map<String,ExtensibleTreeNode> typeMap,
+			final ExtensibleTreeNode reversedRootNode, final int[][] candidates, final ProgressWatcher progress) {
+		return new Callable<Map<String,Double>>() {
+			@Override
+			public Map<String,Double> call() {
+				String typeKey = typeKeys.get(i);
+				ExtensibleTreeNode type = typeMap.get(typeKey);
+				
+				// Map for comparison results
+				ConcurrentHashMap<String,Double> comparisonResultMap = new ConcurrentHashMap<String,Double>();
+				
+				// Loop over remainder
+				int partnerCount = candidates != null ? candidates[i].length : typeKeys.size() - i - 1;
+				for (int p=0; p<partnerCount; p++){
+					// Determine next type to compare to the previously determined
+					String keyToCompareTo = typeKeys.get(candidates != null ? candidates[i][p] : i + 1 + p);
+					ExtensibleTreeNode typeToCompareTo = typeMap.get(keyToCompareTo);
+					// Run comparison
+					Runnable comparisonProcess;
+					if (reversedRootNode != null){
+						comparisonProcess = new ComparisonProcess(maxComparisonDepth, new Double(minSimilarity), type, typeToCompareTo, reversedRootNode.getChildNodes().get(typeKey), reversedRootNode.getChildNodes().get(keyToCompareTo), comparisonResultMap, progress);
+					} else {
+						comparisonProcess = new ComparisonProcess(maxComparisonDepth, new Double(minSimilarity), type, typeToCompareTo, comparisonResultMap, progress);
+					}
+					comparisonProcess.run();
+				}
+				return comparisonResultMap;
+			}
+		};
+	}
+
+	/**
+	 * Reads a tree from the given port -- as it is if the port is connected
+	 * through an object pipe, otherwise by parsing its JSON representation.
+	 * @param inputPort Input port
+	 * @param gson JSON parser
+	 * @return Root node of the tree
+	 * @throws Exception Thrown if the tree cannot be read
+	 */
+	private ExtensibleTreeNode readTree(InputPort inputPort, Gson gson) throws Exception {
+		// a tree received as object is shared with the sender and any other
+		// receivers, the comparison only reads it and builds new trees
+		if (inputPort.providesObjects())
+			return inputPort.readObject(ExtensibleTreeNode.class);
+		return gson.fromJson(inputPort.getInputReader(), ExtensibleTreeNode.class);
+	}
+
 	@Override
 	public void applyProperties() throws Exception {
 
@@ -329,11 +418,15 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		this.minDegree = Integer.parseInt(minDegreeString);*/
 		
 		String maxParallelThreadsString = this.getProperties().getProperty(
-				PROPERTYKEY_MINDEGREE,
+				PROPERTYKEY_MAXPARALLELTHREADS,
 				this.getPropertyDefaultValues()
-						.get(PROPERTYKEY_MINDEGREE));
-		if (maxParallelThreadsString != null)
-		this.maxParallelThreads = Integer.parseInt(maxParallelThreadsString);
+						.get(PROPERTYKEY_MAXPARALLELTHREADS));
+		if (maxParallelThreadsString != null){
+			int value = Integer.parseInt(maxParallelThreadsString);
+			if (value<1)
+				throw new IllegalArgumentException("Unknown maximum number of threads: " + maxParallelThreadsString);
+			this.maxParallelThreads = value;
+		}
 		
 		String minSimilarityString = this.getProperties().getProperty(
 				PROPERTYKEY_MINSIMILARITY,
@@ -368,6 +461,17 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 			if (value>0)
 				this.minTokenAmount = value;
 		}
+		
+		String minHashLengthString = this.getProperties().getProperty(
+				PROPERTYKEY_MINHASHLENGTH,
+				this.getPropertyDefaultValues().get(
+						PROPERTYKEY_MINHASHLENGTH));
+		if (minHashLengthString != null){
+			int value = Integer.parseInt(minHashLengthString);
+			if (value<0)
+				throw new IllegalArgumentException("Unknown MinHash signature length: " + minHashLengthString);
+			this.minHashLength = value;
+		}
 			
 		
 		
@@ -17,8 +17,8 @@ import com.google.gson.GsonBuilder;
 
 // Java I/O imports.
 import java.io.BufferedReader;
+import java.io.InputStream;
 import java.io.StringReader;
-import java.io.PipedInputStream;
 
 //Workbench specific imports.
 import modules.CharPipe;
@@ -86,7 +86,7 @@ public class Dot2TreeController extends ModuleImpl {
 	GSTXmlStreamReader treeXmlStreamReader;
 	
 	// GST XML input stream.
-	private PipedInputStream suffixTreeInStream;
+	private InputStream suffixTreeInStream;
 	
 	// GST XML TreeMap holding each node.
 	private TreeMap <Integer, GSTXmlNode> gstXmlNodes;
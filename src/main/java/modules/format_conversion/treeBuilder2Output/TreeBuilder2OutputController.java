@@ -1,6 +1,6 @@
 package modules.format_conversion.treeBuilder2Output;
 
-import java.io.PipedReader;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Properties;
@@ -84,7 +84,7 @@ public class TreeBuilder2OutputController extends ModuleImpl {
 	
 	//setters:
 	
-	public void setGson(PipedReader reader) {
+	public void setGson(Reader reader) {
 		gson = new Gson();
 		mainNode = gson.fromJson(reader, Knoten.class);
 	}
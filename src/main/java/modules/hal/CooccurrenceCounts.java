@@ -0,0 +1,215 @@
+package modules.hal;
+
+import java.util.Arrays;
+
+/**
+ * Counts how often a context segment follows a segment at each position of a
+ * window, both segments given as integer ids.
+ *
+ * Only pairs that actually co-occur get a cell. Cells are numbered in the
+ * order they are added, their counts are kept one after the other in a
+ * single int array. A hash table with linear probing maps each pair to its
+ * cell.
+ */
+public class CooccurrenceCounts {
+
+	private static final int EMPTY = -1;
+
+	private final int positions;
+
+	// hash table of the pairs, each slot holding a cell or EMPTY
+	private int[] slots;
+
+	// the pair and the counts of each cell
+	private long[] cellPairs;
+	private int[] counts;
+	private int size = 0;
+
+	/**
+	 * @param positions
+	 *            the amount of positions counted per pair
+	 */
+	public CooccurrenceCounts(int positions) {
+		this.positions = positions;
+		this.slots = new int[16];
+		Arrays.fill(this.slots, EMPTY);
+		this.cellPairs = new long[8];
+		this.counts = new int[8 * positions];
+	}
+
+	/**
+	 * @return The amount of positions counted per pair.
+	 */
+	public int getPositions() {
+		return positions;
+	}
+
+	/**
+	 * @return The amount of pairs that co-occur.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Counts one co-occurrence of the pair at the given position.
+	 *
+	 * @param segment
+	 *            the segment's id
+	 * @param context
+	 *            the context segment's id
+	 * @param position
+	 *            the context segment's position relative to the segment,
+	 *            starting with 0 for the next segment
+	 */
+	public void add(int segment, int context, int position) {
+		// the cell is added first, which may replace the counts array
+		final int cell = getOrAddCell(segment, context);
+		counts[cell * positions + position]++;
+	}
+
+	/**
+	 * Counts the co-occurrences of each of the segments from index from up to
+	 * (excluding) index to with the segments following it in the window, as
+	 * far as they are given.
+	 *
+	 * @param segments
+	 *            the ids of a sequence of segments
+	 * @param from
+	 *            the index of the first segment to count the window of
+	 * @param to
+	 *            the index after the last segment to count the window of
+	 * @param length
+	 *            the amount of segments given
+	 */
+	public void addWindows(int[] segments, int from, int to, int length) {
+		for (int i = from; i < to; i++) {
+			final int end = Math.min(i + 1 + positions, length);
+			for (int j = i + 1; j < end; j++) {
+				add(segments[i], segments[j], j - i - 1);
+			}
+		}
+	}
+
+	/**
+	 * Adds all counts of the given table, which has to count the same amount
+	 * of positions.
+	 *
+	 * @param other
+	 *            the table to add
+	 */
+	public void addAll(CooccurrenceCounts other) {
+		if (other.positions != positions) {
+			throw new IllegalArgumentException("Tables counting different amounts of positions cannot be added.");
+		}
+		for (int otherCell = 0; otherCell < other.size; otherCell++) {
+			final int cell = getOrAddCell(other.getSegment(otherCell), other.getContext(otherCell));
+			for (int i = 0; i < positions; i++) {
+				counts[cell * positions + i] += other.counts[otherCell * positions + i];
+			}
+		}
+	}
+
+	/**
+	 * @param segment
+	 *            the segment's id
+	 * @param context
+	 *            the context segment's id
+	 * @return The pair's cell, or -1 if the pair does not co-occur.
+	 */
+	public int getCell(int segment, int context) {
+		return slots[find(pair(segment, context))];
+	}
+
+	/**
+	 * @param cell
+	 *            the cell
+	 * @return The id of the cell's segment.
+	 */
+	public int getSegment(int cell) {
+		return (int) (cellPairs[cell] >>> 32);
+	}
+
+	/**
+	 * @param cell
+	 *            the cell
+	 * @return The id of the cell's context segment.
+	 */
+	public int getContext(int cell) {
+		return (int) cellPairs[cell];
+	}
+
+	/**
+	 * @param cell
+	 *            the cell
+	 * @param position
+	 *            the position
+	 * @return How often the cell's pair co-occurs at the position.
+	 */
+	public int getCount(int cell, int position) {
+		return counts[cell * positions + position];
+	}
+
+	/**
+	 * @param cell
+	 *            the cell
+	 * @return How often the cell's pair co-occurs at any position.
+	 */
+	public long getTotal(int cell) {
+		long result = 0;
+		for (int i = cell * positions; i < (cell + 1) * positions; i++) {
+			result += counts[i];
+		}
+		return result;
+	}
+
+	private static long pair(int segment, int context) {
+		return ((long) segment << 32) | (context & 0xffffffffL);
+	}
+
+	// the slot holding the pair or the empty slot it would be added at
+	private int find(long pair) {
+		final int mask = slots.length - 1;
+		int slot = hash(pair) & mask;
+		while (slots[slot] != EMPTY && cellPairs[slots[slot]] != pair) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(long pair) {
+		final long h = pair * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private int getOrAddCell(int segment, int context) {
+		final long pair = pair(segment, context);
+		final int slot = find(pair);
+		final int cell = slots[slot];
+		return (cell == EMPTY) ? addCell(slot, pair) : cell;
+	}
+
+	private int addCell(int slot, long pair) {
+		if (size == cellPairs.length) {
+			cellPairs = Arrays.copyOf(cellPairs, size * 2);
+			counts = Arrays.copyOf(counts, size * 2 * positions);
+		}
+		final int cell = size++;
+		cellPairs[cell] = pair;
+		slots[slot] = cell;
+		// keep the load factor at or below 1/2
+		if (size * 2 > slots.length) {
+			rehash(slots.length * 2);
+		}
+		return cell;
+	}
+
+	private void rehash(int capacity) {
+		slots = new int[capacity];
+		Arrays.fill(slots, EMPTY);
+		for (int cell = 0; cell < size; cell++) {
+			slots[find(cellPairs[cell])] = cell;
+		}
+	}
+
+}
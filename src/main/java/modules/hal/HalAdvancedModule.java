@@ -1,16 +1,31 @@
 package modules.hal;
 
 import java.io.BufferedReader;
-import java.util.Comparator;
-import java.util.Iterator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.TreeMap;
-import java.util.concurrent.LinkedBlockingQueue;
-
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import models.NamedFieldMatrix;
+import modules.BytePipe;
 import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
+import modules.ObjectPipe;
 import modules.OutputPort;
+import modules.matrix.MatrixOutputPort;
 import common.parallelization.CallbackReceiver;
 
 import base.workbench.ModuleRunner;
@@ -28,15 +43,29 @@ public class HalAdvancedModule extends ModuleImpl {
 	public static final String PROPERTYKEY_WINDOWSIZE = "window size";
 	public static final String PROPERTYKEY_FIELDSEPARATOR = "field separator";
 	public static final String PROPERTYKEY_COOCCURRSEPARATOR = "cooccurrency separator";
+	public static final String PROPERTYKEY_OUTPUTFORMAT = "output format";
+	public static final String PROPERTYKEY_MATRIXDELIMITER = "matrix delimiter";
+	public static final String PROPERTYKEY_MAXTHREADS = "maximum threads";
+
+	// Values of the output format property
+	public static final String OUTPUTFORMAT_DENSE = "dense";
+	public static final String OUTPUTFORMAT_TRIPLETS = "triplets";
+
+	// The amount of segments counted as one chunk of the input
+	private static final int CHUNK_SIZE = 1 << 16;
 
 	// Define I/O IDs (must be unique for every input or output)
 	private final String inputTextId = "text input";
 	private final String outputCsvId = "csv output";
+	private final String outputMatrixId = "matrix output";
 
 	// Local variables
 	private int windowSize;
 	private String fieldSeparator;
 	private String cooccurrencySeparator;
+	private String outputFormat;
+	private String matrixDelimiter;
+	private int maxThreads;
 
 	public HalAdvancedModule(CallbackReceiver callbackReceiver,
 			Properties properties) throws Exception {
@@ -58,6 +87,16 @@ public class HalAdvancedModule extends ModuleImpl {
 		// Add property descriptions (obligatory for every property!)
 		this.getPropertyDescriptions().put(PROPERTYKEY_COOCCURRSEPARATOR,
 				"Separator for the cooccurrency position numbers");
+		// Add property descriptions (obligatory for every property!)
+		this.getPropertyDescriptions().put(PROPERTYKEY_OUTPUTFORMAT,
+				"Format of the CSV output: '" + OUTPUTFORMAT_DENSE + "' for a table of all segment pairs, '"
+						+ OUTPUTFORMAT_TRIPLETS + "' for a line per pair of segments actually cooccurring");
+		// Add property descriptions (obligatory for every property!)
+		this.getPropertyDescriptions().put(PROPERTYKEY_MATRIXDELIMITER,
+				"Delimiter for the matrix output, if written as CSV");
+		// Add property descriptions (obligatory for every property!)
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAXTHREADS,
+				"Maximum number of parallel threads used for counting (the output does not depend on it)");
 
 		// Add property defaults (_should_ be provided for every property)
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME,
@@ -66,6 +105,9 @@ public class HalAdvancedModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_WINDOWSIZE, "5");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_FIELDSEPARATOR, "\t\t");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_COOCCURRSEPARATOR, ",");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_OUTPUTFORMAT, OUTPUTFORMAT_DENSE);
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MATRIXDELIMITER, ";");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAXTHREADS, "4");
 
 		// Define I/O
 		/*
@@ -81,10 +123,16 @@ public class HalAdvancedModule extends ModuleImpl {
 		OutputPort outputPort = new OutputPort(outputCsvId,
 				"CSV tabular output.", this);
 		outputPort.addSupportedPipe(CharPipe.class);
+		MatrixOutputPort matrixOutputPort = new MatrixOutputPort(outputMatrixId,
+				"Sparse matrix of how often each segment (row) is followed by another one (column) within the window.", this);
+		matrixOutputPort.addSupportedPipe(ObjectPipe.class);
+		matrixOutputPort.addSupportedPipe(BytePipe.class);
+		matrixOutputPort.addSupportedPipe(CharPipe.class);
 
 		// Add I/O ports to instance (don't forget...)
 		super.addInputPort(textInputPort);
 		super.addOutputPort(outputPort);
+		super.addOutputPort(matrixOutputPort);
 
 	}
 
@@ -96,127 +144,117 @@ public class HalAdvancedModule extends ModuleImpl {
 		BufferedReader reader = new BufferedReader(this.getInputPorts()
 				.get(inputTextId).getInputReader());
 
-		// Define comparator
-		Comparator<String> alphabetOrderComparator = new Comparator<String>() {
-			@Override
-			public int compare(String o1, String o2) {
-				return o1.compareTo(o2);
-			}
-		};
-		// Define map for results
-		TreeMap<String, TreeMap<String, Integer[]>> sequenceMap = new TreeMap<String, TreeMap<String, Integer[]>>(
-				alphabetOrderComparator);
-
-		// Queue that acts as input window (plus one element to operate on in
-		// each iteration)
-		LinkedBlockingQueue<String> sequenceQueue = new LinkedBlockingQueue<String>(
-				this.windowSize + 1);
-
-		// Read input
-		String segment;
-		while ((segment = reader.readLine()) != null || !sequenceQueue.isEmpty()) {
-
-			if (segment != null){
-				
-				// If there is not yet a map entry for that segment, construct one
-				if (!sequenceMap.containsKey(segment)) {
-					sequenceMap.put(segment, new TreeMap<String, Integer[]>(alphabetOrderComparator));
-				}
-
-				// Add segment to queue
-				sequenceQueue.put(segment);
-				
-				// Reset segment
-				segment = null;
+		// Segments are counted by integer ids, assigned in order of their
+		// first occurrence
+		Map<String, Integer> segmentIds = new HashMap<String, Integer>();
+		List<String> segments = new ArrayList<String>();
 
-				// If the queue is not yet full, skip the rest
-				if (sequenceQueue.size() < this.windowSize + 1)
-					continue;
-			}
+		// Segments are counted on several threads, in chunks of the input
+		// overlapping by the window size. Each thread counts into a table of
+		// its own, the tables are merged afterwards.
+		ExecutorService executor = Executors.newFixedThreadPool(this.maxThreads);
+		ConcurrentLinkedQueue<CooccurrenceCounts> tables = new ConcurrentLinkedQueue<CooccurrenceCounts>();
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		// Limits the chunks read ahead of counting
+		Semaphore chunksPending = new Semaphore(2 * this.maxThreads);
 
-			// Split the first sequence from the queue
-			String firstSegment = sequenceQueue.poll();
-
-			// Determine line map for that segment
-			TreeMap<String, Integer[]> lineMap = sequenceMap.get(firstSegment);
-
-			// Iterate over the remaining sequences within the queue
-			Iterator<String> queueIterator = sequenceQueue.iterator();
-			int index = 0; // We will need to determine the index of each queue
-							// element
-			while (queueIterator.hasNext()) {
-				String queuedSegment = queueIterator.next();
-				
-				// Determine whether the two current segments (first in queue
-				// and the one the iterator is pointing to) already have an
-				// integer array associated.
-				Integer[] positionArray = lineMap.get(queuedSegment);
-				// Else, one will be instantiated
-				if (positionArray == null) {
-					positionArray = new Integer[this.windowSize];
-					for (int i=0; i<positionArray.length; i++){
-						positionArray[i] = new Integer(0);
-					}
-					lineMap.put(queuedSegment, positionArray);
+		try {
+			// Chunk of the input to count (plus the window of its last
+			// segment, which is counted with the next chunk)
+			int[] chunk = new int[CHUNK_SIZE + this.windowSize];
+			int chunkFill = 0;
+
+			// Read input
+			String segment;
+			while ((segment = reader.readLine()) != null) {
+
+				// If there is not yet an id for that segment, assign one
+				Integer segmentId = segmentIds.get(segment);
+				if (segmentId == null) {
+					segmentId = segments.size();
+					segmentIds.put(segment, segmentId);
+					segments.add(segment);
 				}
 
-				// Update the integer array in the respective position
-				Integer cooccurrenceCounter = positionArray[index];
-				if (cooccurrenceCounter == null) {
-					cooccurrenceCounter = new Integer(1);
-					positionArray[index] = cooccurrenceCounter;
-				} else {
-					positionArray[index] += 1;
+				// If the chunk is full, count all segments having their
+				// whole window within it and start the next chunk with the
+				// rest
+				if (chunkFill == chunk.length) {
+					futures.add(this.countChunk(executor, tables, chunksPending, chunk, CHUNK_SIZE, chunkFill));
+					int[] nextChunk = new int[chunk.length];
+					System.arraycopy(chunk, CHUNK_SIZE, nextChunk, 0, this.windowSize);
+					chunk = nextChunk;
+					chunkFill = this.windowSize;
 				}
 
-				// Increase index
-				index++;
+				// Add segment to chunk
+				chunk[chunkFill++] = segmentId;
+			}
+			// The last chunk's segments are counted with whatever follows them
+			futures.add(this.countChunk(executor, tables, chunksPending, chunk, chunkFill, chunkFill));
+
+			for (Future<Void> future : futures) {
+				future.get();
 			}
+		} finally {
+			executor.shutdownNow();
 		}
 
+		// Define map for results, merging all tables into the biggest one
+		CooccurrenceCounts counts = new CooccurrenceCounts(this.windowSize);
+		for (CooccurrenceCounts table : tables) {
+			if (table.size() > counts.size()) {
+				counts = table;
+			}
+		}
+		for (CooccurrenceCounts table : tables) {
+			if (table != counts) {
+				counts.addAll(table);
+			}
+		}
+		tables.clear();
+
 		// reader is empty
 
-		// Output results (first head of CSV)
-		this.getOutputPorts().get(outputCsvId).outputToAllCharPipes("SEGMENT" + this.fieldSeparator);
-		Iterator<String> lineKeys = sequenceMap.keySet().iterator();
-		while (lineKeys.hasNext()) {
-			String lineKey = lineKeys.next();
-			this.getOutputPorts().get(outputCsvId)
-					.outputToAllCharPipes(lineKey + this.fieldSeparator);
-		}
-		this.getOutputPorts().get(outputCsvId).outputToAllCharPipes("\n");
-		// Output results (data lines)
-		lineKeys = sequenceMap.keySet().iterator();
-		while (lineKeys.hasNext()) {
-			String lineKey = lineKeys.next();
-			this.getOutputPorts().get(outputCsvId)
-			.outputToAllCharPipes(lineKey + this.fieldSeparator);
-			Iterator<String> rowKeys = sequenceMap.keySet().iterator();
-			while (rowKeys.hasNext()) {
-				String rowKey = rowKeys.next();
-				Integer[] cooccurrencePositionArray = sequenceMap.get(lineKey)
-						.get(rowKey);
-				// Construct array if it should be nonexistent
-				if (cooccurrencePositionArray == null) {
-					cooccurrencePositionArray = new Integer[this.windowSize];
-					for (int i=0; i<cooccurrencePositionArray.length; i++){
-						cooccurrencePositionArray[i] = new Integer(0);
-					}
-				}
+		// Segments are output in alphabetical order
+		int[] sortedIds = new int[segments.size()];
+		int[] ranks = new int[segments.size()];
+		String[] sortedSegments = segments.toArray(new String[segments.size()]);
+		Arrays.sort(sortedSegments);
+		for (int rank = 0; rank < sortedSegments.length; rank++) {
+			sortedIds[rank] = segmentIds.get(sortedSegments[rank]);
+			ranks[sortedIds[rank]] = rank;
+		}
+		// The lookup of ids by name is not needed anymore
+		segmentIds = null;
+
+		OutputPort csvOutputPort = this.getOutputPorts().get(outputCsvId);
+		MatrixOutputPort matrixOutputPort = (MatrixOutputPort) this.getOutputPorts().get(outputMatrixId);
+		boolean writeTriplets = csvOutputPort.isConnected() && this.outputFormat.equals(OUTPUTFORMAT_TRIPLETS);
+
+		// The pairs co-occurring, ordered by segment and context segment
+		long[] sortedPairs = null;
+		if (writeTriplets || matrixOutputPort.isConnected()) {
+			sortedPairs = new long[counts.size()];
+			for (int cell = 0; cell < counts.size(); cell++) {
+				sortedPairs[cell] = ((long) ranks[counts.getSegment(cell)] << 32) | ranks[counts.getContext(cell)];
+			}
+			Arrays.sort(sortedPairs);
+		}
 
-				for (int i = 0; i < cooccurrencePositionArray.length; i++) {
-					this.getOutputPorts()
-								.get(outputCsvId)
-								.outputToAllCharPipes(
-										cooccurrencePositionArray[i].toString());
-					if (i + 1 < cooccurrencePositionArray.length)
-						this.getOutputPorts().get(outputCsvId)
-								.outputToAllCharPipes(this.cooccurrencySeparator);
-				}
-				this.getOutputPorts().get(outputCsvId)
-						.outputToAllCharPipes(this.fieldSeparator);
+		// Output results
+		if (csvOutputPort.isConnected()) {
+			Writer writer = new BufferedWriter(csvOutputPort.asCharWriter());
+			if (writeTriplets) {
+				this.writeTriplets(writer, sortedSegments, sortedIds, sortedPairs, counts);
+			} else {
+				this.writeDense(writer, sortedSegments, sortedIds, counts);
 			}
-			this.getOutputPorts().get(outputCsvId).outputToAllCharPipes("\n");
+			writer.flush();
+		}
+
+		if (matrixOutputPort.isConnected()) {
+			matrixOutputPort.writeMatrix(this.buildMatrix(sortedSegments, sortedIds, sortedPairs, counts));
 		}
 
 		// Close outputs (important!)
@@ -226,6 +264,96 @@ public class HalAdvancedModule extends ModuleImpl {
 		return true;
 	}
 
+	// Counts the windows of the chunk's segments before the given index on
+	// one of the executor's threads, into one of the tables not currently in
+	// use or a new one
+	private Future<Void> countChunk(ExecutorService executor, final Queue<CooccurrenceCounts> tables,
+			final Semaphore chunksPending, final int[] chunk, final int to, final int length)
+			throws InterruptedException {
+		chunksPending.acquire();
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				try {
+					CooccurrenceCounts table = tables.poll();
+					if (table == null) {
+						table = new CooccurrenceCounts(windowSize);
+					}
+					table.addWindows(chunk, 0, to, length);
+					tables.add(table);
+				} finally {
+					chunksPending.release();
+				}
+				return null;
+			}
+		});
+	}
+
+	// Writes a line for each segment with a field for every segment,
+	// containing the counts for each position
+	private void writeDense(Writer writer, String[] sortedSegments, int[] sortedIds, CooccurrenceCounts counts)
+			throws IOException {
+		// Output results (first head of CSV)
+		writer.write("SEGMENT" + this.fieldSeparator);
+		for (String lineKey : sortedSegments) {
+			writer.write(lineKey + this.fieldSeparator);
+		}
+		writer.write("\n");
+		// Output results (data lines)
+		for (int line = 0; line < sortedSegments.length; line++) {
+			writer.write(sortedSegments[line] + this.fieldSeparator);
+			for (int row = 0; row < sortedSegments.length; row++) {
+				// Segments not co-occurring are output with counts of zero
+				int cell = counts.getCell(sortedIds[line], sortedIds[row]);
+				this.writeCounts(writer, counts, cell);
+				writer.write(this.fieldSeparator);
+			}
+			writer.write("\n");
+		}
+	}
+
+	// Writes a line for each pair of segments co-occurring, containing both
+	// segments and the counts for each position
+	private void writeTriplets(Writer writer, String[] sortedSegments, int[] sortedIds, long[] sortedPairs,
+			CooccurrenceCounts counts) throws IOException {
+		writer.write("SEGMENT" + this.fieldSeparator + "CONTEXT" + this.fieldSeparator + "POSITIONS\n");
+		for (long pair : sortedPairs) {
+			int line = (int) (pair >>> 32);
+			int row = (int) pair;
+			writer.write(sortedSegments[line] + this.fieldSeparator + sortedSegments[row] + this.fieldSeparator);
+			this.writeCounts(writer, counts, counts.getCell(sortedIds[line], sortedIds[row]));
+			writer.write("\n");
+		}
+	}
+
+	// Writes the counts of the cell for each position, all zero for no cell
+	private void writeCounts(Writer writer, CooccurrenceCounts counts, int cell) throws IOException {
+		for (int i = 0; i < counts.getPositions(); i++) {
+			writer.write(Integer.toString(cell < 0 ? 0 : counts.getCount(cell, i)));
+			if (i + 1 < counts.getPositions())
+				writer.write(this.cooccurrencySeparator);
+		}
+	}
+
+	// Builds a sparse matrix of how often each pair of segments co-occurs
+	// at any position
+	private NamedFieldMatrix buildMatrix(String[] sortedSegments, int[] sortedIds, long[] sortedPairs,
+			CooccurrenceCounts counts) {
+		NamedFieldMatrix matrix = new NamedFieldMatrix(NamedFieldMatrix.Storage.SPARSE);
+		matrix.setDelimiter(this.matrixDelimiter);
+		// Every segment gets a row and a column, even if not co-occurring
+		for (String lineKey : sortedSegments) {
+			matrix.setValue(lineKey, lineKey, 0d);
+		}
+		for (long pair : sortedPairs) {
+			int line = (int) (pair >>> 32);
+			int row = (int) pair;
+			matrix.setValue(sortedSegments[line], sortedSegments[row],
+					counts.getTotal(counts.getCell(sortedIds[line], sortedIds[row])));
+		}
+		return matrix;
+	}
+
 	@Override
 	public void applyProperties() throws Exception {
 
@@ -242,6 +370,17 @@ public class HalAdvancedModule extends ModuleImpl {
 		
 		this.fieldSeparator = this.getProperties().getProperty(PROPERTYKEY_FIELDSEPARATOR);
 		this.cooccurrencySeparator = this.getProperties().getProperty(PROPERTYKEY_COOCCURRSEPARATOR);
+		this.outputFormat = this.getProperties().getProperty(PROPERTYKEY_OUTPUTFORMAT, OUTPUTFORMAT_DENSE);
+		if (!OUTPUTFORMAT_DENSE.equals(this.outputFormat) && !OUTPUTFORMAT_TRIPLETS.equals(this.outputFormat)) {
+			throw new IllegalArgumentException("Unknown output format: " + this.outputFormat);
+		}
+		this.matrixDelimiter = this.getProperties().getProperty(PROPERTYKEY_MATRIXDELIMITER);
+		try {
+			this.maxThreads = Math.max(1, Integer.parseInt(this.getProperties().getProperty(
+					PROPERTYKEY_MAXTHREADS)));
+		} catch (Exception e) {
+			this.maxThreads = 4;
+		}
 
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
@@ -1,7 +1,6 @@
 package modules.lfgroups;
 
 import java.io.BufferedReader;
-import java.io.PipedReader;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -18,10 +17,13 @@ import java.util.regex.Pattern;
 
 import common.parallelization.CallbackReceiver;
 import models.NamedFieldMatrix;
+import modules.BytePipe;
 import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
+import modules.ObjectPipe;
 import modules.OutputPort;
+import modules.matrix.MatrixInputPort;
 
 /**
  * DISCLAIMER: This is still work in progress. TODO Remove disclaimer after it
@@ -45,7 +47,9 @@ public class LFGroupBuildingModule extends ModuleImpl {
 	public static final String PROPERTYKEY_CSV_DELIMITER = "csv delimiter";
 	public static final String PROPERTYKEY_PAIR_LIST_CUTOFF_VALUE = "Pair list cutoff value";
 	public static final String PROPERTYKEY_EMPTY_LEXICAL_OUTPUT = "output empty lexical groups";
+	public static final String PROPERTYKEY_MATRIX_STORAGE = "matrix storage";
 	private String csvInputDelimiter;
+	private NamedFieldMatrix.Storage matrixStorage;
 	private int pairListCutoffValue;
 	private boolean emptyLexicalGroupsOutput;
 
@@ -67,6 +71,9 @@ public class LFGroupBuildingModule extends ModuleImpl {
 		this.getPropertyDescriptions().put(PROPERTYKEY_EMPTY_LEXICAL_OUTPUT,
 				"A boolean value. Whether to output gorups with no or only the empty (i.e. \"\") lexical");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_EMPTY_LEXICAL_OUTPUT, "false");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MATRIX_STORAGE,
+				"How to store the successor matrix read from csv: AUTO, DENSE or SPARSE.");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MATRIX_STORAGE, NamedFieldMatrix.Storage.AUTO.name());
 
 		// set name
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "LFGroup Building Module");
@@ -75,8 +82,10 @@ public class LFGroupBuildingModule extends ModuleImpl {
 		this.setCategory("experimental");
 
 		// setup I/O
-		final InputPort inputSuccessorsMatrix = new InputPort(INPUT_SUCCESSOR_MATRIX_ID,
+		final MatrixInputPort inputSuccessorsMatrix = new MatrixInputPort(INPUT_SUCCESSOR_MATRIX_ID,
 				"A successors matrix from the Segment Matrix module", this);
+		inputSuccessorsMatrix.addSupportedPipe(ObjectPipe.class);
+		inputSuccessorsMatrix.addSupportedPipe(BytePipe.class);
 		inputSuccessorsMatrix.addSupportedPipe(CharPipe.class);
 		this.addInputPort(inputSuccessorsMatrix);
 
@@ -97,13 +106,13 @@ public class LFGroupBuildingModule extends ModuleImpl {
 		final OutputPort out = this.getOutputPorts().get(OUTPUT_ID);
 
 		boolean result = true;
-		PipedReader successorsMatrixReader = null;
-		PipedReader pairListReader = null;
+		final MatrixInputPort successorsInput = (MatrixInputPort) this.getInputPorts().get(INPUT_SUCCESSOR_MATRIX_ID);
+		Reader pairListReader = null;
 
 		try {
 			// read the successors matrix from input
-			successorsMatrixReader = this.getInputPorts().get(INPUT_SUCCESSOR_MATRIX_ID).getInputReader();
-			NamedFieldMatrix successors = NamedFieldMatrix.parseCSV(successorsMatrixReader, csvInputDelimiter);
+			// (the matrix is only read from, so one received as object is used as it is)
+			final NamedFieldMatrix successors = successorsInput.readMatrix(csvInputDelimiter, matrixStorage);
 
 			// read the pair list from input
 			pairListReader = this.getInputPorts().get(INPUT_PAIR_LIST_ID).getInputReader();
@@ -215,8 +224,7 @@ public class LFGroupBuildingModule extends ModuleImpl {
 			throw e;
 		} finally {
 			closeAllOutputs();
-			if (successorsMatrixReader != null)
-				successorsMatrixReader.close();
+			successorsInput.closeInput();
 			if (pairListReader != null)
 				pairListReader.close();
 		}
@@ -380,6 +388,10 @@ public class LFGroupBuildingModule extends ModuleImpl {
 			this.emptyLexicalGroupsOutput = Boolean
 					.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_EMPTY_LEXICAL_OUTPUT));
 		}
+		if (this.getProperties().getProperty(PROPERTYKEY_MATRIX_STORAGE) != null) {
+			this.matrixStorage = NamedFieldMatrix.Storage
+					.valueOf(this.getProperties().getProperty(PROPERTYKEY_MATRIX_STORAGE));
+		}
 
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
@@ -0,0 +1,263 @@
+package modules.matrix;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the bits set after applying a bitwise operation to every pair of a
+ * set of bitsets, without building the combined bitsets.
+ *
+ * The bitsets are packed into a block of longs of equal length, one row per
+ * bitset. Pairs are compared in tiles of rows and, within those, in blocks of
+ * words, such that both tiles' words stay in the cache while they are
+ * combined. Each tile of rows is counted against all following ones by one
+ * task, the tasks are run in parallel. Only a few tiles more than there are
+ * threads are counted ahead of the handler, so the pairs waiting to be handed
+ * on stay bounded however many bitsets there are.
+ *
+ * Only the bits both bitsets of a pair have set are counted, over the words
+ * up to the shorter one's last word in use (padding is never read). OR and XOR
+ * are derived from that count and the bits set in each bitset.
+ */
+public class BitsetPairCounter {
+
+	/**
+	 * The operations that can be applied. All of them are symmetrical, so only
+	 * one of the pairs (i, j) and (j, i) is counted.
+	 */
+	public static enum Operation {
+		AND, OR, XOR
+	}
+
+	/**
+	 * Receives the pairs counted.
+	 */
+	public static interface PairHandler {
+		/**
+		 * Called on the thread that started counting for every pair counted,
+		 * with i <= j.
+		 *
+		 * @param i
+		 *            the first bitset's index
+		 * @param j
+		 *            the second bitset's index
+		 * @param count
+		 *            the amount of bits set after applying the operation
+		 */
+		void pair(int i, int j, int count);
+	}
+
+	// the amount of rows compared against each other at once
+	private static final int TILE_ROWS = 64;
+
+	// the amount of words of each row combined at once
+	private static final int BLOCK_WORDS = 256;
+
+	// the amount of tiles counted ahead of the handler, per thread
+	private static final int TILES_AHEAD = 2;
+
+	private final long[][] bits;
+	private final int words;
+	// the amount of words up to the last one with bits set, of each row
+	private final int[] lengths;
+	// the amount of bits set, of each row
+	private final int[] cardinalities;
+
+	/**
+	 * @param bits
+	 *            the bitsets as arrays of words of equal length, bit k being
+	 *            found in word k / 64 like in BitSet.toLongArray()
+	 * @throws IllegalArgumentException
+	 *             if the arrays differ in length
+	 */
+	public BitsetPairCounter(long[][] bits) {
+		this.bits = bits;
+		this.words = (bits.length == 0) ? 0 : bits[0].length;
+		this.lengths = new int[bits.length];
+		this.cardinalities = new int[bits.length];
+		for (int i = 0; i < bits.length; i++) {
+			final long[] row = bits[i];
+			if (row.length != words) {
+				throw new IllegalArgumentException("All bitsets must have the same amount of words.");
+			}
+			for (int w = 0; w < words; w++) {
+				if (row[w] != 0L) {
+					lengths[i] = w + 1;
+					cardinalities[i] += Long.bitCount(row[w]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Packs the given bitsets, padding them with zeros to the same length.
+	 *
+	 * @param bitsets
+	 *            the bitsets in the order they are to be indexed
+	 * @return the packed bitsets
+	 */
+	public static long[][] pack(Collection<BitSet> bitsets) {
+		int words = 0;
+		for (BitSet bitset : bitsets) {
+			words = Math.max(words, (bitset.length() + 63) / 64);
+		}
+		final long[][] result = new long[bitsets.size()][];
+		int i = 0;
+		for (BitSet bitset : bitsets) {
+			final long[] row = bitset.toLongArray();
+			result[i++] = (row.length == words) ? row : Arrays.copyOf(row, words);
+		}
+		return result;
+	}
+
+	/**
+	 * @return The amount of bitsets.
+	 */
+	public int size() {
+		return bits.length;
+	}
+
+	/**
+	 * Counts the bits set after applying the operation to every pair of
+	 * different bitsets and, if reflexive, to every bitset with itself. Pairs
+	 * with less than minCount bits set are left out, as are pairs without any
+	 * bits set. The handler receives the pairs tile by tile, in ascending
+	 * order of the tiles of their first index.
+	 *
+	 * @param operation
+	 *            the operation to apply
+	 * @param reflexive
+	 *            whether to count every bitset with itself
+	 * @param minCount
+	 *            the minimum amount of bits set for a pair to be handed on
+	 * @param threads
+	 *            the amount of threads to count with
+	 * @param handler
+	 *            the handler receiving the pairs
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the counts
+	 * @throws ExecutionException
+	 *             if counting failed
+	 */
+	public void countPairs(final Operation operation, final boolean reflexive, int minCount, int threads,
+			PairHandler handler) throws InterruptedException, ExecutionException {
+		final int threshold = Math.max(1, minCount);
+		final int poolSize = Math.max(1, threads);
+		final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+		try {
+			// the first tiles have the most pairs to count, so they are
+			// submitted first. Tiles are handed on in order, a new one is
+			// submitted for each one handed on.
+			final Deque<Future<int[]>> window = new ArrayDeque<Future<int[]>>();
+			int tile = 0;
+			while (tile < bits.length || !window.isEmpty()) {
+				while (tile < bits.length && window.size() < poolSize * TILES_AHEAD) {
+					final int from = tile;
+					window.add(executor.submit(new Callable<int[]>() {
+						@Override
+						public int[] call() {
+							return countTile(from, operation, reflexive, threshold);
+						}
+					}));
+					tile += TILE_ROWS;
+				}
+				final int[] pairs = window.poll().get();
+				for (int k = 0; k < pairs.length; k += 3) {
+					handler.pair(pairs[k], pairs[k + 1], pairs[k + 2]);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// Counts the tile of rows starting at from against itself and all
+	// following rows. Returns the pairs reaching the threshold as triples of
+	// (i, j, count).
+	private int[] countTile(int from, Operation operation, boolean reflexive, int threshold) {
+		final int to = Math.min(from + TILE_ROWS, bits.length);
+		// the bits both rows of each pair have set
+		final int[] counts = new int[TILE_ROWS * TILE_ROWS];
+		int[] result = new int[48];
+		int resultLength = 0;
+
+		for (int otherFrom = from; otherFrom < bits.length; otherFrom += TILE_ROWS) {
+			final int otherTo = Math.min(otherFrom + TILE_ROWS, bits.length);
+			Arrays.fill(counts, 0);
+
+			for (int w = 0; w < words; w += BLOCK_WORDS) {
+				final int wordsTo = Math.min(w + BLOCK_WORDS, words);
+				for (int i = from; i < to; i++) {
+					if (lengths[i] <= w) {
+						continue;
+					}
+					final long[] a = bits[i];
+					final int aTo = Math.min(wordsTo, lengths[i]);
+					final int row = (i - from) * TILE_ROWS - otherFrom;
+					for (int j = firstPartner(i, otherFrom, reflexive); j < otherTo; j++) {
+						counts[row + j] += countBoth(a, bits[j], w, Math.min(aTo, lengths[j]));
+					}
+				}
+			}
+
+			for (int i = from; i < to; i++) {
+				final int row = (i - from) * TILE_ROWS - otherFrom;
+				for (int j = firstPartner(i, otherFrom, reflexive); j < otherTo; j++) {
+					final int count = combine(operation, counts[row + j], cardinalities[i], cardinalities[j]);
+					if (count >= threshold) {
+						if (resultLength + 3 > result.length) {
+							result = Arrays.copyOf(result, result.length * 2);
+						}
+						result[resultLength++] = i;
+						result[resultLength++] = j;
+						result[resultLength++] = count;
+					}
+				}
+			}
+		}
+
+		return Arrays.copyOf(result, resultLength);
+	}
+
+	// the first row of the other tile to pair row i with, such that every
+	// pair is counted once
+	private static int firstPartner(int i, int otherFrom, boolean reflexive) {
+		if (i < otherFrom) {
+			return otherFrom;
+		}
+		return reflexive ? i : i + 1;
+	}
+
+	// the amount of bits set in both rows within the given range of words
+	private static int countBoth(long[] a, long[] b, int from, int to) {
+		int result = 0;
+		for (int w = from; w < to; w++) {
+			result += Long.bitCount(a[w] & b[w]);
+		}
+		return result;
+	}
+
+	// the amount of bits set after applying the operation to a pair, given the
+	// bits set in both and in each of them
+	private static int combine(Operation operation, int both, int cardinalityA, int cardinalityB) {
+		switch (operation) {
+		case AND:
+			return both;
+		case OR:
+			return cardinalityA + cardinalityB - both;
+		case XOR:
+			return cardinalityA + cardinalityB - 2 * both;
+		default:
+			throw new IllegalStateException("Unknown bitwise operation: " + operation);
+		}
+	}
+
+}
@@ -1,7 +1,11 @@
 package modules.matrix;
 
+import java.io.BufferedWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
@@ -9,11 +13,12 @@ import java.util.TreeMap;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import common.BinaryMatrixWriter;
 import common.parallelization.CallbackReceiver;
+import modules.BytePipe;
 import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
-import modules.OutputPort;
 import modules.bag_of_words.BagOfWordsHelper;
 
 import base.workbench.ModuleRunner;
@@ -54,7 +59,7 @@ public class BowTypeMatrixModule extends ModuleImpl {
 		// Add property descriptions (obligatory for every property!)
 		this.getPropertyDescriptions().put(PROPERTYKEY_DELIMITER_OUTPUT, "String to insert as CSV delimiter (only applicable to CSV output).");
 		this.getPropertyDescriptions().put(PROPERTYKEY_ZEROVALUE, "String to insert as empty value into the output (only applicable to CSV output).");
-		this.getPropertyDescriptions().put(PROPERTYKEY_OUTPUTFORMAT, "Desired output format [csv|json].");
+		this.getPropertyDescriptions().put(PROPERTYKEY_OUTPUTFORMAT, "Desired output format [csv|json] (matrix modules connected through byte pipes receive a binary matrix either way).");
 		this.getPropertyDescriptions().put(PROPERTYKEY_APPLYTFIDF, "Multiply the token values with their <i>Inverse Document Frequencies</i> before calculating the type sum [true|false].");
 		
 		// Add property defaults (_should_ be provided for every property)
@@ -67,7 +72,8 @@ public class BowTypeMatrixModule extends ModuleImpl {
 		// Define I/O
 		InputPort inputPort = new InputPort(ID_INPUT, "JSON BoW data input.", this);
 		inputPort.addSupportedPipe(CharPipe.class);
-		OutputPort outputPort = new OutputPort(ID_OUTPUT, "CSV Type Matrix output.", this);
+		MatrixOutputPort outputPort = new MatrixOutputPort(ID_OUTPUT, "CSV or binary Type Matrix output.", this);
+		outputPort.addSupportedPipe(BytePipe.class);
 		outputPort.addSupportedPipe(CharPipe.class);
 		
 		// Add I/O ports to instance (don't forget...)
@@ -146,35 +152,44 @@ public class BowTypeMatrixModule extends ModuleImpl {
 			}
 		}
 		
+		MatrixOutputPort outputPort = (MatrixOutputPort) this.getOutputPorts().get(ID_OUTPUT);
+		
+		// Output binary matrix
+		if (outputPort.writesBinaryMatrix())
+			this.writeBinaryOutput(outputPort.getBinaryMatrixWriter(), matrix);
+		
+		// Output text (through a buffer)
+		Writer output = new BufferedWriter(outputPort.getCsvWriter());
 		if (this.outputformat.equals("csv")){
 			// Output CSV header
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(this.outputdelimiter);
+			output.write(this.outputdelimiter);
 			Iterator<String> types = matrix.keySet().iterator();
 			while(types.hasNext()){
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(types.next()+this.outputdelimiter);
+				output.write(types.next()+this.outputdelimiter);
 			}
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes("\n");
+			output.write("\n");
 			
 			// Output matrix
 			types = matrix.keySet().iterator();
 			while(types.hasNext()){
 				String type = types.next();
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(type+this.outputdelimiter);
+				output.write(type+this.outputdelimiter);
 				Iterator<String> types2 = matrix.keySet().iterator();
 				while(types2.hasNext()){
 					String type2 = types2.next();
 					if (matrix.get(type).containsKey(type2))
-						this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(matrix.get(type).get(type2).toString());
+						output.write(matrix.get(type).get(type2).toString());
 					else
-						this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(this.emptyFieldValue);
-					this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(this.outputdelimiter);
+						output.write(this.emptyFieldValue);
+					output.write(this.outputdelimiter);
 				}
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes("\n");
+				output.write("\n");
 			}
 		} else if (this.outputformat.equals("json")){
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(gson.toJson(matrix));
+			output.write(gson.toJson(matrix));
 		} else
 			throw new Exception("Specified output format is unknown.");
+		output.flush();
 		
 		
 		// Close outputs (important!)
@@ -184,6 +199,29 @@ public class BowTypeMatrixModule extends ModuleImpl {
 		return true;
 	}
 	
+	// Writes the type matrix in binary format, rows and columns both being
+	// the types in order
+	private void writeBinaryOutput(BinaryMatrixWriter output, Map<String,Map<String,Double>> matrix) throws Exception {
+		List<String> types = new ArrayList<String>(matrix.keySet());
+		Map<String,Integer> typeIndices = new HashMap<String,Integer>();
+		for (String type : types)
+			typeIndices.put(type, typeIndices.size());
+		
+		long entryAmount = 0;
+		for (Map<String,Double> matrixLine : matrix.values())
+			entryAmount += matrixLine.size();
+		
+		output.writeHeader(types, types, entryAmount);
+		int row = 0;
+		for (Map<String,Double> matrixLine : matrix.values()){
+			// The lines are sorted just as the types
+			for (Map.Entry<String,Double> field : matrixLine.entrySet())
+				output.writeEntry(row, typeIndices.get(field.getKey()), field.getValue());
+			row++;
+		}
+		output.finish();
+	}
+	
 	@Override
 	public void applyProperties() throws Exception {
 		
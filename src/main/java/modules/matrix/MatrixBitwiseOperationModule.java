@@ -1,7 +1,7 @@
 package modules.matrix;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -12,11 +12,13 @@ import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
 
+import common.CsvRowReader;
 import common.parallelization.CallbackReceiver;
 import models.NamedFieldMatrix;
+import modules.BytePipe;
 import modules.CharPipe;
-import modules.InputPort;
 import modules.ModuleImpl;
+import modules.ObjectPipe;
 import modules.OutputPort;
 
 /**
@@ -49,13 +51,9 @@ public class MatrixBitwiseOperationModule extends ModuleImpl {
 	private final static String OUTPUT_LIST_ID = "List Output";
 	private final static String OUTPUT_LIST_DESC = "[text/plain] A list of row/column mappings with the amount of bits set after the operation was applied, sorted by that count.";
 
-	// An enum, and property to specify the operation to apply
+	// A property to specify the operation to apply
 	// Note: For these operation the order of operation is unimportant, adding
 	// an asymmetrical operation would require some changes in the processing
-	private static enum Operation {
-		AND, OR, XOR
-	};
-
 	private static final String PROPERTYKEY_OPERATION = "operation";
 
 	// A boolean deciding whether to operate on columns or rows of a table and a
@@ -69,6 +67,15 @@ public class MatrixBitwiseOperationModule extends ModuleImpl {
 	// Properties for controlling which rows/columns are compared
 	private static final String PROPERTYKEY_OPERATE_REFLEXIVE = "Reflexive";
 
+	// Properties for controlling which pairs are written to the outputs
+	private static final String PROPERTYKEY_MINIMUM_BITS_SET = "Minimum bits set";
+
+	// How the result matrix stores it's values
+	private static final String PROPERTYKEY_MATRIX_STORAGE = "Matrix storage";
+
+	// How many threads to compare the rows/columns with
+	private static final String PROPERTYKEY_MAXPARALLELTHREADS = "Maximum threads";
+
 	public MatrixBitwiseOperationModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
 		super(callbackReceiver, properties);
 
@@ -79,11 +86,15 @@ public class MatrixBitwiseOperationModule extends ModuleImpl {
 
 
 		// setup i/o
-		InputPort input = new InputPort(INPUT_ID, INPUT_DESC, this);
+		MatrixInputPort input = new MatrixInputPort(INPUT_ID, INPUT_DESC, this);
+		input.addSupportedPipe(ObjectPipe.class);
+		input.addSupportedPipe(BytePipe.class);
 		input.addSupportedPipe(CharPipe.class);
 		super.addInputPort(input);
 
-		OutputPort matrixOutput = new OutputPort(OUTPUT_MATRIX_ID, OUTPUT_MATRIX_DESC, this);
+		MatrixOutputPort matrixOutput = new MatrixOutputPort(OUTPUT_MATRIX_ID, OUTPUT_MATRIX_DESC, this);
+		matrixOutput.addSupportedPipe(ObjectPipe.class);
+		matrixOutput.addSupportedPipe(BytePipe.class);
 		matrixOutput.addSupportedPipe(CharPipe.class);
 		super.addOutputPort(matrixOutput);
 
@@ -101,11 +112,20 @@ public class MatrixBitwiseOperationModule extends ModuleImpl {
 				"Which Output separator to use for the csv table output.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_OPERATE_REFLEXIVE,
 				"Whether the operation should be applied to a row/col with itself.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MINIMUM_BITS_SET,
+				"Only pairs with at least this many bits set after the operation are written to the outputs, 0 writes all pairs.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MATRIX_STORAGE,
+				"How to store the result matrix: AUTO, DENSE or SPARSE.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAXPARALLELTHREADS,
+				"Maximum number of parallel threads used to apply the operation.");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_OPERATION, "AND");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_USE_ROWS, "true");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_INPUT_SEPARATOR, ";");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_OUTPUT_SEPARATOR, ";");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_OPERATE_REFLEXIVE, "false");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MINIMUM_BITS_SET, "0");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MATRIX_STORAGE, NamedFieldMatrix.Storage.AUTO.name());
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAXPARALLELTHREADS, "4");
 
 		this.setDefaultsIfMissing();
 	}
@@ -113,61 +133,67 @@ public class MatrixBitwiseOperationModule extends ModuleImpl {
 	public boolean process() throws Exception {
 		boolean result = true;
 
-		// a reader to read input line by line
-		BufferedReader inputReader = new BufferedReader(getInputPorts().get(INPUT_ID).getInputReader());
+		// the input port, providing the matrix as object, binary or csv
+		final MatrixInputPort input = (MatrixInputPort) getInputPorts().get(INPUT_ID);
 
 		try {
 			// determine all necessary flags from properties
 			final boolean useRows = Boolean.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_USE_ROWS));
 			final boolean reflexive = Boolean
 					.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_OPERATE_REFLEXIVE));
-			final Operation operation = Operation.valueOf((this.getProperties().getProperty(PROPERTYKEY_OPERATION)));
+			final BitsetPairCounter.Operation operation = BitsetPairCounter.Operation
+					.valueOf((this.getProperties().getProperty(PROPERTYKEY_OPERATION)));
+			final int minimumBitsSet = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_MINIMUM_BITS_SET,
+					this.getPropertyDefaultValues().get(PROPERTYKEY_MINIMUM_BITS_SET)));
+			final int threads = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_MAXPARALLELTHREADS,
+					this.getPropertyDefaultValues().get(PROPERTYKEY_MAXPARALLELTHREADS)));
 			final String inputSeparator = this.getProperties().getProperty(PROPERTYKEY_INPUT_SEPARATOR);
 			final String outputSeparator = this.getProperties().getProperty(PROPERTYKEY_OUTPUT_SEPARATOR);
+			final NamedFieldMatrix.Storage storage = NamedFieldMatrix.Storage.valueOf(this.getProperties()
+					.getProperty(PROPERTYKEY_MATRIX_STORAGE, this.getPropertyDefaultValues().get(PROPERTYKEY_MATRIX_STORAGE)));
 
 			// read the input
+			// (csv input is read line by line)
 			final Map<String, BitSet> bitsets;
-			if (useRows) {
-				bitsets = readInputRows(inputReader, inputSeparator);
+			if (input.providesObjects() || input.providesBinaryMatrix()) {
+				final NamedFieldMatrix inMatrix = input.readMatrix(inputSeparator, NamedFieldMatrix.Storage.AUTO);
+				if (useRows) {
+					bitsets = readMatrixRows(inMatrix);
+				} else {
+					bitsets = readMatrixCols(inMatrix);
+				}
 			} else {
-				bitsets = readInputCols(inputReader, inputSeparator);
+				final CsvRowReader rows = new CsvRowReader(input.getCsvReader(), inputSeparator);
+				if (useRows) {
+					bitsets = readInputRows(rows);
+				} else {
+					bitsets = readInputCols(rows);
+				}
 			}
-			inputReader.close();
+
+			// pack the BitSets for counting
+			final List<String> names = new ArrayList<String>(bitsets.keySet());
+			final BitsetPairCounter counter = new BitsetPairCounter(BitsetPairCounter.pack(bitsets.values()));
+			bitsets.clear();
 
 			// build a matrix containing the result of applying the operation to
-			// each pair of BitSets
-			NamedFieldMatrix outMatrix = new NamedFieldMatrix();
-			BitSet operand1 = null;
-			BitSet operand2 = null;
-			BitSet product = null;
-			Double value = null;
-			for (String name1 : bitsets.keySet()) {
-				operand1 = bitsets.get(name1);
-				for (String name2 : bitsets.keySet()) {
-					// If this combination was already calculated in a
-					// previous iteration, just copy the value
-					// this works as long as all possible operations are
-					// symmetrical
-					value = outMatrix.getValue(name2, name1);
-					if (value != null) {
-						outMatrix.setValue(name1, name2, value);
-						continue;
-					}
-					// don't compare a BitSet to itself unless instructed
-					if (!reflexive && name1.equals(name2)) {
-						// set to zero to get a symmetrical matrix
-						outMatrix.setValue(name1, name2, 0.0);
-						continue;
-					}
-
-					operand2 = bitsets.get(name2);
-					product = performOperation(operand1, operand2, operation);
-					outMatrix.setValue(name1, name2, (double) countBitsSet(product));
-				}
+			// each pair of BitSets, every name gets a row and column even if
+			// none of it's pairs is written
+			final NamedFieldMatrix outMatrix = new NamedFieldMatrix(storage);
+			for (String name : names) {
+				outMatrix.setValue(name, name, 0.0);
 			}
+			// all operations are symmetrical, so each pair is counted once
+			counter.countPairs(operation, reflexive, minimumBitsSet, threads, new BitsetPairCounter.PairHandler() {
+				@Override
+				public void pair(int i, int j, int count) {
+					outMatrix.setValue(names.get(i), names.get(j), count);
+					outMatrix.setValue(names.get(j), names.get(i), count);
+				}
+			});
 
 			// actually write the output
-			OutputPort matrixOut = this.getOutputPorts().get(OUTPUT_MATRIX_ID);
+			MatrixOutputPort matrixOut = (MatrixOutputPort) this.getOutputPorts().get(OUTPUT_MATRIX_ID);
 			if (matrixOut.isConnected()) {
 				writeMatrixOutput(outMatrix, matrixOut, outputSeparator);
 			}
@@ -181,9 +207,7 @@ public class MatrixBitwiseOperationModule extends ModuleImpl {
 			result = false;
 			throw e;
 		} finally {
-			if (inputReader != null) {
-				inputReader.close();
-			}
+			input.closeInput();
 			this.closeAllOutputs();
 		}
 
@@ -192,37 +216,32 @@ public class MatrixBitwiseOperationModule extends ModuleImpl {
 
 	// convert each row of the input table to a BitSet mapped to it's row
 	// heading
-	private static Map<String, BitSet> readInputRows(BufferedReader reader, String inputSeparator) throws Exception {
+	private static Map<String, BitSet> readInputRows(CsvRowReader input) throws Exception {
 		Map<String, BitSet> result = new TreeMap<String, BitSet>();
 
 		// first parse the header row and discard it, only saving the amount of
 		// splits noticed to check for consistency
-		final int colAmount = reader.readLine().split(inputSeparator, -1).length;
-
-		// keep count of the row currently read for error messages
-		int i = 1;
+		if (!input.next()) {
+			throw new Exception("No input.");
+		}
+		final int colAmount = input.getFieldAmount();
 
 		// each line is a row of fields which will be converted to a BitSet
-		String line = "";
-		String[] fields = null;
 		BitSet bitset = null;
-		String rowName = null;
-		while ((line = reader.readLine()) != null) {
-			fields = line.split(inputSeparator, -1);
-			if (fields.length != colAmount) {
-				throw new Exception("Bad input at line " + i + ": amount of fields is " + fields.length + " but "
-						+ colAmount + " columns were read." + " ~ " + line);
+		while (input.next()) {
+			if (input.getFieldAmount() != colAmount) {
+				throw new Exception("Bad input at line " + input.getLineNr() + ": amount of fields is "
+						+ input.getFieldAmount() + " but " + colAmount + " columns were read.");
 			}
 			bitset = new BitSet(colAmount);
-			rowName = fields[0];
 			// iterate and convert fields
-			for (int j = 1; j < fields.length; j++) {
-				if (parseField(fields[j])) {
+			for (int j = 1; j < colAmount; j++) {
+				if (parseField(input, j)) {
 					bitset.set(j - 1);
 				}
 			}
 			// commit the result
-			result.put(rowName, bitset);
+			result.put(input.getString(0), bitset);
 		}
 
 		return result;
@@ -230,32 +249,32 @@ public class MatrixBitwiseOperationModule extends ModuleImpl {
 
 	// convert each column of the input table to a BitSet mapped to it's column
 	// heading
-	private static Map<String, BitSet> readInputCols(BufferedReader reader, String inputSeparator) throws Exception {
+	private static Map<String, BitSet> readInputCols(CsvRowReader input) throws Exception {
 		Map<String, BitSet> result = new TreeMap<String, BitSet>();
 
 		// get a list of column names from the table header
-		final String[] colNames = reader.readLine().split(inputSeparator, -1);
+		if (!input.next()) {
+			throw new Exception("No input.");
+		}
+		final String[] colNames = input.getStrings();
 
-		String line = null;
-		String[] fields = null;
-		String colName = null;
 		BitSet bitset;
 		int i = 1;
-		while ((line = reader.readLine()) != null) {
-			fields = line.split(inputSeparator, -1);
-			if (fields.length != colNames.length) {
-				throw new Exception("Bad input at line " + i + ": amount of fields is " + fields.length + " but "
-						+ colNames.length + " columns were read." + " ~ " + line);
+		while (input.next()) {
+			if (input.getFieldAmount() != colNames.length) {
+				throw new Exception("Bad input at line " + input.getLineNr() + ": amount of fields is "
+						+ input.getFieldAmount() + " but " + colNames.length + " columns were read.");
 			}
 			// row name not needed, so j = 1
-			for (int j = 1; j < fields.length; j++) {
-				colName = colNames[j];
-				bitset = result.getOrDefault(colName, new BitSet());
-				if (parseField(fields[j])) {
+			for (int j = 1; j < colNames.length; j++) {
+				bitset = result.get(colNames[j]);
+				if (bitset == null) {
+					bitset = new BitSet();
+					result.put(colNames[j], bitset);
+				}
+				if (parseField(input, j)) {
 					bitset.set(i - 1);
 				}
-				// commit result
-				result.put(colName, bitset);
 			}
 			i++;
 		}
@@ -263,56 +282,57 @@ public class MatrixBitwiseOperationModule extends ModuleImpl {
 		return result;
 	}
 
-	// parse a numerical input field, return true if it contains a numerical
-	// value > 0, and false if it is empty
-	private static boolean parseField(String field) {
-		if (!StringUtils.isBlank(field) && (Double.parseDouble(field) > 0.0)) {
-			return true;
+	// convert each row of a matrix received as object to a BitSet mapped to
+	// it's row heading
+	private static Map<String, BitSet> readMatrixRows(NamedFieldMatrix matrix) {
+		Map<String, BitSet> result = new TreeMap<String, BitSet>();
+		for (int i = 0; i < matrix.getRowAmount(); i++) {
+			result.put(matrix.getRowName(i), toBitSet(matrix.getRow(i)));
 		}
-		return false;
+		return result;
 	}
 
-	// return the amount of bits, that are set in the given BitSet
-	private static int countBitsSet(BitSet bitset) {
-		int result = 0;
-		for (int i = 0; i < bitset.length(); i++) {
-			if (bitset.get(i)) {
-				result += 1;
-			}
+	// convert each column of a matrix received as object to a BitSet mapped to
+	// it's column heading
+	private static Map<String, BitSet> readMatrixCols(NamedFieldMatrix matrix) {
+		Map<String, BitSet> result = new TreeMap<String, BitSet>();
+		for (int j = 0; j < matrix.getColumnsAmount(); j++) {
+			result.put(matrix.getColumnName(j), toBitSet(matrix.getColumn(j)));
 		}
 		return result;
 	}
 
-	// performs the operation on both BitSets and returns a new BitSet
-	// containing the result
-	private static BitSet performOperation(BitSet op1, BitSet op2, Operation op) {
-		// we need a clone for the operation because it is destructive
-		BitSet result = (BitSet) op1.clone();
-
-		switch (op) {
-		case AND:
-			result.and(op2);
-			break;
-		case OR:
-			result.or(op2);
-			break;
-		case XOR:
-			result.xor(op2);
-			break;
-		default:
-			throw new IllegalStateException("Unknown bitwise operation: " + op);
+	// set a bit for every value > 0 (just as parseField() does for csv input)
+	private static BitSet toBitSet(double[] values) {
+		BitSet bitset = new BitSet(values.length);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] > 0.0) {
+				bitset.set(i);
+			}
 		}
+		return bitset;
+	}
 
-		return result;
+	// parse a numerical input field, return true if it contains a numerical
+	// value > 0, and false if it is empty
+	private static boolean parseField(CsvRowReader input, int i) {
+		if (input.isEmpty(i)) {
+			return false;
+		}
+		try {
+			return input.getDouble(i) > 0.0;
+		} catch (NumberFormatException e) {
+			if (StringUtils.isBlank(input.getString(i))) {
+				return false;
+			}
+			throw e;
+		}
 	}
 
-	private static void writeMatrixOutput(NamedFieldMatrix matrix, OutputPort out, String separator)
+	private static void writeMatrixOutput(NamedFieldMatrix matrix, MatrixOutputPort out, String separator)
 			throws IOException {
 		matrix.setDelimiter(separator);
-		out.outputToAllCharPipes(matrix.csvHeader());
-		for (int i = 0; i < matrix.getRowAmount(); i++) {
-			out.outputToAllCharPipes(matrix.csvLine(i));
-		}
+		out.writeMatrix(matrix);
 	}
 
 	private static void writeListOutput(NamedFieldMatrix matrix, OutputPort out) throws IOException {
@@ -1,14 +1,14 @@
 package modules.matrix;
 
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
-import java.util.Scanner;
 
+import common.BinaryMatrixReader;
+import common.CsvRowReader;
 import common.parallelization.CallbackReceiver;
+import modules.BytePipe;
 import modules.CharPipe;
-import modules.InputPort;
 import modules.ModuleImpl;
 import modules.OutputPort;
 
@@ -60,7 +60,8 @@ public class MatrixColumnSumModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_INPUTHASHEADERLINE, "false");
 		
 		// Define I/O
-		InputPort inputPort = new InputPort(ID_INPUT, "CSV input.", this);
+		MatrixInputPort inputPort = new MatrixInputPort(ID_INPUT, "CSV or binary matrix input.", this);
+		inputPort.addSupportedPipe(BytePipe.class);
 		inputPort.addSupportedPipe(CharPipe.class);
 		OutputPort outputPort = new OutputPort(ID_OUTPUT, "CSV output.", this);
 		outputPort.addSupportedPipe(CharPipe.class);
@@ -74,9 +75,7 @@ public class MatrixColumnSumModule extends ModuleImpl {
 	@Override
 	public boolean process() throws Exception {
 		
-		// Construct scanner instances for input segmentation
-		Scanner lineScanner = new Scanner(this.getInputPorts().get(ID_INPUT).getInputReader());
-		lineScanner.useDelimiter("\\R+");
+		MatrixInputPort inputPort = (MatrixInputPort) this.getInputPorts().get(ID_INPUT);
 		
 		// Array for header names
 		List<String> headerNames = new ArrayList<String>();
@@ -84,59 +83,66 @@ public class MatrixColumnSumModule extends ModuleImpl {
 		// Array for result values
 		double[] sums = null;
 		
+		// A binary matrix always comes with column names
+		if (inputPort.providesBinaryMatrix()){
+			BinaryMatrixReader matrix = inputPort.getBinaryMatrixReader();
+			headerNames.addAll(matrix.getColumnNames());
+			sums = new double[headerNames.size()];
+			while (matrix.nextRow()){
+				// Check for interrupt signal
+				if (Thread.interrupted()) {
+					this.closeAllOutputs();
+					throw new InterruptedException("Thread has been interrupted.");
+				}
+				for (int i=0; i<matrix.getRowEntryAmount(); i++)
+					sums[matrix.getColumn(i)] += matrix.getValue(i);
+			}
+			this.outputSums(headerNames, sums);
+			return true;
+		}
+		
+		// The input is read row by row, only the sums are kept
+		CsvRowReader input = new CsvRowReader(inputPort.getCsvReader(), this.inputdelimiter);
+		
 		if (this.inputHasHeaderLine)
-			// Read header line
-			if (lineScanner.hasNext()){
-				String headerLine = lineScanner.next();
-				Scanner headerFieldScanner = new Scanner(new StringReader(headerLine));
-				headerFieldScanner.useDelimiter(this.inputdelimiter);
-				while (headerFieldScanner.hasNext())
-					headerNames.add(headerFieldScanner.next());
-				headerFieldScanner.close();
+			// Read header line (empty fields at the start and end are omitted)
+			if (input.next()){
+				int first = input.isEmpty(0) ? 1 : 0;
+				for (int i = first; i < lastField(input, first); i++)
+					headerNames.add(input.getString(i));
 				sums = new double[headerNames.size()];
 			} else {
-				lineScanner.close();
 				this.closeAllOutputs();
 				throw new Exception("No input.");
 			}
 		
 		// Input read loop
-		while (lineScanner.hasNext()){
+		while (input.next()){
 			
 			// Check for interrupt signal
 			if (Thread.interrupted()) {
-				lineScanner.close();
 				this.closeAllOutputs();
 				throw new InterruptedException("Thread has been interrupted.");
 			}
 			
-			// Determine next line
-			String line = lineScanner.next();
-			List<String> fieldList = new ArrayList<String>();
-			if (line.matches(this.inputdelimiter+".*")) // Check whether the line starts with an empty field (the Scanner would omit that)
-				fieldList.add("");
-			Scanner fieldScanner = new Scanner(new StringReader(line));
-			fieldScanner.useDelimiter(this.inputdelimiter);
-			while(fieldScanner.hasNext()){
-				fieldList.add(fieldScanner.next());
-			}
-			fieldScanner.close();
+			// Determine the fields of the line, the first one is the label
+			// (an empty field at the end of the line is omitted)
+			int fieldAmount = lastField(input, 0);
 			
 			if (sums == null)
-				sums = new double[fieldList.size()-1];
+				sums = new double[fieldAmount-1];
 						
 			// Check length
-			else if (sums.length != fieldList.size()-1){
-				lineScanner.close();
+			else if (sums.length != fieldAmount-1){
 				this.closeAllOutputs();
-				throw new Exception("Number of data fields is inconsistent ("+sums.length+" != "+(fieldList.size()-1)+").");
+				throw new Exception("Number of data fields is inconsistent ("+sums.length+" != "+(fieldAmount-1)+").");
 			}
 			
 			// Add data values
-			for (int i=1; i<fieldList.size(); i++){
-				if (fieldList.get(i) != null && !fieldList.get(i).isEmpty())
+			for (int i=1; i<fieldAmount; i++){
+				if (!input.isEmpty(i))
 					try {
-						sums[i-1] = sums[i-1]+Double.parseDouble(fieldList.get(i));
+						sums[i-1] = sums[i-1]+input.getDouble(i);
 					} catch (NumberFormatException e) {
 						String error = "This value does not seem to be a number.";
 						if (!this.inputHasHeaderLine)
@@ -145,8 +151,15 @@ public class MatrixColumnSumModule extends ModuleImpl {
 					}
 			}
 		}
-
-		lineScanner.close();
+		
+		this.outputSums(headerNames, sums);
+		
+		// Done
+		return true;
+	}
+	
+	// Outputs the name-sum-pairs and closes the outputs
+	private void outputSums(List<String> headerNames, double[] sums) throws Exception {
 		
 		// Output values
 		for (int i=0; i<sums.length; i++){
@@ -155,9 +168,15 @@ public class MatrixColumnSumModule extends ModuleImpl {
 		
 		// Close outputs (important!)
 		this.closeAllOutputs();
-		
-		// Done
-		return true;
+	}
+	
+	// The end of the row's fields, omitting an empty field at the end unless
+	// it is the first one to use
+	private static int lastField(CsvRowReader input, int first) {
+		int end = input.getFieldAmount();
+		if (end > first && input.isEmpty(end - 1))
+			end--;
+		return end;
 	}
 	
 	@Override
@@ -1,21 +1,26 @@
 package modules.matrix;
 
-import java.io.StringReader;
+import java.io.BufferedWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
-import java.util.Scanner;
 import java.util.Set;
 
 import base.workbench.ModuleWorkbenchController;
+import common.BinaryMatrixReader;
+import common.BinaryMatrixWriter;
+import common.CsvRowReader;
+import common.CsvRowWriter;
 import common.parallelization.CallbackReceiver;
+import modules.BytePipe;
 import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
-import modules.OutputPort;
 
 import base.workbench.ModuleRunner;
 
@@ -71,11 +76,13 @@ public class MatrixEliminateOppositionalValuesModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_ZEROVALUE, "");
 
 		// Define I/O
-		InputPort inputPortMatrix = new InputPort(ID_INPUT_MATRIX, "CSV matrix input.", this);
+		MatrixInputPort inputPortMatrix = new MatrixInputPort(ID_INPUT_MATRIX, "CSV or binary matrix input.", this);
+		inputPortMatrix.addSupportedPipe(BytePipe.class);
 		inputPortMatrix.addSupportedPipe(CharPipe.class);
 		InputPort inputPortSums = new InputPort(ID_INPUT_SUMS, "CSV column sums input.", this);
 		inputPortSums.addSupportedPipe(CharPipe.class);
-		OutputPort outputPort = new OutputPort(ID_OUTPUT, "CSV output.", this);
+		MatrixOutputPort outputPort = new MatrixOutputPort(ID_OUTPUT, "CSV or binary matrix output.", this);
+		outputPort.addSupportedPipe(BytePipe.class);
 		outputPort.addSupportedPipe(CharPipe.class);
 
 		// Add I/O ports to instance (don't forget...)
@@ -92,19 +99,18 @@ public class MatrixEliminateOppositionalValuesModule extends ModuleImpl {
 
 		// List for sum tupels
 		List<ColumnSumTupel> columnSumTupelList = new ArrayList<ColumnSumTupel>();
-		// Construct scanner instances for sum input segmentation
-		Scanner lineScanner = new Scanner(this.getInputPorts().get(ID_INPUT_SUMS).getInputReader());
-		lineScanner.useDelimiter(ModuleWorkbenchController.LINEBREAKREGEX);
-		// Loop over sum input
-		while (lineScanner.hasNext()) {
-			String[] line = lineScanner.next().split(this.inputdelimiter);
-			if (line.length != 2) {
-				lineScanner.close();
-				throw new Exception("Length of line not as expected: " + line.length);
+		// Construct a reader for the sum input rows
+		CsvRowReader input = new CsvRowReader(this.getInputPorts().get(ID_INPUT_SUMS).getInputReader(), this.inputdelimiter);
+		// Loop over sum input (empty fields at the end of a line are omitted)
+		while (input.next()) {
+			int length = input.getFieldAmount();
+			while (length > 0 && input.isEmpty(length - 1))
+				length--;
+			if (length != 2) {
+				throw new Exception("Length of line not as expected: " + length);
 			}
-			columnSumTupelList.add(new ColumnSumTupel(line[0], Double.parseDouble(line[1])));
+			columnSumTupelList.add(new ColumnSumTupel(input.getString(0), input.getDouble(1)));
 		}
-		lineScanner.close();
 		
 		// Sort sum list; Highest sum value will be the first element
 		columnSumTupelList.sort(new Comparator<ColumnSumTupel>(){
@@ -113,65 +119,86 @@ public class MatrixEliminateOppositionalValuesModule extends ModuleImpl {
 				return o1.compareTo(o2);
 			}});
 
-		// Construct scanner instance for matrix input segmentation
-		lineScanner = new Scanner(this.getInputPorts().get(ID_INPUT_MATRIX).getInputReader());
-		lineScanner.useDelimiter(ModuleWorkbenchController.LINEBREAKREGEX);
+		MatrixInputPort matrixInput = (MatrixInputPort) this.getInputPorts().get(ID_INPUT_MATRIX);
 
 		// Array for header names
 		String[] headerNames = null;
 
-		// Read header line
-		if (lineScanner.hasNext()) {
-			headerNames = lineScanner.next().split(this.inputdelimiter);
-		} else {
-			lineScanner.close();
-			this.closeAllOutputs();
-			throw new Exception("No input.");
-		}
-
-		// Output header line
-		for (int i = 0; i < headerNames.length; i++)
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(headerNames[i] + this.outputdelimiter);
-
-		// Output line break
-		this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(ModuleWorkbenchController.LINEBREAK);
-
 		// Unfortunately we will have to store the data lines upfront because it
 		// is necessary to loop over them multiple times.
 		List<List<String>> dataLines = new ArrayList<List<String>>();
 
-		// Data lines input read loop
-		while (lineScanner.hasNext()) {
+		if (matrixInput.providesBinaryMatrix()) {
+
+			// The values of a binary matrix are kept as they would have been
+			// written to csv (zero as an empty field), the header line starts
+			// with an empty field
+			BinaryMatrixReader matrix = matrixInput.getBinaryMatrixReader();
+			List<String> columnNames = matrix.getColumnNames();
+			headerNames = new String[columnNames.size() + 1];
+			headerNames[0] = "";
+			for (int i = 0; i < columnNames.size(); i++)
+				headerNames[i + 1] = columnNames.get(i);
 
-			// Check for interrupt signal
-			if (Thread.interrupted()) {
-				lineScanner.close();
+			while (matrix.nextRow()) {
+
+				// Check for interrupt signal
+				if (Thread.interrupted()) {
+					this.closeAllOutputs();
+					throw new InterruptedException("Thread has been interrupted.");
+				}
+
+				List<String> dataFields = new ArrayList<String>(headerNames.length);
+				dataFields.add(matrix.getRowName());
+				for (int i = 0; i < columnNames.size(); i++)
+					dataFields.add("");
+				for (int i = 0; i < matrix.getRowEntryAmount(); i++)
+					dataFields.set(matrix.getColumn(i) + 1, CsvRowWriter.formatValue(matrix.getValue(i)));
+
+				dataLines.add(dataFields);
+			}
+
+		} else {
+
+			// Construct a reader for the matrix input rows
+			input = new CsvRowReader(matrixInput.getCsvReader(), this.inputdelimiter);
+
+			// Read header line (empty fields at the end are omitted)
+			if (input.next()) {
+				int length = input.getFieldAmount();
+				while (length > 0 && input.isEmpty(length - 1))
+					length--;
+				headerNames = new String[length];
+				for (int i = 0; i < length; i++)
+					headerNames[i] = input.getString(i);
+			} else {
 				this.closeAllOutputs();
-				throw new InterruptedException("Thread has been interrupted.");
+				throw new Exception("No input.");
 			}
 
-			// Determine next line
-			String line = lineScanner.next();
+			// Data lines input read loop
+			while (input.next()) {
 
-			// List for data field values
-			List<String> dataFields = new ArrayList<String>();
+				// Check for interrupt signal
+				if (Thread.interrupted()) {
+					this.closeAllOutputs();
+					throw new InterruptedException("Thread has been interrupted.");
+				}
 
-			// Scanner to read the data line fields (String.split() is not
-			// advisable here because it omits empty fields)
-			Scanner fieldScanner = new Scanner(new StringReader(line));
-			fieldScanner.useDelimiter(this.inputdelimiter);
+				// List for data field values, empty fields are kept except for
+				// those at the very beginning and end of the line
+				int first = input.isEmpty(0) ? 1 : 0;
+				int end = input.getFieldAmount();
+				if (end > first && input.isEmpty(end - 1))
+					end--;
+				List<String> dataFields = new ArrayList<String>(end - first);
+				for (int i = first; i < end; i++) {
+					dataFields.add(input.getString(i));
+				}
 
-			// Add fields to field list
-			while (fieldScanner.hasNext()) {
-				// Read next field
-				String field = fieldScanner.next();
-				dataFields.add(field);
+				dataLines.add(dataFields);
 			}
-			fieldScanner.close();
-
-			dataLines.add(dataFields);
 		}
-		lineScanner.close();
 
 		// Loop over sum tupel list
 		Iterator<ColumnSumTupel> sumTupels = columnSumTupelList.iterator();
@@ -217,7 +244,6 @@ public class MatrixEliminateOppositionalValuesModule extends ModuleImpl {
 				
 				// Check for interrupt signal
 				if (Thread.interrupted()) {
-					lineScanner.close();
 					this.closeAllOutputs();
 					throw new InterruptedException("Thread has been interrupted.");
 				}
@@ -236,8 +262,9 @@ public class MatrixEliminateOppositionalValuesModule extends ModuleImpl {
 					if (value != null && !value.isEmpty() && Double.parseDouble(value) > 0) {
 
 						// If we get a match, we set the field value to zero
+						// (null marks it as eliminated)
 						if (j!=index && matchStrings.contains(label + headerNames[j])) {
-							dataFields.set(j, this.emptyFieldValue);
+							dataFields.set(j, null);
 						}
 					}
 				}
@@ -247,20 +274,41 @@ public class MatrixEliminateOppositionalValuesModule extends ModuleImpl {
 		}
 
 		// All work is done, so we can output the result
+		MatrixOutputPort outputPort = (MatrixOutputPort) this.getOutputPorts().get(ID_OUTPUT);
 
-		for (int i = 0; i < dataLines.size(); i++) {
+		if (outputPort.writesBinaryMatrix())
+			this.writeBinaryOutput(outputPort.getBinaryMatrixWriter(), headerNames, dataLines);
 
-			// Retrieve data fields
-			List<String> dataFields = dataLines.get(i);
+		if (outputPort.writesCsv()) {
+			// The output is written through a buffer
+			Writer output = new BufferedWriter(outputPort.getCsvWriter());
 
-			// Output data fields
-			for (int j = 0; j < dataFields.size(); j++) {
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(dataFields.get(j) + this.outputdelimiter);
+			// Output header line
+			for (int i = 0; i < headerNames.length; i++) {
+				output.write(headerNames[i]);
+				output.write(this.outputdelimiter);
 			}
 
 			// Output line break
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(ModuleWorkbenchController.LINEBREAK);
+			output.write(ModuleWorkbenchController.LINEBREAK);
+
+			for (int i = 0; i < dataLines.size(); i++) {
+
+				// Retrieve data fields
+				List<String> dataFields = dataLines.get(i);
+
+				// Output data fields (eliminated ones as zero value)
+				for (int j = 0; j < dataFields.size(); j++) {
+					String value = dataFields.get(j);
+					output.write(value == null ? this.emptyFieldValue : value);
+					output.write(this.outputdelimiter);
+				}
+
+				// Output line break
+				output.write(ModuleWorkbenchController.LINEBREAK);
 
+			}
+			output.flush();
 		}
 
 		// Close outputs (important!)
@@ -270,6 +318,30 @@ public class MatrixEliminateOppositionalValuesModule extends ModuleImpl {
 		return true;
 	}
 
+	// Writes the matrix in binary format, empty and eliminated fields are zero
+	private void writeBinaryOutput(BinaryMatrixWriter output, String[] headerNames, List<List<String>> dataLines)
+			throws Exception {
+		List<String> rowNames = new ArrayList<String>(dataLines.size());
+		long entryAmount = 0;
+		for (List<String> dataFields : dataLines) {
+			if (dataFields.size() > headerNames.length)
+				throw new Exception("Line '" + dataFields.get(0) + "' has more fields than the header line.");
+			rowNames.add(dataFields.get(0));
+			for (int j = 1; j < dataFields.size(); j++)
+				if (dataFields.get(j) != null && !dataFields.get(j).isEmpty())
+					entryAmount++;
+		}
+
+		output.writeHeader(rowNames, Arrays.asList(headerNames).subList(1, headerNames.length), entryAmount);
+		for (int i = 0; i < dataLines.size(); i++) {
+			List<String> dataFields = dataLines.get(i);
+			for (int j = 1; j < dataFields.size(); j++)
+				if (dataFields.get(j) != null && !dataFields.get(j).isEmpty())
+					output.writeEntry(i, j - 1, Double.parseDouble(dataFields.get(j)));
+		}
+		output.finish();
+	}
+
 	@Override
 	public void applyProperties() throws Exception {
 
@@ -1,21 +1,26 @@
 package modules.matrix;
 
-import java.io.StringReader;
-import java.util.Iterator;
+import java.io.BufferedWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
 
-import base.workbench.ModuleWorkbenchController;
+import common.BinaryMatrixReader;
+import common.BinaryMatrixWriter;
+import common.CsvRowReader;
+import common.CsvRowWriter;
 import common.parallelization.CallbackReceiver;
+import models.NamedFieldMatrix;
+import modules.BytePipe;
 import modules.CharPipe;
-import modules.InputPort;
 import modules.ModuleImpl;
-import modules.OutputPort;
 
 import base.workbench.ModuleRunner;
 
@@ -60,9 +65,11 @@ public class MatrixFilterModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_MATCH, "[^0]+");
 
 		// Define I/O
-		InputPort inputPort = new InputPort(ID_INPUT, "CSV input.", this);
+		MatrixInputPort inputPort = new MatrixInputPort(ID_INPUT, "CSV or binary matrix input.", this);
+		inputPort.addSupportedPipe(BytePipe.class);
 		inputPort.addSupportedPipe(CharPipe.class);
-		OutputPort outputPort = new OutputPort(ID_OUTPUT, "CSV output.", this);
+		MatrixOutputPort outputPort = new MatrixOutputPort(ID_OUTPUT, "CSV or binary matrix output.", this);
+		outputPort.addSupportedPipe(BytePipe.class);
 		outputPort.addSupportedPipe(CharPipe.class);
 
 		// Add I/O ports to instance (don't forget...)
@@ -77,88 +84,132 @@ public class MatrixFilterModule extends ModuleImpl {
 		// Prepare regex pattern
 		Pattern pattern = Pattern.compile(this.regex);
 
-		// Construct scanner instances for input segmentation
-		Scanner lineScanner = new Scanner(this.getInputPorts().get(ID_INPUT).getInputReader());
-		lineScanner.useDelimiter(ModuleWorkbenchController.LINEBREAKREGEX);
+		MatrixInputPort inputPort = (MatrixInputPort) this.getInputPorts().get(ID_INPUT);
+		MatrixOutputPort outputPort = (MatrixOutputPort) this.getOutputPorts().get(ID_OUTPUT);
 
 		// Variable for filtered matrix
 		Map<String,Map<String,String>> filteredMatrix = new TreeMap<String,Map<String,String>>();
 		
 		// Variable for remaining matrix columns after filtering (important if the two matrix axis have different labels)
 		Set<String> remainingColumnLabelSet = new TreeSet<String>();
+
+		// The values of the matching fields, only kept for binary output
+		NamedFieldMatrix filteredValues = outputPort.writesBinaryMatrix() ? new NamedFieldMatrix() : null;
 		
-		// Header line variable
-		String[] columnLabelArray;
-		
-		// Read header line
-		if (lineScanner.hasNext()) {
-			columnLabelArray = lineScanner.next().split(this.csvFieldDelimiter);
+		if (inputPort.providesBinaryMatrix()) {
+
+			// The values of a binary matrix are matched as they would have
+			// been written to csv (zero as an empty field)
+			BinaryMatrixReader input = inputPort.getBinaryMatrixReader();
+			List<String> columnLabels = input.getColumnNames();
+			boolean emptyMatches = pattern.matcher("").matches();
+			while (input.nextRow()) {
+
+				// Check for interrupt signal
+				if (Thread.interrupted()) {
+					this.closeAllOutputs();
+					throw new InterruptedException("Thread has been interrupted.");
+				}
+
+				// Columns without an entry only need to be visited if empty
+				// fields match
+				if (emptyMatches) {
+					int entry = 0;
+					for (int column = 0; column < columnLabels.size(); column++) {
+						double value = 0d;
+						if (entry < input.getRowEntryAmount() && input.getColumn(entry) == column)
+							value = input.getValue(entry++);
+						if (this.filterField(pattern, input.getRowName(), columnLabels.get(column),
+								CsvRowWriter.formatValue(value), filteredMatrix, remainingColumnLabelSet)
+								&& filteredValues != null)
+							filteredValues.setValue(input.getRowName(), columnLabels.get(column), value);
+					}
+				} else {
+					for (int entry = 0; entry < input.getRowEntryAmount(); entry++) {
+						String columnLabel = columnLabels.get(input.getColumn(entry));
+						if (this.filterField(pattern, input.getRowName(), columnLabel,
+								CsvRowWriter.formatValue(input.getValue(entry)), filteredMatrix, remainingColumnLabelSet)
+								&& filteredValues != null)
+							filteredValues.setValue(input.getRowName(), columnLabel, input.getValue(entry));
+					}
+				}
+			}
+
 		} else {
-			lineScanner.close();
-			this.closeAllOutputs();
-			throw new Exception("No input.");
-		}
 
-		// Input read loop
-		while (lineScanner.hasNext()) {
+			// The input is read row by row, only matching fields are kept
+			CsvRowReader input = new CsvRowReader(inputPort.getCsvReader(), this.csvFieldDelimiter);
 
-			// Check for interrupt signal
-			if (Thread.interrupted()) {
-				lineScanner.close();
+			// Header line variable
+			String[] columnLabelArray;
+			
+			// Read header line
+			if (input.next()) {
+				columnLabelArray = input.getStrings();
+			} else {
 				this.closeAllOutputs();
-				throw new InterruptedException("Thread has been interrupted.");
+				throw new Exception("No input.");
 			}
 
-			// Determine next line
-			String line = lineScanner.next();
-			Scanner fieldScanner = new Scanner(new StringReader(line));
-			fieldScanner.useDelimiter(this.csvFieldDelimiter);
-			String rowLabel = fieldScanner.next();
-			int index = 1;
-			while (fieldScanner.hasNext()) {
-				String field = fieldScanner.next();
-				if (field != null && pattern.matcher(field).matches()){
-					// Create matrix line if not yet existent
-					if (!filteredMatrix.containsKey(rowLabel))
-						filteredMatrix.put(rowLabel, new TreeMap<String,String>());
-					// Add matching data field to matrix line
-					filteredMatrix.get(rowLabel).put(columnLabelArray[index], field);
-					remainingColumnLabelSet.add(columnLabelArray[index]);
+			// Input read loop
+			while (input.next()) {
+
+				// Check for interrupt signal
+				if (Thread.interrupted()) {
+					this.closeAllOutputs();
+					throw new InterruptedException("Thread has been interrupted.");
+				}
+
+				// Determine the fields of the next line (an empty field at the end
+				// of the line is omitted)
+				String rowLabel = input.getString(0);
+				int fieldAmount = input.getFieldAmount();
+				if (fieldAmount > 1 && input.isEmpty(fieldAmount - 1))
+					fieldAmount--;
+				for (int index = 1; index < fieldAmount; index++) {
+					if (this.filterField(pattern, rowLabel, columnLabelArray[index], input.getString(index),
+							filteredMatrix, remainingColumnLabelSet) && filteredValues != null)
+						filteredValues.setValue(rowLabel, columnLabelArray[index], input.getDouble(index));
 				}
-				index++;
 			}
-			fieldScanner.close();
 		}
-		lineScanner.close();
 		
 		/*
 		 *  Output filtered matrix
 		 */
 		
-		// Header line
-		this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(this.csvFieldDelimiter);
-		Iterator<String> remainingColumnLabels = remainingColumnLabelSet.iterator();
-		while(remainingColumnLabels.hasNext()){
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(remainingColumnLabels.next()+this.csvFieldDelimiter);
-		}
-		this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes("\n");
-		
-		// Data lines
-		Iterator<String> matrixRowLabels = filteredMatrix.keySet().iterator();
-		while (matrixRowLabels.hasNext()){
-			String matrixRowLabel = matrixRowLabels.next();
-			// Output row label
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(matrixRowLabel+this.csvFieldDelimiter);
-			Map<String, String> matrixRow = filteredMatrix.get(matrixRowLabel);
-			// Output one data field for each remaining column label
-			remainingColumnLabels = remainingColumnLabelSet.iterator();
-			while(remainingColumnLabels.hasNext()){
-				String value = matrixRow.get(remainingColumnLabels.next());
-				if (value == null)
-					value = "";
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(value+this.csvFieldDelimiter);
+		if (filteredValues != null)
+			this.writeBinaryOutput(outputPort.getBinaryMatrixWriter(), filteredMatrix, filteredValues,
+					remainingColumnLabelSet);
+
+		if (outputPort.writesCsv()) {
+			// The output is written through a buffer, every field is followed by
+			// a delimiter
+			Writer output = new BufferedWriter(outputPort.getCsvWriter());
+
+			// Header line
+			output.write(this.csvFieldDelimiter);
+			for (String remainingColumnLabel : remainingColumnLabelSet) {
+				output.write(remainingColumnLabel);
+				output.write(this.csvFieldDelimiter);
 			}
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes("\n");
+			output.write('\n');
+			
+			// Data lines
+			for (Map.Entry<String, Map<String, String>> matrixRow : filteredMatrix.entrySet()) {
+				// Output row label
+				output.write(matrixRow.getKey());
+				output.write(this.csvFieldDelimiter);
+				// Output one data field for each remaining column label
+				for (String remainingColumnLabel : remainingColumnLabelSet) {
+					String value = matrixRow.getValue().get(remainingColumnLabel);
+					if (value != null)
+						output.write(value);
+					output.write(this.csvFieldDelimiter);
+				}
+				output.write('\n');
+			}
+			output.flush();
 		}
 
 		// Close outputs (important!)
@@ -168,6 +219,46 @@ public class MatrixFilterModule extends ModuleImpl {
 		return true;
 	}
 
+	// Keeps the field if it matches the pattern, returns whether it does
+	private boolean filterField(Pattern pattern, String rowLabel, String columnLabel, String field,
+			Map<String, Map<String, String>> filteredMatrix, Set<String> remainingColumnLabelSet) {
+		if (pattern.matcher(field).matches()) {
+			// Create matrix line if not yet existent
+			if (!filteredMatrix.containsKey(rowLabel))
+				filteredMatrix.put(rowLabel, new TreeMap<String, String>());
+			// Add matching data field to matrix line
+			filteredMatrix.get(rowLabel).put(columnLabel, field);
+			remainingColumnLabelSet.add(columnLabel);
+			return true;
+		}
+		return false;
+	}
+
+	// Writes the filtered matrix in binary format with the values of the
+	// matching fields (empty fields are zero)
+	private void writeBinaryOutput(BinaryMatrixWriter output, Map<String, Map<String, String>> filteredMatrix,
+			NamedFieldMatrix filteredValues, Set<String> remainingColumnLabelSet) throws Exception {
+		List<String> columnLabels = new ArrayList<String>(remainingColumnLabelSet);
+		Map<String, Integer> columns = new HashMap<String, Integer>();
+		for (String columnLabel : columnLabels)
+			columns.put(columnLabel, columns.size());
+
+		long entryAmount = 0;
+		for (Map<String, String> matrixRow : filteredMatrix.values())
+			entryAmount += matrixRow.size();
+
+		output.writeHeader(new ArrayList<String>(filteredMatrix.keySet()), columnLabels, entryAmount);
+		int row = 0;
+		for (Map.Entry<String, Map<String, String>> matrixRow : filteredMatrix.entrySet()) {
+			// Both the row and the remaining column labels are sorted
+			for (String columnLabel : matrixRow.getValue().keySet()) {
+				output.writeEntry(row, columns.get(columnLabel), filteredValues.getValue(matrixRow.getKey(), columnLabel));
+			}
+			row++;
+		}
+		output.finish();
+	}
+
 	@Override
 	public void applyProperties() throws Exception {
 
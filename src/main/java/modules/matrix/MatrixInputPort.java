@@ -0,0 +1,131 @@
+package modules.matrix;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import common.BinaryMatrixReader;
+import common.BinaryMatrixWriter;
+import models.NamedFieldMatrix;
+import modules.BytePipe;
+import modules.InputPort;
+import modules.Module;
+import modules.NotSupportedException;
+
+/**
+ * An input port receiving a matrix either as object, as csv text or, through
+ * a byte pipe, in the binary format of BinaryMatrixWriter. Byte input that
+ * does not start like a binary matrix is read as UTF-8 encoded csv, so that
+ * byte pipes from e.g. a file reader keep working.
+ */
+public class MatrixInputPort extends InputPort {
+
+	// the byte input, buffered to look at its first bytes without losing them
+	private BufferedInputStream byteInput = null;
+	private InputStream byteInputSource = null;
+
+	public MatrixInputPort(String name, String description, Module parent) {
+		super(name, description, parent);
+	}
+
+	/**
+	 * Returns whether a binary matrix is received, looking at the first bytes
+	 * of the input (which blocks until they are available).
+	 * @return True if connected through a byte pipe carrying a binary matrix
+	 * @throws IOException Thrown if the input cannot be read
+	 */
+	public boolean providesBinaryMatrix() throws IOException {
+		final InputStream input = this.getBufferedByteInput();
+		if (input == null)
+			return false;
+		final byte[] magic = BinaryMatrixWriter.MAGIC;
+		input.mark(magic.length);
+		try {
+			for (int i = 0; i < magic.length; i++)
+				if (input.read() != (magic[i] & 0xff))
+					return false;
+			return true;
+		} finally {
+			input.reset();
+		}
+	}
+
+	/**
+	 * Returns a reader for a binary matrix received.
+	 * @return Binary matrix reader
+	 * @throws NotSupportedException Thrown if this port is not connected through a byte pipe
+	 * @throws IOException Thrown if the input is no binary matrix
+	 */
+	public BinaryMatrixReader getBinaryMatrixReader() throws NotSupportedException, IOException {
+		final InputStream input = this.getBufferedByteInput();
+		if (input == null)
+			throw new NotSupportedException("This port ("+this.toString()+") does not provide byte stream input.");
+		return new BinaryMatrixReader(input);
+	}
+
+	/**
+	 * Returns a reader for csv text received, either through a char pipe or
+	 * UTF-8 encoded through a byte pipe.
+	 * @return Csv input reader
+	 * @throws NotSupportedException Thrown if this port receives objects
+	 * @throws IOException Thrown if the input cannot be read
+	 */
+	public Reader getCsvReader() throws NotSupportedException, IOException {
+		final InputStream input = this.getBufferedByteInput();
+		if (input != null)
+			return new InputStreamReader(input, StandardCharsets.UTF_8);
+		return this.getInputReader();
+	}
+
+	/**
+	 * Reads the matrix received, whatever the pipe it is received through. A
+	 * matrix received as object is returned as is and must not be changed.
+	 * @param csvDelimiter Delimiter to split csv input on
+	 * @param storage How to store a matrix that is read from csv or binary input
+	 * @return Matrix read
+	 * @throws Exception Thrown if no matrix is received or the input cannot be parsed
+	 */
+	public NamedFieldMatrix readMatrix(String csvDelimiter, NamedFieldMatrix.Storage storage) throws Exception {
+		if (this.providesObjects()) {
+			final NamedFieldMatrix matrix = this.readObject(NamedFieldMatrix.class);
+			if (matrix == null)
+				throw new IOException("No matrix received.");
+			return matrix;
+		}
+		if (this.providesBinaryMatrix())
+			return NamedFieldMatrix.parseBinary(this.getBufferedByteInput(), storage);
+		return NamedFieldMatrix.parseCSV(this.getCsvReader(), csvDelimiter, storage);
+	}
+
+	/**
+	 * Closes the input read from, whatever the pipe.
+	 * @throws IOException Thrown if the input cannot be closed
+	 */
+	public void closeInput() throws IOException {
+		if (this.getPipe() != null)
+			this.getPipe().readClose();
+	}
+
+	@Override
+	public void reset() throws IOException {
+		this.byteInput = null;
+		this.byteInputSource = null;
+		super.reset();
+	}
+
+	// the buffered byte input, or null if not connected through a byte pipe
+	private InputStream getBufferedByteInput() {
+		if (!(this.getPipe() instanceof BytePipe))
+			return null;
+		final InputStream source = ((BytePipe) this.getPipe()).getInput();
+		if (this.byteInput == null || this.byteInputSource != source) {
+			this.byteInput = new BufferedInputStream(source);
+			this.byteInputSource = source;
+		}
+		return this.byteInput;
+	}
+
+}
@@ -0,0 +1,109 @@
+package modules.matrix;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import common.BinaryMatrixWriter;
+import models.NamedFieldMatrix;
+import modules.BytePipe;
+import modules.CharPipe;
+import modules.Module;
+import modules.ObjectPipe;
+import modules.OutputPort;
+import modules.Pipe;
+
+/**
+ * An output port writing a matrix as object, as csv text and through byte
+ * pipes. Byte pipes carry the binary format of BinaryMatrixWriter if all of
+ * them lead to matrix input ports, which know to read it; otherwise they
+ * carry UTF-8 encoded csv, so that e.g. a file writer still receives text.
+ */
+public class MatrixOutputPort extends OutputPort {
+
+	public MatrixOutputPort(String name, String description, Module parent) {
+		super(name, description, parent);
+	}
+
+	/**
+	 * Returns whether the byte pipes of this port carry a binary matrix.
+	 * @return True if there are byte pipes and all lead to matrix input ports
+	 */
+	public boolean writesBinaryMatrix() {
+		if (!this.supportsPipeClass(BytePipe.class) || this.getPipes(BytePipe.class).isEmpty())
+			return false;
+		for (Pipe pipe : this.getPipes(BytePipe.class))
+			if (!(this.getConnectedPort(pipe) instanceof MatrixInputPort))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns whether any pipes of this port carry csv text.
+	 * @return True if csv is to be written
+	 */
+	public boolean writesCsv() {
+		return (this.supportsPipeClass(CharPipe.class) && !this.getPipes(CharPipe.class).isEmpty())
+				|| (this.supportsPipeClass(BytePipe.class) && !this.getPipes(BytePipe.class).isEmpty()
+						&& !this.writesBinaryMatrix());
+	}
+
+	/**
+	 * Returns a writer for the binary matrix written to the byte pipes.
+	 * @return Binary matrix writer
+	 */
+	public BinaryMatrixWriter getBinaryMatrixWriter() {
+		return new BinaryMatrixWriter(this.asByteStream());
+	}
+
+	/**
+	 * Returns a writer forwarding csv text to all char pipes and, unless
+	 * they carry a binary matrix, UTF-8 encoded to all byte pipes. Closing
+	 * the writer does not close the port.
+	 * @return Writer for the csv output
+	 */
+	public Writer getCsvWriter() {
+		final Writer charWriter = this.supportsPipeClass(CharPipe.class) ? this.asCharWriter() : null;
+		final Writer byteWriter = (this.supportsPipeClass(BytePipe.class) && !this.writesBinaryMatrix())
+				? new OutputStreamWriter(this.asByteStream(), StandardCharsets.UTF_8) : null;
+		return new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				if (charWriter != null)
+					charWriter.write(cbuf, off, len);
+				if (byteWriter != null)
+					byteWriter.write(cbuf, off, len);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				if (byteWriter != null)
+					byteWriter.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				this.flush();
+			}
+		};
+	}
+
+	/**
+	 * Writes the matrix to all pipes in their respective format. Receivers
+	 * of objects get the very same instance, so it must not be changed
+	 * afterwards.
+	 * @param matrix Matrix to write
+	 * @throws IOException Thrown if an I/O problem occurs
+	 */
+	public void writeMatrix(NamedFieldMatrix matrix) throws IOException {
+		if (this.supportsPipeClass(ObjectPipe.class))
+			this.outputToAllObjectPipes(matrix);
+		if (this.writesBinaryMatrix())
+			matrix.writeBinary(this.asByteStream());
+		if (this.writesCsv())
+			matrix.writeCSV(new BufferedWriter(this.getCsvWriter()));
+	}
+
+}
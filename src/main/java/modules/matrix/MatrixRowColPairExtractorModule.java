@@ -6,10 +6,12 @@ import java.util.Scanner;
 import java.util.regex.Pattern;
 
 import base.workbench.ModuleWorkbenchController;
+import common.BinaryMatrixReader;
+import common.CsvRowWriter;
 import common.StringUnescaper;
 import common.parallelization.CallbackReceiver;
+import modules.BytePipe;
 import modules.CharPipe;
-import modules.InputPort;
 import modules.ModuleImpl;
 import modules.OutputPort;
 
@@ -69,7 +71,8 @@ public class MatrixRowColPairExtractorModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_MATCH, "[^0]+");
 
 		// Define I/O
-		InputPort inputPort = new InputPort(ID_INPUT, "CSV input.", this);
+		MatrixInputPort inputPort = new MatrixInputPort(ID_INPUT, "CSV or binary matrix input.", this);
+		inputPort.addSupportedPipe(BytePipe.class);
 		inputPort.addSupportedPipe(CharPipe.class);
 		OutputPort outputPort = new OutputPort(ID_OUTPUT, "text output.", this);
 		outputPort.addSupportedPipe(CharPipe.class);
@@ -86,8 +89,44 @@ public class MatrixRowColPairExtractorModule extends ModuleImpl {
 		// Prepare regex pattern
 		Pattern pattern = Pattern.compile(this.regex);
 
+		MatrixInputPort inputPort = (MatrixInputPort) this.getInputPorts().get(ID_INPUT);
+
+		// The values of a binary matrix are matched as they would have been
+		// written to csv (zero as an empty field)
+		if (inputPort.providesBinaryMatrix()) {
+			BinaryMatrixReader input = inputPort.getBinaryMatrixReader();
+			boolean emptyMatches = pattern.matcher("").matches();
+			while (input.nextRow()) {
+
+				// Check for interrupt signal
+				if (Thread.interrupted()) {
+					this.closeAllOutputs();
+					throw new InterruptedException("Thread has been interrupted.");
+				}
+
+				// Columns without an entry only need to be visited if empty
+				// fields match
+				if (emptyMatches) {
+					int entry = 0;
+					for (int column = 0; column < input.getColumnNames().size(); column++) {
+						double value = 0d;
+						if (entry < input.getRowEntryAmount() && input.getColumn(entry) == column)
+							value = input.getValue(entry++);
+						this.extractPair(pattern, input.getRowName(), input.getColumnNames().get(column), value);
+					}
+				} else {
+					for (int entry = 0; entry < input.getRowEntryAmount(); entry++)
+						this.extractPair(pattern, input.getRowName(), input.getColumnNames().get(input.getColumn(entry)), input.getValue(entry));
+				}
+			}
+
+			// Close outputs (important!)
+			this.closeAllOutputs();
+			return true;
+		}
+
 		// Construct scanner instances for input segmentation
-		Scanner lineScanner = new Scanner(this.getInputPorts().get(ID_INPUT).getInputReader());
+		Scanner lineScanner = new Scanner(inputPort.getCsvReader());
 		lineScanner.useDelimiter(ModuleWorkbenchController.LINEBREAKREGEX);
 
 		// Array for header names
@@ -136,6 +175,12 @@ public class MatrixRowColPairExtractorModule extends ModuleImpl {
 		return true;
 	}
 
+	// Outputs the row/column pair if the value matches the pattern
+	private void extractPair(Pattern pattern, String rowLabel, String columnLabel, double value) throws Exception {
+		if (pattern.matcher(CsvRowWriter.formatValue(value)).matches())
+			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(rowLabel + this.outputdelimiterInner + columnLabel + this.outputdelimiterOuter);
+	}
+
 	@Override
 	public void applyProperties() throws Exception {
 
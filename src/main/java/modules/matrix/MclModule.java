@@ -1,15 +1,13 @@
 package modules.matrix;
 
-import java.io.PipedReader;
 import java.util.Properties;
 
-import Jama.Matrix;
 import common.parallelization.CallbackReceiver;
 import models.NamedFieldMatrix;
+import modules.BytePipe;
 import modules.CharPipe;
-import modules.InputPort;
 import modules.ModuleImpl;
-import modules.OutputPort;
+import modules.ObjectPipe;
 
 import base.workbench.ModuleRunner;
 
@@ -27,6 +25,10 @@ public class MclModule extends ModuleImpl {
 	public static final String PROPERTYKEY_R = "r";
 	public static final String PROPERTYKEY_ITERATIONS = "iterations";
 	public static final String PROPERTYKEY_CSV_DELIMITER = "csv delimiter";
+	public static final String PROPERTYKEY_PRUNE_THRESHOLD = "prune threshold";
+	public static final String PROPERTYKEY_PRUNE_TOP_K = "prune top k";
+	public static final String PROPERTYKEY_CONVERGENCE_THRESHOLD = "convergence threshold";
+	public static final String PROPERTYKEY_MAXPARALLELTHREADS = "maximum threads";
 
 	// Define I/O IDs (must be unique for every input or output)
 	private static final String ID_INPUT = "input matrix";
@@ -36,6 +38,10 @@ public class MclModule extends ModuleImpl {
 	private int l;
 	private double r;
 	private String csvDelimiter;
+	private double pruneThreshold;
+	private int pruneTopK;
+	private double convergenceThreshold;
+	private int maxParallelThreads;
 
 	public MclModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
 
@@ -43,15 +49,25 @@ public class MclModule extends ModuleImpl {
 		super(callbackReceiver, properties);
 
 		// Add module description
-		this.setDescription("Takes a matrix and runs a fixed number of iterations of markov clustering on it.");
+		this.setDescription("Takes a matrix and runs markov clustering on it until it converges. The matrix is kept sparse by pruning small values after each inflation step.");
 
 		// Add property descriptions (obligatory for every property!)
 		// TODO: Write proper descriptions
 		this.getPropertyDescriptions().put(PROPERTYKEY_ITERATIONS,
-				"How often to iterate the inflation and deflation steps.");
+				"Maximum amount of iterations of the inflation and deflation steps.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_L, "Amount of matrix multiplications per iteration, int >= 1.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_R, "Exponent in the inflation step, double >= 1.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_CSV_DELIMITER, "Delimiter of the input csv cells.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_PRUNE_THRESHOLD,
+				"Values below this fraction of their row's sum are dropped after inflation, 0 keeps all. Pruning speeds up"
+						+ " large sparse matrices, but the result may differ from plain MCL.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_PRUNE_TOP_K,
+				"Maximum amount of values kept per row after inflation, 0 keeps all. Pruning speeds up large sparse"
+						+ " matrices, but the result may differ from plain MCL.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_CONVERGENCE_THRESHOLD,
+				"Iteration stops once no value changes by more than this.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAXPARALLELTHREADS,
+				"Maximum number of parallel threads used for the matrix multiplication.");
 
 		// Add property defaults (_should_ be provided for every property)
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "Markov Clustering Module");
@@ -59,11 +75,19 @@ public class MclModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_L, "2");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_R, "2.0");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_CSV_DELIMITER, ";");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_PRUNE_THRESHOLD, "0");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_PRUNE_TOP_K, "0");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_CONVERGENCE_THRESHOLD, "0.000001");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAXPARALLELTHREADS, "4");
 
 		// Define I/O
-		InputPort inputPort = new InputPort(ID_INPUT, "[text/csv] (Named Field) Matrix to cluster. NOTE: x and y dimensions of the matrix must agree.", this);
+		MatrixInputPort inputPort = new MatrixInputPort(ID_INPUT, "[text/csv] (Named Field) Matrix to cluster. NOTE: x and y dimensions of the matrix must agree.", this);
+		inputPort.addSupportedPipe(ObjectPipe.class);
+		inputPort.addSupportedPipe(BytePipe.class);
 		inputPort.addSupportedPipe(CharPipe.class);
-		OutputPort outputPort = new OutputPort(ID_OUTPUT, "[text/csv] Matrix clustered.", this);
+		MatrixOutputPort outputPort = new MatrixOutputPort(ID_OUTPUT, "[text/csv] Matrix clustered.", this);
+		outputPort.addSupportedPipe(ObjectPipe.class);
+		outputPort.addSupportedPipe(BytePipe.class);
 		outputPort.addSupportedPipe(CharPipe.class);
 
 		// Add I/O ports to instance (don't forget...)
@@ -76,43 +100,33 @@ public class MclModule extends ModuleImpl {
 	public boolean process() throws Exception {
 
 		boolean result = true;
-		PipedReader inputReader = null;
+		final MatrixInputPort in = (MatrixInputPort) this.getInputPorts().get(ID_INPUT);
 
 		try {
-			inputReader = this.getInputPorts().get(ID_INPUT).getInputReader();
-
-			// read the input into a NamedFieldMatrix
-			final NamedFieldMatrix nfMatrix = NamedFieldMatrix.parseCSV(inputReader, this.csvDelimiter);
-
-			// The JAMA matrix is initialised from the named field matrix'
-			// values and will operate on them directly, avoiding some
-			// duplication of memory or copying of values.
-			// This is ok because the mcl algorithm changes field's values
-			// but not their location, such that the mapping of array fields to
-			// column and row names in the named field matrix stays intact.
-			Matrix matrix = new Matrix(nfMatrix.getValues());
-
-			// run the algorithm as many times as specified by the user
-			for (int i = 0; i < this.iterations; i++) {
-				matrix = mcl(matrix, this.l, this.r);
-			}
-
-			// Set the named fields matrix' values to the ones given by mcl
-			// and write them to the output port
-			nfMatrix.setValues(matrix.getArray());
-			OutputPort out = this.getOutputPorts().get(ID_OUTPUT);
-			nfMatrix.setDelimiter(this.csvDelimiter);
-			out.outputToAllCharPipes(nfMatrix.csvHeader());
-			for (int i = 0; i < nfMatrix.getRowAmount(); i++) {
-				out.outputToAllCharPipes(nfMatrix.csvLine(i));
-			}
+			// read the input into a sparsely stored NamedFieldMatrix (a matrix
+			// received as object is left as it is)
+			final NamedFieldMatrix nfMatrix = in.readMatrix(this.csvDelimiter, NamedFieldMatrix.Storage.SPARSE);
+
+			// The matrix is clustered in compressed sparse rows, the result
+			// is written row by row to a sparse matrix with the same row and
+			// column names. This is ok because the mcl algorithm changes
+			// field's values but not their location, such that the mapping of
+			// fields to column and row names stays intact.
+			final SparseMcl mcl = new SparseMcl(nfMatrix);
+			mcl.run(this.iterations, this.l, this.r, this.pruneThreshold, this.pruneTopK, this.convergenceThreshold,
+					this.maxParallelThreads);
+			final NamedFieldMatrix clustered = NamedFieldMatrix.withNamesOf(nfMatrix, NamedFieldMatrix.Storage.SPARSE);
+			mcl.writeTo(clustered);
+
+			// write the named fields matrix to the output port
+			MatrixOutputPort out = (MatrixOutputPort) this.getOutputPorts().get(ID_OUTPUT);
+			clustered.setDelimiter(this.csvDelimiter);
+			out.writeMatrix(clustered);
 		} catch (Exception e) {
 			result = false;
 			throw e;
 		} finally {
-			if (inputReader != null) {
-				inputReader.close();
-			}
+			in.closeInput();
 			this.closeAllOutputs();
 		}
 
@@ -120,47 +134,6 @@ public class MclModule extends ModuleImpl {
 		return result;
 	}
 
-	// The main routine altering as well as returning the transformed matrix.
-	private Matrix mcl(Matrix A, int l, double r) {
-		A = gamma(A, r);
-		A = power(A, l);
-
-		return A;
-	}
-
-	// The inflation step of MCL boosts big matrix entries in contrast to small
-	// ones, such that clusters can form
-	public Matrix gamma(Matrix A, double r) {
-
-		for (int i = 0; i < A.getRowDimension(); i++) {
-			double denom = 0;
-
-			for (int k = 0; k < A.getColumnDimension(); k++) {
-				denom = denom + Math.pow(A.get(i, k), r);
-			}
-
-			if (denom != 0) {
-				for (int j = 0; j < A.getColumnDimension(); j++) {
-					A.set(i, j, Math.pow(A.get(i, j), r) / denom);
-				}
-			}
-		}
-
-		return A;
-	}
-
-	// alters and returns the input matrix by multiplying it l-1 times with
-	// itself.
-	private Matrix power(Matrix A, int l) {
-		Matrix B = A.copy();
-
-		for (int i = 1; i < l; i++) {
-			A = A.times(B);
-		}
-
-		return A;
-	}
-
 	@Override
 	public void applyProperties() throws Exception {
 		// Set defaults for properties not yet set
@@ -179,6 +152,19 @@ public class MclModule extends ModuleImpl {
 		if (this.getProperties().getProperty(PROPERTYKEY_CSV_DELIMITER) != null) {
 			this.csvDelimiter = this.getProperties().getProperty(PROPERTYKEY_CSV_DELIMITER);
 		}
+		if (this.getProperties().getProperty(PROPERTYKEY_PRUNE_THRESHOLD) != null) {
+			this.pruneThreshold = Double.parseDouble(this.getProperties().getProperty(PROPERTYKEY_PRUNE_THRESHOLD));
+		}
+		if (this.getProperties().getProperty(PROPERTYKEY_PRUNE_TOP_K) != null) {
+			this.pruneTopK = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_PRUNE_TOP_K));
+		}
+		if (this.getProperties().getProperty(PROPERTYKEY_CONVERGENCE_THRESHOLD) != null) {
+			this.convergenceThreshold = Double
+					.parseDouble(this.getProperties().getProperty(PROPERTYKEY_CONVERGENCE_THRESHOLD));
+		}
+		if (this.getProperties().getProperty(PROPERTYKEY_MAXPARALLELTHREADS) != null) {
+			this.maxParallelThreads = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_MAXPARALLELTHREADS));
+		}
 
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
@@ -0,0 +1,377 @@
+package modules.matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import models.NamedFieldMatrix;
+
+/**
+ * Markov clustering on a square matrix kept in compressed sparse row form.
+ *
+ * Like the dense implementation this replaces, every row is treated as a
+ * distribution: The inflation step raises a row's values to the power of r
+ * and normalises them by the row's sum, the expansion step multiplies the
+ * matrix l-1 times with the inflated matrix. After each inflation entries
+ * below a threshold are dropped and only the largest entries of each row
+ * are kept, such that the matrix stays sparse. Iteration stops once no value
+ * changes by more than the convergence threshold or the maximum amount of
+ * iterations is reached.
+ */
+public class SparseMcl {
+
+	// the matrix dimension
+	private final int n;
+
+	// compressed sparse rows: the entries of row i are found at the indices
+	// rowStart[i] up to (excluding) rowStart[i+1] of cols and vals, ordered
+	// by column
+	private int[] rowStart;
+	private int[] cols;
+	private double[] vals;
+
+	private int iterationsRun = 0;
+
+	/**
+	 * Initialises the matrix from a dense array, zeros are not stored.
+	 *
+	 * @param values
+	 *            the square matrix
+	 * @throws IllegalArgumentException
+	 *             if the matrix is not square
+	 */
+	public SparseMcl(double[][] values) {
+		this.n = values.length;
+		this.rowStart = new int[n + 1];
+
+		int nonZero = 0;
+		for (int i = 0; i < n; i++) {
+			if (values[i].length != n) {
+				throw new IllegalArgumentException("The x and y dimensions of the matrix must agree.");
+			}
+			for (int j = 0; j < n; j++) {
+				if (values[i][j] != 0) {
+					nonZero++;
+				}
+			}
+		}
+
+		this.cols = new int[nonZero];
+		this.vals = new double[nonZero];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			rowStart[i] = k;
+			for (int j = 0; j < n; j++) {
+				if (values[i][j] != 0) {
+					cols[k] = j;
+					vals[k] = values[i][j];
+					k++;
+				}
+			}
+		}
+		rowStart[n] = k;
+	}
+
+	/**
+	 * Initialises the matrix from the values of a named field matrix other
+	 * than zero, reading it row by row (a sparsely stored matrix is not
+	 * converted to dense storage for this).
+	 *
+	 * @param matrix
+	 *            the square matrix
+	 * @throws IllegalArgumentException
+	 *             if the matrix is not square
+	 */
+	public SparseMcl(NamedFieldMatrix matrix) {
+		this.n = matrix.getRowAmount();
+		if (matrix.getColumnsAmount() != n) {
+			throw new IllegalArgumentException("The x and y dimensions of the matrix must agree.");
+		}
+		this.rowStart = new int[n + 1];
+		this.cols = new int[Math.max(16, n)];
+		this.vals = new double[cols.length];
+
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			rowStart[i] = k;
+			final int[] rowCols = matrix.getNonZeroColumns(i);
+			if (k + rowCols.length > cols.length) {
+				final int capacity = Math.max(cols.length * 2, k + rowCols.length);
+				cols = Arrays.copyOf(cols, capacity);
+				vals = Arrays.copyOf(vals, capacity);
+			}
+			for (int col : rowCols) {
+				cols[k] = col;
+				vals[k] = matrix.getValue(i, col);
+				k++;
+			}
+		}
+		rowStart[n] = k;
+		cols = Arrays.copyOf(cols, k);
+		vals = Arrays.copyOf(vals, k);
+	}
+
+	/**
+	 * Runs the clustering.
+	 *
+	 * @param maxIterations
+	 *            maximum amount of iterations
+	 * @param l
+	 *            the power the matrix is raised to in the expansion step
+	 * @param r
+	 *            the exponent of the inflation step
+	 * @param pruneThreshold
+	 *            entries smaller than this are dropped after inflation
+	 * @param pruneTopK
+	 *            the maximum amount of entries kept per row after inflation,
+	 *            0 keeps all
+	 * @param convergenceThreshold
+	 *            iteration stops once no entry changes by more than this
+	 * @param threads
+	 *            the amount of threads used for the expansion
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the expansion
+	 * @throws ExecutionException
+	 *             if the expansion failed
+	 */
+	public void run(int maxIterations, int l, double r, double pruneThreshold, int pruneTopK,
+			double convergenceThreshold, int threads) throws InterruptedException, ExecutionException {
+		threads = Math.max(1, threads);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (iterationsRun = 0; iterationsRun < maxIterations;) {
+				final int[] previousStart = rowStart;
+				final int[] previousCols = cols;
+				final double[] previousVals = vals;
+
+				inflateAndPrune(r, pruneThreshold, pruneTopK);
+
+				// expand, multiplying the inflated matrix l-1 times with
+				// itself
+				final int[] inflatedStart = rowStart;
+				final int[] inflatedCols = cols;
+				final double[] inflatedVals = vals;
+				for (int i = 1; i < l; i++) {
+					multiply(inflatedStart, inflatedCols, inflatedVals, executor, threads);
+				}
+
+				iterationsRun++;
+				if (maxDifference(previousStart, previousCols, previousVals) <= convergenceThreshold) {
+					break;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return The amount of iterations the last run took.
+	 */
+	public int getIterationsRun() {
+		return iterationsRun;
+	}
+
+	/**
+	 * @return The amount of entries currently stored.
+	 */
+	public int getNonZeroAmount() {
+		return rowStart[n];
+	}
+
+	/**
+	 * Writes the matrix' values into the given dense array, which is expected
+	 * to have the dimensions of the matrix given initially.
+	 *
+	 * @param values
+	 *            the array to write to
+	 */
+	public void writeTo(double[][] values) {
+		for (int i = 0; i < n; i++) {
+			Arrays.fill(values[i], 0d);
+			for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+				values[i][cols[k]] = vals[k];
+			}
+		}
+	}
+
+	/**
+	 * Writes the matrix' values into the given named field matrix row by row,
+	 * which is expected to have the dimensions of the matrix given initially
+	 * and to hold no values yet (e.g. one created by
+	 * NamedFieldMatrix.withNamesOf()).
+	 *
+	 * @param matrix
+	 *            the matrix to write to
+	 */
+	public void writeTo(NamedFieldMatrix matrix) {
+		for (int i = 0; i < n; i++) {
+			for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+				matrix.setValue(i, cols[k], vals[k]);
+			}
+		}
+	}
+
+	// Raises each entry to the power of r and normalises the rows, then drops
+	// small entries and renormalises the rows left with fewer entries. The
+	// result is written to new arrays, the current ones are left unchanged.
+	private void inflateAndPrune(double r, double pruneThreshold, int pruneTopK) {
+		final int[] newStart = new int[n + 1];
+		final int[] newCols = new int[rowStart[n]];
+		final double[] newVals = new double[rowStart[n]];
+		final double[] row = new double[n];
+
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			final int from = rowStart[i];
+			final int length = rowStart[i + 1] - from;
+			newStart[i] = k;
+
+			double sum = 0;
+			for (int j = 0; j < length; j++) {
+				final double value = vals[from + j];
+				row[j] = (r == 2d) ? value * value : Math.pow(value, r);
+				sum += row[j];
+			}
+			// rows summing up to zero are left untouched
+			if (sum == 0) {
+				System.arraycopy(cols, from, newCols, k, length);
+				System.arraycopy(row, 0, newVals, k, length);
+				k += length;
+				continue;
+			}
+
+			// the lowest value kept, raised if the row has to be cut to the
+			// top k entries
+			double minKept = pruneThreshold * sum;
+			if (pruneTopK > 0 && length > pruneTopK) {
+				final double[] sorted = Arrays.copyOf(row, length);
+				Arrays.sort(sorted);
+				minKept = Math.max(minKept, sorted[length - pruneTopK]);
+			}
+
+			double keptSum = 0;
+			int kept = 0;
+			for (int j = 0; j < length; j++) {
+				if (row[j] != 0 && row[j] >= minKept && (pruneTopK <= 0 || kept < pruneTopK)) {
+					newCols[k + kept] = cols[from + j];
+					newVals[k + kept] = row[j];
+					keptSum += row[j];
+					kept++;
+				}
+			}
+			for (int j = k; j < k + kept; j++) {
+				newVals[j] /= keptSum;
+			}
+			k += kept;
+		}
+		newStart[n] = k;
+
+		this.rowStart = newStart;
+		this.cols = (k == newCols.length) ? newCols : Arrays.copyOf(newCols, k);
+		this.vals = (k == newVals.length) ? newVals : Arrays.copyOf(newVals, k);
+	}
+
+	// Replaces the current matrix by its product with the given one. Rows are
+	// computed in parallel, every worker takes every threads-th row.
+	private void multiply(final int[] bStart, final int[] bCols, final double[] bVals, ExecutorService executor,
+			final int threads) throws InterruptedException, ExecutionException {
+		final int[][] resultCols = new int[n][];
+		final double[][] resultVals = new double[n][];
+
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < threads; t++) {
+			final int offset = t;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					// dense accumulator for a single row, the columns used are
+					// noted to reset and collect them afterwards
+					final double[] accumulator = new double[n];
+					final boolean[] used = new boolean[n];
+					int[] usedCols = new int[16];
+
+					for (int i = offset; i < n; i += threads) {
+						int usedAmount = 0;
+						for (int a = rowStart[i]; a < rowStart[i + 1]; a++) {
+							final int k = cols[a];
+							final double value = vals[a];
+							for (int b = bStart[k]; b < bStart[k + 1]; b++) {
+								final int j = bCols[b];
+								if (!used[j]) {
+									used[j] = true;
+									if (usedAmount == usedCols.length) {
+										usedCols = Arrays.copyOf(usedCols, usedAmount * 2);
+									}
+									usedCols[usedAmount++] = j;
+								}
+								accumulator[j] += value * bVals[b];
+							}
+						}
+
+						Arrays.sort(usedCols, 0, usedAmount);
+						final int[] rowCols = Arrays.copyOf(usedCols, usedAmount);
+						final double[] rowVals = new double[usedAmount];
+						for (int c = 0; c < usedAmount; c++) {
+							final int j = rowCols[c];
+							rowVals[c] = accumulator[j];
+							accumulator[j] = 0;
+							used[j] = false;
+						}
+						resultCols[i] = rowCols;
+						resultVals[i] = rowVals;
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+
+		// assemble the rows
+		final int[] newStart = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			newStart[i + 1] = newStart[i] + resultCols[i].length;
+		}
+		final int[] newCols = new int[newStart[n]];
+		final double[] newVals = new double[newStart[n]];
+		for (int i = 0; i < n; i++) {
+			System.arraycopy(resultCols[i], 0, newCols, newStart[i], resultCols[i].length);
+			System.arraycopy(resultVals[i], 0, newVals, newStart[i], resultVals[i].length);
+		}
+		this.rowStart = newStart;
+		this.cols = newCols;
+		this.vals = newVals;
+	}
+
+	// The largest absolute difference between an entry of the current matrix
+	// and the given one, both with rows ordered by column
+	private double maxDifference(int[] otherStart, int[] otherCols, double[] otherVals) {
+		double max = 0;
+		for (int i = 0; i < n; i++) {
+			int a = rowStart[i];
+			int b = otherStart[i];
+			final int aEnd = rowStart[i + 1];
+			final int bEnd = otherStart[i + 1];
+			while (a < aEnd || b < bEnd) {
+				final double difference;
+				if (b == bEnd || (a < aEnd && cols[a] < otherCols[b])) {
+					difference = vals[a++];
+				} else if (a == aEnd || otherCols[b] < cols[a]) {
+					difference = otherVals[b++];
+				} else {
+					difference = vals[a++] - otherVals[b++];
+				}
+				max = Math.max(max, Math.abs(difference));
+			}
+		}
+		return max;
+	}
+
+}
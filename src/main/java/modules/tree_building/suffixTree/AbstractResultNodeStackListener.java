@@ -1,25 +1,32 @@
 package modules.tree_building.suffixTree;
 
 import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Stack;
 
 public abstract class AbstractResultNodeStackListener implements ITreeWalkerListener {
 
 	// the SuffixTree being traversed
 	private final BaseSuffixTree tree;
 
-	// a node stack to push the nodes on as we traverse the tree
-	private final Stack<Node> nodes;
+	// a node stack to push the nodes on as we traverse the tree and a
+	// read-only view of it handed out to the child class
+	private final ArrayList<Node> nodes;
+	private final List<Node> nodesView;
 
-	// keep a stack of all edge strings for the whole path to be readily
-	// available
-	private final Stack<String> edges;
+	// the lengths of the edges on the path, the labels themselves are only
+	// looked up in the tree's text on request
+	private int[] edgeLengths = new int[64];
 
 	// while iterating the tree keeps track of the current path's length
 	private int pathLength = 0;
 
+	// whether this listener notes the leaves of each node in it's parent
+	private boolean propagateLeaves = true;
+
 	/**
 	 * An initialiser for subclasses to setup all necessary variables.
 	 * 
@@ -28,13 +35,13 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 	 */
 	public AbstractResultNodeStackListener(BaseSuffixTree tree) {
 		this.tree = tree;
-		this.nodes = new Stack<Node>();
-		this.edges = new Stack<String>();
+		this.nodes = new ArrayList<Node>();
+		this.nodesView = Collections.unmodifiableList(this.nodes);
 	}
 
 	/**
 	 * On the entry action, the node is pushed on the stack as well as the
-	 * node's edge string. Thereby, if the tree is traversed in depth-first
+	 * length of the node's edge. Thereby, if the tree is traversed in depth-first
 	 * order, the stacks contain the full path of nodes and edges to the current
 	 * node on the exit action.
 	 * 
@@ -44,13 +51,17 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 	 */
 	@Override
 	public void entryaction(int nodeNr, int level) throws IOException {
-		nodes.push(tree.getNode(nodeNr));
-
-		final String edge = tree.edgeString(nodeNr);
+		final Node node = tree.getNode(nodeNr);
+		final int depth = nodes.size();
+		nodes.add(node);
 
-		edges.push(edge);
-		pathLength += edge.length();
-		tree.getNode(nodeNr).setPathLength(pathLength);
+		if (depth == edgeLengths.length) {
+			edgeLengths = Arrays.copyOf(edgeLengths, depth * 2);
+		}
+		final int edgeLength = tree.edgeEnd(nodeNr) - tree.edgeStart(nodeNr);
+		edgeLengths[depth] = edgeLength;
+		pathLength += edgeLength;
+		node.setPathLength(pathLength);
 	}
 
 	/**
@@ -63,7 +74,8 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 	public void exitaction(int nodeNr, int level) throws IOException {
 		// get the current node, it's parent is on top of the stack after
 		// removing the current node
-		final Node node = nodes.pop();
+		final int depth = nodes.size() - 1;
+		final Node node = nodes.remove(depth);
 		final Node parent;
 
 		// invariant check, compare the stacked node to the one given by nodeNr
@@ -73,10 +85,10 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 		}
 
 		// let the child class do it's work
-		process(nodeNr, Collections.unmodifiableList(nodes), pathLength, level);
+		process(nodeNr, nodesView, pathLength, level);
 
-		if (nodeNr != tree.getRoot()) {
-			parent = nodes.peek();
+		if (nodeNr != tree.getRoot() && this.propagateLeaves) {
+			parent = nodes.get(depth - 1);
 
 			// propagate leaf nodes from this node to the parent if any are
 			// present
@@ -90,19 +102,40 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 		}
 
 		// fully reverse the entry actions effects
-		final String edge = edges.pop();
-		this.pathLength -= edge.length();
+		this.pathLength -= edgeLengths[depth];
+	}
+
+	/**
+	 * Sets whether this listener notes the leaves below each node in the
+	 * node's parent. If several listeners are driven by the same walk, only
+	 * one of them needs to do that, as the leaves are kept in the nodes.
+	 * 
+	 * @param propagateLeaves
+	 *            whether to propagate leaves (the default)
+	 */
+	public void setPropagateLeaves(boolean propagateLeaves) {
+		this.propagateLeaves = propagateLeaves;
 	}
 
 	// exposes the stack of nodes to the child class read-only
 	protected List<Node> getNodes() {
-		return Collections.unmodifiableList(nodes);
+		return nodesView;
 	}
 
-	// exposes the stack of edges to the child class read-only
-	// TODO This should be needed soon. But make sure it really is used.
+	// exposes the edges of the path to the child class read-only, the labels
+	// are only looked up in the tree's text when asked for
 	protected List<String> getEdges() {
-		return Collections.unmodifiableList(edges);
+		return new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				return tree.edgeString(nodes.get(index).getNr());
+			}
+
+			@Override
+			public int size() {
+				return nodes.size();
+			}
+		};
 	}
 
 	/**
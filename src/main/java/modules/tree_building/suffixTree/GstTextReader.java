@@ -0,0 +1,66 @@
+package modules.tree_building.suffixTree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads the input of a generalised suffix tree one text (up to and including
+ * the terminating '$') at a time. Lines are joined as they always were: a line
+ * is appended directly if it ends on '$', else it is separated from the
+ * previous input by a blank.
+ */
+class GstTextReader {
+
+	private final BufferedReader in;
+	private String line = null;
+	private int lineIdx = 0;
+	private boolean firstLine = true;
+
+	// the text read last
+	char[] chars = new char[256];
+	int length = 0;
+	boolean terminated = false;
+
+	GstTextReader(Reader inputReader) {
+		this.in = new BufferedReader(inputReader);
+	}
+
+	// returns the next input char or -1 at the end of input
+	private int read() throws IOException {
+		while (this.line == null || this.lineIdx > this.line.length()) {
+			this.line = this.in.readLine();
+			if (this.line == null)
+				return -1;
+			if (this.firstLine || (this.line.length() > 0 && this.line.charAt(this.line.length() - 1) == '$')) {
+				this.lineIdx = 1;
+			} else {
+				this.lineIdx = 0;
+			}
+			this.firstLine = false;
+		}
+		// index 0 stands for the blank separating the line from the previous one
+		final int result = (this.lineIdx == 0) ? ' ' : this.line.charAt(this.lineIdx - 1);
+		this.lineIdx++;
+		return result;
+	}
+
+	// reads the next text, returns false if the input is exhausted
+	boolean readText() throws IOException {
+		this.length = 0;
+		this.terminated = false;
+		int c;
+		while (!this.terminated && (c = this.read()) != -1) {
+			if (this.length == this.chars.length)
+				this.chars = Arrays.copyOf(this.chars, this.length * 2);
+			this.chars[this.length++] = (char) c;
+			this.terminated = (c == '$');
+		}
+		return this.length > 0;
+	}
+
+	void close() throws IOException {
+		this.in.close();
+	}
+}
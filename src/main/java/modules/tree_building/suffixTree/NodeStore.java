@@ -0,0 +1,397 @@
+package modules.tree_building.suffixTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the nodes of a suffix tree in parallel primitive arrays instead of
+ * one object graph per node. A node is identified by its index in these
+ * arrays, node numbers start at 1.
+ *
+ * The first position of a node (start, end, textNr and type context) is
+ * stored inline. Further positions, which only terminal nodes of a
+ * generalised suffix tree have, are kept in a second set of arrays, in one
+ * block per node that is moved to a block of twice the size once it is full.
+ * So they can be accessed by index.
+ *
+ * Children are kept as a list of siblings sorted by their edge begin, so that
+ * they can be iterated in order. Looking up the child for an edge begin is
+ * done in an open-addressing hash table keyed by node number and char.
+ */
+final class NodeStore implements TreeNodes {
+
+	// Marks the absence of a child, sibling or further position
+	static final int NONE = -1;
+
+	// Per node
+	private int[] start;
+	private int[] end;
+	private int[] textNr;
+	private int[] typeContext;
+	private int[] link;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] morePositions;
+	private int[] morePositionsAmount;
+	private char[] edgeBegin;
+	private int size = 0;
+
+	// Further positions of terminal nodes, in blocks of a power of two entries
+	private int[] posStart = new int[16];
+	private int[] posEnd = new int[16];
+	private int[] posTextNr = new int[16];
+	private int[] posTypeContext = new int[16];
+	private int posSize = 0;
+
+	// Shared ends of the leaves of each text. Node ends referencing these are
+	// stored as -(index + 2), since the root's end is -1.
+	private NodePositionEnd[] ends = new NodePositionEnd[4];
+	private int endsSize = 0;
+
+	// Child table: keys are (node << 16 | edge begin), -1 marks a free slot
+	private long[] childKeys;
+	private int[] childValues;
+	private int childBits;
+	private int childSize = 0;
+
+	NodeStore(int expectedNodes) {
+		final int capacity = Math.max(expectedNodes, 16);
+		this.start = new int[capacity];
+		this.end = new int[capacity];
+		this.textNr = new int[capacity];
+		this.typeContext = new int[capacity];
+		this.link = new int[capacity];
+		this.firstChild = new int[capacity];
+		this.nextSibling = new int[capacity];
+		this.morePositions = new int[capacity];
+		this.morePositionsAmount = new int[capacity];
+		this.edgeBegin = new char[capacity];
+
+		// Keep the load factor of the child table below one half
+		this.childBits = 32 - Integer.numberOfLeadingZeros(capacity);
+		this.childKeys = new long[1 << this.childBits];
+		Arrays.fill(this.childKeys, -1l);
+		this.childValues = new int[1 << this.childBits];
+	}
+
+	/**
+	 * Registers an end shared by several leaves.
+	 * @param sharedEnd End
+	 * @return Reference to use as end value in {@link #newNode} and {@link #addPosition}
+	 */
+	int addEnd(NodePositionEnd sharedEnd) {
+		if (this.endsSize == this.ends.length)
+			this.ends = Arrays.copyOf(this.ends, this.endsSize * 2);
+		this.ends[this.endsSize] = sharedEnd;
+		return -(this.endsSize++ + 2);
+	}
+
+	int newNode(int start, int end, int textNr, int typeContext) {
+		final int node = ++this.size;
+		if (node == this.start.length)
+			this.growNodes();
+		this.start[node] = start;
+		this.end[node] = end;
+		this.textNr[node] = textNr;
+		this.typeContext[node] = typeContext;
+		this.firstChild[node] = NONE;
+		this.nextSibling[node] = NONE;
+		this.morePositions[node] = NONE;
+		this.morePositionsAmount[node] = 0;
+		return node;
+	}
+
+	private void growNodes() {
+		final int capacity = this.start.length + (this.start.length >> 1);
+		this.start = Arrays.copyOf(this.start, capacity);
+		this.end = Arrays.copyOf(this.end, capacity);
+		this.textNr = Arrays.copyOf(this.textNr, capacity);
+		this.typeContext = Arrays.copyOf(this.typeContext, capacity);
+		this.link = Arrays.copyOf(this.link, capacity);
+		this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+		this.nextSibling = Arrays.copyOf(this.nextSibling, capacity);
+		this.morePositions = Arrays.copyOf(this.morePositions, capacity);
+		this.morePositionsAmount = Arrays.copyOf(this.morePositionsAmount, capacity);
+		this.edgeBegin = Arrays.copyOf(this.edgeBegin, capacity);
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	// Positions
+
+	void addPosition(int node, int start, int end, int textNr, int typeContext) {
+		// make sure that the position added is never equal to the last position set
+		int block = this.morePositions[node];
+		final int amount = this.morePositionsAmount[node];
+		final boolean equal;
+		if (amount == 0) {
+			equal = this.start[node] == start && this.resolve(this.end[node]) == this.resolve(end)
+					&& this.textNr[node] == textNr;
+		} else {
+			final int last = block + amount - 1;
+			equal = this.posStart[last] == start && this.resolve(this.posEnd[last]) == this.resolve(end)
+					&& this.posTextNr[last] == textNr;
+		}
+		if (equal) {
+			throw new IllegalStateException(
+					"addPos equal entry start: " + start + " end: " + this.resolve(end) + " textNr: " + textNr);
+		}
+
+		if (amount == 0) {
+			block = this.allocatePositions(2);
+			this.morePositions[node] = block;
+		} else if (amount >= 2 && (amount & (amount - 1)) == 0) {
+			// the block is full, move it to one of twice the size
+			final int moved = this.allocatePositions(amount * 2);
+			System.arraycopy(this.posStart, block, this.posStart, moved, amount);
+			System.arraycopy(this.posEnd, block, this.posEnd, moved, amount);
+			System.arraycopy(this.posTextNr, block, this.posTextNr, moved, amount);
+			System.arraycopy(this.posTypeContext, block, this.posTypeContext, moved, amount);
+			block = moved;
+			this.morePositions[node] = block;
+		}
+		final int entry = block + amount;
+		this.posStart[entry] = start;
+		this.posEnd[entry] = end;
+		this.posTextNr[entry] = textNr;
+		this.posTypeContext[entry] = typeContext;
+		this.morePositionsAmount[node] = amount + 1;
+	}
+
+	// Returns the first entry of a new block of further positions
+	private int allocatePositions(int length) {
+		if (this.posSize + length > this.posStart.length) {
+			final int capacity = Math.max(this.posStart.length * 2, this.posSize + length);
+			this.posStart = Arrays.copyOf(this.posStart, capacity);
+			this.posEnd = Arrays.copyOf(this.posEnd, capacity);
+			this.posTextNr = Arrays.copyOf(this.posTextNr, capacity);
+			this.posTypeContext = Arrays.copyOf(this.posTypeContext, capacity);
+		}
+		final int block = this.posSize;
+		this.posSize += length;
+		return block;
+	}
+
+	@Override
+	public int getPositionsAmount(int node) {
+		return 1 + this.morePositionsAmount[node];
+	}
+
+	// Returns the entry of the further position for pos > 0
+	private int entry(int node, int pos) {
+		if (pos > this.morePositionsAmount[node])
+			throw new IndexOutOfBoundsException("Node " + node + " has no position " + pos);
+		return this.morePositions[node] + pos - 1;
+	}
+
+	@Override
+	public int getStart(int node, int pos) {
+		return pos == 0 ? this.start[node] : this.posStart[this.entry(node, pos)];
+	}
+
+	@Override
+	public int getEnd(int node, int pos) {
+		return this.resolve(pos == 0 ? this.end[node] : this.posEnd[this.entry(node, pos)]);
+	}
+
+	@Override
+	public int getTextNr(int node, int pos) {
+		return pos == 0 ? this.textNr[node] : this.posTextNr[this.entry(node, pos)];
+	}
+
+	@Override
+	public int getTypeContext(int node, int pos) {
+		return pos == 0 ? this.typeContext[node] : this.posTypeContext[this.entry(node, pos)];
+	}
+
+	// Returns the shared end object for leaves, a new one for fixed ends
+	NodePositionEnd getEndObject(int node, int pos) {
+		final int end = pos == 0 ? this.end[node] : this.posEnd[this.entry(node, pos)];
+		return end < -1 ? this.ends[-end - 2] : new NodePositionEnd(end);
+	}
+
+	// Returns all positions of the node in one pass over the chain
+	@Override
+	public List<NodePosition> getPositions(int node) {
+		final List<NodePosition> positions = new ArrayList<NodePosition>(2);
+		positions.add(new NodePosition(this.start[node], this.getEndObject(node, 0), this.textNr[node],
+				this.typeContext[node]));
+		final int block = this.morePositions[node];
+		for (int entry = block; entry < block + this.morePositionsAmount[node]; entry++) {
+			final int end = this.posEnd[entry];
+			positions.add(new NodePosition(this.posStart[entry],
+					end < -1 ? this.ends[-end - 2] : new NodePositionEnd(end), this.posTextNr[entry],
+					this.posTypeContext[entry]));
+		}
+		return positions;
+	}
+
+	private int resolve(int end) {
+		return end < -1 ? this.ends[-end - 2].val : end;
+	}
+
+	// if a node is split and if it represents more than one text, all start positions in
+	// the position list of a node must be updated by active_length
+	void updateStartPositions(int node, int activeLength) {
+		this.start[node] += activeLength;
+		final int block = this.morePositions[node];
+		for (int entry = block; entry < block + this.morePositionsAmount[node]; entry++)
+			this.posStart[entry] += activeLength;
+	}
+
+	// Edge length of the node given the current position in the text
+	@Override
+	public int edgeLength(int node, int position) {
+		return Math.min(this.resolve(this.end[node]), position + 1) - this.start[node];
+	}
+
+	@Override
+	public int getLink(int node) {
+		return this.link[node];
+	}
+
+	void setLink(int node, int target) {
+		this.link[node] = target;
+	}
+
+	// Children
+
+	@Override
+	public boolean isTerminal(int node) {
+		return this.firstChild[node] == NONE;
+	}
+
+	@Override
+	public int firstChild(int node) {
+		return this.firstChild[node];
+	}
+
+	@Override
+	public int nextSibling(int node) {
+		return this.nextSibling[node];
+	}
+
+	@Override
+	public char edgeBegin(int node) {
+		return this.edgeBegin[node];
+	}
+
+	int childAmount(int node) {
+		int amount = 0;
+		for (int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child])
+			amount++;
+		return amount;
+	}
+
+	/**
+	 * Returns the child reached by the edge beginning with c.
+	 * @param node Parent node
+	 * @param c Edge begin
+	 * @return Child node or {@link #NONE}
+	 */
+	@Override
+	public int getChild(int node, char c) {
+		final long key = key(node, c);
+		for (int slot = this.slot(key);; slot = (slot + 1) & ((1 << this.childBits) - 1)) {
+			if (this.childKeys[slot] == key)
+				return this.childValues[slot];
+			if (this.childKeys[slot] == -1l)
+				return NONE;
+		}
+	}
+
+	/**
+	 * Sets the child reached by the edge beginning with c, replacing the
+	 * child previously set for c (if any) at the same place among its
+	 * siblings.
+	 * @param node Parent node
+	 * @param c Edge begin
+	 * @param child Child node
+	 */
+	void putChild(int node, char c, int child) {
+		final long key = key(node, c);
+		int slot = this.slot(key);
+		while (this.childKeys[slot] != -1l && this.childKeys[slot] != key)
+			slot = (slot + 1) & ((1 << this.childBits) - 1);
+
+		this.edgeBegin[child] = c;
+		if (this.childKeys[slot] == key) {
+			// replace the old child in the sibling list
+			final int old = this.childValues[slot];
+			this.childValues[slot] = child;
+			this.nextSibling[child] = this.nextSibling[old];
+			this.nextSibling[old] = NONE;
+			if (this.firstChild[node] == old) {
+				this.firstChild[node] = child;
+			} else {
+				int previous = this.firstChild[node];
+				while (this.nextSibling[previous] != old)
+					previous = this.nextSibling[previous];
+				this.nextSibling[previous] = child;
+			}
+			return;
+		}
+
+		this.childKeys[slot] = key;
+		this.childValues[slot] = child;
+		if (++this.childSize > (1 << this.childBits) >> 1)
+			this.growChildTable();
+
+		// insert into the sibling list sorted by edge begin
+		int previous = NONE;
+		int current = this.firstChild[node];
+		while (current != NONE && this.edgeBegin[current] < c) {
+			previous = current;
+			current = this.nextSibling[current];
+		}
+		this.nextSibling[child] = current;
+		if (previous == NONE) {
+			this.firstChild[node] = child;
+		} else {
+			this.nextSibling[previous] = child;
+		}
+	}
+
+	private static long key(int node, char c) {
+		return ((long) node << 16) | c;
+	}
+
+	private int slot(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15l) >>> (64 - this.childBits));
+	}
+
+	private void growChildTable() {
+		final long[] keys = this.childKeys;
+		final int[] values = this.childValues;
+		this.childBits++;
+		this.childKeys = new long[1 << this.childBits];
+		Arrays.fill(this.childKeys, -1l);
+		this.childValues = new int[1 << this.childBits];
+		final int mask = (1 << this.childBits) - 1;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == -1l)
+				continue;
+			int slot = this.slot(keys[i]);
+			while (this.childKeys[slot] != -1l)
+				slot = (slot + 1) & mask;
+			this.childKeys[slot] = keys[i];
+			this.childValues[slot] = values[i];
+		}
+	}
+
+	/**
+	 * @return The amount of memory held by the arrays of this store in bytes
+	 */
+	@Override
+	public long memoryBytes() {
+		final long nodeBytes = (long) this.start.length * (9 * 4 + 2);
+		final long positionBytes = (long) this.posStart.length * 4 * 4;
+		final long childBytes = (long) this.childKeys.length * (8 + 4);
+		return nodeBytes + positionBytes + childBytes + (long) this.ends.length * 4;
+	}
+
+}
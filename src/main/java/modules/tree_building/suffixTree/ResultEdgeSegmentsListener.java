@@ -1,7 +1,8 @@
 package modules.tree_building.suffixTree;
 
 import java.io.IOException;
-import java.util.Stack;
+import java.io.Writer;
+import java.util.Arrays;
 
 import modules.OutputPort;
 
@@ -12,20 +13,30 @@ public class ResultEdgeSegmentsListener implements ITreeWalkerListener {
 
 	private final BaseSuffixTree tree;
 
-	private final OutputPort out;
+	private final Writer out;
 
-	private final Stack<String> edges;
+	// the begin and end of each edge on the path, the labels are written
+	// straight from the tree's text
+	private int[] edgeStarts = new int[64];
+	private int[] edgeEnds = new int[64];
+	private int depth = 0;
+
+	// the amount of chars on the path
+	private int pathLength = 0;
 
 	public ResultEdgeSegmentsListener(BaseSuffixTree tree, OutputPort out) {
+		this(tree, out.asCharWriter());
+	}
+
+	public ResultEdgeSegmentsListener(BaseSuffixTree tree, Writer out) {
 		this.tree = tree;
 		this.out = out;
-		this.edges = new Stack<String>();
 	}
 
 	/**
-	 * On the entry action, the current edge string is pushed on the edges'
-	 * stack. This ensures, that on the exit action the full path up to the
-	 * (then) current node will be present on the stack.
+	 * On the entry action, the current edge's begin and end are pushed on the
+	 * edges' stack. This ensures, that on the exit action the full path up to
+	 * the (then) current node will be present on the stack.
 	 * 
 	 * NOTE: This assumes depth-first traversal of the tree in the tree walker.
 	 * 
@@ -37,7 +48,14 @@ public class ResultEdgeSegmentsListener implements ITreeWalkerListener {
 	@Override
 	public void entryaction(int nodeNr, int level) throws IOException {
 		if (!(this.tree.getRoot() == nodeNr)) {
-			this.edges.push(this.tree.edgeString(nodeNr));
+			if (this.depth == this.edgeStarts.length) {
+				this.edgeStarts = Arrays.copyOf(this.edgeStarts, this.depth * 2);
+				this.edgeEnds = Arrays.copyOf(this.edgeEnds, this.depth * 2);
+			}
+			this.edgeStarts[this.depth] = this.tree.edgeStart(nodeNr);
+			this.edgeEnds[this.depth] = this.tree.edgeEnd(nodeNr);
+			this.pathLength += this.edgeEnds[this.depth] - this.edgeStarts[this.depth];
+			this.depth++;
 		}
 	}
 
@@ -64,24 +82,46 @@ public class ResultEdgeSegmentsListener implements ITreeWalkerListener {
 		final Node node = tree.getNode(nodeNr);
 
 		if (node.isTerminal()) {
-			final String path = String.join("", edges);
 			// check that the node is not only terminal but represents at least
 			// one full input text (i.e. is not a suffix)
 			for (int i = 0; i < node.getPositionsAmount(); i++) {
-				// string equality checking of the path at the terminal node
-				// is necessary because for the starting (inner) nodes only
-				// one position's textNr is noted. Thus there is no way to
+				// comparing the path's chars with the text at the terminal
+				// node is necessary because for the starting (inner) nodes
+				// only one position's textNr is noted. Thus there is no way to
 				// simply check for integer equality of the text's begin and the
 				// starting node's begin
-				if (path.equals(tree.getInputText(node.getTextNr(i)))) {
+				if (this.isInputText(node.getTextNr(i))) {
 					// actually write the output
-					out.outputToAllCharPipes(String.join(SEPARATOR, edges) + System.lineSeparator());
+					for (int e = 0; e < this.depth; e++) {
+						if (e > 0) {
+							out.write(SEPARATOR);
+						}
+						out.write(tree.text, this.edgeStarts[e], this.edgeEnds[e] - this.edgeStarts[e]);
+					}
+					out.write(System.lineSeparator());
 					break;
 				}
 			}
 		}
 
-		edges.pop();
+		this.depth--;
+		this.pathLength -= this.edgeEnds[this.depth] - this.edgeStarts[this.depth];
+	}
+
+	// whether the path's chars are the ones of the input text
+	private boolean isInputText(int textNr) {
+		int k = tree.getTextBegin(textNr);
+		if (tree.getTextEnd(textNr) + 1 - k != this.pathLength) {
+			return false;
+		}
+		for (int e = 0; e < this.depth; e++) {
+			for (int c = this.edgeStarts[e]; c < this.edgeEnds[e]; c++) {
+				if (tree.text[c] != tree.text[k++]) {
+					return false;
+				}
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -91,7 +131,7 @@ public class ResultEdgeSegmentsListener implements ITreeWalkerListener {
 	 * @return true or false
 	 */
 	public boolean hasCompleted() {
-		return edges.empty();
+		return this.depth == 0;
 	}
 
 }
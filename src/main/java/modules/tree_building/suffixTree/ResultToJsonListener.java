@@ -1,11 +1,9 @@
 package modules.tree_building.suffixTree;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.util.List;
-import java.util.logging.Logger;
 
 import com.google.gson.stream.JsonWriter;
 
@@ -13,34 +11,34 @@ import modules.OutputPort;
 
 public class ResultToJsonListener extends AbstractResultNodeStackListener {
 
-	private static final Logger LOGGER = Logger.getLogger(ResultToJsonListener.class.getName());
-
-	private static final String ENCODING = java.nio.charset.StandardCharsets.UTF_8.name();
-
-	// the OutputPort to write to
+	// the OutputPort to close when finished, null if writing to a writer
 	private final OutputPort outputPort;
 
 	// the suffix tree this will work on
 	private final BaseSuffixTree tree;
 
-	// variables needed internally to write the Json representation
-	private final ByteArrayOutputStream outputStream;
-	private JsonWriter writer;
+	// the Json representation is written through a bounded buffer straight to
+	// the output port
+	private final JsonWriter writer;
 	private boolean wroteBegin = false;
 
 	public ResultToJsonListener(BaseSuffixTree suffixTree, OutputPort outputPort) {
+		this(suffixTree, outputPort.asCharWriter(), outputPort);
+	}
+
+	// writes the Json representation to the writer, which is closed when
+	// finished
+	public ResultToJsonListener(BaseSuffixTree suffixTree, Writer out) {
+		this(suffixTree, out, null);
+	}
+
+	private ResultToJsonListener(BaseSuffixTree suffixTree, Writer out, OutputPort outputPort) {
 		super(suffixTree);
 
 		this.tree = suffixTree;
 		this.outputPort = outputPort;
 
-		this.outputStream = new ByteArrayOutputStream();
-		try {
-			this.writer = new JsonWriter(new OutputStreamWriter(this.outputStream, ENCODING));
-		} catch (UnsupportedEncodingException e) {
-			LOGGER.severe("Encoding " + ENCODING + "not supported.");
-			e.printStackTrace();
-		}
+		this.writer = new JsonWriter(new BufferedWriter(out));
 		this.writer.setIndent("  ");
 	}
 
@@ -85,10 +83,9 @@ public class ResultToJsonListener extends AbstractResultNodeStackListener {
 
 		writer.name("frequency").value(frequency);
 
-		// end writing of the NodeRepresentation and flush everything to the
-		// output port
+		// end writing of the NodeRepresentation, the buffer passes it on to the
+		// output port once full
 		writer.endObject();
-		this.flushOutput();
 	}
 
 	private void writePatternInfo(Node leaf, NodePosition position) throws IOException {
@@ -116,13 +113,11 @@ public class ResultToJsonListener extends AbstractResultNodeStackListener {
 		this.writer.endArray();
 		this.writer.endObject();
 
-		// write everything out
-		this.flushOutput();
-
-		// close all opened streams and ports
-		this.outputStream.close();
+		// write out what is left in the buffer and close all ports
 		this.writer.close();
-		this.outputPort.close();
+		if (this.outputPort != null) {
+			this.outputPort.close();
+		}
 	}
 
 	/**
@@ -143,22 +138,8 @@ public class ResultToJsonListener extends AbstractResultNodeStackListener {
 		writer.name("nodeCount").value(tree.getNodeAmount());
 		writer.name("nodes");
 		writer.beginArray();
-		flushOutput();
 
 		wroteBegin = true;
 	}
 
-	/**
-	 * used internally to output changes in the writer's stream to the
-	 * outputPort
-	 * 
-	 * @throws IOException
-	 */
-	private void flushOutput() throws IOException {
-		writer.flush();
-		final String jsonOut = outputStream.toString(ENCODING);
-		outputPort.outputToAllCharPipes(jsonOut);
-		outputStream.reset();
-	}
-
 }
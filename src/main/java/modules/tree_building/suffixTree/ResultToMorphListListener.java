@@ -36,7 +36,7 @@ public class ResultToMorphListListener  implements ITreeWalkerListener{
 		this.nodeNrs = new Stack<Integer>();
 		
 		this.inverted = inverted;
-		this.nodesWholePhrases=new int[this.tree.nodes.length];
+		this.nodesWholePhrases=new int[this.tree.getNodeAmount() + 1];
 		
 		this.words = new ArrayList<Word>();
 		
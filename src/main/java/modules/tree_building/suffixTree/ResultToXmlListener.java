@@ -1,5 +1,6 @@
 package modules.tree_building.suffixTree;
 
+import java.io.IOException;
 import java.util.List;
 
 import common.XmlPrintWriter;
@@ -137,10 +138,16 @@ public class ResultToXmlListener extends AbstractResultNodeStackListener {
 
 	/**
 	 * Closes all tags as well as the provided writer.
+	 * 
+	 * @throws IOException
+	 *             if the writer failed at any point while writing
 	 */
-	public void finishWriting() {
+	public void finishWriting() throws IOException {
 		out.printTag("output", false, 0, true);
 		out.close();
+		if (out.checkError()) {
+			throw new IOException("Failed to write the XML representation of the tree.");
+		}
 	}
 
 }
@@ -0,0 +1,310 @@
+package modules.tree_building.suffixTree;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Builds a generalised suffix tree from an enhanced suffix array instead of
+ * using Ukkonen's algorithm (as GST does).
+ *
+ * The suffix array is constructed in linear time by SA-IS over an int
+ * alphabet, in which every text's '$' gets its own symbol. The LCP array is
+ * computed by Kasai's algorithm, comparing suffixes only up to their text's
+ * '$'. The nodes of the tree are not built: SuffixArrayNodes numbers the
+ * lcp-intervals and answers for them from the suffix array and the text, such
+ * that the nodes take less memory than GST's node store. The resulting
+ * SuffixTree has the same paths and leaf positions as one built by GST, so
+ * all listeners run on it unchanged. Only the node numbering and the position
+ * noted for inner nodes may differ. The tree has no suffix links and cannot
+ * be extended by further texts.
+ *
+ * Every text has to be terminated by '$'.
+ */
+public class SuffixArrayGST {
+
+	// class should not be instantiated
+	private SuffixArrayGST() {
+	}
+
+	public static SuffixTree buildGST(Reader inputReader, List<Integer> typeContextEndIndices) throws Exception {
+		final GstTextReader in = new GstTextReader(inputReader);
+		final SuffixTree st = new SuffixTree(1 << 12);
+
+		if (typeContextEndIndices != null) {
+			// copy the list to not harm the input
+			typeContextEndIndices = new LinkedList<Integer>(typeContextEndIndices);
+			// initialise the type context numbers
+			st.incrementTypeContext();
+		}
+
+		// read all texts, noting their beginnings and type contexts
+		int[] textBegins = new int[16];
+		int[] typeContexts = new int[16];
+		int textAmount = 0;
+		while (in.readText()) {
+			if (!in.terminated) {
+				throw new IllegalArgumentException("Text " + textAmount + " is not terminated by '$'.");
+			}
+			if (textAmount == textBegins.length) {
+				textBegins = Arrays.copyOf(textBegins, textAmount * 2);
+				typeContexts = Arrays.copyOf(typeContexts, textAmount * 2);
+			}
+			textBegins[textAmount] = st.position + 1;
+			typeContexts[textAmount] = st.getCurrentTypeContext();
+			st.setTextBegin(textAmount, st.position + 1);
+			for (int i = 0; i < in.length; i++) {
+				st.appendText(in.chars[i]);
+			}
+			textAmount++;
+
+			if (typeContextEndIndices != null) {
+				incrementTypeContexts(st, typeContextEndIndices, textAmount);
+			}
+		}
+		in.close();
+		st.trimText();
+
+		if (typeContextEndIndices != null && !typeContextEndIndices.isEmpty()) {
+			throw new IllegalStateException("Some type context end numbers were not handled. First remaining textNr: "
+					+ typeContextEndIndices.get(0));
+		}
+
+		if (textAmount > 0) {
+			final int[] sa = suffixArray(st.text, textAmount);
+			final SuffixArrayNodes nodes = new SuffixArrayNodes(st.text, sa, lcp(st.text, sa),
+					Arrays.copyOf(textBegins, textAmount), Arrays.copyOf(typeContexts, textAmount));
+			st.treeNodes = nodes;
+			st.currentNode = nodes.size();
+		}
+		return st;
+	}
+
+	// Convenience method to build a GST for a String with the specified contexts. Multiple inputs should be separated by '$'.
+	public static SuffixTree buildGST(String input, List<Integer> typeContextEndIndices) throws Exception {
+		return buildGST(new StringReader(input), typeContextEndIndices);
+	}
+
+	// Convenience method to build a GST for a String. Multiple inputs should be separated by '$'.
+	public static SuffixTree buildGST(String input) throws Exception {
+		return buildGST(new StringReader(input), null);
+	}
+
+	// Works like GST's method of the same name, such that type contexts are numbered identically
+	private static void incrementTypeContexts(BaseSuffixTree st, List<Integer> typeContextEndIndices, int nrText) {
+		if (typeContextEndIndices.isEmpty()) {
+			throw new IllegalStateException("No type context to set at text: " + nrText);
+		}
+		if (typeContextEndIndices.get(0) == nrText) {
+			st.incrementTypeContext();
+			typeContextEndIndices.remove(0);
+		}
+	}
+
+	/**
+	 * Returns the suffix array of the text with an additional sentinel. The
+	 * sentinel's suffix is at index 0. Each '$' gets its own symbol (in place
+	 * of the char '$', ordered by text), such that suffixes are sorted by
+	 * their chars and equal suffixes of different texts next to each other by
+	 * text number.
+	 */
+	static int[] suffixArray(char[] text, int textAmount) {
+		final int n = text.length + 1;
+
+		// map chars to a compact alphabet
+		final int[] charRanks = new int[Character.MAX_VALUE + 1];
+		for (char c : text) {
+			charRanks[c] = 1;
+		}
+		int alphabet = 1;
+		int dollar = 0;
+		for (int c = 0; c < charRanks.length; c++) {
+			if (c == '$') {
+				dollar = alphabet;
+				alphabet += textAmount;
+			} else if (charRanks[c] != 0) {
+				charRanks[c] = alphabet++;
+			}
+		}
+
+		final int[] s = new int[n];
+		for (int i = 0; i < text.length; i++) {
+			s[i] = (text[i] == '$') ? dollar++ : charRanks[text[i]];
+		}
+		s[n - 1] = 0;
+
+		final int[] sa = new int[n];
+		sais(s, sa, n, alphabet);
+		return sa;
+	}
+
+	/**
+	 * Returns the LCP array for the suffix array, lcp[i] is the length of the
+	 * longest common prefix of the suffixes at i - 1 and i. Suffixes are only
+	 * compared up to and including their text's '$'.
+	 */
+	static int[] lcp(char[] text, int[] sa) {
+		final int n = sa.length;
+		final int[] rank = new int[n];
+		for (int i = 0; i < n; i++) {
+			rank[sa[i]] = i;
+		}
+
+		final int[] lcp = new int[n];
+		int h = 0;
+		// whether the last suffix compared matched its predecessor up to '$'
+		boolean full = false;
+		for (int i = 0; i < n - 1; i++) {
+			final int r = rank[i];
+			if (r > 1) {
+				final int j = sa[r - 1];
+				if (!full) {
+					while (text[i + h] == text[j + h] && text[i + h] != '$') {
+						h++;
+					}
+					if (text[i + h] == '$' && text[j + h] == '$') {
+						h++;
+						full = true;
+					}
+				}
+				lcp[r] = h;
+				if (h > 0) {
+					h--;
+				}
+				full = full && h > 0;
+			} else {
+				h = 0;
+				full = false;
+			}
+		}
+		return lcp;
+	}
+
+	/*
+	 * SA-IS (Nong, Zhang & Chan 2009). The input has to end on a unique
+	 * sentinel 0, all other symbols are in [1, alphabet).
+	 */
+	private static void sais(int[] s, int[] sa, int n, int alphabet) {
+		if (n == 1) {
+			sa[0] = 0;
+			return;
+		}
+		// classify suffixes: S-type (true) or L-type (false)
+		final boolean[] t = new boolean[n];
+		t[n - 1] = true;
+		for (int i = n - 2; i >= 0; i--) {
+			t[i] = s[i] < s[i + 1] || (s[i] == s[i + 1] && t[i + 1]);
+		}
+
+		// sort the LMS substrings by induction
+		final int[] bucket = new int[alphabet];
+		buckets(s, bucket, n, true);
+		Arrays.fill(sa, -1);
+		for (int i = 1; i < n; i++) {
+			if (isLms(t, i)) {
+				sa[--bucket[s[i]]] = i;
+			}
+		}
+		induceL(s, sa, t, bucket, n);
+		induceS(s, sa, t, bucket, n);
+
+		// compact the sorted LMS substrings and name them
+		int n1 = 0;
+		for (int i = 0; i < n; i++) {
+			if (isLms(t, sa[i])) {
+				sa[n1++] = sa[i];
+			}
+		}
+		Arrays.fill(sa, n1, n, -1);
+		int name = 0;
+		int prev = -1;
+		for (int i = 0; i < n1; i++) {
+			final int pos = sa[i];
+			boolean diff = false;
+			for (int d = 0; d < n; d++) {
+				if (prev == -1 || s[pos + d] != s[prev + d] || t[pos + d] != t[prev + d]) {
+					diff = true;
+					break;
+				} else if (d > 0 && (isLms(t, pos + d) || isLms(t, prev + d))) {
+					break;
+				}
+			}
+			if (diff) {
+				name++;
+				prev = pos;
+			}
+			sa[n1 + pos / 2] = name - 1;
+		}
+		final int[] s1 = new int[n1];
+		for (int i = n - 1, j = n1 - 1; i >= n1; i--) {
+			if (sa[i] >= 0) {
+				s1[j--] = sa[i];
+			}
+		}
+
+		// sort the LMS suffixes, recursively if their names are not unique
+		final int[] sa1 = new int[n1];
+		if (name < n1) {
+			sais(s1, sa1, n1, name);
+		} else {
+			for (int i = 0; i < n1; i++) {
+				sa1[s1[i]] = i;
+			}
+		}
+
+		// induce the suffix array from the sorted LMS suffixes
+		for (int i = 1, j = 0; i < n; i++) {
+			if (isLms(t, i)) {
+				s1[j++] = i;
+			}
+		}
+		buckets(s, bucket, n, true);
+		Arrays.fill(sa, -1);
+		for (int i = n1 - 1; i >= 0; i--) {
+			final int j = s1[sa1[i]];
+			sa[--bucket[s[j]]] = j;
+		}
+		induceL(s, sa, t, bucket, n);
+		induceS(s, sa, t, bucket, n);
+	}
+
+	private static boolean isLms(boolean[] t, int i) {
+		return i > 0 && t[i] && !t[i - 1];
+	}
+
+	// sets each bucket to its beginning or its end
+	private static void buckets(int[] s, int[] bucket, int n, boolean end) {
+		Arrays.fill(bucket, 0);
+		for (int i = 0; i < n; i++) {
+			bucket[s[i]]++;
+		}
+		int sum = 0;
+		for (int i = 0; i < bucket.length; i++) {
+			sum += bucket[i];
+			bucket[i] = end ? sum : sum - bucket[i];
+		}
+	}
+
+	private static void induceL(int[] s, int[] sa, boolean[] t, int[] bucket, int n) {
+		buckets(s, bucket, n, false);
+		for (int i = 0; i < n; i++) {
+			final int j = sa[i] - 1;
+			if (j >= 0 && !t[j]) {
+				sa[bucket[s[j]]++] = j;
+			}
+		}
+	}
+
+	private static void induceS(int[] s, int[] sa, boolean[] t, int[] bucket, int n) {
+		buckets(s, bucket, n, true);
+		for (int i = n - 1; i >= 0; i--) {
+			final int j = sa[i] - 1;
+			if (j >= 0 && t[j]) {
+				sa[--bucket[s[j]]] = j;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,335 @@
+package modules.tree_building.suffixTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The nodes of a generalised suffix tree given by the lcp-intervals of its
+ * suffix array (see SuffixArrayGST).
+ *
+ * Suffixes equal up to their text's '$' form one leaf, which has a position
+ * per suffix. All other lcp-intervals are inner nodes. Node numbers are
+ * handed out as follows: the root is 1, the leaves follow in suffix array
+ * order from 2 on, the other inner nodes follow the leaves in the order their
+ * intervals are closed (children before their parents). Positions, edges and
+ * edge begins are looked up in the suffix array and the text, so per node
+ * only the depth of its parent, a child and a sibling are kept (plus the
+ * interval's depth and one suffix for inner nodes).
+ */
+final class SuffixArrayNodes implements TreeNodes {
+
+	private static final int ROOT = 1;
+	private static final int FIRST_LEAF = 2;
+
+	private final char[] text;
+	private final int[] sa;
+	private final int[] textBegins;
+	private final int[] typeContexts;
+
+	// Per leaf: the beginning of its suffixes in the suffix array (plus the
+	// end of the last leaf's), the depth of its parent and its next sibling
+	private final int[] leafBegin;
+	private final int[] leafParentDepth;
+	private final int[] leafNextSibling;
+	private final int leafAmount;
+
+	// Per inner node: a suffix within the interval, the interval's depth, the
+	// depth of its parent, its first child and its next sibling. The root is
+	// the last one.
+	private int[] innerSuffix;
+	private int[] innerDepth;
+	private int[] innerParentDepth;
+	private int[] innerFirstChild;
+	private int[] innerNextSibling;
+	private int innerAmount = 0;
+
+	/**
+	 * Builds the nodes by a bottom-up traversal of the lcp-intervals.
+	 *
+	 * @param text
+	 *            the texts, each terminated by '$'
+	 * @param sa
+	 *            the suffix array of the text with a sentinel suffix at index 0
+	 * @param lcp
+	 *            the LCP array, suffixes compared up to and including '$'
+	 * @param textBegins
+	 *            the index of each text's first char
+	 * @param typeContexts
+	 *            the type context of each text
+	 */
+	SuffixArrayNodes(char[] text, int[] sa, int[] lcp, int[] textBegins, int[] typeContexts) {
+		this.text = text;
+		this.sa = sa;
+		this.textBegins = textBegins;
+		this.typeContexts = typeContexts;
+
+		final int n = sa.length;
+		int leaves = (n > 1) ? 1 : 0;
+		for (int r = 2; r < n; r++) {
+			if (lcp[r] != this.suffixLength(sa[r])) {
+				leaves++;
+			}
+		}
+		this.leafAmount = leaves;
+		this.leafBegin = new int[leaves + 1];
+		this.leafParentDepth = new int[leaves];
+		this.leafNextSibling = new int[leaves];
+		// a tree has less inner nodes than leaves (plus the root)
+		final int capacity = Math.max(leaves, 1);
+		this.innerSuffix = new int[capacity];
+		this.innerDepth = new int[capacity];
+		this.innerParentDepth = new int[capacity];
+		this.innerFirstChild = new int[capacity];
+		this.innerNextSibling = new int[capacity];
+
+		// stack of open intervals: depth, a suffix in the interval and the
+		// beginning of its children on the child stack. The root is at the
+		// bottom, leaves are noted with a negative child begin.
+		int[] depth = new int[64];
+		int[] suffix = new int[64];
+		int[] childBegin = new int[64];
+		int top = 0;
+		suffix[0] = -1;
+
+		int[] children = new int[64];
+		int childAmount = 0;
+
+		// the first suffix of the current leaf and the leaves closed so far
+		int begin = 1;
+		int leaf = 0;
+
+		for (int r = 1; r <= n; r++) {
+			// suffixes equal up to '$' are collected in the same leaf
+			if (r < n && r > begin && lcp[r] == this.suffixLength(sa[r])) {
+				continue;
+			}
+			if (r > begin) {
+				// the leaf ends here: close all intervals deeper than the
+				// boundary to the next leaf, then push the next leaf
+				final int boundary = (r < n) ? lcp[r] : 0;
+				while (depth[top] > boundary) {
+					final int parentDepth = Math.max(depth[top - 1], boundary);
+					final int node;
+					if (childBegin[top] < 0) {
+						this.leafBegin[leaf] = begin;
+						this.leafParentDepth[leaf] = parentDepth;
+						node = FIRST_LEAF + leaf++;
+					} else {
+						node = FIRST_LEAF + leaves
+								+ this.newInner(suffix[top], depth[top], parentDepth, children, childBegin[top], childAmount);
+						childAmount = childBegin[top];
+					}
+					final int nodeSuffix = suffix[top];
+					top--;
+
+					if (depth[top] < boundary) {
+						// a new inner node at the boundary's depth is the parent
+						top++;
+						depth[top] = boundary;
+						suffix[top] = nodeSuffix;
+						childBegin[top] = childAmount;
+					}
+					if (childAmount == children.length) {
+						children = Arrays.copyOf(children, childAmount * 2);
+					}
+					children[childAmount++] = node;
+				}
+				begin = r;
+			}
+			if (r < n) {
+				if (++top == depth.length) {
+					depth = Arrays.copyOf(depth, top * 2);
+					suffix = Arrays.copyOf(suffix, top * 2);
+					childBegin = Arrays.copyOf(childBegin, top * 2);
+				}
+				depth[top] = this.suffixLength(sa[r]);
+				suffix[top] = sa[r];
+				childBegin[top] = -1;
+			}
+		}
+		this.leafBegin[leaves] = n;
+
+		// what remains are the root's children
+		this.newInner(-1, 0, 0, children, 0, childAmount);
+	}
+
+	// Notes an inner node and links its children, returns its index
+	private int newInner(int suffix, int depth, int parentDepth, int[] children, int from, int to) {
+		if (this.innerAmount == this.innerSuffix.length) {
+			final int capacity = this.innerAmount * 2;
+			this.innerSuffix = Arrays.copyOf(this.innerSuffix, capacity);
+			this.innerDepth = Arrays.copyOf(this.innerDepth, capacity);
+			this.innerParentDepth = Arrays.copyOf(this.innerParentDepth, capacity);
+			this.innerFirstChild = Arrays.copyOf(this.innerFirstChild, capacity);
+			this.innerNextSibling = Arrays.copyOf(this.innerNextSibling, capacity);
+		}
+		final int inner = this.innerAmount++;
+		this.innerSuffix[inner] = suffix;
+		this.innerDepth[inner] = depth;
+		this.innerParentDepth[inner] = parentDepth;
+		this.innerFirstChild[inner] = (from < to) ? children[from] : NodeStore.NONE;
+		this.innerNextSibling[inner] = NodeStore.NONE;
+		for (int i = from; i < to; i++) {
+			this.setNextSibling(children[i], (i + 1 < to) ? children[i + 1] : NodeStore.NONE);
+		}
+		return inner;
+	}
+
+	private void setNextSibling(int node, int sibling) {
+		if (this.isLeaf(node)) {
+			this.leafNextSibling[node - FIRST_LEAF] = sibling;
+		} else {
+			this.innerNextSibling[this.inner(node)] = sibling;
+		}
+	}
+
+	private boolean isLeaf(int node) {
+		return node >= FIRST_LEAF && node < FIRST_LEAF + this.leafAmount;
+	}
+
+	// the index of an inner node's entries
+	private int inner(int node) {
+		return (node == ROOT) ? this.innerAmount - 1 : node - FIRST_LEAF - this.leafAmount;
+	}
+
+	private int textNr(int position) {
+		final int idx = Arrays.binarySearch(this.textBegins, position);
+		return (idx >= 0) ? idx : -idx - 2;
+	}
+
+	// the index right behind the text's '$'
+	private int textEnd(int textNr) {
+		return (textNr + 1 < this.textBegins.length) ? this.textBegins[textNr + 1] : this.text.length;
+	}
+
+	// the length of the suffix up to and including its text's '$'
+	private int suffixLength(int suffix) {
+		return this.textEnd(this.textNr(suffix)) - suffix;
+	}
+
+	// the suffix of a leaf's position
+	private int leafSuffix(int node, int pos) {
+		final int leaf = node - FIRST_LEAF;
+		if (pos < 0 || pos >= this.leafBegin[leaf + 1] - this.leafBegin[leaf])
+			throw new IndexOutOfBoundsException("Node " + node + " has no position " + pos);
+		return this.sa[this.leafBegin[leaf] + pos];
+	}
+
+	private void checkInnerPosition(int node, int pos) {
+		if (pos != 0)
+			throw new IndexOutOfBoundsException("Node " + node + " has no position " + pos);
+	}
+
+	@Override
+	public int size() {
+		return this.leafAmount + this.innerAmount;
+	}
+
+	@Override
+	public boolean isTerminal(int node) {
+		return this.firstChild(node) == NodeStore.NONE;
+	}
+
+	@Override
+	public int firstChild(int node) {
+		return this.isLeaf(node) ? NodeStore.NONE : this.innerFirstChild[this.inner(node)];
+	}
+
+	@Override
+	public int nextSibling(int node) {
+		return this.isLeaf(node) ? this.leafNextSibling[node - FIRST_LEAF] : this.innerNextSibling[this.inner(node)];
+	}
+
+	@Override
+	public char edgeBegin(int node) {
+		return this.text[this.getStart(node, 0)];
+	}
+
+	@Override
+	public int getChild(int node, char c) {
+		for (int child = this.firstChild(node); child != NodeStore.NONE; child = this.nextSibling(child)) {
+			if (this.edgeBegin(child) == c)
+				return child;
+		}
+		return NodeStore.NONE;
+	}
+
+	@Override
+	public int getLink(int node) {
+		return 0;
+	}
+
+	@Override
+	public int getPositionsAmount(int node) {
+		if (this.isLeaf(node)) {
+			final int leaf = node - FIRST_LEAF;
+			return this.leafBegin[leaf + 1] - this.leafBegin[leaf];
+		}
+		return 1;
+	}
+
+	@Override
+	public int getStart(int node, int pos) {
+		if (this.isLeaf(node))
+			return this.leafSuffix(node, pos) + this.leafParentDepth[node - FIRST_LEAF];
+		this.checkInnerPosition(node, pos);
+		// the root's edge is empty, like the one of a GST's root
+		if (node == ROOT)
+			return -1;
+		final int inner = this.inner(node);
+		return this.innerSuffix[inner] + this.innerParentDepth[inner];
+	}
+
+	@Override
+	public int getEnd(int node, int pos) {
+		if (this.isLeaf(node))
+			return this.textEnd(this.textNr(this.leafSuffix(node, pos)));
+		this.checkInnerPosition(node, pos);
+		if (node == ROOT)
+			return -1;
+		final int inner = this.inner(node);
+		return this.innerSuffix[inner] + this.innerDepth[inner];
+	}
+
+	@Override
+	public int getTextNr(int node, int pos) {
+		if (this.isLeaf(node))
+			return this.textNr(this.leafSuffix(node, pos));
+		this.checkInnerPosition(node, pos);
+		return (node == ROOT) ? 0 : this.textNr(this.innerSuffix[this.inner(node)]);
+	}
+
+	@Override
+	public int getTypeContext(int node, int pos) {
+		if (node == ROOT) {
+			this.checkInnerPosition(node, pos);
+			return BaseSuffixTree.NO_TYPE_CONTEXT;
+		}
+		return this.typeContexts[this.getTextNr(node, pos)];
+	}
+
+	@Override
+	public List<NodePosition> getPositions(int node) {
+		final int amount = this.getPositionsAmount(node);
+		final List<NodePosition> positions = new ArrayList<NodePosition>(amount);
+		for (int pos = 0; pos < amount; pos++) {
+			positions.add(new NodePosition(this.getStart(node, pos), new NodePositionEnd(this.getEnd(node, pos)),
+					this.getTextNr(node, pos), this.getTypeContext(node, pos)));
+		}
+		return positions;
+	}
+
+	@Override
+	public int edgeLength(int node, int position) {
+		return this.getEnd(node, 0) - this.getStart(node, 0);
+	}
+
+	@Override
+	public long memoryBytes() {
+		final long leafBytes = (long) this.leafAmount * 3 * 4;
+		final long innerBytes = (long) this.innerSuffix.length * 5 * 4;
+		return (long) this.sa.length * 4 + leafBytes + innerBytes + (long) this.textBegins.length * 2 * 4;
+	}
+
+}
@@ -0,0 +1,49 @@
+package modules.tree_building.suffixTree;
+
+import java.util.List;
+
+/**
+ * Read access to the nodes of a built suffix tree by node number. Nodes, the
+ * TreeWalker and the listeners only read the tree through this interface, so
+ * the nodes do not have to be kept in a NodeStore (see SuffixArrayNodes).
+ *
+ * Node numbers start at 1, absent children and siblings are NodeStore.NONE.
+ */
+interface TreeNodes {
+
+	// The amount of nodes
+	int size();
+
+	boolean isTerminal(int node);
+
+	// Children are iterated in ascending order of their edge begins
+	int firstChild(int node);
+
+	int nextSibling(int node);
+
+	char edgeBegin(int node);
+
+	int getChild(int node, char c);
+
+	// The suffix link of a node, 0 if it has none
+	int getLink(int node);
+
+	int getPositionsAmount(int node);
+
+	int getStart(int node, int pos);
+
+	int getEnd(int node, int pos);
+
+	int getTextNr(int node, int pos);
+
+	int getTypeContext(int node, int pos);
+
+	List<NodePosition> getPositions(int node);
+
+	// Edge length of the node given the current position in the text
+	int edgeLength(int node, int position);
+
+	// The amount of memory held by the arrays describing the nodes in bytes
+	long memoryBytes();
+
+}
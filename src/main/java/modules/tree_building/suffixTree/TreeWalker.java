@@ -1,8 +1,7 @@
 package modules.tree_building.suffixTree;
 
 import java.io.IOException;
-
-import modules.tree_building.suffixTree.BaseSuffixTree;;
+import java.util.Arrays;
 
 public class TreeWalker {
 
@@ -11,8 +10,8 @@ public class TreeWalker {
 	}
 
 	/**
-	 * Walks the tree's nodes recursively (depth-first) and executes the
-	 * listener's actions for each node.
+	 * Walks the tree's nodes depth-first and executes the listener's actions
+	 * for each node.
 	 * 
 	 * @param startNodeNr
 	 *            The start with
@@ -27,24 +26,54 @@ public class TreeWalker {
 	}
 
 	/**
-	 * Walks the tree's nodes recursively (depth-first) and executes the
-	 * listener's actions for each node.
-	 * @param startNodeNr The start with
-	 * @param suffixTree The SuffixTree to walk on
-	 * @param listener The listener defining the actions to take on each node
-	 * @param level level
-	 * @throws IOException on error
+	 * Walks the tree's nodes depth-first and executes the listener's actions
+	 * for each node. The path is kept on an explicit stack instead of the call
+	 * stack, so the depth of the tree is not limited by the thread's stack
+	 * size.
+	 * 
+	 * @param startNodeNr
+	 *            The start with
+	 * @param suffixTree
+	 *            The SuffixTree to walk on
+	 * @param listener
+	 *            The listener defining the actions to take on each node
+	 * @param level
+	 *            level of the start node
+	 * @throws IOException
+	 *             on error
 	 */
-	
 	private static void walk(int startNodeNr, BaseSuffixTree suffixTree, ITreeWalkerListener listener, int level)
 			throws IOException {
+		final TreeNodes nodes = suffixTree.treeNodes;
+
+		// the nodes on the current path and for each of them the child to
+		// descend into next
+		int[] path = new int[64];
+		int[] nextChild = new int[64];
+		int top = 0;
+
+		path[0] = startNodeNr;
+		nextChild[0] = nodes.firstChild(startNodeNr);
 		listener.entryaction(startNodeNr, level);
 
-		for (int childNodeNr : suffixTree.nodes[startNodeNr].next.values()) {
-			walk(childNodeNr, suffixTree, listener, level + 1);
-		}
+		while (top >= 0) {
+			final int child = nextChild[top];
+			if (child == NodeStore.NONE) {
+				listener.exitaction(path[top], level + top);
+				top--;
+				continue;
+			}
+			nextChild[top] = nodes.nextSibling(child);
 
-		listener.exitaction(startNodeNr, level);
+			top++;
+			if (top == path.length) {
+				path = Arrays.copyOf(path, path.length * 2);
+				nextChild = Arrays.copyOf(nextChild, nextChild.length * 2);
+			}
+			path[top] = child;
+			nextChild[top] = nodes.firstChild(child);
+			listener.entryaction(child, level + top);
+		}
 	}
 
 }
@@ -0,0 +1,57 @@
+package modules.tree_building.suffixTree;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Drives several listeners from a single walk over the tree. Each node's
+ * entry and exit actions are handed to the listeners in the order they were
+ * added.
+ */
+public class TreeWalkerListenerMultiplexer implements ITreeWalkerListener {
+
+	private final List<ITreeWalkerListener> listeners = new ArrayList<ITreeWalkerListener>();
+
+	// whether a listener noting the leaves of the nodes was added already
+	private boolean propagatingLeaves = false;
+
+	/**
+	 * Adds a listener to the walk. Of all node stack listeners only the first
+	 * one propagates the leaves of the nodes, the others are switched off
+	 * from doing the same work again.
+	 *
+	 * @param listener
+	 *            the listener to add
+	 */
+	public void addListener(ITreeWalkerListener listener) {
+		if (listener instanceof AbstractResultNodeStackListener) {
+			((AbstractResultNodeStackListener) listener).setPropagateLeaves(!this.propagatingLeaves);
+			this.propagatingLeaves = true;
+		}
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * @return The listeners driven by this multiplexer.
+	 */
+	public List<ITreeWalkerListener> getListeners() {
+		return Collections.unmodifiableList(this.listeners);
+	}
+
+	@Override
+	public void entryaction(int nodeNr, int level) throws IOException {
+		for (ITreeWalkerListener listener : this.listeners) {
+			listener.entryaction(nodeNr, level);
+		}
+	}
+
+	@Override
+	public void exitaction(int nodeNr, int level) throws IOException {
+		for (ITreeWalkerListener listener : this.listeners) {
+			listener.exitaction(nodeNr, level);
+		}
+	}
+
+}
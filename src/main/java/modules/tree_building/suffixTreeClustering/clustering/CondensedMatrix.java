@@ -0,0 +1,52 @@
+package modules.tree_building.suffixTreeClustering.clustering;
+
+/**
+ * Addressing of condensed distance matrices, i.e. the distances d(i,j) of n
+ * elements with i &lt; j row by row in a single array, as shared by the
+ * clusterers.
+ */
+public final class CondensedMatrix {
+
+	// class should not be instantiated
+	private CondensedMatrix() {
+	}
+
+	/**
+	 * @param n
+	 *            - Number of elements.
+	 * @return Number of distances in a condensed matrix of n elements.
+	 */
+	public static long length(int n) {
+		return (long) n * (n - 1) / 2;
+	}
+
+	/**
+	 * @param n
+	 *            - Number of elements.
+	 * @param i
+	 *            - An element.
+	 * @param j
+	 *            - An element after i.
+	 * @return Index of the distance of i and j in a condensed matrix.
+	 */
+	public static int index(int n, int i, int j) {
+		return (int) ((long) i * (2 * n - i - 1) / 2 + (j - i - 1));
+	}
+
+	/**
+	 * @param n
+	 *            - Number of elements.
+	 * @param length
+	 *            - Number of distances given for them.
+	 * @throws IllegalArgumentException
+	 *             Thrown if a condensed matrix of n elements has another
+	 *             number of distances
+	 */
+	public static void checkLength(int n, int length) {
+		if (length != length(n)) {
+			throw new IllegalArgumentException(
+					"A condensed matrix of " + n + " elements has " + length(n) + " distances, not " + length);
+		}
+	}
+
+}
@@ -1,9 +1,10 @@
 package modules.tree_building.suffixTreeClustering.clustering.flat;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import modules.tree_building.suffixTreeClustering.data.Type;
 
@@ -13,7 +14,7 @@ import modules.tree_building.suffixTreeClustering.data.Type;
  * @author Fabian Steeg (fsteeg)
  */
 public class FlatCluster implements Iterable<Type> {
-	Set<Type> documents = new CopyOnWriteArraySet<Type>();
+	Set<Type> documents = new LinkedHashSet<Type>();
 	private Type medoid = null;
 
 	public FlatCluster(final Type document) {
@@ -21,6 +22,17 @@ public class FlatCluster implements Iterable<Type> {
 		this.documents.add(document);
 	}
 
+	/**
+	 * @param medoid
+	 *            The medoid of the cluster
+	 * @param documents
+	 *            The documents of the cluster, including the medoid
+	 */
+	FlatCluster(final Type medoid, final Collection<Type> documents) {
+		this.medoid = medoid;
+		this.documents.addAll(documents);
+	}
+
 	/**
 	 * @return The medoid of this cluster, i.e. the document with the highest
 	 *         similarity to the other documents, the most central member of the
@@ -1,46 +1,77 @@
 package modules.tree_building.suffixTreeClustering.clustering.flat;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
+import modules.tree_building.suffixTreeClustering.clustering.CondensedMatrix;
 import modules.tree_building.suffixTreeClustering.data.Type;
 
 /**
- * Simple flat k-means clustering.
+ * Flat k-medoids clustering.
+ * 
+ * The distances of all documents are computed once and shared by all
+ * clusterings, for several values of k these run in parallel. In CLARA mode
+ * only the distances within a few random samples of the documents are
+ * computed: each sample is clustered and all documents are assigned to the
+ * medoids found, the medoids of the smallest total distance are kept.
  * 
  * @author Fabian Steeg (fsteeg)
  */
 public final class FlatClusterer {
 
+	// number of samples clustered in CLARA mode
+	private static final int CLARA_SAMPLES = 5;
+
 	private List<FlatCluster> clusters;
 	private List<Type> documents;
+	private int maxThreads;
+	private int sampleSize;
+
+	// distances of all documents, or of the documents in each sample
+	private KMedoids medoids;
+	private int[][] samples;
+	private KMedoids[] sampleMedoids;
 
 	/**
-	 * K-Means clustering of the given documents, as part of the given corpus
+	 * K-Medoids clustering of the given documents, as part of the given corpus
 	 * 
 	 * @param documents
 	 *            The documents to cluster
 	 */
 	public FlatClusterer(final List<Type> documents) {
-		/*
-		 * Da wir beim iterieren über die Cluster diese manipulieren (wir
-		 * verschieben die Elemente in den passendsten Cluster), muessen wir
-		 * eine List-Implementierung benutzen, die das unterstützt (die
-		 * Alternative wäre das Anlegen neuer Listen und sowas), wie etwa
-		 * CopyOnWriteArrayList, die (wie der umständliche Name sagt), das
-		 * zugrunde liegende Array bei Schreibe-Operationen kopiert, was sich
-		 * nachteilig auf die Performance auswirkt, wenn man nicht viel iteriert
-		 * und wenig schreibt:
-		 */
-		clusters = new CopyOnWriteArrayList<FlatCluster>();
+		this(documents, 4, 0);
+	}
+
+	/**
+	 * K-Medoids clustering of the given documents, as part of the given corpus
+	 * 
+	 * @param documents
+	 *            The documents to cluster
+	 * @param maxThreads
+	 *            The number of threads computing distances and clustering
+	 * @param sampleSize
+	 *            The number of documents in each sample clustered in CLARA
+	 *            mode, 0 (or at least the number of documents) to cluster all
+	 *            documents at once
+	 */
+	public FlatClusterer(final List<Type> documents, final int maxThreads, final int sampleSize) {
+		if (maxThreads < 1) {
+			throw new IllegalArgumentException("Clustering needs at least one thread, not " + maxThreads);
+		}
+		this.clusters = new ArrayList<FlatCluster>();
 		this.documents = documents;
+		this.maxThreads = maxThreads;
+		this.sampleSize = sampleSize;
 	}
 
 	/**
@@ -49,80 +80,12 @@ public final class FlatClusterer {
 	 * @param k
 	 *            The number of clusters to partition the documents into
 	 * @param iterations
-	 *            The number of iterations
+	 *            The largest number of passes over the documents trying to
+	 *            swap them with the medoids
 	 * @return The k clusters
 	 */
 	public List<FlatCluster> analyse(final int k, final int iterations) {
-		Collections.shuffle(documents);
-		// Initiale Mittelpunkte: k zufällige Dokumente
-		for (int i = 0; i < k; i++) {
-			FlatCluster cluster = new FlatCluster(documents.get(i));
-			clusters.add(cluster);
-		}
-		/* Zu Beginn bilden alle Dokumente einen Cluster: */
-		clusters.get(0).documents.addAll(documents);
-		System.out.println(String.format(
-				"%s-means clustering with %s iterations... ", k, iterations));
-		for (int i = 0; i < iterations; i++) {
-			/* In jeder iteration stellen wir die Cluster neu ein: */
-			this.clusters = recompute(clusters);
-			/* Eine simple Form von Fortschrittsanzeige: */
-			System.out.print(String.format("%1.2f ", getPurity()));
-		}
-		System.out.println(String.format(
-				"Purity for k=%s: %1.2f, clusters: %s", k, getPurity(),
-				toString()));
-		return this.clusters;
-	}
-
-	private List<FlatCluster> recompute(final List<FlatCluster> clusters) {
-		List<FlatCluster> result = new CopyOnWriteArrayList<FlatCluster>(
-				clusters);
-		/* Wir betrachten jedes Dokument in jedem Cluster: */
-		// TODO: Is document really the correct term here? Should it not be type instead?
-		for (FlatCluster currentCluster : result) {
-			for (Type document : currentCluster) {
-				/*
-				 * Und suchen zu diesem den passendsten Cluster, d.h. den
-				 * Cluster, dessen Schwerpunkt-Dokument dem Dokument am
-				 * ähnlichsten, d.h. im Vektorraum am nächsten ist:
-				 */
-				Double min = Double.POSITIVE_INFINITY;
-				FlatCluster nearest = null;
-				/* Ähnlichsten Mittelpunkt suchen: */
-				for (FlatCluster clusterToCompare : clusters) {
-					Type center = clusterToCompare.getMedoid();
-					Double distance = document.getVector().distance(
-							center.getVector());
-					if (distance < min) {
-						min = distance;
-						nearest = clusterToCompare;
-					}
-				}
-				if (nearest != null) {
-					/*
-					 * Wenn ein solcher ähnlichster Schwerpunkt gefunden wurde,
-					 * entfernen wir das aktuelle Dokument aus seinem, d.h.
-					 * diesem Cluster, und fügen es in den Cluster ein, dessen
-					 * Mittelpunkt gewonnen hatte:
-					 */
-					// TODO: hier stimmt was nicht, Dokumente kommen doppelt
-					// vor... Set verwenden?
-					currentCluster.documents.remove(document);
-					nearest.documents.add(document);
-					/*
-					 * (und damit wir hier diese Sache so machen können müssen
-					 * die Listen CopyOnWriteArrayList sein)
-					 */
-				}
-			}
-			/*
-			 * Nach der Neuberechnung des aktuellen Clusters setzen wir seinen
-			 * Medoid neu fest:
-			 */
-			currentCluster.recomputeMedoid();
-		}
-		return result;
+		return analyse(k, k, iterations).get(0);
 	}
 
 	/**
@@ -133,49 +96,200 @@ public final class FlatClusterer {
 	 * @param clusterEnd
 	 *            The maximum k cluster count
 	 * @param iterations
-	 *            The number of iterations to use when clustering with each k
+	 *            The largest number of passes over the documents trying to
+	 *            swap them with the medoids when clustering with each k
 	 * @return The clusters for each different k between clusterStart and
-	 *         clusterEnd (inclusive)
+	 *         clusterEnd (inclusive), in the order of k. The clusters for
+	 *         clusterEnd are the ones described by {@link #toDot()}.
 	 */
 	public List<List<FlatCluster>> analyse(final int clusterStart,
 			final int clusterEnd, final int iterations) {
-		final List<List<FlatCluster>> clustersForKs = new CopyOnWriteArrayList<List<FlatCluster>>();
+		final List<List<FlatCluster>> clustersForKs = new ArrayList<List<FlatCluster>>();
 		/*
-		 * Wir lassen die verschiedenen, völlig unabhängigen Versuchsaufbauten,
-		 * nämlich mit unterschiedlicher Clusterzahl (und leicht einbaubar
-		 * unterschiedlich vielen Iterationen) parallel laufen. Hier können wir
-		 * parallele Durchführung der verschiedenen Aufbauten einstellen. Ist
-		 * auf 1 gestellt um einfacher die Ausgabe interpretieren zu können und
-		 * fürs Debuggen. In Produktionscode würde man so einen Wert z.B. in
-		 * eine Properties-Datei auslagern.
+		 * Die verschiedenen, völlig unabhängigen Versuchsaufbauten mit
+		 * unterschiedlicher Clusterzahl laufen parallel. Sie lesen nur die
+		 * gemeinsamen Distanzen und geben ihre Cluster zurück.
 		 */
-		ExecutorService exec = Executors.newFixedThreadPool(clusterEnd
-				- clusterStart); // threads
-		for (int i = clusterStart; i <= clusterEnd; i++) {
-			final int k = i;
-			exec.execute(new Runnable() {
-				public void run() {
-					FlatClusterer c = new FlatClusterer(documents);
-					clusters = c.analyse(k, iterations);
-					/* Wir sammeln die Ergebnisse für jedes k: */
-					clustersForKs.add(clusters);
-				}
-			});
-		}
-		exec.shutdown();
+		final ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
 		try {
-			/** Basically no timeout */
-			exec.awaitTermination(Integer.MAX_VALUE, TimeUnit.SECONDS);
+			computeDistances(executor);
+			final List<Future<List<FlatCluster>>> futures = new ArrayList<Future<List<FlatCluster>>>();
+			for (int i = clusterStart; i <= clusterEnd; i++) {
+				final int k = i;
+				futures.add(executor.submit(new Callable<List<FlatCluster>>() {
+					@Override
+					public List<FlatCluster> call() {
+						// each k on its own, so the clusters do not depend on
+						// the order of the threads
+						return cluster(k, iterations, new Random(k));
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				final List<FlatCluster> result = futures.get(i).get();
+				System.out.println(String.format("Purity for k=%s: %1.2f, clusters: %s",
+						clusterStart + i, purity(result), describe(result)));
+				/* Wir sammeln die Ergebnisse für jedes k: */
+				clustersForKs.add(result);
+			}
 		} catch (InterruptedException e) {
-			e.printStackTrace();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		if (!clustersForKs.isEmpty()) {
+			this.clusters = clustersForKs.get(clustersForKs.size() - 1);
 		}
 		return clustersForKs;
 	}
 
+	/*
+	 * Compute the distances of all documents (or of each sample) once, for all
+	 * clusterings.
+	 */
+	private void computeDistances(final ExecutorService executor)
+			throws InterruptedException, ExecutionException {
+		if (medoids != null || samples != null) {
+			return;
+		}
+		final int n = documents.size();
+		if (sampleSize <= 0 || sampleSize >= n) {
+			final int[] all = new int[n];
+			for (int i = 0; i < n; i++) {
+				all[i] = i;
+			}
+			medoids = new KMedoids(n, distances(all, executor));
+		} else {
+			final Random random = new Random(n);
+			samples = new int[CLARA_SAMPLES][];
+			sampleMedoids = new KMedoids[CLARA_SAMPLES];
+			for (int s = 0; s < CLARA_SAMPLES; s++) {
+				samples[s] = sample(n, random);
+				sampleMedoids[s] = new KMedoids(sampleSize, distances(samples[s], executor));
+			}
+		}
+	}
+
+	// sampleSize different documents in ascending order
+	private int[] sample(final int n, final Random random) {
+		final int[] indices = new int[n];
+		for (int i = 0; i < n; i++) {
+			indices[i] = i;
+		}
+		for (int i = 0; i < sampleSize; i++) {
+			final int j = i + random.nextInt(n - i);
+			final int index = indices[j];
+			indices[j] = indices[i];
+			indices[i] = index;
+		}
+		final int[] sample = Arrays.copyOf(indices, sampleSize);
+		Arrays.sort(sample);
+		return sample;
+	}
+
+	/*
+	 * The condensed matrix of the distances of the documents given, the rows
+	 * dealt out to the threads in turns so that all get about as many
+	 * distances.
+	 */
+	private float[] distances(final int[] indices, final ExecutorService executor)
+			throws InterruptedException, ExecutionException {
+		final int n = indices.length;
+		final float[] distances = new float[(int) CondensedMatrix.length(n)];
+		final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int t = 0; t < maxThreads; t++) {
+			final int firstRow = t;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int i = firstRow; i < n - 1; i += maxThreads) {
+						final Type type = documents.get(indices[i]);
+						int index = CondensedMatrix.index(n, i, i + 1);
+						for (int j = i + 1; j < n; j++) {
+							// distances are rounded to float anyway
+							distances[index++] = (float) type.getVector()
+									.distance(documents.get(indices[j]).getVector()).doubleValue();
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		return distances;
+	}
+
+	private List<FlatCluster> cluster(final int k, final int iterations, final Random random) {
+		if (medoids != null) {
+			final int[] found = medoids.cluster(k, iterations, random);
+			return clusters(found, medoids.assign(found));
+		}
+		/*
+		 * CLARA: Die Medoide jeder Stichprobe bewerten wir mit allen
+		 * Dokumenten.
+		 */
+		int[] bestMedoids = null;
+		int[] bestAssignment = null;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (int s = 0; s < samples.length; s++) {
+			final int[] found = sampleMedoids[s].cluster(k, iterations, random);
+			for (int m = 0; m < k; m++) {
+				found[m] = samples[s][found[m]];
+			}
+			final int[] assignment = new int[documents.size()];
+			double cost = 0;
+			for (int i = 0; i < documents.size(); i++) {
+				double nearest = Double.POSITIVE_INFINITY;
+				for (int m = 0; m < k; m++) {
+					final double distance = documents.get(i).getVector()
+							.distance(documents.get(found[m]).getVector());
+					if (distance < nearest) {
+						nearest = distance;
+						assignment[i] = m;
+					}
+				}
+				cost += nearest;
+			}
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestMedoids = found;
+				bestAssignment = assignment;
+			}
+		}
+		return clusters(bestMedoids, bestAssignment);
+	}
+
+	private List<FlatCluster> clusters(final int[] found, final int[] assignment) {
+		final List<List<Type>> members = new ArrayList<List<Type>>();
+		for (int m = 0; m < found.length; m++) {
+			members.add(new ArrayList<Type>());
+		}
+		for (int i = 0; i < assignment.length; i++) {
+			members.get(assignment[i]).add(documents.get(i));
+		}
+		final List<FlatCluster> result = new ArrayList<FlatCluster>();
+		for (int m = 0; m < found.length; m++) {
+			result.add(new FlatCluster(documents.get(found[m]), members.get(m)));
+		}
+		return result;
+	}
+
 	/**
 	 * @return The purity of the clusters
 	 */
 	public Float getPurity() {
+		return purity(clusters);
+	}
+
+	private static Float purity(final List<FlatCluster> clusters) {
 		/*
 		 * Die Purity ist die Anzahl der Elemente in jedem Cluster, die in
 		 * diesem Cluster am häufigsten vorkommen, geteilt durch die Anzahl
@@ -226,6 +340,10 @@ public final class FlatClusterer {
 	 */
 	@Override
 	public String toString() {
+		return describe(clusters);
+	}
+
+	private static String describe(final List<FlatCluster> clusters) {
 		StringBuilder builder = new StringBuilder("|");
 		for (int i = 0; i < clusters.size(); i++) {
 			FlatCluster cluster = clusters.get(i);
@@ -0,0 +1,295 @@
+package modules.tree_building.suffixTreeClustering.clustering.flat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import modules.tree_building.suffixTreeClustering.clustering.CondensedMatrix;
+
+/**
+ * k-medoids clustering of a condensed distance matrix, i.e. the distances
+ * d(i,j) with i &lt; j row by row in a single array.
+ *
+ * The first medoids are seeded like k-means++: each medoid is drawn with a
+ * probability proportional to the squared distance of the element to the
+ * nearest medoid drawn before. They are then improved by swapping medoids with
+ * other elements as in PAM. Knowing the nearest and second nearest medoid of
+ * each element, the change of the total distance for swapping an element with
+ * any of the k medoids is computed in a single pass over the elements, and an
+ * improving swap is made right away rather than after trying all others.
+ *
+ * The matrix is only read, so one instance may cluster for several values of
+ * k at the same time.
+ */
+public class KMedoids {
+
+	private final int n;
+	private final float[] distances;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param n
+	 *            - Number of elements to cluster.
+	 * @param distances
+	 *            - Condensed matrix of their distances.
+	 */
+	public KMedoids(int n, float[] distances) {
+		CondensedMatrix.checkLength(n, distances.length);
+		this.n = n;
+		this.distances = distances;
+	}
+
+	/**
+	 * @param i
+	 *            - An element.
+	 * @param j
+	 *            - Another element.
+	 * @return The distance of both elements.
+	 */
+	public double distance(int i, int j) {
+		if (i == j) {
+			return 0;
+		}
+		return i < j ? distances[CondensedMatrix.index(n, i, j)]
+				: distances[CondensedMatrix.index(n, j, i)];
+	}
+
+	// the distances of element i to all elements
+	private void row(int i, double[] row) {
+		for (int j = 0; j < i; j++) {
+			row[j] = distances[CondensedMatrix.index(n, j, i)];
+		}
+		row[i] = 0;
+		int index = i < n - 1 ? CondensedMatrix.index(n, i, i + 1) : 0;
+		for (int j = i + 1; j < n; j++) {
+			row[j] = distances[index++];
+		}
+	}
+
+	/**
+	 * Cluster all elements.
+	 *
+	 * @param k
+	 *            - Number of clusters.
+	 * @param maxPasses
+	 *            - Largest number of passes over all elements trying to swap
+	 *            them with the medoids.
+	 * @param random
+	 *            - Source of randomness for seeding the medoids.
+	 * @return The k medoids.
+	 */
+	public int[] cluster(int k, int maxPasses, Random random) {
+		if (k < 1 || k > n) {
+			throw new IllegalArgumentException(n + " elements cannot be clustered into " + k + " clusters");
+		}
+		if (k == 1) {
+			return new int[] { centre() };
+		}
+		final int[] medoids = seed(k, random);
+		swap(medoids, maxPasses);
+		return medoids;
+	}
+
+	// the element of the smallest total distance to all others
+	private int centre() {
+		final double[] row = new double[n];
+		int best = 0;
+		double smallest = Double.POSITIVE_INFINITY;
+		for (int c = 0; c < n; c++) {
+			row(c, row);
+			double sum = 0;
+			for (int o = 0; o < n; o++) {
+				sum += row[o];
+			}
+			if (sum < smallest) {
+				smallest = sum;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Seed k medoids like k-means++.
+	 *
+	 * @param k
+	 *            - Number of medoids.
+	 * @param random
+	 *            - Source of randomness.
+	 * @return k different elements.
+	 */
+	public int[] seed(int k, Random random) {
+		if (k < 1 || k > n) {
+			throw new IllegalArgumentException(n + " elements cannot be clustered into " + k + " clusters");
+		}
+		final int[] medoids = new int[k];
+		final boolean[] isMedoid = new boolean[n];
+		// squared distance of each element to the nearest medoid
+		final double[] nearest = new double[n];
+		Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+		final double[] row = new double[n];
+
+		int next = random.nextInt(n);
+		for (int m = 0; m < k; m++) {
+			medoids[m] = next;
+			isMedoid[next] = true;
+			if (m == k - 1) {
+				break;
+			}
+			row(next, row);
+			double total = 0;
+			for (int o = 0; o < n; o++) {
+				nearest[o] = Math.min(nearest[o], row[o] * row[o]);
+				total += nearest[o];
+			}
+
+			next = -1;
+			double target = random.nextDouble() * total;
+			for (int o = 0; o < n; o++) {
+				if (!isMedoid[o] && nearest[o] > 0) {
+					next = o;
+					target -= nearest[o];
+					if (target < 0) {
+						break;
+					}
+				}
+			}
+			if (next < 0) {
+				// all other elements coincide with a medoid
+				next = 0;
+				while (isMedoid[next]) {
+					next++;
+				}
+			}
+		}
+		return medoids;
+	}
+
+	/**
+	 * @param medoids
+	 *            - The medoids.
+	 * @return For each element the position of its nearest medoid in the
+	 *         medoids given (the first one of equal distance).
+	 */
+	public int[] assign(int[] medoids) {
+		final int[] assignment = new int[n];
+		final double[] nearest = new double[n];
+		Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+		final double[] row = new double[n];
+		for (int m = 0; m < medoids.length; m++) {
+			row(medoids[m], row);
+			for (int o = 0; o < n; o++) {
+				if (row[o] < nearest[o]) {
+					nearest[o] = row[o];
+					assignment[o] = m;
+				}
+			}
+		}
+		return assignment;
+	}
+
+	/**
+	 * @param medoids
+	 *            - The medoids.
+	 * @return The sum of the distances of all elements to their nearest
+	 *         medoid.
+	 */
+	public double cost(int[] medoids) {
+		final int[] assignment = assign(medoids);
+		double cost = 0;
+		for (int o = 0; o < n; o++) {
+			cost += distance(o, medoids[assignment[o]]);
+		}
+		return cost;
+	}
+
+	/*
+	 * Swap medoids with other elements as long as this reduces the sum of the
+	 * distances to the nearest medoids (for at least two medoids).
+	 */
+	private void swap(int[] medoids, int maxPasses) {
+		final int k = medoids.length;
+		final boolean[] isMedoid = new boolean[n];
+		final double[][] medoidRows = new double[k][n];
+		for (int m = 0; m < k; m++) {
+			isMedoid[medoids[m]] = true;
+			row(medoids[m], medoidRows[m]);
+		}
+		// nearest medoid of each element, distances to the nearest and second
+		// nearest medoid
+		final int[] nearest = new int[n];
+		final double[] first = new double[n];
+		final double[] second = new double[n];
+		// increase of the cost if a medoid were removed
+		final double[] removalLoss = new double[k];
+		double cost = assign(medoidRows, nearest, first, second, removalLoss);
+
+		final double[] row = new double[n];
+		final double[] change = new double[k];
+		for (int pass = 0; pass < maxPasses; pass++) {
+			boolean swapped = false;
+			for (int c = 0; c < n; c++) {
+				if (isMedoid[c]) {
+					continue;
+				}
+				row(c, row);
+				System.arraycopy(removalLoss, 0, change, 0, k);
+				// change for all medoids: elements moving to c
+				double shared = 0;
+				for (int o = 0; o < n; o++) {
+					final double d = row[o];
+					if (d < first[o]) {
+						shared += d - first[o];
+						// o does not move to its second nearest medoid
+						change[nearest[o]] += first[o] - second[o];
+					} else if (d < second[o]) {
+						change[nearest[o]] += d - second[o];
+					}
+				}
+				int best = 0;
+				for (int m = 1; m < k; m++) {
+					if (change[m] < change[best]) {
+						best = m;
+					}
+				}
+				// allow for rounding, else rounding errors might swap forever
+				if (change[best] + shared < -1e-10 * cost) {
+					isMedoid[medoids[best]] = false;
+					isMedoid[c] = true;
+					medoids[best] = c;
+					System.arraycopy(row, 0, medoidRows[best], 0, n);
+					cost = assign(medoidRows, nearest, first, second, removalLoss);
+					swapped = true;
+				}
+			}
+			if (!swapped) {
+				break;
+			}
+		}
+	}
+
+	private double assign(double[][] medoidRows, int[] nearest, double[] first, double[] second,
+			double[] removalLoss) {
+		Arrays.fill(first, Double.POSITIVE_INFINITY);
+		Arrays.fill(second, Double.POSITIVE_INFINITY);
+		for (int m = 0; m < medoidRows.length; m++) {
+			final double[] row = medoidRows[m];
+			for (int o = 0; o < n; o++) {
+				if (row[o] < first[o]) {
+					second[o] = first[o];
+					first[o] = row[o];
+					nearest[o] = m;
+				} else if (row[o] < second[o]) {
+					second[o] = row[o];
+				}
+			}
+		}
+		Arrays.fill(removalLoss, 0);
+		double cost = 0;
+		for (int o = 0; o < n; o++) {
+			removalLoss[nearest[o]] += second[o] - first[o];
+			cost += first[o];
+		}
+		return cost;
+	}
+}
@@ -0,0 +1,445 @@
+package modules.tree_building.suffixTreeClustering.clustering.hierarchical;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import modules.tree_building.suffixTreeClustering.clustering.CondensedMatrix;
+
+/**
+ * Hierarchical agglomerative clustering of a condensed distance matrix, i.e.
+ * the distances d(i,j) with i &lt; j row by row in a single array.
+ *
+ * Each cluster is kept in the slot of its smallest element, a merge of the
+ * clusters in slots i &lt; j keeps the merged cluster in slot i. For
+ * reducible similarity measures the nearest neighbour chain algorithm is
+ * used, taking O(n²) time. The merges found are sorted by their distances
+ * afterwards. For the other measures a heap holds the nearest neighbour of
+ * each cluster (among the clusters in later slots) and the closest pair is
+ * merged in each step.
+ *
+ * Either way the pairs are merged in the order of ascending distance, pairs
+ * of the same distance by ascending slots, as the closest pair of clusters
+ * was searched for before. The chain can not resolve ties in that order
+ * (breaking them by slots inside the chain is not reducible, as a merged
+ * cluster takes the slot of one of its parts), so distances that show ties
+ * in a sample (as whole numbers or duplicates do) are clustered with the
+ * heap right away. If the chain still meets a tie, i.e. a cluster with more
+ * than one nearest neighbour or two merges of the same distance, the
+ * elements are clustered again with the heap.
+ */
+public class AgglomerativeClustering {
+
+	// amount of values checked for ties before running the chain
+	private static final int SAMPLE_SIZE = 1 << 16;
+
+	private final int n;
+	private final SimilarityMeasure measure;
+	// the linkage values of all pairs of clusters: distances for single and
+	// complete link, sums of distances for average link and squared
+	// distances otherwise
+	private final double[] values;
+	private final int[] sizes;
+	private final boolean[] active;
+
+	// the merges in the order they are found
+	private final int[][] merges;
+	private final double[] mergeDistances;
+	private int mergeCount = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param n
+	 *            - Number of elements to cluster.
+	 * @param distances
+	 *            - Condensed matrix of their distances (is changed while
+	 *            clustering).
+	 * @param measure
+	 *            - The measure of distances between clusters.
+	 */
+	public AgglomerativeClustering(int n, double[] distances, SimilarityMeasure measure) {
+		CondensedMatrix.checkLength(n, distances.length);
+		this.n = n;
+		this.measure = measure;
+		this.values = distances;
+		if (measure == SimilarityMeasure.WARD || !measure.isReducible()) {
+			for (int k = 0; k < values.length; k++) {
+				values[k] *= values[k];
+			}
+		}
+		this.sizes = new int[n];
+		Arrays.fill(sizes, 1);
+		this.active = new boolean[n];
+		Arrays.fill(active, true);
+		this.merges = new int[Math.max(0, n - 1)][];
+		this.mergeDistances = new double[Math.max(0, n - 1)];
+	}
+
+	/**
+	 * Cluster all elements.
+	 *
+	 * @return The n-1 merges in order, each giving the slots of the two
+	 *         clusters merged (the smaller slot first).
+	 */
+	public int[][] cluster() {
+		if (measure.isReducible() && !sampleHasTies()) {
+			final double[] initialValues = values.clone();
+			if (nearestNeighbourChain()) {
+				return merges;
+			}
+			// start over, resolving the ties with the heap
+			System.arraycopy(initialValues, 0, values, 0, values.length);
+			Arrays.fill(sizes, 1);
+			Arrays.fill(active, true);
+			mergeCount = 0;
+		}
+		nearestNeighbourHeap();
+		return merges;
+	}
+
+	/**
+	 * @return The distances of the clusters merged, in the order of the
+	 *         merges.
+	 */
+	public double[] getDistances() {
+		return mergeDistances;
+	}
+
+	// Whether any two of up to SAMPLE_SIZE values spread over all pairs are
+	// the same. Sorting all values would take longer than clustering them.
+	private boolean sampleHasTies() {
+		final int step = Math.max(1, values.length / SAMPLE_SIZE);
+		final double[] sorted = new double[(values.length + step - 1) / step];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = values[i * step];
+		}
+		Arrays.sort(sorted);
+		for (int k = 1; k < sorted.length; k++) {
+			if (sorted[k - 1] == sorted[k]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Returns false without finishing if a tie is met
+	private boolean nearestNeighbourChain() {
+		// the largest merge distance within each cluster, to keep merges
+		// after the merges they depend on when sorting
+		final double[] heights = new double[n];
+		final double[] sortKeys = new double[merges.length];
+		final int[] chain = new int[n];
+		int chainLength = 0;
+		int next = 0;
+
+		while (mergeCount < n - 1) {
+			if (chainLength == 0) {
+				while (!active[next]) {
+					next++;
+				}
+				chain[chainLength++] = next;
+			}
+			int a;
+			int b;
+			while (true) {
+				a = chain[chainLength - 1];
+				final int previous = chainLength > 1 ? chain[chainLength - 2] : -1;
+				b = previous;
+				double nearest = previous < 0 ? Double.POSITIVE_INFINITY : value(a, previous);
+				boolean tie = false;
+				for (int x = 0, k = a - 1; x < n; k += next(x, a), x++) {
+					if (x != a && active[x]) {
+						final double value = value(k, a, x);
+						if (value < nearest || b < 0) {
+							nearest = value;
+							b = x;
+							tie = false;
+						} else if (value == nearest && x != b) {
+							tie = true;
+						}
+					}
+				}
+				if (tie) {
+					return false;
+				}
+				if (b == previous) {
+					break;
+				}
+				chain[chainLength++] = b;
+			}
+			chainLength -= 2;
+
+			final int lower = Math.min(a, b);
+			final int upper = Math.max(a, b);
+			final double distance = distance(lower, upper);
+			sortKeys[mergeCount] = Math.max(distance, Math.max(heights[lower], heights[upper]));
+			heights[lower] = sortKeys[mergeCount];
+			merge(lower, upper, distance);
+		}
+
+		// merges of equal distance are ties, left to the heap
+		final Integer[] order = new Integer[mergeCount];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i, Integer j) {
+				return Double.compare(sortKeys[i], sortKeys[j]);
+			}
+		});
+		for (int i = 1; i < order.length; i++) {
+			if (sortKeys[order[i - 1]] == sortKeys[order[i]]) {
+				return false;
+			}
+		}
+		final int[][] found = merges.clone();
+		final double[] foundDistances = mergeDistances.clone();
+		for (int i = 0; i < order.length; i++) {
+			merges[i] = found[order[i]];
+			mergeDistances[i] = foundDistances[order[i]];
+		}
+		return true;
+	}
+
+	private void nearestNeighbourHeap() {
+		// nearest neighbour of each slot among the later slots
+		final int[] neighbours = new int[n];
+		final double[] nearest = new double[n];
+		final SlotHeap heap = new SlotHeap(n, nearest);
+		for (int i = 0; i < n - 1; i++) {
+			findNeighbour(i, neighbours, nearest);
+			heap.add(i);
+		}
+
+		while (mergeCount < n - 1) {
+			int a = heap.top();
+			// neighbours may be merged away or have grown more distant since
+			while (!active[neighbours[a]] || value(a, neighbours[a]) != nearest[a]) {
+				findNeighbour(a, neighbours, nearest);
+				if (neighbours[a] < 0) {
+					// no later slot left
+					heap.remove(a);
+				} else {
+					heap.update(a);
+				}
+				a = heap.top();
+			}
+			final int b = neighbours[a];
+			merge(a, b, distance(a, b));
+			heap.remove(b);
+
+			for (int x = 0, k = a - 1; x < a; k += next(x, a), x++) {
+				if (active[x]) {
+					final double value = value(k, x, a);
+					if (value < nearest[x] || (value == nearest[x] && a < neighbours[x])) {
+						nearest[x] = value;
+						neighbours[x] = a;
+						heap.update(x);
+					}
+				}
+			}
+			if (mergeCount < n - 1) {
+				findNeighbour(a, neighbours, nearest);
+				if (neighbours[a] < 0) {
+					// no later slot left
+					heap.remove(a);
+				} else {
+					heap.update(a);
+				}
+			}
+		}
+	}
+
+	private void findNeighbour(int i, int[] neighbours, double[] nearest) {
+		neighbours[i] = -1;
+		nearest[i] = Double.POSITIVE_INFINITY;
+		for (int x = i + 1, k = CondensedMatrix.index(n, i, i + 1); x < n; x++, k++) {
+			if (active[x]) {
+				final double value = value(k, i, x);
+				if (value < nearest[i] || neighbours[i] < 0) {
+					nearest[i] = value;
+					neighbours[i] = x;
+				}
+			}
+		}
+	}
+
+	// the value compared to find the closest clusters
+	private double value(int i, int j) {
+		return value(i < j ? CondensedMatrix.index(n, i, j) : CondensedMatrix.index(n, j, i), i, j);
+	}
+
+	// the value compared for clusters i and j, k being the index of the pair
+	private double value(int k, int i, int j) {
+		if (measure == SimilarityMeasure.AVERAGE_LINK) {
+			return values[k] / (sizes[i] + sizes[j]);
+		}
+		return values[k];
+	}
+
+	/*
+	 * Going through the pairs of slot i with each slot x in order, starting
+	 * at index i - 1 for x = 0, returns the step from the index of the pair
+	 * with x to the one with x + 1: down the column of i up to i, then along
+	 * the row of i.
+	 */
+	private int next(int x, int i) {
+		return x < i ? n - x - 2 : 1;
+	}
+
+	private double distance(int i, int j) {
+		final double value = values[i < j ? CondensedMatrix.index(n, i, j) : CondensedMatrix.index(n, j, i)];
+		switch (measure) {
+		case SINGLE_LINK:
+		case COMPLETE_LINK:
+			return value;
+		case AVERAGE_LINK:
+			return value / (sizes[i] + sizes[j]);
+		default:
+			return Math.sqrt(value);
+		}
+	}
+
+	/*
+	 * Merge the clusters in slots a < b into slot a, updating the values of
+	 * slot a following Lance and Williams.
+	 */
+	private void merge(int a, int b, double distance) {
+		merges[mergeCount] = new int[] { a, b };
+		mergeDistances[mergeCount] = distance;
+		mergeCount++;
+
+		final double ab = values[CondensedMatrix.index(n, a, b)];
+		final double sizeA = sizes[a];
+		final double sizeB = sizes[b];
+		active[b] = false;
+		for (int x = 0, ax = a - 1, bx = b - 1; x < n; ax += next(x, a), bx += next(x, b), x++) {
+			if (!active[x] || x == a) {
+				continue;
+			}
+			final double sizeX = sizes[x];
+			switch (measure) {
+			case SINGLE_LINK:
+				values[ax] = Math.min(values[ax], values[bx]);
+				break;
+			case COMPLETE_LINK:
+				values[ax] = Math.max(values[ax], values[bx]);
+				break;
+			case AVERAGE_LINK:
+				values[ax] += values[bx];
+				break;
+			case WARD:
+				values[ax] = ((sizeA + sizeX) * values[ax] + (sizeB + sizeX) * values[bx] - sizeX * ab)
+						/ (sizeA + sizeB + sizeX);
+				break;
+			case CENTROID:
+				values[ax] = (sizeA * values[ax] + sizeB * values[bx]) / (sizeA + sizeB)
+						- sizeA * sizeB * ab / ((sizeA + sizeB) * (sizeA + sizeB));
+				break;
+			case MEDIAN:
+				values[ax] = (values[ax] + values[bx]) / 2 - ab / 4;
+				break;
+			default:
+				throw new RuntimeException("invalid similarity measure");
+			}
+		}
+		sizes[a] += sizes[b];
+	}
+
+	/*
+	 * Binary min-heap of slots, ordered by their keys and then by the slots.
+	 */
+	private static final class SlotHeap {
+
+		private final double[] keys;
+		private final int[] heap;
+		// position of each slot in the heap, -1 if not in it
+		private final int[] positions;
+		private int size = 0;
+
+		SlotHeap(int n, double[] keys) {
+			this.keys = keys;
+			this.heap = new int[n];
+			this.positions = new int[n];
+			Arrays.fill(positions, -1);
+		}
+
+		int top() {
+			return heap[0];
+		}
+
+		void add(int slot) {
+			heap[size] = slot;
+			positions[slot] = size;
+			size++;
+			up(positions[slot]);
+		}
+
+		void update(int slot) {
+			if (positions[slot] < 0) {
+				add(slot);
+			} else {
+				up(positions[slot]);
+				down(positions[slot]);
+			}
+		}
+
+		void remove(int slot) {
+			final int position = positions[slot];
+			if (position < 0) {
+				return;
+			}
+			size--;
+			positions[slot] = -1;
+			if (position < size) {
+				final int moved = heap[size];
+				heap[position] = moved;
+				positions[moved] = position;
+				up(position);
+				down(positions[moved]);
+			}
+		}
+
+		private boolean less(int slot, int other) {
+			return keys[slot] < keys[other] || (keys[slot] == keys[other] && slot < other);
+		}
+
+		private void up(int position) {
+			while (position > 0) {
+				final int parent = (position - 1) / 2;
+				if (!less(heap[position], heap[parent])) {
+					break;
+				}
+				swap(position, parent);
+				position = parent;
+			}
+		}
+
+		private void down(int position) {
+			while (true) {
+				final int left = 2 * position + 1;
+				if (left >= size) {
+					break;
+				}
+				int child = left;
+				if (left + 1 < size && less(heap[left + 1], heap[left])) {
+					child = left + 1;
+				}
+				if (!less(heap[child], heap[position])) {
+					break;
+				}
+				swap(position, child);
+				position = child;
+			}
+		}
+
+		private void swap(int i, int j) {
+			final int slot = heap[i];
+			heap[i] = heap[j];
+			heap[j] = slot;
+			positions[heap[i]] = i;
+			positions[heap[j]] = j;
+		}
+	}
+}
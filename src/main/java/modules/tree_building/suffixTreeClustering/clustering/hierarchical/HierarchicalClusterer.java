@@ -1,9 +1,7 @@
 package modules.tree_building.suffixTreeClustering.clustering.hierarchical;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import modules.tree_building.suffixTreeClustering.data.Type;
 
@@ -12,9 +10,9 @@ public class HierarchicalClusterer {
 	private List<Type> documents;
 	private List<HierarchicalCluster> clusters;
 	int N; // number of Types/Documents
-	private int currentNumberOfClusters;
 	private SimilarityMeasure s;
-	private Map<TypePair, Double> vectorDistances;
+	// condensed matrix of the document distances
+	private double[] vectorDistances;
 
 	/**
 	 * Constructor. Initializes documents to cluster and similarity measure.
@@ -23,11 +21,23 @@ public class HierarchicalClusterer {
 	 *            - List of documents to cluster.
 	 */
 	public HierarchicalClusterer(List<Type> types) {
+		this(types, SimilarityMeasure.AVERAGE_LINK);
+	}
+
+	/**
+	 * Constructor. Initializes documents to cluster and similarity measure.
+	 * 
+	 * @param types
+	 *            - List of documents to cluster.
+	 * @param measure
+	 *            - Measure of distances between clusters.
+	 */
+	public HierarchicalClusterer(List<Type> types, SimilarityMeasure measure) {
 		this.documents = types;
 		N = this.documents.size();
 		this.clusters = new ArrayList<HierarchicalCluster>();
 
-		s = SimilarityMeasure.AVERAGE_LINK;
+		s = measure;
 	}
 
 	/**
@@ -35,8 +45,6 @@ public class HierarchicalClusterer {
 	 */
 	public void analyze() {
 
-		this.vectorDistances = new HashMap<TypePair, Double>();
-
 		/*
 		 * in the beginning, each document constitutes 1 cluster
 		 */
@@ -47,7 +55,6 @@ public class HierarchicalClusterer {
 			cluster.addTopic(type.getString());
 			clusters.add(cluster);
 		}
-		currentNumberOfClusters = clusters.size();
 
 		cluster();
 	}
@@ -57,113 +64,52 @@ public class HierarchicalClusterer {
 	 * criterion), combine nearest (according to similarity measure) clusters.
 	 */
 	private void cluster() {
-		while (currentNumberOfClusters > 1) {
-			if (currentNumberOfClusters == documents.size()) {
-				getVectorDistances();
-			}
-
-			combineNearestCluster();
+		if (N < 2) {
+			return;
+		}
+		getVectorDistances();
 
-			currentNumberOfClusters--;
+		/*
+		 * each cluster stays in the slot of its first document, which is its
+		 * position in the list of clusters as well
+		 */
+		HierarchicalCluster[] slots = clusters
+				.toArray(new HierarchicalCluster[N]);
+		int[][] merges = new AgglomerativeClustering(N, vectorDistances, s)
+				.cluster();
+		for (int[] merge : merges) {
+			combineClusters(slots, merge[0], merge[1]);
 		}
+		clusters.clear();
+		clusters.add(slots[0]);
 	}
 
 	/*
 	 * Set up vector distances to be used for clustering.
 	 */
 	private void getVectorDistances() {
-		for (int i = 0; i < documents.size() - 1; i++) {
-			for (int j = i + 1; j < documents.size(); j++) {
+		this.vectorDistances = new double[(int) ((long) N * (N - 1) / 2)];
+		int k = 0;
+		for (int i = 0; i < N - 1; i++) {
+			for (int j = i + 1; j < N; j++) {
 				Type type1 = documents.get(i);
 				Type type2 = documents.get(j);
-				Double dist = type1.getVector().distance(type2.getVector());
-				TypePair pair = new TypePair(type1, type2);
-				Double put = vectorDistances.put(pair, dist);
-				if (put != null) {
-					System.err.println("Map already contained key " + pair);
-				}
+				vectorDistances[k++] = type1.getVector().distance(
+						type2.getVector());
 			}
 		}
 	}
 
 	/*
-	 * Combine the 2 nearest clusters. Add combined cluster to set of clusters
-	 * and delete the 2 clusters.
+	 * Combine 2 clusters. Put combined cluster into the slot of the first and
+	 * empty the slot of the second.
 	 */
-	private void combineNearestCluster() {
-		Double smallestClusterDist = Double.POSITIVE_INFINITY;
-		int c1 = 0;
-		int c2 = 0;
-		for (int i = 0; i < clusters.size() - 1; i++) {
-			HierarchicalCluster cluster1 = clusters.get(i);
-			for (int j = i + 1; j < clusters.size(); j++) {
-				HierarchicalCluster cluster2 = clusters.get(j);
-				Double clusterDist = getClusterDistance(cluster1, cluster2);
-				if (clusterDist < smallestClusterDist) {
-					smallestClusterDist = clusterDist;
-					c1 = i;
-					c2 = j;
-				}
-			}
-		}
-		System.out.println("combine: " + clusters.get(c1) + " and "
-				+ clusters.get(c2));
-		HierarchicalCluster newCluster = new HierarchicalCluster(
-				clusters.get(c1), clusters.get(c2));
-		clusters.remove(c2);
-		clusters.set(c1, newCluster);
-	}
-
-	/*
-	 * Calculate the cluster distance between 2 clusters according to given
-	 * similarity measure.
-	 */
-	private Double getClusterDistance(HierarchicalCluster c1,
-			HierarchicalCluster c2) {
-		List<Type> vecsInC1 = c1.getAllTypes();
-		List<Type> vecsInc2 = c2.getAllTypes();
-		Double minDist = Double.POSITIVE_INFINITY;
-		Double maxDist = 0d;
-		Double averageDist = 0d;
-
-		for (int i = 0; i < vecsInC1.size(); i++) {
-			Type vecID1 = vecsInC1.get(i);
-			for (int j = 0; j < vecsInc2.size(); j++) {
-				Type vecID2 = vecsInc2.get(j);
-				Double dist = 0d;
-				TypePair pair;
-
-				if (vecID2.getID() < vecID1.getID()) {
-					pair = new TypePair(vecID2, vecID1);
-				} else {
-					pair = new TypePair(vecID1, vecID2);
-				}
-
-				if (!vectorDistances.containsKey(pair))
-					System.out.println("VectorDistances does not contain key "
-							+ pair);
-
-				dist = vectorDistances.get(pair);
-				averageDist += dist;
-				if (dist < minDist) {
-					minDist = dist;
-				}
-				if (dist > maxDist) {
-					maxDist = dist;
-				}
-			}
-		}
-		switch (s) {
-		case SINGLE_LINK:
-			return minDist;
-		case COMPLETE_LINK:
-			return maxDist;
-		case AVERAGE_LINK:
-			averageDist /= (vecsInC1.size() + vecsInc2.size());
-			return averageDist;
-		default:
-			throw new RuntimeException("invalid similarity measure");
-		}
+	private void combineClusters(HierarchicalCluster[] slots, int c1, int c2) {
+		System.out.println("combine: " + slots[c1] + " and " + slots[c2]);
+		HierarchicalCluster newCluster = new HierarchicalCluster(slots[c1],
+				slots[c2]);
+		slots[c2] = null;
+		slots[c1] = newCluster;
 	}
 
 	/**
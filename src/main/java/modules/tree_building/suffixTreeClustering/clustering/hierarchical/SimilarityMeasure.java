@@ -1,5 +1,34 @@
 package modules.tree_building.suffixTreeClustering.clustering.hierarchical;
 
+/**
+ * Ways to measure the distance between two clusters.
+ *
+ * SINGLE_LINK, COMPLETE_LINK, AVERAGE_LINK and WARD are reducible, the
+ * distance of a merged cluster to a third one never falls below the distance
+ * of both its parts to that cluster. CENTROID and MEDIAN are not.
+ */
 public enum SimilarityMeasure {
-	SINGLE_LINK, COMPLETE_LINK, AVERAGE_LINK
+	/** smallest distance between members of the clusters */
+	SINGLE_LINK,
+	/** largest distance between members of the clusters */
+	COMPLETE_LINK,
+	/**
+	 * sum of the distances between members of the clusters, divided by the
+	 * sum of the cluster sizes
+	 */
+	AVERAGE_LINK,
+	/** increase of the within-cluster variance caused by merging */
+	WARD,
+	/** distance between the centroids of the clusters */
+	CENTROID,
+	/** distance between the clusters' centres, weighting both equally */
+	MEDIAN;
+
+	/**
+	 * @return true if the nearest neighbour chain algorithm can be used with
+	 *         this measure.
+	 */
+	public boolean isReducible() {
+		return this != CENTROID && this != MEDIAN;
+	}
 }
@@ -1,49 +1,103 @@
 package modules.tree_building.suffixTreeClustering.clustering.neighborjoin;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.logging.Logger;
 
+import modules.tree_building.suffixTreeClustering.clustering.CondensedMatrix;
 import modules.tree_building.suffixTreeClustering.data.Type;
 
+/**
+ * Neighbor Joining of types by the distances of their vectors.
+ * 
+ * The pair to join next is searched either canonically (the default),
+ * computing r and the Q value of every pair in each step, or RapidNJ-style:
+ * each cluster has a row of the clusters created before it, sorted by
+ * D(i,j) - r'(j), r'(j) being r(j) at the time the row was sorted. As
+ * Q(i,j) = D(i,j) - r(i) - r(j) is at least
+ * D(i,j) - r'(j) - r(i) - max(r(j) - r'(j)), a row need only be scanned until
+ * that bound exceeds the smallest Q value found. All rows are sorted anew
+ * whenever an eighth of the clusters has been joined.
+ * 
+ * Both searches compute r anew in each step and Q alike, so they join the
+ * same pairs in the same order (of pairs with the same Q value the first
+ * one). The RapidNJ search saves computing Q for all pairs, which pays off
+ * for distances of clustered types. For distances without such structure it
+ * is slower than the canonical one.
+ */
 public class NeighborJoining {
 
 	private static final String LOG_TAG = NeighborJoining.class.getSimpleName();
+	// quadruples of taxa checked for additivity
+	private static final int ADDITIVITY_SAMPLES = 10000;
 	private Logger logger;
 
 	private List<Type> documents;
-	private double[][] distanceMatrix;
+	private boolean rapid;
+	private int size; // number of taxa
+	private double[] distanceMatrix; // condensed, D(i,j) with i < j
 	private int numCluster;
 	private Map<Integer, String> aliasNames;
 	private int[] alias; // merkt sich die ursprünglichen Indizes aus der
 	// Distanzmatrix
-	private double[] r; // Netto-Divergenzen
+	private double[] r; // Netto-Divergenzen (nach Indizes der Matrix)
 	private int newIndex;
 
+	// RapidNJ: rows of the clusters created before each cluster, sorted by
+	// distance minus the reference value of r (as keys along with the
+	// clusters), the clusters' order of creation and whether they still exist
+	private long[][] sortedRows;
+	private int[] rowStarts; // the entries before are joined
+	private double[] referenceR;
+	private int[] created;
+	private int nextCreated;
+	private boolean[] active;
+	private int sortedClusters; // number of clusters when all rows were sorted
+
 	private NJNode root;
 	private int best_i;
 	private int best_j;
 	private int aliasBesti;
 
 	public NeighborJoining(List<Type> types) {
+		this(types, false, true);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param types
+	 *            - List of documents to cluster.
+	 * @param rapid
+	 *            - true to search the pairs to join in sorted rows
+	 *            (RapidNJ), false to compute all Q values.
+	 * @param checkAdditivity
+	 *            - true to warn if a sample of quadruples of types violates
+	 *            the four point condition.
+	 */
+	public NeighborJoining(List<Type> types, boolean rapid,
+			boolean checkAdditivity) {
 		this.logger = Logger.getLogger(LOG_TAG);
 
 		this.documents = types;
-		createDistanceMatrix();
+		this.rapid = rapid;
+		this.size = types.size();
 
-		if (distanceMatrix.length < 3) {
+		if (size < 3) {
 			throw new IllegalArgumentException("ZU WENIGE TAXA IN DER MATRIX!");
 		}
-		if (!isSymmetric(distanceMatrix)) {
-			throw new IllegalArgumentException("MATRIX IST UNSYMMETRISCH!");
-		}
-		if (!isAdditive(distanceMatrix)) {
+		// symmetric by construction, only D(i,j) with i < j is kept
+		createDistanceMatrix();
+
+		if (checkAdditivity && !isAdditive(ADDITIVITY_SAMPLES)) {
 			// throw new IllegalArgumentException("MATRIX IST NICHT ADDITIV!");
 			logger.warning("Matrix ist nicht additiv");
 		}
 
-		this.numCluster = distanceMatrix.length;
+		this.numCluster = size;
 		this.aliasNames = new HashMap<>();
 
 		newIndex = 1;
@@ -68,79 +122,66 @@ public class NeighborJoining {
 		}
 
 		r = new double[numCluster];
-	}
 
-	private boolean isAdditive(double[][] matrix) {
-		boolean holds = false;
-		for (int i = 0; i < matrix.length; i++) {
-			for (int j = 0; j < matrix.length; j++) {
-				for (int k = 0; k < matrix.length; k++) {
-					for (int l = 0; l < matrix.length; l++) {
-						if (i != j && i != k && i != l && j != k && j != l
-								&& k != l) {
-							holds = isSame(matrix[i][k] + matrix[j][l], 
-									matrix[i][l] + matrix[j][k]) 
-									&& isGreaterOrEqual(matrix[i][k] + matrix[j][l], 
-											matrix[i][j] + matrix[k][l]);
-							if (!holds)
-								return false;
-						}
-					}
-				}
+		if (rapid) {
+			active = new boolean[numCluster];
+			Arrays.fill(active, true);
+			created = new int[numCluster];
+			for (int i = 0; i < numCluster; i++) {
+				created[i] = nextCreated++;
+			}
+			netDivergences();
+			referenceR = Arrays.copyOf(r, numCluster);
+			sortedRows = new long[numCluster][];
+			rowStarts = new int[numCluster];
+			for (int i = 0; i < numCluster; i++) {
+				sortRow(i);
 			}
+			sortedClusters = numCluster;
 		}
-		return true;
-	}
-
-	private boolean isGreaterOrEqual(double d1, double d2) {
-		return Double.compare(d1, d2) == 0;
-	}
-
-	private boolean isSame(double d1, double d2) {
-		return Double.compare(d1, d2) >= 0;
 	}
 
-	private boolean isSymmetric(double[][] matrix) {
-		if (matrix.length != matrix[0].length) {
-			System.err.println("Matrix is not symmetric!");
-			return false;
-		} else {
-			for (int i = 0; i < matrix.length; i++) {
-				for (int j = 0; j < matrix[i].length; j++) {
-					if (!(matrix[i][j] == (matrix[j][i]))) {
-						System.out
-								.printf("Values of matrix[%s][%s]=%s and matrix[%s][%s]=%s are not the same",
-										i, j, matrix[i][j], j, i, matrix[j][i]);
-						return false;
-					}
-					if (i == j && !(matrix[i][j] == (new Double(0.0)))) {
-						System.out.printf(
-								"Value of matrix[%s][%s]=%s is not 0", i, j,
-								matrix[i][j]);
-						return false;
-					}
-				}
+	/*
+	 * Check the four point condition for randomly chosen quadruples: of the
+	 * sums D(i,j) + D(k,l), D(i,k) + D(j,l) and D(i,l) + D(j,k) the two largest
+	 * have to be equal (up to the precision of the distances).
+	 */
+	private boolean isAdditive(int samples) {
+		if (size < 4) {
+			return true;
+		}
+		Random random = new Random(size);
+		for (int sample = 0; sample < samples; sample++) {
+			int i = random.nextInt(size);
+			int j, k, l;
+			do {
+				j = random.nextInt(size);
+			} while (j == i);
+			do {
+				k = random.nextInt(size);
+			} while (k == i || k == j);
+			do {
+				l = random.nextInt(size);
+			} while (l == i || l == j || l == k);
+
+			double[] pairSums = { distance(i, j) + distance(k, l),
+					distance(i, k) + distance(j, l),
+					distance(i, l) + distance(j, k) };
+			Arrays.sort(pairSums);
+			if (!isSame(pairSums[1], pairSums[2])) {
+				return false;
 			}
 		}
 		return true;
 	}
 
+	private boolean isSame(double d1, double d2) {
+		return Math.abs(d1 - d2) <= 1e-6 * Math.max(Math.abs(d1), Math.abs(d2));
+	}
+
 	public void start() {
 		logger.info("Start NJ...");
 
-		// System.out.print("Distance Matrix:\n-----------------\n\t");
-		// for (int i = 0; i < distanceMatrix[0].length; i++) {
-		// System.out.print("Type " + i + "\t\t\t");
-		// }
-		// System.out.println();
-		// for (int i = 0; i < distanceMatrix.length; i++) {
-		// System.out.print("Type " + i + "\t");
-		// for (int j = 0; j < distanceMatrix[i].length; j++) {
-		// System.out.print(distanceMatrix[i][j] + "\t");
-		// }
-		// System.out.println();
-		// }
-
 		while (true) {
 			findNextPair();
 			newBranchLengths();
@@ -154,41 +195,215 @@ public class NeighborJoining {
 	}
 
 	private void findNextPair() {
-		// r_i = sum(d_ij) / (N-2) for all j=1 to N
-		for (int i = 0; i < numCluster; i++) {
-			r[i] = 0.0f;
-			for (int j = 0; j < numCluster; j++) {
-				r[i] += getDistance(i, j);
+		netDivergences();
+
+		if (rapid) {
+			findNextPairInSortedRows();
+		} else {
+			best_i = 0;
+			best_j = 0;
+
+			double min = Double.POSITIVE_INFINITY;
+
+			// calculate M and simultaniously, store the cell with smallest
+			// value
+			for (int i = 0; i < numCluster - 1; i++) {
+				for (int j = i + 1; j < numCluster; j++) {
+					// M_ij = D_ij - r_i - r_j
+					double M_ij = getDistance(i, j) - r[alias[i]]
+							- r[alias[j]];
+
+					if (M_ij < min) {
+						// if there are multiple smallest values, the first
+						// pair will be stored...
+						min = M_ij;
+						best_i = i;
+						best_j = j;
+					}
+				}
 			}
-			r[i] /= (numCluster - 2);
 		}
 
-		best_i = 0;
-		best_j = 0;
+		aliasBesti = alias[best_i];
+	}
+
+	/*
+	 * Search the pair with the smallest Q value in the sorted rows, of pairs
+	 * with the same value the first one (as the canonical search does).
+	 */
+	private void findNextPairInSortedRows() {
+		// how far r has grown at most since the rows were sorted
+		double maxGrowth = Double.NEGATIVE_INFINITY;
+		double scale = 0.0;
+		for (int p = 0; p < numCluster; p++) {
+			int j = alias[p];
+			maxGrowth = Math.max(maxGrowth, r[j] - referenceR[j]);
+			scale = Math.max(scale, Math.abs(r[j]) + Math.abs(referenceR[j]));
+		}
+		// allow for rounding in computing Q
+		double slack = 1e-12 * scale;
 
 		double min = Double.POSITIVE_INFINITY;
+		int bestLower = -1;
+		int bestUpper = -1;
+
+		for (int p = 0; p < numCluster; p++) {
+			int i = alias[p];
+			long[] row = sortedRows[i];
+			double ri = r[i];
+			for (int k = rowStarts[i]; k < row.length; k++) {
+				// the rows are sorted by the key, so is Q of the remaining
+				// pairs
+				double bound = key(row[k]) - maxGrowth - ri;
+				if (bound - slack * (1.0 + Math.abs(bound)) > min) {
+					break;
+				}
+				int j = (int) row[k];
+				if (!active[j] || created[j] > created[i]) {
+					// joined since the row was sorted
+					if (k == rowStarts[i]) {
+						rowStarts[i]++;
+					}
+					continue;
+				}
+				int lower = Math.min(i, j);
+				int upper = Math.max(i, j);
+				double M_ij = distance(i, j) - r[lower] - r[upper];
+				if (M_ij < min || (M_ij == min && (lower < bestLower
+						|| (lower == bestLower && upper < bestUpper)))) {
+					min = M_ij;
+					bestLower = lower;
+					bestUpper = upper;
+				}
+			}
+		}
 
-		// calculate M and simultaniously, store the cell with smallest value
-		for (int i = 0; i < numCluster - 1; i++) {
-			for (int j = i + 1; j < numCluster; j++) {
-				// M_ij = D_ij - r_i - r_j
-				double M_ij = getDistance(i, j) - r[i] - r[j];
+		best_i = Arrays.binarySearch(alias, 0, numCluster, bestLower);
+		best_j = Arrays.binarySearch(alias, 0, numCluster, bestUpper);
+	}
 
-				if (M_ij < min) {
-					// if there are multiple smallest values, the first pair
-					// will be stored...
-					min = M_ij;
-					best_i = i;
-					best_j = j;
+	/*
+	 * Take the current values of r as reference and sort all rows anew,
+	 * dropping the clusters joined. The keys are shifted by the change of the
+	 * reference values, as lower bounds still.
+	 */
+	private void sortRows() {
+		double[] shift = new double[size];
+		netDivergences();
+		for (int p = 0; p < numCluster; p++) {
+			int j = alias[p];
+			shift[j] = referenceR[j] - r[j];
+			referenceR[j] = r[j];
+		}
+		for (int p = 0; p < numCluster; p++) {
+			int i = alias[p];
+			long[] row = sortedRows[i];
+			int length = 0;
+			for (int k = rowStarts[i]; k < row.length; k++) {
+				int j = (int) row[k];
+				if (active[j] && created[j] < created[i]) {
+					row[length++] = entry(key(row[k]) + shift[j], j);
 				}
 			}
+			Arrays.sort(row, 0, length);
+			sortedRows[i] = Arrays.copyOf(row, length);
+			rowStarts[i] = 0;
 		}
+		sortedClusters = numCluster;
+	}
 
-		aliasBesti = alias[best_i];
+	/*
+	 * Sort the row of a cluster: the clusters created before it, by the lower
+	 * bound of their distance minus their reference value of r.
+	 */
+	private void sortRow(int i) {
+		long[] row = new long[numCluster];
+		int length = 0;
+		for (int p = 0; p < numCluster; p++) {
+			int j = alias[p];
+			if (j != i && created[j] < created[i]) {
+				row[length++] = entry(distance(i, j) - referenceR[j], j);
+			}
+		}
+		Arrays.sort(row, 0, length);
+		sortedRows[i] = Arrays.copyOf(row, length);
+		rowStarts[i] = 0;
+	}
+
+	/*
+	 * An entry of a row holds the key, rounded down to a float (its bits
+	 * ordered like the floats), and the cluster.
+	 */
+	private static long entry(double key, int cluster) {
+		int bits = Float.floatToIntBits(lowerBound(key));
+		bits ^= (bits >> 31) & 0x7fffffff;
+		return ((long) bits << 32) | cluster;
+	}
+
+	private static float key(long entry) {
+		int bits = (int) (entry >> 32);
+		bits ^= (bits >> 31) & 0x7fffffff;
+		return Float.intBitsToFloat(bits);
+	}
+
+	// the largest float not above the value, to sort rows by
+	private static float lowerBound(double value) {
+		float bound = (float) value;
+		return bound > value ? Math.nextDown(bound) : bound;
+	}
+
+	/*
+	 * Compute r of all clusters in one pass over the pairs. Each cluster's
+	 * distances are summed in the order of the clusters still, as by
+	 * netDivergence: the distances to the clusters before it are added in
+	 * the passes over their pairs, then the ones of its own pairs.
+	 */
+	private void netDivergences() {
+		for (int i = 0; i < numCluster; i++) {
+			r[alias[i]] = 0.0;
+		}
+		for (int i = 0; i < numCluster - 1; i++) {
+			int ai = alias[i];
+			// the aliases are ascending, D(ai,aj) follows this offset
+			int offset = index(ai, ai + 1) - ai - 1;
+			double sum = r[ai];
+			for (int j = i + 1; j < numCluster; j++) {
+				int aj = alias[j];
+				double d = distanceMatrix[offset + aj];
+				sum += d;
+				r[aj] += d;
+			}
+			r[ai] = sum;
+		}
+		for (int i = 0; i < numCluster; i++) {
+			r[alias[i]] /= (numCluster - 2);
+		}
+	}
+
+	// r_i = sum(d_ij) / (N-2) for all j=1 to N, summed in the order of the
+	// clusters
+	private double netDivergence(int i) {
+		double sum = 0.0;
+		for (int j = 0; j < numCluster; j++) {
+			sum += getDistance(i, j);
+		}
+		return sum / (numCluster - 2);
 	}
 
 	private double getDistance(int i, int j) {
-		return distanceMatrix[alias[i]][alias[j]];
+		return distance(alias[i], alias[j]);
+	}
+
+	// distance by indices of the matrix
+	private double distance(int i, int j) {
+		if (i == j) {
+			return 0.0;
+		}
+		return distanceMatrix[index(Math.min(i, j), Math.max(i, j))];
+	}
+
+	private int index(int i, int j) {
+		return CondensedMatrix.index(size, i, j);
 	}
 
 	private void newBranchLengths() {
@@ -199,7 +414,7 @@ public class NeighborJoining {
 		// new branch lengths
 		double dij = getDistance(best_i, best_j);
 		// L_iu = (D_ij/2) + ((r_i - r_j) / 2)
-		double liu = ((dij) / 2) + ((r[best_i] - r[best_j]) / 2);
+		double liu = ((dij) / 2) + ((netDivergence(best_i) - netDivergence(best_j)) / 2);
 		double lju = ((dij) - liu);
 
 		child1.setBranchLength(liu);
@@ -207,16 +422,24 @@ public class NeighborJoining {
 	}
 
 	private void join() {
-		// Update distances
+		int aliasBestj = alias[best_j];
+		// the joined cluster is new, its row holds all other clusters
+		long[] row = rapid ? new long[numCluster - 2] : null;
+		int length = 0;
+		// Update distances, the joined cluster's sum as reference for its row
+		double sum = 0.0;
 		for (int k = 0; k < numCluster; k++) {
 			if (k != best_i && k != best_j) {
 				int ak = alias[k];
-				distanceMatrix[ak][aliasBesti] = distanceMatrix[aliasBesti][ak] = updatedDistance(
-						best_i, best_j, k);
+				double updated = updatedDistance(best_i, best_j, k);
+				if (rapid) {
+					sum += updated;
+					row[length++] = entry(updated - referenceR[ak], ak);
+				}
+				distanceMatrix[index(Math.min(ak, aliasBesti),
+						Math.max(ak, aliasBesti))] = updated;
 			}
 		}
-		distanceMatrix[aliasBesti][aliasBesti] = 0.0;
-
 		joinChilds(this.root, best_i, best_j);
 
 		// Update alias
@@ -225,6 +448,19 @@ public class NeighborJoining {
 		}
 
 		numCluster--;
+
+		if (rapid) {
+			// the other clusters' rows do not know the joined one
+			active[aliasBestj] = false;
+			created[aliasBesti] = nextCreated++;
+			referenceR[aliasBesti] = sum / (numCluster - 2);
+			Arrays.sort(row);
+			sortedRows[aliasBesti] = row;
+			rowStarts[aliasBesti] = 0;
+			if (numCluster <= sortedClusters * 7 / 8) {
+				sortRows();
+			}
+		}
 	}
 
 	private void joinChilds(NJNode root, int n1, int n2) {
@@ -267,20 +503,16 @@ public class NeighborJoining {
 				updatedDistance(best_i, best_j, 2));
 
 		distanceMatrix = null;
+		sortedRows = null;
 	}
 
 	private void createDistanceMatrix() {
-		double[][] temp = new double[documents.size()][documents.size()];
-
-		for (int i = 0; i < temp.length; i++) {
-			for (int j = 0; j < temp.length; j++) {
-				temp[i][j] = computeDistance(documents.get(i), documents.get(j));
-//				if (i != j && temp[i][j] == 0.0) {
-//					System.out.println(">>>debug");
-//					System.out.println(documents.get(i).getString());
-//					System.out.println(documents.get(j).getString());
-//					System.out.println();
-//				}
+		double[] temp = new double[(int) CondensedMatrix.length(size)];
+
+		int k = 0;
+		for (int i = 0; i < size - 1; i++) {
+			for (int j = i + 1; j < size; j++) {
+				temp[k++] = computeDistance(documents.get(i), documents.get(j));
 			}
 		}
 		this.distanceMatrix = temp;
@@ -1,6 +1,6 @@
 package modules.tree_building.suffixTreeClustering.features;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import modules.tree_building.suffixTreeClustering.data.Node;
@@ -41,20 +41,24 @@ public final class BinaryFeatures {
 	 */
 	public FeatureVector vector() {
 		// Ein Vektor für dieses Dokument ist...
-		List<Double> values = new ArrayList<Double>();
-		// ...für jeden Term im Vokabular... (=jeder Knoten im SuffixTree)
 		List<Node> terms = corpus.getNodes();
+		// ...für jeden Term im Vokabular... (=jeder Knoten im SuffixTree),
+		// den das Dokument durchlaufen hat (alle anderen sind 0)
+		int[] visited = corpus.getNodeIndices(document);
+		int[] indices = new int[visited.length];
+		double[] values = new double[visited.length];
+		int size = 0;
 
-		for (Node node : terms) {
+		for (int index : visited) {
 			// der boolesche Wert des Terms: hat Knoten besucht oder nicht
-			boolean value = value(node);
-			if (value) {
-				values.add(1.0);
-			} else
-				values.add(0.0);
+			if (value(terms.get(index))) {
+				indices[size] = index;
+				values[size++] = 1.0;
+			}
 		}
 
-		return new FeatureVector(values.toArray(new Double[values.size()]));
+		return new FeatureVector(terms.size(), Arrays.copyOf(indices, size),
+				Arrays.copyOf(values, size));
 	}
 
 	/**
@@ -5,32 +5,92 @@ import java.io.Serializable;
 
 /**
  * Class representing a Document Vector. A vector is initialized with vector
- * values (e.g. tf-idf weights)
- * 
+ * values (e.g. tf-idf weights), either densely with a value for every
+ * dimension or sparsely with the values other than zero and their sorted
+ * indices. Vectors of both kinds can be compared with each other, with the
+ * same results.
+ *
  * @author neumannm
  */
 public final class FeatureVector implements Serializable {
 
-	private static final long serialVersionUID = 4735812009246952588L;
-	private Double[] features;
+	private static final long serialVersionUID = -2093817450183722913L;
+
+	private final int length;
+	// the values of all dimensions, or of the dimensions in indices only if
+	// the vector is sparse
+	private final double[] features;
+	// the sorted dimensions of a sparse vector's values, null if dense
+	private final int[] indices;
+	// the sum of the squared values, for the euclidian length
+	private final double sumOfSquares;
 
 	@Override
 	public String toString() {
 		return String.format("%s with %s values", getClass().getSimpleName(),
-				features.length);
+				length);
 	}
 
 	/**
 	 * Initialize Feature Vector.
-	 * 
+	 *
 	 * @param values Values
 	 */
-	public FeatureVector(final Double[] values) {
+	public FeatureVector(final double[] values) {
+		this.length = values.length;
+		this.features = values;
+		this.indices = null;
+		this.sumOfSquares = sumOfSquares(values);
+	}
+
+	/**
+	 * Initialize a sparse Feature Vector.
+	 *
+	 * @param length
+	 *            Amount of dimensions
+	 * @param indices
+	 *            Dimensions of the values given, in ascending order
+	 * @param values
+	 *            Values of these dimensions, all others are zero
+	 */
+	public FeatureVector(final int length, final int[] indices,
+			final double[] values) {
+		if (indices.length != values.length) {
+			throw new IllegalArgumentException(
+					"Amount of indices and values differ.");
+		}
+		for (int i = 0; i < indices.length; i++) {
+			if (indices[i] < 0 || indices[i] >= length
+					|| (i > 0 && indices[i] <= indices[i - 1])) {
+				throw new IllegalArgumentException(
+						"Indices must be ascending and within the vector's length.");
+			}
+		}
+		this.length = length;
 		this.features = values;
+		this.indices = indices;
+		this.sumOfSquares = sumOfSquares(values);
 	}
 
-	public Double[] getValues() {
-		return features;
+	/**
+	 * @return true if only the values other than zero are stored.
+	 */
+	public boolean isSparse() {
+		return indices != null;
+	}
+
+	/**
+	 * @return The values of all dimensions (a copy if the vector is sparse).
+	 */
+	public double[] getValues() {
+		if (!isSparse()) {
+			return features;
+		}
+		double[] result = new double[length];
+		for (int i = 0; i < indices.length; i++) {
+			result[indices[i]] = features[i];
+		}
+		return result;
 	}
 
 	@Override
@@ -39,17 +99,30 @@ public final class FeatureVector implements Serializable {
 			return false;
 		}
 		FeatureVector that = (FeatureVector) obj;
-		return Arrays.equals(this.features, that.features);
+		if (!this.isSparse() && !that.isSparse()) {
+			return Arrays.equals(this.features, that.features);
+		}
+		return this.length == that.length
+				&& Arrays.equals(this.getValues(), that.getValues());
 	}
 
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(features);
+		// the same for both kinds of vectors, zeros do not count
+		int result = length;
+		for (int i = 0; i < features.length; i++) {
+			if (features[i] != 0) {
+				int index = isSparse() ? indices[i] : i;
+				result = 31 * result + index;
+				result = 31 * result + Double.hashCode(features[i]);
+			}
+		}
+		return result;
 	}
 
 	/**
 	 * Calculates and returns Euclidian Distance from this vector to another.
-	 * 
+	 *
 	 * @param other
 	 *            - the other feature vector.
 	 * @return float value of Euclidian Distance
@@ -61,16 +134,16 @@ public final class FeatureVector implements Serializable {
 		 * vergleichenden Vektoren müssen gleich lang sein, sonst stimmt
 		 * irgendwas überhaupt nicht:
 		 */
-		if (this.features.length != other.features.length) {
+		if (this.length != other.length) {
 			throw new UncomparableVectorsException(this, other);
 		}
 
 		/*
 		 * Berechnung euklidischer Distanz (wobei 0 "identisch" bedeutet)
 		 */
-		double dist = (float) Math.sqrt(sumOfSquares(other));
+		double dist = (float) Math.sqrt(sumOfSquaredDifferences(other));
 
-		if (new Double(dist).isNaN()) {
+		if (Double.isNaN(dist)) {
 			throw new IllegalStateException(
 					"Distance computed by sum of squares of the two vectors is not a number");
 		}
@@ -78,21 +151,54 @@ public final class FeatureVector implements Serializable {
 	}
 
 	/*
-	 * Calculates sum of squares (for Euclidian Distance).
+	 * Calculates sum of squares (for Euclidian Distance). Dimensions are
+	 * summed up in ascending order whatever the kind of vectors, dimensions
+	 * zero in both vectors are left out.
 	 */
-	private double sumOfSquares(FeatureVector other) {
+	private double sumOfSquaredDifferences(FeatureVector other) {
+		if (!this.isSparse() && !other.isSparse()) {
+			double sum = 0;
+			for (int i = 0; i < this.length; i++) {
+				double difference = this.features[i] - other.features[i];
+				sum += difference * difference;
+			}
+			return sum;
+		}
+		if (!this.isSparse()) {
+			return other.sumOfSquaredDifferences(this);
+		}
 		double sum = 0;
-		for (int i = 0; i < this.features.length; i++) {
-			double difference = this.features[i] - other.features[i];
-			double square = Math.pow(difference, 2);
-			sum += square;
+		if (!other.isSparse()) {
+			// this vector is sparse, the other dense
+			int k = 0;
+			for (int i = 0; i < other.length; i++) {
+				double value = (k < indices.length && indices[k] == i) ? features[k++] : 0;
+				double difference = value - other.features[i];
+				sum += difference * difference;
+			}
+			return sum;
+		}
+		// both sparse: merge the indices
+		int a = 0;
+		int b = 0;
+		while (a < this.indices.length || b < other.indices.length) {
+			double difference;
+			if (b == other.indices.length
+					|| (a < this.indices.length && this.indices[a] < other.indices[b])) {
+				difference = this.features[a++];
+			} else if (a == this.indices.length || other.indices[b] < this.indices[a]) {
+				difference = -other.features[b++];
+			} else {
+				difference = this.features[a++] - other.features[b++];
+			}
+			sum += difference * difference;
 		}
 		return sum;
 	}
 
 	/**
 	 * Calculates and returns Cosine-similarity between this vector and another.
-	 * 
+	 *
 	 * @param other
 	 *            - the other feature vector.
 	 * @return Double value of Cosine-similarity
@@ -104,7 +210,7 @@ public final class FeatureVector implements Serializable {
 		 * vergleichenden Vektoren müssen gleich lang sein, sonst stimmt
 		 * irgendwas überhaupt nicht:
 		 */
-		if (this.features.length != other.features.length) {
+		if (this.length != other.length) {
 			throw new UncomparableVectorsException(this, other);
 		}
 		double dotProduct = dot(other);
@@ -129,7 +235,7 @@ public final class FeatureVector implements Serializable {
 					+ dist;
 			throw new IllegalStateException(message);
 		}
-		if (new Double(dist).isNaN()) {
+		if (Double.isNaN(dist)) {
 			throw new IllegalStateException(
 					String.format(
 							"Distance computed by devision of dot product %s and euclidian distance %s is not a number",
@@ -139,39 +245,57 @@ public final class FeatureVector implements Serializable {
 	}
 
 	private double euc(FeatureVector query) {
-
-		double sum1 = 0;
-		double sum2 = 0;
 		/*
 		 * Euklidische Länge: Wurzel aus der Summe der quadrierten Elemente
-		 * eines der Vektoren:
+		 * eines der Vektoren (die Summen werden beim Anlegen der Vektoren
+		 * berechnet). Wir wollen das Produkt der euklidischen Längen der zwei
+		 * Vektoren (|V(d1)| |V(d2)|)
 		 */
-		for (Double f : features) {
-			sum1 += Math.pow(f, 2);
-		}
-		for (Double f : query.features) {
-			sum2 += Math.pow(f, 2);
+		return Math.sqrt(sumOfSquares) * Math.sqrt(query.sumOfSquares);
+	}
+
+	private static double sumOfSquares(double[] values) {
+		double sum = 0;
+		for (double f : values) {
+			sum += f * f;
 		}
-		/*
-		 * Wir wollen das Produkt der euklidischen Längen der zwei Vektoren
-		 * (|V(d1)| |V(d2)|)
-		 */
-		return (double) (Math.sqrt(sum1) * Math.sqrt(sum2));
+		return sum;
 	}
 
 	private double dot(FeatureVector query) {
 		/*
 		 * Das dot Produkt ist die Summe der Produkte der korrespondierenden
-		 * Vektor-Werte:
+		 * Vektor-Werte (Dimensionen, die in einem der Vektoren null sind,
+		 * tragen nichts bei):
 		 */
 		float sum = 0;
-		for (int i = 0; i < features.length; i++) {
-			sum += (features[i] * query.features[i]);
+		if (!this.isSparse() && !query.isSparse()) {
+			for (int i = 0; i < length; i++) {
+				sum += (features[i] * query.features[i]);
+			}
+		} else if (!this.isSparse()) {
+			return query.dot(this);
+		} else if (!query.isSparse()) {
+			for (int k = 0; k < indices.length; k++) {
+				sum += (features[k] * query.features[indices[k]]);
+			}
+		} else {
+			int a = 0;
+			int b = 0;
+			while (a < indices.length && b < query.indices.length) {
+				if (indices[a] < query.indices[b]) {
+					a++;
+				} else if (query.indices[b] < indices[a]) {
+					b++;
+				} else {
+					sum += (features[a++] * query.features[b++]);
+				}
+			}
 		}
 		return sum;
 	}
 
 	public Integer getLength() {
-		return this.features.length;
+		return this.length;
 	}
 }
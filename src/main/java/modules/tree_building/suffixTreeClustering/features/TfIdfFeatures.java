@@ -1,6 +1,6 @@
 package modules.tree_building.suffixTreeClustering.features;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import modules.tree_building.suffixTreeClustering.data.Node;
@@ -43,19 +43,25 @@ public final class TfIdfFeatures {
 	 */
 	public FeatureVector vector() {
 		// Ein Vektor für dieses Dokument ist...
-		List<Double> values = new ArrayList<Double>();
-		// ...für jeden Term im Vokabular... (=jeder Knoten im SuffixTree)
 		List<Node> terms = corpus.getNodes();
+		// ...für jeden Term im Vokabular... (=jeder Knoten im SuffixTree),
+		// den das Dokument durchlaufen hat (alle anderen haben tf = 0)
+		int[] visited = corpus.getNodeIndices(document);
+		int[] indices = new int[visited.length];
+		double[] values = new double[visited.length];
+		int size = 0;
 
-		
 		boolean ok = false;
-		for (Node node : terms) {
+		for (int index : visited) {
 			// der tf-idf-Wert des Terms:
-			Double tfIdf = tfIdf(node);
-			if (tfIdf > 0 && !(tfIdf.isNaN())) {
+			double tfIdf = tfIdf(terms.get(index));
+			if (tfIdf > 0 && !(Double.isNaN(tfIdf))) {
 				ok = true;
 			}
-			values.add(tfIdf);
+			if (tfIdf != 0) {
+				indices[size] = index;
+				values[size++] = tfIdf;
+			}
 		}
 		if (!ok) {
 			// FIXME is this OK?
@@ -64,7 +70,8 @@ public final class TfIdfFeatures {
 			System.out.println(warning);
 			throw new IllegalStateException(warning);
 		}
-		return new FeatureVector(values.toArray(new Double[values.size()]));
+		return new FeatureVector(terms.size(), Arrays.copyOf(indices, size),
+				Arrays.copyOf(values, size));
 	}
 	
 	/**
@@ -123,8 +123,8 @@ public class SuffixTreeClusteringMain {
 			doc.calculateVector(corpus, features);
 
 			System.out.print("[");
-			for (Double val : doc.getVector().getValues()) {
-				System.out.print(val.doubleValue() + ", ");
+			for (double val : doc.getVector().getValues()) {
+				System.out.print(val + ", ");
 			}
 			System.out.println("]");
 		}
@@ -157,7 +157,7 @@ public class SuffixTreeClusteringMain {
 			clusterHierarchical(types, workspacePath, textName);
 			break;
 		case 2:
-			clusterNeighborJoin(types);
+			clusterNeighborJoin(types, scanner);
 			break;
 		case 3:
 			clusterFlat(types, workspacePath, textName);
@@ -209,10 +209,20 @@ public class SuffixTreeClusteringMain {
 		System.out.println();
 	}
 
-	private static void clusterNeighborJoin(List<Type> types) {
+	private static void clusterNeighborJoin(List<Type> types, Scanner scanner) {
+		System.out.println("Which search for the pairs to join should be used?");
+		System.out.println("1 - Canonical (all pairs)");
+		System.out.println("2 - RapidNJ (sorted rows, faster for clustered types)");
+
+		int answer = processLine(scanner.nextLine());
+		while (answer < 1 || answer > 2) {
+			System.err.println("Undefined Answer! Please enter again:");
+			answer = processLine(scanner.nextLine());
+		}
+
 		// wende Neighbor Joining an (ebenfalls hierarchisches
 		// Clusterverfahren)
-		NeighborJoining nj = new NeighborJoining(types);
+		NeighborJoining nj = new NeighborJoining(types, answer == 2, true);
 		LOGGER.info("Neighbor Joining Clustern von " + types.size() + " Types");
 		nj.start();
 		nj.printTree();
@@ -1,7 +1,10 @@
 package modules.tree_building.suffixTreeClustering.st_interface;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -22,6 +25,8 @@ public class SuffixTreeInfo {
 
 	private Set<Type> types;
 	private Node[] nodes;
+	/* indices of the nodes each type visited, built when first needed */
+	private Map<Type, int[]> nodeIndices;
 
 	/**
 	 * Constructor.
@@ -39,6 +44,7 @@ public class SuffixTreeInfo {
 	 */
 	public void addNode(Node node) {
 		this.nodes[node.getNodeNumber() - 2] = node;
+		this.nodeIndices = null;
 	}
 
 	/**
@@ -60,6 +66,7 @@ public class SuffixTreeInfo {
 	public void setNumberOfNodes(int number) {
 		this.numberOfNodes = number;
 		this.nodes = new Node[this.numberOfNodes];
+		this.nodeIndices = null;
 	}
 
 	public int getNumberOfNodes() {
@@ -74,6 +81,43 @@ public class SuffixTreeInfo {
 		return Arrays.asList(nodes);
 	}
 
+	/**
+	 * Get the indices (within {@link #getNodes()}) of the nodes a type
+	 * visited, in ascending order.
+	 * 
+	 * @param type
+	 *            - Type to get the nodes of.
+	 * @return Indices of the nodes.
+	 */
+	public int[] getNodeIndices(Type type) {
+		if (this.nodeIndices == null) {
+			// a single pass over all nodes to index the nodes of all types
+			Map<Type, List<Integer>> indices = new HashMap<Type, List<Integer>>();
+			for (int i = 0; i < this.nodes.length; i++) {
+				if (this.nodes[i] == null)
+					continue;
+				for (Type visitor : this.nodes[i].getTypes().keySet()) {
+					List<Integer> visited = indices.get(visitor);
+					if (visited == null) {
+						visited = new ArrayList<Integer>();
+						indices.put(visitor, visited);
+					}
+					visited.add(i);
+				}
+			}
+			this.nodeIndices = new HashMap<Type, int[]>();
+			for (Map.Entry<Type, List<Integer>> entry : indices.entrySet()) {
+				int[] visited = new int[entry.getValue().size()];
+				for (int i = 0; i < visited.length; i++) {
+					visited[i] = entry.getValue().get(i);
+				}
+				this.nodeIndices.put(entry.getKey(), visited);
+			}
+		}
+		int[] result = this.nodeIndices.get(type);
+		return result == null ? new int[0] : result;
+	}
+
 	public Node getNodeByNumber(int i) {
 		if (i < 1)
 			return null;
@@ -1,13 +1,22 @@
 package modules.tree_building.suffixTreeModuleWrapper;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import base.workbench.ModuleRunner;
 import common.XmlPrintWriter;
@@ -20,14 +29,17 @@ import modules.ModuleImpl;
 import modules.OutputPort;
 import modules.transitionNetwork.TransitionNetwork;
 import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.ITreeWalkerListener;
 import modules.tree_building.suffixTree.ResultEdgeSegmentsListener;
 import modules.tree_building.suffixTree.ResultLabelListListener;
 import modules.tree_building.suffixTree.ResultToFiniteStateMachineListener;
 import modules.tree_building.suffixTree.ResultToGstLabelDataListener;
 import modules.tree_building.suffixTree.ResultToJsonListener;
 import modules.tree_building.suffixTree.ResultToXmlListener;
+import modules.tree_building.suffixTree.SuffixArrayGST;
 import modules.tree_building.suffixTree.SuffixTree;
 import modules.tree_building.suffixTree.TreeWalker;
+import modules.tree_building.suffixTree.TreeWalkerListenerMultiplexer;
 
 /**
  * Module Reads from KWIP modules output into a suffix tree. Constructs a
@@ -48,6 +60,13 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 	private static final String MODULE_DESCRIPTION = "Module Rreads from KWIP modules output into a suffix tree. Constructs a "
 			+ "representation of that tree, that can be used as input for clustering.";
 
+	// Property keys
+	public static final String PROPERTYKEY_ENGINE = "engine";
+
+	// Engines available to build the tree
+	public static final String ENGINE_UKKONEN = "ukkonen";
+	public static final String ENGINE_SUFFIX_ARRAY = "suffix array";
+
 	// Variables describing I/O
 	private static final String INPUT_TEXT_ID = "plain";
 	private static final String INPUT_TEXT_DESC = "[text/plain] Takes a plaintext representation of the KWIP result.";
@@ -69,6 +88,9 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 	private static final String OUTPUT_FOR_TN_ID = "tn";
 	private static final String OUTPUT_FOR_TN_DESC = "[bytestream] A forTN representation of the tree build, suitable for clustering.";
 
+	// Local variables
+	private String engine;
+
 	// Main method for stand-alone execution
 	public static void main(String[] args) throws Exception {
 		ModuleRunner.runStandAlone(GeneralisedSuffixTreeModule.class, args);
@@ -92,6 +114,12 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, MODULE_NAME);
 		this.setDescription(MODULE_DESCRIPTION);
 
+		// Add property descriptions and defaults
+		this.getPropertyDescriptions().put(PROPERTYKEY_ENGINE,
+				"Algorithm to build the tree with: '" + ENGINE_UKKONEN + "' (Ukkonen's algorithm) or '"
+						+ ENGINE_SUFFIX_ARRAY + "' (suffix and LCP array, takes less memory, needs every text to end on '$', no suffix links).");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_ENGINE, ENGINE_UKKONEN);
+
 		// Add module category
 
 		// Setup I/O, reads from char input produced by KWIP.
@@ -134,78 +162,102 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 			// actually build the tree
 			final BufferedReader textReader = new BufferedReader(
 					this.getInputPorts().get(INPUT_TEXT_ID).getInputReader());
-			final SuffixTree suffixTree = GST.buildGST(textReader, contextNrs);
+			final SuffixTree suffixTree;
+			if (ENGINE_SUFFIX_ARRAY.equals(this.engine)) {
+				suffixTree = SuffixArrayGST.buildGST(textReader, contextNrs);
+			} else {
+				suffixTree = GST.buildGST(textReader, contextNrs);
+			}
+
+			// Every connected output gets a listener for the walk over the
+			// tree (if it needs one) and an action emitting the output
+			final List<TreeOutput> outputs = new ArrayList<TreeOutput>();
 
 			// output a simple list of labels
 			final OutputPort labelsOut = this.getOutputPorts().get(OUTPUT_LIST_ID);
 			if (labelsOut.isConnected()) {
 				final ResultLabelListListener listener = new ResultLabelListListener(suffixTree);
-				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
-
-				for (String label : listener.getLabels()) {
-					labelsOut.outputToAllCharPipes(label + System.lineSeparator());
-				}
+				outputs.add(new TreeOutput(listener, () -> {
+					for (String label : listener.getLabels()) {
+						labelsOut.outputToAllCharPipes(label + System.lineSeparator());
+					}
+					labelsOut.close();
+				}));
 			}
 
 			// output a graphical representation as a graphviz .dot file
 			final OutputPort dotOut = this.getOutputPorts().get(OUTPUT_DOT_FILE_ID);
 			if (dotOut.isConnected()) {
-				final CharPipe dotOutPipe = (CharPipe) dotOut.getPipes().get(CharPipe.class).get(0);
-				final PrintWriter writer = new PrintWriter(dotOutPipe.getOutput());
-				suffixTree.printTree(writer);
-				dotOut.close();
+				outputs.add(new TreeOutput(null, () -> {
+					final CharPipe dotOutPipe = (CharPipe) dotOut.getPipes().get(CharPipe.class).get(0);
+					final PrintWriter writer = new PrintWriter(dotOutPipe.getOutput());
+					suffixTree.printTree(writer);
+					dotOut.close();
+				}));
 			}
 
 			// output a list of edge segments
 			final OutputPort edgeSegmentsOut = this.getOutputPorts().get(OUTPUT_EDGE_SEGMENTS_ID);
 			if (edgeSegmentsOut.isConnected()) {
-				final ResultEdgeSegmentsListener listener = new ResultEdgeSegmentsListener(suffixTree, edgeSegmentsOut);
-				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
-				if (!listener.hasCompleted()) {
-					throw new IllegalStateException("Listener did not finish correctly. Result may be wrong.");
-				}
-				edgeSegmentsOut.close();
+				final Spool spool = new Spool();
+				final ResultEdgeSegmentsListener listener = new ResultEdgeSegmentsListener(suffixTree, spool);
+				outputs.add(new TreeOutput(listener, spool, () -> {
+					if (!listener.hasCompleted()) {
+						throw new IllegalStateException("Listener did not finish correctly. Result may be wrong.");
+					}
+				}, () -> {
+					spool.drainTo(edgeSegmentsOut.asCharWriter());
+					edgeSegmentsOut.close();
+				}));
 			}
 
 			// output the transition network
 			final OutputPort transitionNetworkOut = this.getOutputPorts().get(OUTPUT_FOR_TN_ID);
 			if (transitionNetworkOut.isConnected()) {
 				final ResultToFiniteStateMachineListener listener = new ResultToFiniteStateMachineListener(suffixTree);
-				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
-				TransitionNetwork tn = listener.getTN();
-				tn.writeTN(transitionNetworkOut);
-				transitionNetworkOut.close();
+				outputs.add(new TreeOutput(listener, () -> {
+					TransitionNetwork tn = listener.getTN();
+					tn.writeTN(transitionNetworkOut);
+					transitionNetworkOut.close();
+				}));
 			}
-			
-			
+
 			// output an XML-Representation of the tree
 			final OutputPort xmlOut = this.getOutputPorts().get(OUTPUT_XML_ID);
 			if (xmlOut.isConnected()) {
-				final StringWriter sw = new StringWriter();
-				final ResultToXmlListener listener = new ResultToXmlListener(suffixTree, new XmlPrintWriter(sw));
-				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
-				listener.finishWriting();
-				xmlOut.outputToAllBytePipes(sw.toString().getBytes());
-				xmlOut.close();
+				final Spool spool = new Spool();
+				final ResultToXmlListener listener = new ResultToXmlListener(suffixTree,
+						new XmlPrintWriter(new BufferedWriter(spool)));
+				outputs.add(new TreeOutput(listener, spool, () -> listener.finishWriting(), () -> {
+					final Writer xmlWriter = new OutputStreamWriter(xmlOut.asByteStream(), StandardCharsets.UTF_8);
+					spool.drainTo(xmlWriter);
+					xmlWriter.flush();
+					xmlOut.close();
+				}));
 			}
 
 			final OutputPort jsonOut = this.getOutputPorts().get(OUTPUT_JSON_ID);
 			if (jsonOut.isConnected()) {
-				final ResultToJsonListener listener = new ResultToJsonListener(suffixTree, jsonOut);
-				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
-				listener.finishWriting();
-				jsonOut.close();
+				final Spool spool = new Spool();
+				final ResultToJsonListener listener = new ResultToJsonListener(suffixTree, spool);
+				outputs.add(new TreeOutput(listener, spool, () -> listener.finishWriting(), () -> {
+					spool.drainTo(jsonOut.asCharWriter());
+					jsonOut.close();
+				}));
 			}
 
 			// output the label data csv table
 			final OutputPort labelDataOut = this.getOutputPorts().get(OUTPUT_LABEL_DATA_ID);
 			if (labelDataOut.isConnected()) {
 				final ResultToGstLabelDataListener listener = new ResultToGstLabelDataListener(suffixTree);
-				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
-				writeGstLabelData(listener.getLabelsToGstData().values(), labelDataOut);
-				labelDataOut.close();
+				outputs.add(new TreeOutput(listener, () -> {
+					writeGstLabelData(listener.getLabelsToGstData().values(), labelDataOut);
+					labelDataOut.close();
+				}));
 			}
 
+			this.emit(suffixTree, outputs);
+
 		} catch (Exception e) {
 			result = false;
 			throw e;
@@ -216,6 +268,195 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 		return result;
 	}
 
+	// Emits an output, or finishes it once the tree has been walked
+	private interface OutputAction {
+		void run() throws Exception;
+	}
+
+	// A connected output: the listener walking the tree for it (if any) and
+	// the action emitting the output. A listener streaming its output writes
+	// it to a spool while walking and finishes it after the walk.
+	private static class TreeOutput {
+		private final ITreeWalkerListener listener;
+		private final Spool spool;
+		private final OutputAction finish;
+		private final OutputAction emission;
+
+		private TreeOutput(ITreeWalkerListener listener, OutputAction emission) {
+			this(listener, null, null, emission);
+		}
+
+		private TreeOutput(ITreeWalkerListener listener, Spool spool, OutputAction finish, OutputAction emission) {
+			this.listener = listener;
+			this.spool = spool;
+			this.finish = finish;
+			this.emission = emission;
+		}
+	}
+
+	/*
+	 * Walks the tree once for all listeners and emits every output on its own
+	 * thread, so that each port is written to and closed independently of the
+	 * others and a downstream module reading the outputs one after another can
+	 * not block this module. The listeners streaming their output write to a
+	 * spool during the walk, which is passed on to the port as it is read. The
+	 * other outputs are emitted once the walk is done.
+	 */
+	private void emit(final SuffixTree suffixTree, final List<TreeOutput> outputs) throws Exception {
+		if (outputs.isEmpty()) {
+			return;
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(outputs.size());
+		try {
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			final TreeWalkerListenerMultiplexer multiplexer = new TreeWalkerListenerMultiplexer();
+			for (final TreeOutput output : outputs) {
+				if (output.listener != null) {
+					multiplexer.addListener(output.listener);
+				}
+				if (output.listener == null || output.spool != null) {
+					futures.add(executor.submit(() -> {
+						output.emission.run();
+						return null;
+					}));
+				}
+			}
+
+			try {
+				if (!multiplexer.getListeners().isEmpty()) {
+					TreeWalker.walk(suffixTree.getRoot(), suffixTree, multiplexer);
+				}
+				for (TreeOutput output : outputs) {
+					if (output.finish != null) {
+						output.finish.run();
+					}
+				}
+			} finally {
+				// let the emissions of the spools end in any case
+				for (TreeOutput output : outputs) {
+					if (output.spool != null) {
+						output.spool.close();
+					}
+				}
+			}
+
+			for (final TreeOutput output : outputs) {
+				if (output.listener != null && output.spool == null) {
+					futures.add(executor.submit(() -> {
+						output.emission.run();
+						return null;
+					}));
+				}
+			}
+
+			// wait for all outputs, report the first failure
+			Exception failure = null;
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Collects what a listener writes during the walk in chunks, to be passed
+	 * on by another thread. It is not bounded, as the walk must not wait for
+	 * the output to be read: while a downstream module does not read an
+	 * output, up to all of it is held in memory.
+	 */
+	private static final class Spool extends Writer {
+		private static final int CHUNK_SIZE = 8192;
+
+		private final ArrayDeque<char[]> chunks = new ArrayDeque<char[]>();
+		private char[] chunk = new char[CHUNK_SIZE];
+		private int length = 0;
+		private boolean closed = false;
+
+		@Override
+		public synchronized void write(char[] cbuf, int off, int len) throws IOException {
+			if (this.closed) {
+				throw new IOException("Spool closed.");
+			}
+			while (len > 0) {
+				final int n = Math.min(len, CHUNK_SIZE - this.length);
+				System.arraycopy(cbuf, off, this.chunk, this.length, n);
+				this.length += n;
+				off += n;
+				len -= n;
+				if (this.length == CHUNK_SIZE) {
+					this.chunks.add(this.chunk);
+					this.chunk = new char[CHUNK_SIZE];
+					this.length = 0;
+					this.notifyAll();
+				}
+			}
+		}
+
+		@Override
+		public synchronized void flush() {
+			if (this.length > 0) {
+				this.chunks.add(Arrays.copyOf(this.chunk, this.length));
+				this.length = 0;
+				this.notifyAll();
+			}
+		}
+
+		@Override
+		public synchronized void close() {
+			if (!this.closed) {
+				this.flush();
+				this.closed = true;
+				this.notifyAll();
+			}
+		}
+
+		// passes the chunks on to the writer until the spool is closed
+		private void drainTo(Writer out) throws IOException, InterruptedException {
+			while (true) {
+				final char[] next;
+				synchronized (this) {
+					while (this.chunks.isEmpty() && !this.closed) {
+						this.wait();
+					}
+					next = this.chunks.poll();
+				}
+				if (next == null) {
+					return;
+				}
+				out.write(next);
+			}
+		}
+	}
+
+	@Override
+	public void applyProperties() throws Exception {
+		// Set defaults for properties not yet set
+		super.setDefaultsIfMissing();
+
+		// Apply own properties
+		if (this.getProperties().containsKey(PROPERTYKEY_ENGINE)
+				|| this.getPropertyDefaultValues().containsKey(PROPERTYKEY_ENGINE)) {
+			this.engine = this.getProperties().getProperty(PROPERTYKEY_ENGINE,
+					this.getPropertyDefaultValues().get(PROPERTYKEY_ENGINE));
+			if (!ENGINE_UKKONEN.equals(this.engine) && !ENGINE_SUFFIX_ARRAY.equals(this.engine)) {
+				throw new IllegalArgumentException("Unknown engine: " + this.engine);
+			}
+		}
+
+		// Apply parent object's properties (just the name variable actually)
+		super.applyProperties();
+	}
+
 	// this is normally done in the constructor, but was moved here to
 	// remove clutter from it
 	private void setupOutputPorts() {
@@ -21,6 +21,7 @@ import models.ExtensibleTreeNode;
 import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
+import modules.ObjectPipe;
 import modules.OutputPort;
 import modules.Pipe;
 
@@ -119,8 +120,9 @@ public class TreeBuilderV3Module extends ModuleImpl {
 		inputPort.addSupportedPipe(CharPipe.class);
 		OutputPort outputPort = new OutputPort(
 				ID_OUTPUT,
-				"JSON-encoded suffix tree (nodes based on the TreeNode interface).",
+				"JSON-encoded suffix tree (nodes based on the TreeNode interface); passed on as ExtensibleTreeNode object where supported.",
 				this);
+		outputPort.addSupportedPipe(ObjectPipe.class);
 		outputPort.addSupportedPipe(CharPipe.class);
 
 		// Add I/O ports to instance (don't forget...)
@@ -433,6 +435,11 @@ public class TreeBuilderV3Module extends ModuleImpl {
 		 * )))); } }
 		 */
 
+		// Hand the tree over as it is to modules that can take objects. All
+		// of them share this very instance (see ObjectPipe), so from here on
+		// the tree is only read.
+		this.getOutputPorts().get(ID_OUTPUT).outputToAllObjectPipes(rootNode);
+
 		// Initialise JSON serialiser
 		GsonBuilder gsonBuilder = new GsonBuilder();
 		// gsonBuilder.registerTypeAdapter(ModuleNetwork.class, new
@@ -18,6 +18,7 @@ import modules.BytePipe;
 import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
+import modules.ObjectPipe;
 import modules.OutputPort;
 import common.parallelization.CallbackReceiver;
 //cluster wrapper specific imports:
@@ -121,6 +122,7 @@ public class SuffixTreeVectorizationWrapperController extends ModuleImpl {
 		outputJsonPort.addSupportedPipe(CharPipe.class);
 		
 		OutputPort outputPort = new OutputPort(OUTPUTID, "[byte] serilalized vector output after \"SuffixTreeInfoSer\".", this);
+		outputPort.addSupportedPipe(ObjectPipe.class);
 		outputPort.addSupportedPipe(BytePipe.class);
 		
 		
@@ -202,6 +204,9 @@ public class SuffixTreeVectorizationWrapperController extends ModuleImpl {
 		this.corpusSer.setTypes(this.corpus.getTypes());
 		this.corpusSer.convertNodes(this.corpus.getNodes());
 		
+		// Hand the object over as it is where possible.
+		this.getOutputPorts().get(OUTPUTID).outputToAllObjectPipes(this.corpusSer);
+		
 		// Prepare byte output for several output pipes.
 		Iterator <Pipe> it = this.getOutputPorts().get(OUTPUTID).getPipes(BytePipe.class).iterator();
 		while(it.hasNext()) {
@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Base of the benchmarks kept with the tests. A benchmark is run by the
+ * name of its class, followed by its own arguments, e.g.
+ *
+ * <pre>
+ * java benchmark.Benchmark matrix.BitsetPairCounterBenchmark 1500 4000
+ * </pre>
+ *
+ * Arguments left out take the defaults of the benchmark. Each benchmark
+ * times its variants with millis() and prints one line per measurement with
+ * report().
+ */
+public abstract class Benchmark {
+
+	/**
+	 * A piece of work to time.
+	 */
+	public interface Task {
+		void run() throws Exception;
+	}
+
+	private String[] args = new String[0];
+
+	/**
+	 * Runs the measurements.
+	 *
+	 * @throws Exception
+	 *             Thrown if a measurement fails
+	 */
+	protected abstract void run() throws Exception;
+
+	/**
+	 * @param index
+	 *            - Index of the argument.
+	 * @param defaultValue
+	 *            - Value if the argument is left out.
+	 * @return The argument as int.
+	 */
+	protected final int intArg(int index, int defaultValue) {
+		return (index < args.length) ? Integer.parseInt(args[index]) : defaultValue;
+	}
+
+	/**
+	 * @param index
+	 *            - Index of the argument.
+	 * @param defaultValue
+	 *            - Value if the argument is left out.
+	 * @return The argument as double.
+	 */
+	protected final double doubleArg(int index, double defaultValue) {
+		return (index < args.length) ? Double.parseDouble(args[index]) : defaultValue;
+	}
+
+	/**
+	 * Runs the task the given amount of times, all but the last one only
+	 * warm up.
+	 *
+	 * @param rounds
+	 *            - How often to run the task.
+	 * @param task
+	 *            - The task.
+	 * @return Milliseconds the last run took.
+	 * @throws Exception
+	 *             Thrown if the task fails
+	 */
+	protected static long millis(int rounds, Task task) throws Exception {
+		long nanos = 0;
+		for (int round = 0; round < rounds; round++) {
+			final long start = System.nanoTime();
+			task.run();
+			nanos = System.nanoTime() - start;
+		}
+		return nanos / 1000000;
+	}
+
+	/**
+	 * Runs the task once.
+	 *
+	 * @param task
+	 *            - The task.
+	 * @return Milliseconds it took.
+	 * @throws Exception
+	 *             Thrown if the task fails
+	 */
+	protected static long millis(Task task) throws Exception {
+		return millis(1, task);
+	}
+
+	/**
+	 * @return Bytes of heap in use after a garbage collection.
+	 */
+	protected static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Prints a measurement.
+	 *
+	 * @param format
+	 *            - Format of the line, see String.format().
+	 * @param values
+	 *            - The values to format.
+	 */
+	protected static void report(String format, Object... values) {
+		System.out.println(String.format(format, values));
+	}
+
+	public static void main(String... args) throws Exception {
+		if (args.length == 0) {
+			System.err.println("Usage: " + Benchmark.class.getName() + " <benchmark class> [arguments]");
+			System.exit(1);
+		}
+		final Benchmark benchmark = Class.forName(args[0]).asSubclass(Benchmark.class).newInstance();
+		benchmark.args = Arrays.copyOfRange(args, 1, args.length);
+		benchmark.run();
+	}
+
+}
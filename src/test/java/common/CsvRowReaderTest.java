@@ -0,0 +1,108 @@
+package common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CsvRowReaderTest {
+
+	@Test
+	public void testSplitsAsStringSplit() throws Exception {
+		final Random random = new Random(1);
+		final String chars = "ab;,:1. ";
+		for (String delimiter : new String[] { ";", "[\\,;]", "\\.", ";:", ",+" }) {
+			final StringBuilder input = new StringBuilder();
+			final String[] lines = new String[200];
+			for (int i = 0; i < lines.length; i++) {
+				final StringBuilder line = new StringBuilder("x");
+				for (int j = random.nextInt(20); j > 0; j--) {
+					line.append(chars.charAt(random.nextInt(chars.length())));
+				}
+				lines[i] = line.toString();
+				input.append(line).append(random.nextBoolean() ? "\n" : "\r\n");
+			}
+
+			final CsvRowReader reader = new CsvRowReader(new StringReader(input.toString()), delimiter);
+			for (String line : lines) {
+				assertTrue(reader.next());
+				assertArrayEquals(line.split(delimiter, -1), reader.getStrings());
+			}
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testSkipsEmptyLines() throws Exception {
+		final CsvRowReader reader = new CsvRowReader(new StringReader("\na;b\r\n\r\n\rc;\n"), ";");
+		assertTrue(reader.next());
+		assertArrayEquals(new String[] { "a", "b" }, reader.getStrings());
+		assertEquals(2, reader.getLineNr());
+		assertTrue(reader.next());
+		assertArrayEquals(new String[] { "c", "" }, reader.getStrings());
+		assertTrue(reader.isEmpty(1));
+		assertEquals(0d, reader.getDouble(1), 0);
+		assertFalse(reader.next());
+	}
+
+	@Test
+	public void testParsesDoublesAsDoubleParseDouble() {
+		final Random random = new Random(2);
+		final String[] fixed = { "0", "-0", "1", "1.", ".5", "0.1", "123.456", "-7.25e3", "1E-5", "+3", "00012.5000",
+				"9007199254740993", "1.7976931348623157E308", "4.9E-324", "123456789012345678", "0.30000000000000004",
+				"NaN", "-Infinity", "1d", " 2 " };
+		for (String value : fixed) {
+			assertParsesLikeJava(value);
+		}
+		for (int i = 0; i < 20000; i++) {
+			final double value;
+			switch (i % 3) {
+			case 0:
+				value = random.nextDouble();
+				break;
+			case 1:
+				value = random.nextInt(100000) / 1000d;
+				break;
+			default:
+				value = Double.longBitsToDouble(random.nextLong());
+			}
+			assertParsesLikeJava(Double.toString(value));
+			assertParsesLikeJava(String.format("%.6f", value));
+		}
+	}
+
+	private void assertParsesLikeJava(String value) {
+		final double expected = Double.parseDouble(value);
+		final double actual = CsvRowReader.parseDouble(value.toCharArray(), 0, value.length());
+		assertEquals(value, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testRejectsNonNumbers() {
+		CsvRowReader.parseDouble("1e".toCharArray(), 0, 2);
+	}
+
+	@Test
+	public void testWritesDoublesAsDoubleToString() throws Exception {
+		final double[] values = { 1, -1, 12, 9999999, 1e7, -123456, 0.5, 1e-5, 3.25, Double.MAX_VALUE };
+		final StringWriter out = new StringWriter();
+		final CsvRowWriter writer = new CsvRowWriter(out, ";");
+		final StringBuilder expected = new StringBuilder("row");
+		writer.writeField("row");
+		for (double value : values) {
+			writer.writeValue(value);
+			expected.append(';').append(value);
+		}
+		writer.writeValue(0);
+		expected.append(";\n");
+		writer.endRow();
+		assertEquals(expected.toString(), out.toString());
+	}
+
+}
@@ -0,0 +1,57 @@
+package hal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import modules.hal.CooccurrenceCounts;
+
+public class CooccurrenceCountsTest {
+
+	@Test
+	public void testMatchesMapCounts() {
+		final int positions = 3;
+		final Random random = new Random(16);
+		final CooccurrenceCounts counts = new CooccurrenceCounts(positions);
+		final Map<String, int[]> expected = new HashMap<String, int[]>();
+
+		for (int k = 0; k < 100000; k++) {
+			final int segment = random.nextInt(300);
+			final int context = random.nextInt(300);
+			final int position = random.nextInt(positions);
+			counts.add(segment, context, position);
+
+			int[] cell = expected.get(segment + "," + context);
+			if (cell == null) {
+				cell = new int[positions];
+				expected.put(segment + "," + context, cell);
+			}
+			cell[position]++;
+		}
+
+		assertEquals(expected.size(), counts.size());
+		for (int segment = 0; segment < 300; segment++) {
+			for (int context = 0; context < 300; context++) {
+				final int[] cell = expected.get(segment + "," + context);
+				final int actual = counts.getCell(segment, context);
+				if (cell == null) {
+					assertEquals(-1, actual);
+					continue;
+				}
+				assertEquals(segment, counts.getSegment(actual));
+				assertEquals(context, counts.getContext(actual));
+				long total = 0;
+				for (int position = 0; position < positions; position++) {
+					assertEquals(cell[position], counts.getCount(actual, position));
+					total += cell[position];
+				}
+				assertEquals(total, counts.getTotal(actual));
+			}
+		}
+	}
+
+}
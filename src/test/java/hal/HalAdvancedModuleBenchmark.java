@@ -0,0 +1,43 @@
+package hal;
+
+import benchmark.Benchmark;
+import modules.hal.HalAdvancedModule;
+
+/**
+ * Measures the time the HAL module takes. Counts the texts in data/, repeated
+ * as often as given as argument, on one thread and on the given amount of
+ * threads and prints the milliseconds taken.
+ */
+public class HalAdvancedModuleBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int repetitions = intArg(0, 200);
+		final int threads = intArg(1, 4);
+
+		final String segments = HalAdvancedModuleTest.readSegments();
+		final StringBuilder repeated = new StringBuilder();
+		for (int i = 0; i < repetitions; i++) {
+			repeated.append(segments);
+		}
+		// warm up
+		HalAdvancedModuleTest.run(segments, HalAdvancedModule.OUTPUTFORMAT_TRIPLETS, threads);
+
+		final long serialMillis = millis(new Task() {
+			@Override
+			public void run() throws Exception {
+				HalAdvancedModuleTest.run(repeated.toString(), HalAdvancedModule.OUTPUTFORMAT_TRIPLETS, 1);
+			}
+		});
+		final long parallelMillis = millis(new Task() {
+			@Override
+			public void run() throws Exception {
+				HalAdvancedModuleTest.run(repeated.toString(), HalAdvancedModule.OUTPUTFORMAT_TRIPLETS, threads);
+			}
+		});
+
+		report("Texts in data/ repeated %d times: 1 thread %d ms, %d threads %d ms, speedup %.2f", repetitions,
+				serialMillis, threads, parallelMillis, (double) serialMillis / Math.max(parallelMillis, 1));
+	}
+
+}
@@ -0,0 +1,105 @@
+package hal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import modules.CharPipe;
+import modules.InputPort;
+import modules.OutputPort;
+import modules.hal.HalAdvancedModule;
+
+public class HalAdvancedModuleTest {
+
+	// the words of all texts in data/, one per line
+	static String readSegments() throws Exception {
+		final StringBuilder result = new StringBuilder();
+		for (File file : new File("data").listFiles()) {
+			if (!file.getName().endsWith(".txt")) {
+				continue;
+			}
+			final String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			for (String word : text.split("\\s+")) {
+				if (!word.isEmpty()) {
+					result.append(word).append('\n');
+				}
+			}
+		}
+		return result.toString();
+	}
+
+	static String run(String input, String outputFormat, int threads) throws Exception {
+		final Properties properties = new Properties();
+		properties.setProperty(HalAdvancedModule.PROPERTYKEY_OUTPUTFORMAT, outputFormat);
+		properties.setProperty(HalAdvancedModule.PROPERTYKEY_MAXTHREADS, Integer.toString(threads));
+		final HalAdvancedModule module = new HalAdvancedModule(null, properties);
+		module.applyProperties();
+
+		final OutputPort source = new OutputPort("source", "source", null);
+		source.addSupportedPipe(CharPipe.class);
+		final InputPort sink = new InputPort("sink", "sink", null);
+		sink.addSupportedPipe(CharPipe.class);
+		final CharPipe inputPipe = new CharPipe();
+		source.addPipe(inputPipe, module.getInputPorts().get("text input"));
+		module.getInputPorts().get("text input").addPipe(inputPipe, source);
+		final CharPipe outputPipe = new CharPipe();
+		module.getOutputPorts().get("csv output").addPipe(outputPipe, sink);
+		sink.addPipe(outputPipe, module.getOutputPorts().get("csv output"));
+
+		final Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					source.outputToAllCharPipes(input);
+					source.close();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		final StringBuilder output = new StringBuilder();
+		final Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					final Reader in = sink.getInputReader();
+					final char[] buffer = new char[8192];
+					for (int read; (read = in.read(buffer)) >= 0;) {
+						output.append(buffer, 0, read);
+					}
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		reader.start();
+		assertTrue(module.process());
+		writer.join();
+		reader.join();
+		return output.toString();
+	}
+
+	@Test
+	public void testParallelMatchesSerial() throws Exception {
+		final String segments = readSegments();
+		assertEquals(run(segments, HalAdvancedModule.OUTPUTFORMAT_DENSE, 1),
+				run(segments, HalAdvancedModule.OUTPUTFORMAT_DENSE, 4));
+
+		// repeat the texts to get an input of several chunks
+		final StringBuilder repeated = new StringBuilder();
+		for (int i = 0; i < 80; i++) {
+			repeated.append(segments);
+		}
+		assertEquals(run(repeated.toString(), HalAdvancedModule.OUTPUTFORMAT_TRIPLETS, 1),
+				run(repeated.toString(), HalAdvancedModule.OUTPUTFORMAT_TRIPLETS, 4));
+	}
+
+}
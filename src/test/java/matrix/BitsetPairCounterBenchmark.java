@@ -0,0 +1,85 @@
+package matrix;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import benchmark.Benchmark;
+import modules.matrix.BitsetPairCounter;
+
+/**
+ * Measures the time counting pairs of bitsets takes. Counts the bits set
+ * after combining every pair of random bitsets (of the amount, maximum length
+ * and density given as arguments) by cloning and combining them, as done
+ * before, and with BitsetPairCounter on the given amount of threads, and
+ * prints the milliseconds taken. The first round only warms up.
+ */
+public class BitsetPairCounterBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int amount = intArg(0, 1500);
+		final int maxLength = intArg(1, 4000);
+		final double density = doubleArg(2, 0.1d);
+		final int threads = intArg(3, 4);
+
+		final Random random = new Random(1);
+		final List<BitSet> bitsets = new ArrayList<BitSet>();
+		for (int i = 0; i < amount; i++) {
+			final BitSet bitset = new BitSet();
+			final int length = random.nextInt(maxLength + 1);
+			for (int k = 0; k < length; k++) {
+				if (random.nextDouble() < density) {
+					bitset.set(k);
+				}
+			}
+			bitsets.add(bitset);
+		}
+		final BitsetPairCounter counter = new BitsetPairCounter(BitsetPairCounter.pack(bitsets));
+
+		for (final BitsetPairCounter.Operation operation : BitsetPairCounter.Operation.values()) {
+			final long[] naiveSum = new long[1];
+			final long naiveMillis = millis(2, new Task() {
+				@Override
+				public void run() {
+					naiveSum[0] = 0;
+					for (int i = 0; i < bitsets.size(); i++) {
+						for (int j = i + 1; j < bitsets.size(); j++) {
+							final BitSet product = (BitSet) bitsets.get(i).clone();
+							switch (operation) {
+							case AND:
+								product.and(bitsets.get(j));
+								break;
+							case OR:
+								product.or(bitsets.get(j));
+								break;
+							default:
+								product.xor(bitsets.get(j));
+							}
+							naiveSum[0] += product.cardinality();
+						}
+					}
+				}
+			});
+
+			final long[] sum = new long[1];
+			final long packedMillis = millis(2, new Task() {
+				@Override
+				public void run() throws Exception {
+					sum[0] = 0;
+					counter.countPairs(operation, false, 0, threads, new BitsetPairCounter.PairHandler() {
+						@Override
+						public void pair(int i, int j, int count) {
+							sum[0] += count;
+						}
+					});
+				}
+			});
+
+			report("%s of %d bitsets: clone and combine %d ms, packed %d ms (sums %d, %d)", operation,
+					bitsets.size(), naiveMillis, packedMillis, naiveSum[0], sum[0]);
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+package matrix;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import modules.matrix.BitsetPairCounter;
+
+public class BitsetPairCounterTest {
+
+	private static List<BitSet> randomBitsets(Random random, int amount, int maxLength, double density) {
+		final List<BitSet> result = new ArrayList<BitSet>();
+		for (int i = 0; i < amount; i++) {
+			final BitSet bitset = new BitSet();
+			final int length = random.nextInt(maxLength + 1);
+			for (int k = 0; k < length; k++) {
+				if (random.nextDouble() < density) {
+					bitset.set(k);
+				}
+			}
+			result.add(bitset);
+		}
+		return result;
+	}
+
+	// the way pairs were counted before: clone and combine
+	private static int naiveCount(BitSet a, BitSet b, BitsetPairCounter.Operation operation) {
+		final BitSet product = (BitSet) a.clone();
+		switch (operation) {
+		case AND:
+			product.and(b);
+			break;
+		case OR:
+			product.or(b);
+			break;
+		default:
+			product.xor(b);
+		}
+		return product.cardinality();
+	}
+
+	private static int[][] countPairs(BitsetPairCounter counter, BitsetPairCounter.Operation operation,
+			boolean reflexive, int minCount, int threads) throws Exception {
+		final int n = counter.size();
+		final int[][] result = new int[n][n];
+		counter.countPairs(operation, reflexive, minCount, threads, new BitsetPairCounter.PairHandler() {
+			@Override
+			public void pair(int i, int j, int count) {
+				assertEquals(0, result[i][j]);
+				result[i][j] = count;
+				result[j][i] = count;
+			}
+		});
+		return result;
+	}
+
+	@Test
+	public void testMatchesNaiveCounts() throws Exception {
+		final Random random = new Random(15);
+		// more rows than fit into one tile, more words than fit into one block
+		final List<BitSet> bitsets = randomBitsets(random, 150, 20000, 0.05);
+		final BitsetPairCounter counter = new BitsetPairCounter(BitsetPairCounter.pack(bitsets));
+
+		for (BitsetPairCounter.Operation operation : BitsetPairCounter.Operation.values()) {
+			for (boolean reflexive : new boolean[] { false, true }) {
+				for (int minCount : new int[] { 0, 500 }) {
+					// a single thread counts fewer tiles ahead than there are
+					final int[][] counts = countPairs(counter, operation, reflexive, minCount, reflexive ? 1 : 3);
+					for (int i = 0; i < bitsets.size(); i++) {
+						for (int j = 0; j < bitsets.size(); j++) {
+							int expected = (i == j && !reflexive) ? 0
+									: naiveCount(bitsets.get(i), bitsets.get(j), operation);
+							if (expected < minCount) {
+								expected = 0;
+							}
+							assertEquals(operation + " " + i + "," + j, expected, counts[i][j]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyBitsets() throws Exception {
+		final List<BitSet> bitsets = new ArrayList<BitSet>();
+		bitsets.add(new BitSet());
+		bitsets.add(new BitSet());
+		final BitsetPairCounter counter = new BitsetPairCounter(BitsetPairCounter.pack(bitsets));
+		final int[][] counts = countPairs(counter, BitsetPairCounter.Operation.OR, true, 0, 2);
+		assertEquals(0, counts[0][0] + counts[0][1] + counts[1][1]);
+
+		countPairs(new BitsetPairCounter(new long[0][]), BitsetPairCounter.Operation.AND, true, 0, 2);
+	}
+
+}
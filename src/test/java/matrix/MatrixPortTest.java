@@ -0,0 +1,117 @@
+package matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import models.NamedFieldMatrix;
+import modules.BytePipe;
+import modules.CharPipe;
+import modules.InputPort;
+import modules.ModuleNetwork;
+import modules.OutputPort;
+import modules.Pipe;
+import modules.matrix.MatrixInputPort;
+import modules.matrix.MatrixOutputPort;
+
+public class MatrixPortTest {
+
+	private static NamedFieldMatrix makeMatrix() {
+		final NamedFieldMatrix matrix = new NamedFieldMatrix();
+		matrix.setValue("r1", "c1", 1.5);
+		matrix.setValue("r1", "c3", -2);
+		matrix.setValue("r2", "c2", 1e-300);
+		matrix.setValue("r3", "c1", 0.1);
+		matrix.setDelimiter(";");
+		return matrix;
+	}
+
+	private static void connect(OutputPort out, InputPort in) throws Exception {
+		final Pipe pipe = ModuleNetwork.getCompatiblePipe(out, in);
+		in.addPipe(pipe, out);
+		out.addPipe(pipe, in);
+	}
+
+	@Test
+	public void testBinaryBetweenMatrixPorts() throws Exception {
+		final MatrixOutputPort out = new MatrixOutputPort("out", "output", null);
+		out.addSupportedPipe(BytePipe.class);
+		out.addSupportedPipe(CharPipe.class);
+		final MatrixInputPort in = new MatrixInputPort("in", "input", null);
+		in.addSupportedPipe(BytePipe.class);
+		in.addSupportedPipe(CharPipe.class);
+		connect(out, in);
+
+		assertTrue(out.writesBinaryMatrix());
+		assertFalse(out.writesCsv());
+
+		final NamedFieldMatrix matrix = makeMatrix();
+		out.writeMatrix(matrix);
+		out.close();
+
+		assertTrue(in.providesBinaryMatrix());
+		final NamedFieldMatrix read = in.readMatrix(";", NamedFieldMatrix.Storage.AUTO);
+		assertEquals(matrix.getRowAmount(), read.getRowAmount());
+		assertEquals(matrix.getColumnsAmount(), read.getColumnsAmount());
+		for (int i = 0; i < matrix.getRowAmount(); i++) {
+			assertEquals(matrix.getRowName(i), read.getRowName(i));
+			assertArrayEquals(matrix.getRow(i), read.getRow(i), 0);
+		}
+	}
+
+	@Test
+	public void testCsvAtTheEdges() throws Exception {
+		// a byte pipe to a port that does not read binary matrices gets csv
+		final MatrixOutputPort out = new MatrixOutputPort("out", "output", null);
+		out.addSupportedPipe(BytePipe.class);
+		out.addSupportedPipe(CharPipe.class);
+		final InputPort fileWriterInput = new InputPort("in", "input", null);
+		fileWriterInput.addSupportedPipe(BytePipe.class);
+		fileWriterInput.addSupportedPipe(CharPipe.class);
+		connect(out, fileWriterInput);
+
+		assertFalse(out.writesBinaryMatrix());
+		assertTrue(out.writesCsv());
+
+		final NamedFieldMatrix matrix = makeMatrix();
+		out.writeMatrix(matrix);
+		out.close();
+
+		final StringBuilder expected = new StringBuilder(matrix.csvHeader());
+		for (int i = 0; i < matrix.getRowAmount(); i++) {
+			expected.append(matrix.csvLine(i));
+		}
+		final InputStream bytes = fileWriterInput.getInputStream();
+		final byte[] buffer = new byte[4096];
+		int length = 0;
+		for (int read; (read = bytes.read(buffer, length, buffer.length - length)) > 0;) {
+			length += read;
+		}
+		final String csv = new String(buffer, 0, length, StandardCharsets.UTF_8);
+		assertEquals(expected.toString(), csv);
+
+		// csv bytes from e.g. a file reader are recognised as such
+		final OutputPort fileReaderOutput = new OutputPort("out", "output", null);
+		fileReaderOutput.addSupportedPipe(BytePipe.class);
+		fileReaderOutput.addSupportedPipe(CharPipe.class);
+		final MatrixInputPort in = new MatrixInputPort("in", "input", null);
+		in.addSupportedPipe(BytePipe.class);
+		in.addSupportedPipe(CharPipe.class);
+		connect(fileReaderOutput, in);
+		fileReaderOutput.outputToAllBytePipes(csv.getBytes(StandardCharsets.UTF_8));
+		fileReaderOutput.close();
+
+		assertFalse(in.providesBinaryMatrix());
+		final NamedFieldMatrix read = in.readMatrix(";", NamedFieldMatrix.Storage.AUTO);
+		for (int i = 0; i < matrix.getRowAmount(); i++) {
+			assertArrayEquals(matrix.getRow(i), read.getRow(i), 0);
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import Jama.Matrix;
+import models.NamedFieldMatrix;
+import modules.matrix.SparseMcl;
+
+public class SparseMclTest {
+
+	// The dense implementation the sparse one replaced: row wise inflation,
+	// followed by raising the matrix to the power of l
+	private Matrix denseIteration(Matrix a, int l, double r) {
+		for (int i = 0; i < a.getRowDimension(); i++) {
+			double denom = 0;
+			for (int k = 0; k < a.getColumnDimension(); k++) {
+				denom += Math.pow(a.get(i, k), r);
+			}
+			if (denom != 0) {
+				for (int j = 0; j < a.getColumnDimension(); j++) {
+					a.set(i, j, Math.pow(a.get(i, j), r) / denom);
+				}
+			}
+		}
+		final Matrix b = a.copy();
+		for (int i = 1; i < l; i++) {
+			a = a.times(b);
+		}
+		return a;
+	}
+
+	private double[][] randomGraph(Random random, int n, double density) {
+		final double[][] values = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			values[i][i] = 1;
+			for (int j = 0; j < n; j++) {
+				if (random.nextDouble() < density) {
+					values[i][j] = random.nextInt(5) + 1;
+				}
+			}
+		}
+		return values;
+	}
+
+	@Test
+	public void testMatchesDenseWithoutPruning() throws Exception {
+		final Random random = new Random(3);
+		for (int run = 0; run < 20; run++) {
+			final int n = 5 + random.nextInt(30);
+			final double[][] values = randomGraph(random, n, 0.15);
+			final int l = 2 + random.nextInt(2);
+
+			Matrix expected = new Matrix(values).copy();
+			for (int i = 0; i < 4; i++) {
+				expected = denseIteration(expected, l, 2.0);
+			}
+
+			final SparseMcl mcl = new SparseMcl(values);
+			mcl.run(4, l, 2.0, 0, 0, -1, 3);
+			assertEquals(4, mcl.getIterationsRun());
+
+			final double[][] actual = new double[n][n];
+			mcl.writeTo(actual);
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					assertEquals(expected.get(i, j), actual[i][j], 1e-9);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testConvergesOnSeparateClusters() throws Exception {
+		// two cliques that are not connected to each other
+		final int n = 10;
+		final double[][] values = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if ((i < 5) == (j < 5)) {
+					values[i][j] = 1;
+				}
+			}
+		}
+
+		final SparseMcl mcl = new SparseMcl(values);
+		mcl.run(1000, 2, 2.0, 0.0001, 1000, 0.000001, 2);
+		assertTrue(mcl.getIterationsRun() < 1000);
+
+		final double[][] actual = new double[n][n];
+		mcl.writeTo(actual);
+		for (int i = 0; i < n; i++) {
+			double sum = 0;
+			for (int j = 0; j < n; j++) {
+				if ((i < 5) != (j < 5)) {
+					assertEquals(0, actual[i][j], 0);
+				}
+				sum += actual[i][j];
+			}
+			assertEquals(1, sum, 1e-9);
+		}
+	}
+
+	@Test
+	public void testNamedFieldMatrix() throws Exception {
+		final int n = 30;
+		final double[][] values = randomGraph(new Random(7), n, 0.1);
+		final SparseMcl expected = new SparseMcl(values);
+		expected.run(5, 2, 2.0, 0.0001, 10, -1, 2);
+		final double[][] expectedValues = new double[n][n];
+		expected.writeTo(expectedValues);
+
+		for (NamedFieldMatrix.Storage storage : NamedFieldMatrix.Storage.values()) {
+			final NamedFieldMatrix input = new NamedFieldMatrix(storage);
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					input.setValue("n" + i, "n" + j, values[i][j]);
+				}
+			}
+
+			final SparseMcl mcl = new SparseMcl(input);
+			mcl.run(5, 2, 2.0, 0.0001, 10, -1, 2);
+			final NamedFieldMatrix actual = NamedFieldMatrix.withNamesOf(input, NamedFieldMatrix.Storage.SPARSE);
+			mcl.writeTo(actual);
+
+			assertEquals(storage == NamedFieldMatrix.Storage.SPARSE, input.isSparse());
+			assertTrue(actual.isSparse());
+			for (int i = 0; i < n; i++) {
+				assertEquals("n" + i, actual.getRowName(i));
+				assertEquals("n" + i, actual.getColumnName(i));
+				for (int j = 0; j < n; j++) {
+					assertEquals(expectedValues[i][j], actual.getValue(i, j), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTopKPruning() throws Exception {
+		final double[][] values = randomGraph(new Random(5), 40, 0.5);
+		final SparseMcl mcl = new SparseMcl(values);
+		mcl.run(1, 1, 2.0, 0, 3, -1, 1);
+		assertTrue(mcl.getNonZeroAmount() <= 40 * 3);
+	}
+
+}
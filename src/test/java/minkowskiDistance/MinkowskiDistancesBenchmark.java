@@ -0,0 +1,80 @@
+package minkowskiDistance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import benchmark.Benchmark;
+import common.VectorCalculation;
+import modules.clustering.minkowskiDistance.MinkowskiDistances;
+
+/**
+ * Measures the time computing Minkowski distances takes. Computes the
+ * Euclidean distances of all pairs of random vectors (of the amount and length
+ * given as arguments) with VectorCalculation and with MinkowskiDistances, as
+ * well as the 10 nearest neighbours of each vector, and prints the
+ * milliseconds taken.
+ */
+public class MinkowskiDistancesBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int amount = intArg(0, 1500);
+		final int length = intArg(1, 300);
+		final int threads = intArg(2, 4);
+
+		final Random random = new Random(3);
+		final double[][] rows = new double[amount][length];
+		final List<List<Double>> lists = new ArrayList<List<Double>>();
+		for (double[] row : rows) {
+			final List<Double> list = new ArrayList<Double>();
+			for (int k = 0; k < length; k++) {
+				row[k] = random.nextInt(8) * 0.5d;
+				list.add(row[k]);
+			}
+			lists.add(list);
+		}
+
+		final double[] naiveSum = new double[1];
+		final long naiveMillis = millis(new Task() {
+			@Override
+			public void run() throws Exception {
+				for (int i = 0; i < rows.length; i++) {
+					for (int j = i + 1; j < rows.length; j++) {
+						naiveSum[0] += VectorCalculation.calculateMinkowskiDistance(lists.get(i), lists.get(j), 2d);
+					}
+				}
+			}
+		});
+
+		final double[] sum = new double[1];
+		final MinkowskiDistances distances = new MinkowskiDistances(rows, 2d);
+		final long tiledMillis = millis(new Task() {
+			@Override
+			public void run() throws Exception {
+				distances.allPairs(Double.POSITIVE_INFINITY, threads, new MinkowskiDistances.PairHandler() {
+					@Override
+					public void pair(int i, int j, double distance) {
+						sum[0] += distance;
+					}
+				});
+			}
+		});
+
+		final long neighboursMillis = millis(new Task() {
+			@Override
+			public void run() throws Exception {
+				distances.nearestNeighbours(10, Double.POSITIVE_INFINITY, threads,
+						new MinkowskiDistances.PairHandler() {
+							@Override
+							public void pair(int i, int j, double distance) {
+							}
+						});
+			}
+		});
+
+		report("%d vectors of length %d: lists %d ms, tiled %d ms, 10 nearest neighbours %d ms (sums %.6g, %.6g)",
+				amount, length, naiveMillis, tiledMillis, neighboursMillis, naiveSum[0], sum[0]);
+	}
+
+}
@@ -0,0 +1,218 @@
+package minkowskiDistance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import common.VectorCalculation;
+import modules.CharPipe;
+import modules.InputPort;
+import modules.OutputPort;
+import modules.clustering.minkowskiDistance.MinkowskiDistanceMatrixModule;
+import modules.clustering.minkowskiDistance.MinkowskiDistances;
+
+public class MinkowskiDistancesTest {
+
+	private static final double[] POWERS = { 1d, 2d, Double.POSITIVE_INFINITY, 3d, 0.5d };
+
+	// values rounded to a few steps, so that some distances are equal
+	private static double[][] randomRows(Random random, int amount, int length) {
+		final double[][] rows = new double[amount][length];
+		for (double[] row : rows) {
+			for (int k = 0; k < length; k++) {
+				row[k] = random.nextInt(8) * 0.5d;
+			}
+		}
+		return rows;
+	}
+
+	private static List<Double> list(double[] row) {
+		final List<Double> list = new ArrayList<Double>();
+		for (double value : row) {
+			list.add(value);
+		}
+		return list;
+	}
+
+	// the distances of all pairs handed on, NaN for pairs left out
+	private static double[][] allPairs(MinkowskiDistances distances, double maxDistance, int threads)
+			throws Exception {
+		final double[][] result = new double[distances.size()][distances.size()];
+		for (double[] row : result) {
+			Arrays.fill(row, Double.NaN);
+		}
+		distances.allPairs(maxDistance, threads, new MinkowskiDistances.PairHandler() {
+			@Override
+			public void pair(int i, int j, double distance) {
+				assertTrue(i < j);
+				assertTrue(Double.isNaN(result[i][j]));
+				result[i][j] = distance;
+			}
+		});
+		return result;
+	}
+
+	private static List<int[]> neighbours(MinkowskiDistances distances, int k, double maxDistance, int threads)
+			throws Exception {
+		final List<int[]> result = new ArrayList<int[]>();
+		distances.nearestNeighbours(k, maxDistance, threads, new MinkowskiDistances.PairHandler() {
+			@Override
+			public void pair(int i, int j, double distance) {
+				assertEquals(distances.distance(i, j), distance, 0);
+				result.add(new int[] { i, j });
+			}
+		});
+		return result;
+	}
+
+	@Test
+	public void testMatchesVectorCalculation() throws Exception {
+		final Random random = new Random(25);
+		// more rows than fit into one tile, more columns than fit into one block
+		final double[][] rows = randomRows(random, 70, 300);
+		for (double power : POWERS) {
+			final MinkowskiDistances distances = new MinkowskiDistances(rows, power);
+			final double[][] all = allPairs(distances, Double.POSITIVE_INFINITY, 3);
+			final double threshold = all[0][1];
+			final double[][] near = allPairs(distances, threshold, 3);
+			for (int i = 0; i < rows.length; i++) {
+				for (int j = i + 1; j < rows.length; j++) {
+					final double expected = VectorCalculation.calculateMinkowskiDistance(list(rows[i]),
+							list(rows[j]), power);
+					assertEquals(power + " " + i + "," + j, expected, all[i][j], expected * 1e-12);
+					assertEquals(distances.distance(i, j), all[i][j], 0);
+					assertEquals(distances.distance(i, j), distances.distance(j, i), 0);
+					if (all[i][j] <= threshold) {
+						assertEquals(all[i][j], near[i][j], 0);
+					} else {
+						assertTrue(Double.isNaN(near[i][j]));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNearestNeighbours() throws Exception {
+		final Random random = new Random(5);
+		final double[][] rows = randomRows(random, 140, 40);
+		for (double power : POWERS) {
+			final MinkowskiDistances distances = new MinkowskiDistances(rows, power);
+			for (int k : new int[] { 1, 7, 200 }) {
+				for (double maxDistance : new double[] { Double.POSITIVE_INFINITY, distances.distance(0, 1) }) {
+					// all other rows within the maximum distance, sorted by
+					// distance and index
+					final List<int[]> expected = new ArrayList<int[]>();
+					for (int i = 0; i < rows.length; i++) {
+						final List<Integer> others = new ArrayList<Integer>();
+						for (int j = 0; j < rows.length; j++) {
+							if (j != i && distances.distance(i, j) <= maxDistance) {
+								others.add(j);
+							}
+						}
+						final int row = i;
+						others.sort((a, b) -> {
+							final int order = Double.compare(distances.distance(row, a), distances.distance(row, b));
+							return order != 0 ? order : Integer.compare(a, b);
+						});
+						for (int n = 0; n < Math.min(k, others.size()); n++) {
+							expected.add(new int[] { i, others.get(n) });
+						}
+					}
+
+					// a single thread computes fewer tiles ahead than there are
+					final List<int[]> found = neighbours(distances, k, maxDistance, (k == 7) ? 1 : 4);
+					assertEquals(power + " " + k, expected.size(), found.size());
+					for (int p = 0; p < expected.size(); p++) {
+						assertEquals(expected.get(p)[0], found.get(p)[0]);
+						assertEquals(power + " " + k + " " + expected.get(p)[0], expected.get(p)[1], found.get(p)[1]);
+					}
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRowsOfDifferentLength() {
+		new MinkowskiDistances(new double[][] { { 1, 2 }, { 1 } }, 2);
+	}
+
+	private static String run(String input, Properties properties) throws Exception {
+		final MinkowskiDistanceMatrixModule module = new MinkowskiDistanceMatrixModule(null, properties);
+		module.applyProperties();
+
+		final OutputPort source = new OutputPort("source", "source", null);
+		source.addSupportedPipe(CharPipe.class);
+		final InputPort sink = new InputPort("sink", "sink", null);
+		sink.addSupportedPipe(CharPipe.class);
+		final CharPipe inputPipe = new CharPipe();
+		source.addPipe(inputPipe, module.getInputPorts().get("input"));
+		module.getInputPorts().get("input").addPipe(inputPipe, source);
+		final CharPipe outputPipe = new CharPipe();
+		module.getOutputPorts().get("output").addPipe(outputPipe, sink);
+		sink.addPipe(outputPipe, module.getOutputPorts().get("output"));
+
+		final Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					source.outputToAllCharPipes(input);
+					source.close();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		final StringBuilder output = new StringBuilder();
+		final Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					final Reader in = sink.getInputReader();
+					final char[] buffer = new char[8192];
+					for (int read; (read = in.read(buffer)) >= 0;) {
+						output.append(buffer, 0, read);
+					}
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		reader.start();
+		assertTrue(module.process());
+		writer.join();
+		reader.join();
+		return output.toString();
+	}
+
+	@Test
+	public void testModuleOutput() throws Exception {
+		// a = (0, 0, 0), b = (3, 4, 0), c = (0, 1, 0)
+		final String input = "x;a;b;c\na;0;0;0\nb;3;4;0\nc;0;1;0\n";
+
+		assertEquals(";a;b;c;\na;0;5.0;1.0;\nb;0;0;4.242640687119285;\nc;0;0;0;\n", run(input, new Properties()));
+
+		Properties properties = new Properties();
+		properties.setProperty(MinkowskiDistanceMatrixModule.PROPERTYKEY_NEIGHBOURS, "1");
+		assertEquals(";a;b;c;\na;0;0;1.0;\nb;0;0;4.242640687119285;\nc;1.0;0;0;\n", run(input, properties));
+
+		properties = new Properties();
+		properties.setProperty(MinkowskiDistanceMatrixModule.PROPERTYKEY_POWER, "1");
+		properties.setProperty(MinkowskiDistanceMatrixModule.PROPERTYKEY_MAXDISTANCE, "6");
+		assertEquals(";a;b;c;\na;0;0;1.0;\nb;0;0;6.0;\nc;0;0;0;\n", run(input, properties));
+
+		properties = new Properties();
+		properties.setProperty(MinkowskiDistanceMatrixModule.PROPERTYKEY_POWER, "infinity");
+		assertEquals(";a;b;c;\na;0;4.0;1.0;\nb;0;0;3.0;\nc;0;0;0;\n", run(input, properties));
+	}
+
+}
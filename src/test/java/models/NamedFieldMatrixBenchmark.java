@@ -0,0 +1,57 @@
+package models;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import benchmark.Benchmark;
+
+/**
+ * Measures the size and speed of the binary and the CSV format. Writes and
+ * reads a dense matrix of random values (of the size given as argument) in
+ * both formats and prints the bytes per cell and the cells per second.
+ */
+public class NamedFieldMatrixBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int size = intArg(0, 600);
+
+		final Random random = new Random(5);
+		final NamedFieldMatrix dense = new NamedFieldMatrix();
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				dense.setValue("row" + i, "col" + j, random.nextDouble() * 1000);
+			}
+		}
+		dense.setDelimiter(";");
+
+		final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		final long binaryMillis = millis(new Task() {
+			@Override
+			public void run() throws Exception {
+				dense.writeBinary(binary);
+				NamedFieldMatrix.parseBinary(new ByteArrayInputStream(binary.toByteArray()));
+			}
+		});
+
+		final ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		final long csvMillis = millis(new Task() {
+			@Override
+			public void run() throws Exception {
+				dense.writeCSV(new OutputStreamWriter(csv, StandardCharsets.UTF_8));
+				NamedFieldMatrix.parseCSV(new StringReader(new String(csv.toByteArray(), StandardCharsets.UTF_8)),
+						";");
+			}
+		});
+
+		final double cells = (double) size * size;
+		report("%dx%d matrix: binary %.2f bytes/cell, %.2f million cells/s; csv %.2f bytes/cell, %.2f million cells/s",
+				size, size, binary.size() / cells, cells / 1e3 / Math.max(binaryMillis, 1), csv.size() / cells,
+				cells / 1e3 / Math.max(csvMillis, 1));
+	}
+
+}
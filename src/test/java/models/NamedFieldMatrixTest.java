@@ -1,10 +1,23 @@
 package models;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
 import org.junit.Test;
 
+import models.NamedFieldMatrix.Storage;
+
 public class NamedFieldMatrixTest {
 
 	private static String CSV = ",data1,data2,data3,data4\n" + "set1,,0.4,3.5,153.543\n" + "set2,2.1,2.5,1.2,9.41\n"
@@ -51,6 +64,14 @@ public class NamedFieldMatrixTest {
 		}
 	}
 
+	@Test
+	public void testWriteCSV() throws Exception {
+		NamedFieldMatrix matrix = NamedFieldMatrix.parseCSV(CSV, ",");
+		StringWriter writer = new StringWriter();
+		matrix.writeCSV(writer);
+		assertEquals(CSV, writer.toString());
+	}
+
 	@Test
 	public void contractionTest() {
 		try {
@@ -144,6 +165,181 @@ public class NamedFieldMatrixTest {
 		assertTrue(threwException);
 	}
 
+	@Test
+	public void testCopy() {
+		NamedFieldMatrix matrix = makeTestMatrix();
+		NamedFieldMatrix copy = new NamedFieldMatrix(matrix);
+		assertTrue(copy.csvHeader().equals(matrix.csvHeader()));
+		assertTrue(copy.csvLine(1).equals(matrix.csvLine(1)));
+
+		// changes to the copy must not affect the original and vice versa
+		copy.setValue("set1", "data1", 5.0d);
+		copy.addValue("set3", "data4", 3.4d);
+		matrix.setValue("set2", "data2", 7.0d);
+		assertTrue(matrix.getValue("set1", "data1").doubleValue() == 1.1d);
+		assertTrue(matrix.getValue("set3", "data4") == null);
+		assertTrue(copy.getValue("set2", "data2").doubleValue() == 2.2d);
+		assertTrue(copy.getValue("set3", "data4").doubleValue() == 3.4d);
+		assertTrue(copy.getRowAmount() == 3 && copy.getColumnsAmount() == 4);
+	}
+
+	@Test
+	public void testSparseMatchesDense() {
+		final NamedFieldMatrix dense = new NamedFieldMatrix(Storage.DENSE);
+		final NamedFieldMatrix sparse = new NamedFieldMatrix(Storage.SPARSE);
+		assertTrue(sparse.isSparse());
+
+		// random changes, including ones setting fields back to zero
+		final Random random = new Random(11);
+		for (int i = 0; i < 20000; i++) {
+			final String row = "row" + random.nextInt(150);
+			final String col = "col" + random.nextInt(150);
+			final double value = random.nextInt(3) - 1;
+			if (random.nextBoolean()) {
+				assertEquals(dense.setValue(row, col, value), sparse.setValue(row, col, value), 0);
+			} else {
+				assertEquals(dense.addValue(row, col, value), sparse.addValue(row, col, value), 0);
+			}
+		}
+
+		assertEquals(dense.getRowAmount(), sparse.getRowAmount());
+		assertEquals(dense.getColumnsAmount(), sparse.getColumnsAmount());
+		assertEquals(dense.csvHeader(), sparse.csvHeader());
+		for (int i = 0; i < dense.getRowAmount(); i++) {
+			assertEquals(dense.csvLine(i), sparse.csvLine(i));
+			assertArrayEquals(dense.getRow(i), sparse.getRow(i), 0);
+		}
+		assertArrayEquals(dense.getColumn(3), sparse.getColumn(3), 0);
+
+		// copies keep the storage, handing out the values makes it dense
+		final NamedFieldMatrix copy = new NamedFieldMatrix(sparse);
+		assertTrue(copy.isSparse());
+		final double[][] values = copy.getValues();
+		assertFalse(copy.isSparse());
+		for (int i = 0; i < dense.getRowAmount(); i++) {
+			assertArrayEquals(dense.getRow(i), values[i], 0);
+		}
+		assertTrue(sparse.isSparse());
+	}
+
+	@Test
+	public void testAutoStorage() {
+		// a big diagonal matrix is switched to sparse storage
+		final NamedFieldMatrix diagonal = new NamedFieldMatrix();
+		assertFalse(diagonal.isSparse());
+		for (int i = 0; i < 3000; i++) {
+			diagonal.setValue("row" + i, "col" + i, i);
+		}
+		assertTrue(diagonal.isSparse());
+		assertEquals(1234d, diagonal.getValue("row1234", "col1234"), 0);
+		assertEquals(0d, diagonal.getValue("row1234", "col1235"), 0);
+
+		// a full one stays dense
+		final NamedFieldMatrix full = new NamedFieldMatrix();
+		for (int i = 0; i < 1100; i++) {
+			for (int j = 0; j < 1100; j++) {
+				full.setValue("row" + i, "col" + j, 1);
+			}
+		}
+		assertFalse(full.isSparse());
+	}
+
+	@Test
+	public void testBinaryRoundTrip() throws Exception {
+		// a big dense matrix with arbitrary values
+		final Random random = new Random(5);
+		final NamedFieldMatrix dense = new NamedFieldMatrix();
+		for (int i = 0; i < 300; i++) {
+			for (int j = 0; j < 300; j++) {
+				dense.setValue("row" + i, "col" + j, random.nextDouble() * 1000);
+			}
+		}
+		dense.setDelimiter(";");
+
+		final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		dense.writeBinary(binary);
+		final NamedFieldMatrix binaryRead = NamedFieldMatrix.parseBinary(new ByteArrayInputStream(binary.toByteArray()));
+
+		final ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		dense.writeCSV(new OutputStreamWriter(csv, StandardCharsets.UTF_8));
+		final NamedFieldMatrix csvRead = NamedFieldMatrix.parseCSV(
+				new StringReader(new String(csv.toByteArray(), StandardCharsets.UTF_8)), ";");
+
+		// both keep every value exactly
+		assertFalse(binaryRead.isSparse());
+		assertEquals(dense.getRowAmount(), binaryRead.getRowAmount());
+		assertEquals(dense.getColumnsAmount(), binaryRead.getColumnsAmount());
+		for (int i = 0; i < dense.getRowAmount(); i++) {
+			assertEquals(dense.getRowName(i), binaryRead.getRowName(i));
+			assertArrayEquals(dense.getRow(i), binaryRead.getRow(i), 0);
+			assertArrayEquals(dense.getRow(i), csvRead.getRow(i), 0);
+		}
+
+		// dense values take eight bytes each, plus the names
+		final double cells = 300d * 300d;
+		assertTrue(binary.size() / cells < 8.1);
+		assertTrue(binary.size() < csv.size());
+
+		// a big diagonal matrix is written as entries and read back sparse
+		final NamedFieldMatrix diagonal = new NamedFieldMatrix(Storage.SPARSE);
+		for (int i = 0; i < 3000; i++) {
+			diagonal.setValue("row" + i, "col" + i, i + 0.5);
+		}
+		binary.reset();
+		diagonal.writeBinary(binary);
+		assertTrue(binary.size() < 3000 * 16 + 2 * 3000 * 12 + 64);
+		final NamedFieldMatrix diagonalRead = NamedFieldMatrix.parseBinary(new ByteArrayInputStream(binary.toByteArray()));
+		assertTrue(diagonalRead.isSparse());
+		assertEquals(1234.5d, diagonalRead.getValue("row1234", "col1234"), 0);
+		assertEquals(0d, diagonalRead.getValue("row1234", "col1235"), 0);
+		for (int i = 0; i < diagonal.getRowAmount(); i += 97) {
+			assertArrayEquals(diagonal.getRow(i), diagonalRead.getRow(i), 0);
+		}
+
+		// the storage can still be chosen and growing the matrix still works
+		final NamedFieldMatrix small = NamedFieldMatrix.parseBinary(new ByteArrayInputStream(binary.toByteArray()),
+				Storage.DENSE);
+		assertFalse(small.isSparse());
+		small.setValue("row3000", "col3000", 1d);
+		assertEquals(2999.5d, small.getValue("row2999", "col2999"), 0);
+		assertEquals(3001, small.getRowAmount());
+	}
+
+	@Test
+	public void testRowAccessByIndex() {
+		for (Storage storage : Storage.values()) {
+			final NamedFieldMatrix matrix = new NamedFieldMatrix(storage);
+			matrix.setValue("set1", "data1", 1.1d);
+			matrix.setValue("set1", "data3", 1.3d);
+			matrix.setValue("set2", "data2", 0d);
+			matrix.setValue("set3", "data2", 3.2d);
+
+			assertArrayEquals(new int[] { 0, 1 }, matrix.getNonZeroColumns(0));
+			assertArrayEquals(new int[0], matrix.getNonZeroColumns(1));
+			assertArrayEquals(new int[] { 2 }, matrix.getNonZeroColumns(2));
+			assertEquals(storage == Storage.SPARSE, matrix.isSparse());
+
+			// same names in the same order, no values
+			final NamedFieldMatrix empty = NamedFieldMatrix.withNamesOf(matrix, Storage.SPARSE);
+			assertEquals(3, empty.getRowAmount());
+			assertEquals(3, empty.getColumnsAmount());
+			assertEquals("set2", empty.getRowName(1));
+			assertEquals("data2", empty.getColumnName(2));
+			assertEquals(0, empty.getNonZeroColumns(0).length);
+
+			assertEquals(0d, empty.setValue(1, 2, 2.3d), 0);
+			assertEquals(2.3d, empty.getValue("set2", "data2"), 0);
+			assertEquals(2.3d, empty.setValue(1, 2, 0d), 0);
+			assertEquals(0, empty.getNonZeroColumns(1).length);
+			try {
+				empty.setValue(3, 0, 1d);
+				fail("Fields outside the matrix can not be set by index.");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
 	private NamedFieldMatrix makeTestMatrix() {
 		NamedFieldMatrix matrix = new NamedFieldMatrix();
 		matrix.addValue("set1", "data1", 1.1d);
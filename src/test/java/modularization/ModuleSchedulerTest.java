@@ -0,0 +1,187 @@
+package modularization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import common.parallelization.CallbackReceiver;
+import modules.CharPipe;
+import modules.ExecutorModuleScheduler;
+import modules.InputPort;
+import modules.Module;
+import modules.ModuleImpl;
+import modules.ModuleNetwork;
+import modules.ModuleScheduler;
+import modules.OutputPort;
+
+public class ModuleSchedulerTest {
+
+	private static final int LINES = 1000;
+
+	// Writes numbered lines to its output
+	private static class SourceModule extends ModuleImpl {
+		public SourceModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
+			super(callbackReceiver, properties);
+			OutputPort outputPort = new OutputPort("output", "lines", this);
+			outputPort.addSupportedPipe(CharPipe.class);
+			super.addOutputPort(outputPort);
+		}
+
+		@Override
+		public boolean process() throws Exception {
+			for (int i = 0; i < LINES; i++)
+				this.getOutputPorts().get("output").outputToAllCharPipes(i + "\n");
+			this.closeAllOutputs();
+			return true;
+		}
+	}
+
+	// Writes some lines, then fails
+	private static class FailingSourceModule extends SourceModule {
+		public FailingSourceModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
+			super(callbackReceiver, properties);
+		}
+
+		@Override
+		public boolean process() throws Exception {
+			for (int i = 0; i < 10; i++)
+				this.getOutputPorts().get("output").outputToAllCharPipes(i + "\n");
+			throw new IllegalStateException("Failing on purpose");
+		}
+	}
+
+	// Counts the lines received
+	private static class SinkModule extends ModuleImpl {
+		private int lines = 0;
+
+		public SinkModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
+			super(callbackReceiver, properties);
+			InputPort inputPort = new InputPort("input", "lines", this);
+			inputPort.addSupportedPipe(CharPipe.class);
+			super.addInputPort(inputPort);
+		}
+
+		@Override
+		public boolean process() throws Exception {
+			BufferedReader reader = new BufferedReader(this.getInputPorts().get("input").getInputReader());
+			while (reader.readLine() != null)
+				this.lines++;
+			reader.close();
+			return true;
+		}
+	}
+
+	private Properties nameProperties(String name) {
+		Properties properties = new Properties();
+		properties.setProperty(ModuleImpl.PROPERTYKEY_NAME, name);
+		return properties;
+	}
+
+	private void connect(ModuleNetwork moduleNetwork, SourceModule source, SinkModule sink1, SinkModule sink2)
+			throws Exception {
+		moduleNetwork.addModule(source);
+		moduleNetwork.addModule(sink1);
+		moduleNetwork.addModule(sink2);
+		moduleNetwork.addConnection(source.getOutputPorts().get("output"), sink1.getInputPorts().get("input"));
+		moduleNetwork.addConnection(source.getOutputPorts().get("output"), sink2.getInputPorts().get("input"));
+	}
+
+	private void runNetwork(ModuleScheduler scheduler) throws Exception {
+		ModuleNetwork moduleNetwork = new ModuleNetwork();
+		moduleNetwork.setModuleScheduler(scheduler);
+		SourceModule source = new SourceModule(moduleNetwork, this.nameProperties("Source"));
+		SinkModule sink1 = new SinkModule(moduleNetwork, this.nameProperties("Sink 1"));
+		SinkModule sink2 = new SinkModule(moduleNetwork, this.nameProperties("Sink 2"));
+		this.connect(moduleNetwork, source, sink1, sink2);
+
+		// Has to return as soon as the modules are done, not after the status interval
+		long start = System.currentTimeMillis();
+		moduleNetwork.runModules(true, 60000l);
+		assertTrue(System.currentTimeMillis() - start < 30000l);
+
+		assertEquals(LINES, sink1.lines);
+		assertEquals(LINES, sink2.lines);
+		assertEquals(Module.STATUSCODE_SUCCESS, source.getStatus());
+		assertTrue(moduleNetwork.getStartedThreads().isEmpty());
+	}
+
+	@Test
+	public void testThreadPerModule() throws Exception {
+		this.runNetwork(ExecutorModuleScheduler.threadPerModule());
+	}
+
+	@Test
+	public void testPooled() throws Exception {
+		ModuleScheduler scheduler = ExecutorModuleScheduler.pooled(3);
+		try {
+			this.runNetwork(scheduler);
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void testVirtualThreads() throws Exception {
+		// Falls back to platform threads on JVMs without virtual threads
+		this.runNetwork(ExecutorModuleScheduler.virtualThreads());
+	}
+
+	@Test
+	public void testFailingModuleOnPool() throws Exception {
+		ModuleScheduler scheduler = ExecutorModuleScheduler.pooled(3);
+		try {
+			ModuleNetwork moduleNetwork = new ModuleNetwork();
+			moduleNetwork.setModuleScheduler(scheduler);
+			SourceModule source = new FailingSourceModule(moduleNetwork, this.nameProperties("Source"));
+			SinkModule sink1 = new SinkModule(moduleNetwork, this.nameProperties("Sink 1"));
+			SinkModule sink2 = new SinkModule(moduleNetwork, this.nameProperties("Sink 2"));
+			this.connect(moduleNetwork, source, sink1, sink2);
+
+			// The pool threads live on, still the sinks must not wait for the source
+			long start = System.currentTimeMillis();
+			moduleNetwork.runModules(true, 60000l);
+			assertTrue(System.currentTimeMillis() - start < 30000l);
+
+			assertEquals(Module.STATUSCODE_FAILURE, source.getStatus());
+			// The lines written are received, then the sinks learn that the source failed
+			assertEquals(10, sink1.lines);
+			assertEquals(Module.STATUSCODE_FAILURE, sink1.getStatus());
+			assertEquals(Module.STATUSCODE_FAILURE, sink2.getStatus());
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void testPoolSmallerThanNetwork() throws Exception {
+		// The pool grows while more modules run than it keeps threads
+		ModuleScheduler scheduler = ExecutorModuleScheduler.pooled(1);
+		try {
+			this.runNetwork(scheduler);
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBoundedSchedulerSmallerThanNetwork() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			ModuleNetwork moduleNetwork = new ModuleNetwork();
+			moduleNetwork.setModuleScheduler(new ExecutorModuleScheduler(executor, 2));
+			this.connect(moduleNetwork, new SourceModule(moduleNetwork, this.nameProperties("Source")),
+					new SinkModule(moduleNetwork, this.nameProperties("Sink 1")),
+					new SinkModule(moduleNetwork, this.nameProperties("Sink 2")));
+			moduleNetwork.runModulesAsync();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
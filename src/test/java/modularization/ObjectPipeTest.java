@@ -0,0 +1,102 @@
+package modularization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import models.NamedFieldMatrix;
+import modules.CharPipe;
+import modules.InputPort;
+import modules.ModuleNetwork;
+import modules.ObjectPipe;
+import modules.OutputPort;
+import modules.Pipe;
+
+public class ObjectPipeTest {
+
+	@Test
+	public void testTransferAcrossThreads() throws Exception {
+		// Small capacity so that the writer blocks frequently
+		final ObjectPipe pipe = new ObjectPipe(4);
+		final int amount = 10000;
+
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < amount; i++)
+						pipe.write(Integer.valueOf(i));
+					pipe.writeClose();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		writer.start();
+
+		int expected = 0;
+		Integer read;
+		while ((read = pipe.read(Integer.class)) != null)
+			assertEquals(expected++, read.intValue());
+		writer.join();
+
+		assertEquals(amount, expected);
+		// End of stream is sticky
+		assertNull(pipe.read());
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnexpectedType() throws Exception {
+		ObjectPipe pipe = new ObjectPipe();
+		pipe.write("text");
+		pipe.read(Integer.class);
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterReadClose() throws Exception {
+		ObjectPipe pipe = new ObjectPipe();
+		pipe.readClose();
+		pipe.write("text");
+	}
+
+	@Test
+	public void testObjectPipePreferred() throws Exception {
+		OutputPort outputPort = new OutputPort("out", "output", null);
+		outputPort.addSupportedPipe(ObjectPipe.class);
+		outputPort.addSupportedPipe(CharPipe.class);
+		InputPort objectInputPort = new InputPort("objects", "input", null);
+		objectInputPort.addSupportedPipe(ObjectPipe.class);
+		objectInputPort.addSupportedPipe(CharPipe.class);
+		InputPort textInputPort = new InputPort("text", "input", null);
+		textInputPort.addSupportedPipe(CharPipe.class);
+
+		Pipe objectPipe = ModuleNetwork.getCompatiblePipe(outputPort, objectInputPort);
+		assertTrue(objectPipe instanceof ObjectPipe);
+		objectInputPort.addPipe(objectPipe, outputPort);
+		outputPort.addPipe(objectPipe, objectInputPort);
+
+		// Falls back to text if only one side can handle objects
+		Pipe textPipe = ModuleNetwork.getCompatiblePipe(outputPort, textInputPort);
+		assertTrue(textPipe instanceof CharPipe);
+		textInputPort.addPipe(textPipe, outputPort);
+		outputPort.addPipe(textPipe, textInputPort);
+
+		assertTrue(objectInputPort.providesObjects());
+		assertTrue(!textInputPort.providesObjects());
+
+		// The object is handed over as it is, the text pipe is left alone
+		NamedFieldMatrix matrix = new NamedFieldMatrix();
+		matrix.setValue("row", "col", 1d);
+		outputPort.outputToAllObjectPipes(matrix);
+		outputPort.close();
+		assertSame(matrix, objectInputPort.readObject(NamedFieldMatrix.class));
+		assertNull(objectInputPort.readObject(NamedFieldMatrix.class));
+		assertEquals(-1, textInputPort.getInputReader().read());
+	}
+
+}
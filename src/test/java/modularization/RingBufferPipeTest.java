@@ -0,0 +1,304 @@
+package modularization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import modules.CharPipe;
+import modules.InputPort;
+import modules.ModuleNetwork;
+import modules.OutputPort;
+import modules.Pipe;
+import modules.RingBufferBytePipe;
+import modules.RingBufferCharPipe;
+
+public class RingBufferPipeTest {
+
+	@Test
+	public void testCharTransferAcrossThreads() throws Exception {
+		// Small capacity so that the writer wraps around and blocks frequently
+		final RingBufferCharPipe pipe = new RingBufferCharPipe(16);
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			expected.append(i).append(' ');
+
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					String data = expected.toString();
+					int offset = 0;
+					while (offset < data.length()) {
+						int length = Math.min(37, data.length() - offset);
+						pipe.write(data.substring(offset, offset + length));
+						offset += length;
+					}
+					pipe.writeClose();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		writer.start();
+
+		StringBuilder actual = new StringBuilder();
+		Reader reader = pipe.getInput();
+		char[] buffer = new char[23];
+		int read;
+		while ((read = reader.read(buffer, 0, buffer.length)) != -1)
+			actual.append(buffer, 0, read);
+		writer.join();
+
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void testByteBufferTransferAcrossThreads() throws Exception {
+		final RingBufferBytePipe pipe = new RingBufferBytePipe(64);
+		final byte[] expected = new byte[100000];
+		new Random(42).nextBytes(expected);
+
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					ByteBuffer source = ByteBuffer.wrap(expected);
+					while (source.hasRemaining()) {
+						ByteBuffer chunk = source.slice();
+						chunk.limit(Math.min(chunk.remaining(), 100));
+						source.position(source.position() + chunk.remaining());
+						pipe.write(chunk);
+					}
+					pipe.writeClose();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		writer.start();
+
+		ByteBuffer target = ByteBuffer.allocate(expected.length);
+		while (pipe.read(target) != -1 && target.hasRemaining());
+		writer.join();
+
+		assertArrayEquals(expected, target.array());
+		assertEquals(-1, pipe.getInput().read());
+	}
+
+	@Test
+	public void testResetAndSingleElementIO() throws Exception {
+		RingBufferCharPipe pipe = new RingBufferCharPipe();
+		pipe.getOutput().write('x');
+		pipe.writeClose();
+		assertEquals('x', pipe.getInput().read());
+		assertEquals(-1, pipe.getInput().read());
+
+		pipe.reset();
+		pipe.write("y");
+		assertTrue(pipe.getInput().ready());
+		assertEquals('y', pipe.getInput().read());
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterReadClose() throws Exception {
+		RingBufferCharPipe pipe = new RingBufferCharPipe(8);
+		pipe.readClose();
+		pipe.write("data");
+	}
+
+	@Test
+	public void testPortsAcceptRingBufferPipes() throws Exception {
+		OutputPort outputPort = new OutputPort("out", "output", null);
+		outputPort.addSupportedPipe(CharPipe.class);
+		InputPort inputPort = new InputPort("in", "input", null);
+		inputPort.addSupportedPipe(CharPipe.class);
+
+		Pipe pipe = ModuleNetwork.getCompatiblePipe(outputPort, inputPort);
+		assertTrue(pipe instanceof RingBufferCharPipe);
+		new ModuleNetwork().addConnection(outputPort, inputPort, pipe);
+		assertEquals(1, outputPort.getPipes(CharPipe.class).size());
+
+		outputPort.outputToAllCharPipes("abc");
+		outputPort.close();
+		char[] buffer = new char[8];
+		assertEquals(3, inputPort.read(buffer, 0, buffer.length));
+		assertEquals(-1, inputPort.getInputReader().read());
+	}
+
+	@Test
+	public void testBroadcastToSeveralInputPorts() throws Exception {
+		final OutputPort outputPort = new OutputPort("out", "output", null);
+		outputPort.addSupportedPipe(CharPipe.class);
+		ModuleNetwork moduleNetwork = new ModuleNetwork();
+		moduleNetwork.setPipeBufferCapacity(32);
+		final InputPort[] inputPorts = new InputPort[3];
+		for (int i = 0; i < inputPorts.length; i++) {
+			inputPorts[i] = new InputPort("in" + i, "input", null);
+			inputPorts[i].addSupportedPipe(CharPipe.class);
+			moduleNetwork.addConnection(outputPort, inputPorts[i]);
+		}
+
+		// All pipes share one buffer
+		RingBufferCharPipe first = (RingBufferCharPipe) inputPorts[0].getPipe();
+		for (InputPort inputPort : inputPorts)
+			assertTrue(first.sharesBufferWith((RingBufferCharPipe) inputPort.getPipe()));
+
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 5000; i++)
+			expected.append(i).append('\n');
+
+		// Consumers read with different chunk sizes
+		final String[] results = new String[inputPorts.length];
+		Thread[] readers = new Thread[inputPorts.length];
+		for (int i = 0; i < inputPorts.length; i++) {
+			final int index = i;
+			readers[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						StringBuilder result = new StringBuilder();
+						char[] buffer = new char[1 + index * 7];
+						int read;
+						while ((read = inputPorts[index].read(buffer, 0, buffer.length)) != -1)
+							result.append(buffer, 0, read);
+						results[index] = result.toString();
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			readers[i].start();
+		}
+
+		// In two parts through the port, which stores each part only once
+		String data = expected.toString();
+		int half = data.length() / 2;
+		outputPort.outputToAllCharPipes(data.substring(0, half));
+		outputPort.outputToAllCharPipes(data.substring(half));
+		outputPort.close();
+
+		for (int i = 0; i < readers.length; i++) {
+			readers[i].join();
+			assertEquals(data, results[i]);
+		}
+	}
+
+	@Test
+	public void testRemovedReaderDoesNotHoldBackWriter() throws Exception {
+		OutputPort outputPort = new OutputPort("out", "output", null);
+		outputPort.addSupportedPipe(CharPipe.class);
+		InputPort slowInputPort = new InputPort("slow", "input", null);
+		slowInputPort.addSupportedPipe(CharPipe.class);
+		InputPort inputPort = new InputPort("in", "input", null);
+		inputPort.addSupportedPipe(CharPipe.class);
+
+		RingBufferCharPipe slowPipe = new RingBufferCharPipe(4);
+		ModuleNetwork moduleNetwork = new ModuleNetwork();
+		moduleNetwork.addConnection(outputPort, slowInputPort, slowPipe);
+		moduleNetwork.addConnection(outputPort, inputPort, new RingBufferCharPipe(slowPipe));
+		moduleNetwork.removeConnection(slowInputPort);
+
+		outputPort.outputToAllCharPipes("abcd");
+		char[] buffer = new char[4];
+		assertEquals(4, inputPort.read(buffer, 0, buffer.length));
+		// Would block if the removed reader still counted
+		outputPort.outputToAllCharPipes("efgh");
+		assertEquals(4, inputPort.read(buffer, 0, buffer.length));
+		assertEquals("efgh", new String(buffer));
+	}
+
+	// Three pipes of one port sharing a ring buffer
+	private static InputPort[] sharingInputPorts(OutputPort outputPort, int capacity) throws Exception {
+		outputPort.addSupportedPipe(CharPipe.class);
+		ModuleNetwork moduleNetwork = new ModuleNetwork();
+		moduleNetwork.setPipeBufferCapacity(capacity);
+		InputPort[] inputPorts = new InputPort[3];
+		for (int i = 0; i < inputPorts.length; i++) {
+			inputPorts[i] = new InputPort("in" + i, "input", null);
+			inputPorts[i].addSupportedPipe(CharPipe.class);
+			moduleNetwork.addConnection(outputPort, inputPorts[i]);
+		}
+		return inputPorts;
+	}
+
+	private static String readAll(InputPort inputPort) throws Exception {
+		StringBuilder result = new StringBuilder();
+		char[] buffer = new char[16];
+		int read;
+		while ((read = inputPort.read(buffer, 0, buffer.length)) != -1)
+			result.append(buffer, 0, read);
+		return result.toString();
+	}
+
+	@Test
+	public void testDifferentDataForSiblingPipes() throws Exception {
+		final OutputPort outputPort = new OutputPort("out", "output", null);
+		final InputPort[] inputPorts = sharingInputPorts(outputPort, 64);
+		final String[] results = new String[inputPorts.length];
+		Thread[] readers = new Thread[inputPorts.length];
+		for (int i = 0; i < inputPorts.length; i++) {
+			final int index = i;
+			readers[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						results[index] = readAll(inputPorts[index]);
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			// Readers already wait on the shared buffer
+			readers[i].start();
+		}
+
+		// Each pipe gets data of its own, more than fits into one buffer
+		int index = 0;
+		for (Pipe pipe : outputPort.getPipes(CharPipe.class)) {
+			StringBuilder data = new StringBuilder();
+			for (int i = 0; i < 100; i++)
+				data.append(index).append(':').append(i).append(' ');
+			((CharPipe) pipe).write(data.toString());
+			((CharPipe) pipe).writeClose();
+			index++;
+		}
+		for (int i = 0; i < readers.length; i++) {
+			readers[i].join();
+			assertTrue(results[i].startsWith(i + ":0 "));
+			assertTrue(results[i].endsWith(i + ":99 "));
+			assertEquals(-1, results[i].indexOf(((i + 1) % 3) + ":"));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testSinglePipeWriteAfterSharedWrite() throws Exception {
+		OutputPort outputPort = new OutputPort("out", "output", null);
+		sharingInputPorts(outputPort, 64);
+		outputPort.outputToAllCharPipes("shared");
+		((CharPipe) outputPort.getPipes(CharPipe.class).get(1)).write("only one");
+	}
+
+	@Test
+	public void testSharedBufferClosedByLastSibling() throws Exception {
+		OutputPort outputPort = new OutputPort("out", "output", null);
+		InputPort[] inputPorts = sharingInputPorts(outputPort, 64);
+		outputPort.outputToAllCharPipes("abc");
+		outputPort.getPipes(CharPipe.class).get(0).writeClose();
+		char[] buffer = new char[8];
+		assertEquals(3, inputPorts[0].read(buffer, 0, buffer.length));
+		// Still open for the readers of the other pipes
+		assertEquals(3, inputPorts[2].read(buffer, 0, buffer.length));
+		assertTrue(!inputPorts[2].getInputReader().ready());
+		outputPort.close();
+		assertEquals(-1, inputPorts[0].read(buffer, 0, buffer.length));
+		assertEquals(-1, inputPorts[2].read(buffer, 0, buffer.length));
+	}
+
+}
@@ -3,19 +3,36 @@ package suffixTree;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.junit.Test;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import modules.CharPipe;
+import modules.InputPort;
+import modules.ModuleNetwork;
+import modules.OutputPort;
+import modules.RingBufferCharPipe;
 import modules.tree_building.suffixTree.AbstractResultNodeStackListener;
 import modules.tree_building.suffixTree.BaseSuffixTree;
 import modules.tree_building.suffixTree.GST;
 import modules.tree_building.suffixTree.Node;
 import modules.tree_building.suffixTree.NodePosition;
+import modules.tree_building.suffixTree.ResultEdgeSegmentsListener;
+import modules.tree_building.suffixTree.ResultToJsonListener;
+import modules.tree_building.suffixTree.SuffixArrayGST;
 import modules.tree_building.suffixTree.TreeWalker;
+import modules.tree_building.suffixTree.TreeWalkerListenerMultiplexer;
 
 public class AbstractResultNodeStackListenerTest {
 
@@ -126,14 +143,15 @@ public class AbstractResultNodeStackListenerTest {
 
 	}
 
+	private static final String INPUT = "aa bb acd$bb acd aa$Petra liest das Buch$Maria liest das Buch$mississippi$romane$romanus$romulus$rubens$ruber$rubicon$rubicundus$";
+
 	@Test
 	public void test() {
-		final String input = "aa bb acd$bb acd aa$Petra liest das Buch$Maria liest das Buch$mississippi$romane$romanus$romulus$rubens$ruber$rubicon$rubicundus$";
 		BaseSuffixTree tree = null;
 
 		// just build the generalised suffix tree
 		try {
-			tree = GST.buildGST(new StringReader(input), null);
+			tree = GST.buildGST(new StringReader(INPUT), null);
 		} catch (Exception e) {
 			fail("Failed to build the generalised suffix tree.");
 		}
@@ -152,4 +170,138 @@ public class AbstractResultNodeStackListenerTest {
 		assertEquals(tree.getNodeAmount(), listener.nodesProcessed);
 	}
 
+	@Test
+	public void testMultiplexed() throws Exception {
+		final BaseSuffixTree tree = GST.buildGST(new StringReader(INPUT), null);
+
+		// only the first listener propagates the leaves, the second one has
+		// to see them nonetheless
+		final TestListener first = new TestListener(tree);
+		final TestListener second = new TestListener(tree);
+		final TreeWalkerListenerMultiplexer multiplexer = new TreeWalkerListenerMultiplexer();
+		multiplexer.addListener(first);
+		multiplexer.addListener(second);
+		TreeWalker.walk(tree.getRoot(), tree, multiplexer);
+
+		assertEquals(tree.getNodeAmount(), first.nodesProcessed);
+		assertEquals(tree.getNodeAmount(), second.nodesProcessed);
+	}
+
+	@Test
+	public void testConcurrentWalks() throws Exception {
+		final BaseSuffixTree tree = GST.buildGST(new StringReader(INPUT), null);
+		final List<TestListener> listeners = new ArrayList<TestListener>();
+		final List<Thread> threads = new ArrayList<Thread>();
+		final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+		// every listener walks the tree on its own thread
+		for (int i = 0; i < 4; i++) {
+			final TestListener listener = new TestListener(tree);
+			listeners.add(listener);
+			threads.add(new Thread(() -> {
+				try {
+					TreeWalker.walk(tree.getRoot(), tree, listener);
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertTrue("Walks failed: " + failures, failures.isEmpty());
+		for (TestListener listener : listeners) {
+			assertEquals(tree.getNodeAmount(), listener.nodesProcessed);
+		}
+	}
+
+	@Test
+	public void testJsonStreamedToPort() throws Exception {
+		final BaseSuffixTree tree = GST.buildGST(new StringReader(INPUT), null);
+
+		// a pipe much smaller than the document, so the walk only completes if
+		// the output is passed on while the reader consumes it
+		final OutputPort outputPort = new OutputPort("out", "output", null);
+		outputPort.addSupportedPipe(CharPipe.class);
+		final InputPort inputPort = new InputPort("in", "input", null);
+		inputPort.addSupportedPipe(CharPipe.class);
+		new ModuleNetwork().addConnection(outputPort, inputPort, new RingBufferCharPipe(64));
+
+		final Reader input = inputPort.getInputReader();
+		final JsonObject[] result = new JsonObject[1];
+		final Thread reader = new Thread(() -> {
+			result[0] = new JsonParser().parse(input).getAsJsonObject();
+		});
+		reader.start();
+
+		final ResultToJsonListener listener = new ResultToJsonListener(tree, outputPort);
+		TreeWalker.walk(tree.getRoot(), tree, listener);
+		listener.finishWriting();
+		reader.join();
+
+		assertEquals(tree.getNodeAmount(), result[0].get("nodeCount").getAsInt());
+		assertEquals(tree.getNodeAmount(), result[0].get("nodes").getAsJsonArray().size());
+	}
+
+	@Test
+	public void testDeepTree() throws Exception {
+		// a single repeated char gives a tree about as deep as the input is
+		// long, far too deep to walk it recursively
+		final StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			input.append('a');
+		}
+		final BaseSuffixTree tree = GST.buildGST(new StringReader(input.append('$').toString()), null);
+
+		final int[] processed = new int[2];
+		final AbstractResultNodeStackListener listener = new AbstractResultNodeStackListener(tree) {
+			@Override
+			public void process(int nodeNr, List<Node> path, int pathLength, int level) {
+				processed[0]++;
+				processed[1] = Math.max(processed[1], pathLength);
+			}
+		};
+		// every node has all leaves below it, noting them would be quadratic
+		listener.setPropagateLeaves(false);
+		TreeWalker.walk(tree.getRoot(), tree, listener);
+
+		assertEquals(tree.getNodeAmount(), processed[0]);
+		assertEquals(input.length(), processed[1]);
+	}
+
+	@Test
+	public void testEdgeSequences() throws Exception {
+		final BaseSuffixTree tree = GST.buildGST(new StringReader(INPUT), null);
+		for (int nodeNr = tree.getRoot(); nodeNr <= tree.getNodeAmount(); nodeNr++) {
+			assertEquals(tree.edgeString(nodeNr), tree.edgeSequence(nodeNr).toString());
+		}
+	}
+
+	@Test
+	public void testEdgeSegments() throws Exception {
+		// every input text once, its edges joined again
+		final Set<String> expected = new HashSet<String>();
+		for (String text : INPUT.split("\\$")) {
+			expected.add(text + "$");
+		}
+		for (BaseSuffixTree tree : Arrays.<BaseSuffixTree>asList(GST.buildGST(INPUT), SuffixArrayGST.buildGST(INPUT))) {
+			final StringWriter out = new StringWriter();
+			final ResultEdgeSegmentsListener listener = new ResultEdgeSegmentsListener(tree, out);
+			TreeWalker.walk(tree.getRoot(), tree, listener);
+			assertTrue(listener.hasCompleted());
+
+			final List<String> lines = Arrays.asList(out.toString().split(System.lineSeparator()));
+			final Set<String> texts = new HashSet<String>();
+			for (String line : lines) {
+				texts.add(line.replace(ResultEdgeSegmentsListener.SEPARATOR, ""));
+			}
+			assertEquals(expected.size(), lines.size());
+			assertEquals(expected, texts);
+		}
+	}
+
 }
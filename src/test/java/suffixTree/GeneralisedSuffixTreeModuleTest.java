@@ -0,0 +1,97 @@
+package suffixTree;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import modules.CharPipe;
+import modules.InputPort;
+import modules.OutputPort;
+import modules.tree_building.suffixTreeModuleWrapper.GeneralisedSuffixTreeModule;
+
+public class GeneralisedSuffixTreeModuleTest {
+
+	private static final String WORDS = "romane romanus romulus rubens ruber rubicon rubicundus mississippi ";
+
+	/*
+	 * A downstream module reading one output to the end before it reads the
+	 * next must not block the module, although the pipes only buffer a few
+	 * kilobytes.
+	 */
+	@Test(timeout = 60000)
+	public void testOutputsReadOneAfterAnother() throws Exception {
+		assertOutputsReadOneAfterAnother(GeneralisedSuffixTreeModule.ENGINE_UKKONEN);
+		assertOutputsReadOneAfterAnother(GeneralisedSuffixTreeModule.ENGINE_SUFFIX_ARRAY);
+	}
+
+	private static void assertOutputsReadOneAfterAnother(String engine) throws Exception {
+		final StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			input.append(WORDS.substring(i % 20)).append(i).append('$');
+		}
+
+		final Properties properties = new Properties();
+		properties.setProperty(GeneralisedSuffixTreeModule.PROPERTYKEY_ENGINE, engine);
+		final GeneralisedSuffixTreeModule module = new GeneralisedSuffixTreeModule(null, properties);
+		module.applyProperties();
+
+		final OutputPort source = new OutputPort("source", "source", null);
+		source.addSupportedPipe(CharPipe.class);
+		final CharPipe inputPipe = new CharPipe();
+		source.addPipe(inputPipe, module.getInputPorts().get("plain"));
+		module.getInputPorts().get("plain").addPipe(inputPipe, source);
+
+		// the labels are written after the walk, json while walking
+		final InputPort labels = connect(module, "label list");
+		final InputPort json = connect(module, "json");
+		final InputPort edgeSegments = connect(module, "edge segments");
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final Future<Void> writer = executor.submit(() -> {
+				source.outputToAllCharPipes(input.toString());
+				source.close();
+				return null;
+			});
+			final Future<Boolean> processed = executor.submit(() -> module.process());
+
+			final String jsonOutput = readAll(json);
+			final String edgeSegmentsOutput = readAll(edgeSegments);
+			final String labelsOutput = readAll(labels);
+
+			writer.get();
+			assertTrue(processed.get());
+			assertTrue(jsonOutput.endsWith("}"));
+			assertTrue(edgeSegmentsOutput.length() > 0);
+			assertTrue(labelsOutput.contains("rubicundus"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static InputPort connect(GeneralisedSuffixTreeModule module, String outputId) throws Exception {
+		final InputPort sink = new InputPort(outputId, outputId, null);
+		sink.addSupportedPipe(CharPipe.class);
+		final CharPipe pipe = new CharPipe();
+		module.getOutputPorts().get(outputId).addPipe(pipe, sink);
+		sink.addPipe(pipe, module.getOutputPorts().get(outputId));
+		return sink;
+	}
+
+	private static String readAll(InputPort port) throws Exception {
+		final StringBuilder result = new StringBuilder();
+		final Reader in = port.getInputReader();
+		final char[] buffer = new char[8192];
+		for (int read; (read = in.read(buffer)) >= 0;) {
+			result.append(buffer, 0, read);
+		}
+		return result.toString();
+	}
+
+}
@@ -6,12 +6,14 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
 
+import modules.tree_building.suffixTree.GST;
 import modules.tree_building.suffixTree.SuffixTree;
 
 public class GstTest {
@@ -251,4 +253,21 @@ public class GstTest {
 		assertFalse(tree.findPattern("$N"));
 	}
 
+	@Test
+	public void testMultiLineInput() throws Exception {
+		// lines are appended with a leading blank unless they end on '$'
+		SuffixTree tree = GST.buildGST(new StringReader("aa\nbb\ncc$\n\ndd$ee$"), null);
+		GstTestHelper.generalTreeCheck(tree, "aa bbcc$ dd$ee$");
+
+		// input exceeding the initial text buffer is read in chunks
+		final StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			input.append("text").append(i % 7).append(i % 3).append('$');
+		}
+		tree = GST.buildGST(new StringReader(input.toString()), null);
+		GstTestHelper.generalTreeCheck(tree, input.toString());
+		assertEquals(2000, tree.textNrsAmount());
+		assertTrue(tree.findPattern("text62$"));
+	}
+
 }
@@ -0,0 +1,111 @@
+package suffixTree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTree.BaseSuffixTree;
+import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.Node;
+import modules.tree_building.suffixTree.NodePosition;
+import modules.tree_building.suffixTree.SuffixArrayGST;
+import modules.tree_building.suffixTree.SuffixTree;
+
+public class SuffixArrayGSTTest {
+
+	// Builds the tree with both engines and compares them
+	private void compare(String input, List<Integer> typeContextEndIndices) throws Exception {
+		final SuffixTree expected = GST.buildGST(input, typeContextEndIndices);
+		final SuffixTree actual = SuffixArrayGST.buildGST(input, typeContextEndIndices);
+
+		GstTestHelper.generalTreeCheck(actual, input);
+		assertEquals(expected.getNodeAmount(), actual.getNodeAmount());
+		assertEquals(expected.getTypeContextsAmount(), actual.getTypeContextsAmount());
+		assertEquals(dump(expected, expected.getRoot()), dump(actual, actual.getRoot()));
+	}
+
+	// Describes the subtree by its edges and leaf positions, which do not
+	// depend on the node numbering
+	private String dump(BaseSuffixTree tree, int nodeNr) {
+		final Node node = tree.getNode(nodeNr);
+		final StringBuilder sb = new StringBuilder();
+		sb.append('(').append(tree.edgeString(nodeNr));
+		if (node.isTerminal()) {
+			final List<String> positions = new ArrayList<String>();
+			for (NodePosition position : node.getPositions()) {
+				positions.add(position.getStart() + "-" + position.getEnd() + ":" + position.getTextNr() + ":"
+						+ position.getTypeContextNr());
+			}
+			Collections.sort(positions);
+			sb.append(positions);
+		}
+		for (char c : node.getEdgeBegins()) {
+			sb.append(dump(tree, node.getNext(c)));
+		}
+		return sb.append(')').toString();
+	}
+
+	@Test
+	public void testSimpleInputs() throws Exception {
+		compare("aa$bb$", null);
+		compare("aa$bb$aa$bb$", null);
+		compare("mississippi$", null);
+		compare("ab$ab$ab$b$", null);
+		compare("aa bb acd$bb acd aa$Petra liest das Buch$Maria liest das Buch$mississippi$romane$romanus$romulus$rubens$ruber$rubicon$rubicundus$",
+				null);
+	}
+
+	@Test
+	public void testTypeContexts() throws Exception {
+		compare("aa cc$bb cc$bb dd$aa cc$bb cc$bb dd$", Arrays.asList(1, 3, 5, 6));
+	}
+
+	@Test
+	public void testBigTree() throws Exception {
+		final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(getClass().getClassLoader().getResourceAsStream("line1K"), "UTF-8"));
+		compare(reader.readLine(), null);
+		reader.close();
+	}
+
+	@Test
+	public void testNodeMemory() throws Exception {
+		final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(getClass().getClassLoader().getResourceAsStream("line1K"), "UTF-8"));
+		final String input = reader.readLine();
+		reader.close();
+		final SuffixTree ukkonen = GST.buildGST(input, null);
+		final SuffixTree suffixArray = SuffixArrayGST.buildGST(input, null);
+		assertTrue(suffixArray.getNodeMemory() < ukkonen.getNodeMemory());
+		assertTrue(suffixArray.findPattern("$"));
+		assertEquals(ukkonen.findPattern("der "), suffixArray.findPattern("der "));
+	}
+
+	@Test
+	public void testRandomInputs() throws Exception {
+		final Random random = new Random(7);
+		final String[] repeated = { "ab$", "abab$", "ba$" };
+		for (int i = 0; i < 500; i++) {
+			final StringBuilder input = new StringBuilder();
+			final int length = 1 + random.nextInt(60);
+			for (int j = 0; j < length; j++) {
+				if (random.nextInt(5) == 0) {
+					input.append(repeated[random.nextInt(repeated.length)]);
+				} else {
+					input.append((char) ('a' + random.nextInt(3)));
+				}
+			}
+			compare(input.append('$').toString(), null);
+		}
+	}
+
+}
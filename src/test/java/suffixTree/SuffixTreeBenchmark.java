@@ -0,0 +1,54 @@
+package suffixTree;
+
+import java.util.Random;
+
+import benchmark.Benchmark;
+import modules.tree_building.suffixTree.BaseSuffixTree;
+import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.SuffixArrayGST;
+
+/**
+ * Measures build throughput and memory footprint of the suffix tree's nodes.
+ * Builds a tree over a random text (of the length and alphabet size given as
+ * arguments) with Ukkonen's algorithm and from the suffix array, the given
+ * amount of runs each, and prints chars per second as well as bytes per
+ * input char.
+ */
+public class SuffixTreeBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int length = intArg(0, 1000000);
+		final int alphabet = intArg(1, 26);
+		final int runs = intArg(2, 5);
+
+		// random text over the alphabet, terminated by '$'
+		final Random random = new Random(42);
+		final StringBuilder input = new StringBuilder(length);
+		for (int i = 0; i < length - 1; i++) {
+			input.append((char) ('a' + random.nextInt(alphabet)));
+		}
+		input.append('$');
+		final String text = input.toString();
+
+		for (final boolean suffixArray : new boolean[] { false, true }) {
+			for (int run = 0; run < runs; run++) {
+				final BaseSuffixTree[] tree = new BaseSuffixTree[1];
+				final long heapBefore = usedHeap();
+				final long millis = millis(new Task() {
+					@Override
+					public void run() throws Exception {
+						tree[0] = suffixArray ? SuffixArrayGST.buildGST(text) : GST.buildGST(text);
+					}
+				});
+				final long heapAfter = usedHeap();
+
+				report("%s, run %d: %d nodes, %.0f chars/s, %.1f bytes/char (nodes), %.1f bytes/char (heap)",
+						suffixArray ? "suffix array" : "Ukkonen", run, tree[0].getNodeAmount(),
+						length * 1000d / Math.max(millis, 1), tree[0].getNodeMemory() / (double) length,
+						(heapAfter - heapBefore) / (double) length);
+			}
+		}
+	}
+
+}
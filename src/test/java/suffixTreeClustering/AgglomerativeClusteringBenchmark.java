@@ -0,0 +1,48 @@
+package suffixTreeClustering;
+
+import java.util.Random;
+
+import benchmark.Benchmark;
+import modules.tree_building.suffixTreeClustering.clustering.hierarchical.AgglomerativeClustering;
+import modules.tree_building.suffixTreeClustering.clustering.hierarchical.SimilarityMeasure;
+
+/**
+ * Measures the time AgglomerativeClustering takes. Clusters random distances
+ * between the amount of elements given as first argument with every
+ * similarity measure, once with distinct distances and once with whole
+ * numbers up to the second argument (giving ties), and prints the
+ * milliseconds taken.
+ */
+public class AgglomerativeClusteringBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int n = intArg(0, 3000);
+		final int maxDistance = intArg(1, 10);
+
+		final Random random = new Random(1);
+		final double[] distinct = new double[n * (n - 1) / 2];
+		final double[] tied = new double[distinct.length];
+		for (int k = 0; k < distinct.length; k++) {
+			distinct[k] = random.nextDouble();
+			tied[k] = random.nextInt(maxDistance + 1);
+		}
+
+		for (final SimilarityMeasure measure : SimilarityMeasure.values()) {
+			final long distinctMillis = millis(new Task() {
+				@Override
+				public void run() {
+					new AgglomerativeClustering(n, distinct.clone(), measure).cluster();
+				}
+			});
+			final long tiedMillis = millis(new Task() {
+				@Override
+				public void run() {
+					new AgglomerativeClustering(n, tied.clone(), measure).cluster();
+				}
+			});
+			report("%s, %d elements: %d ms distinct, %d ms with ties", measure, n, distinctMillis, tiedMillis);
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+package suffixTreeClustering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTreeClustering.clustering.CondensedMatrix;
+import modules.tree_building.suffixTreeClustering.clustering.hierarchical.AgglomerativeClustering;
+import modules.tree_building.suffixTreeClustering.clustering.hierarchical.SimilarityMeasure;
+
+public class AgglomerativeClusteringTest {
+
+	private static double[][] randomDistances(Random random, int n, int maxDistance) {
+		final double[][] distances = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				// whole numbers give ties
+				distances[i][j] = maxDistance > 0 ? 1 + random.nextInt(maxDistance) : random.nextDouble();
+				distances[j][i] = distances[i][j];
+			}
+		}
+		return distances;
+	}
+
+	private static double[] condensed(double[][] distances) {
+		final int n = distances.length;
+		final double[] result = new double[n * (n - 1) / 2];
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				result[CondensedMatrix.index(n, i, j)] = distances[i][j];
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * The way clusters were merged before: rescan all pairs of clusters for
+	 * the closest one in each step. Single, complete and average link are
+	 * computed from the members, the others from squared distances following
+	 * Lance and Williams.
+	 */
+	private static int[][] naiveMerges(double[][] distances, SimilarityMeasure measure) {
+		final int n = distances.length;
+		final List<List<Integer>> clusters = new ArrayList<List<Integer>>();
+		final List<Integer> slots = new ArrayList<Integer>();
+		final double[][] squared = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			clusters.add(new ArrayList<Integer>(Arrays.asList(i)));
+			slots.add(i);
+			for (int j = 0; j < n; j++) {
+				squared[i][j] = distances[i][j] * distances[i][j];
+			}
+		}
+		final int[][] merges = new int[n - 1][];
+		for (int step = 0; step < n - 1; step++) {
+			double smallest = Double.POSITIVE_INFINITY;
+			int c1 = 0;
+			int c2 = 0;
+			for (int i = 0; i < clusters.size() - 1; i++) {
+				for (int j = i + 1; j < clusters.size(); j++) {
+					final double distance = clusterDistance(distances, squared, clusters.get(i), clusters.get(j),
+							slots.get(i), slots.get(j), measure);
+					if (distance < smallest) {
+						smallest = distance;
+						c1 = i;
+						c2 = j;
+					}
+				}
+			}
+			final int a = slots.get(c1);
+			final int b = slots.get(c2);
+			merges[step] = new int[] { a, b };
+			if (!measure.isReducible() || measure == SimilarityMeasure.WARD) {
+				final double sizeA = clusters.get(c1).size();
+				final double sizeB = clusters.get(c2).size();
+				for (int k = 0; k < clusters.size(); k++) {
+					final int x = slots.get(k);
+					if (x == a || x == b) {
+						continue;
+					}
+					final double sizeX = clusters.get(k).size();
+					final double value;
+					if (measure == SimilarityMeasure.WARD) {
+						value = ((sizeA + sizeX) * squared[a][x] + (sizeB + sizeX) * squared[b][x]
+								- sizeX * squared[a][b]) / (sizeA + sizeB + sizeX);
+					} else if (measure == SimilarityMeasure.CENTROID) {
+						value = (sizeA * squared[a][x] + sizeB * squared[b][x]) / (sizeA + sizeB)
+								- sizeA * sizeB * squared[a][b] / ((sizeA + sizeB) * (sizeA + sizeB));
+					} else {
+						value = (squared[a][x] + squared[b][x]) / 2 - squared[a][b] / 4;
+					}
+					squared[a][x] = value;
+					squared[x][a] = value;
+				}
+			}
+			clusters.get(c1).addAll(clusters.get(c2));
+			clusters.remove(c2);
+			slots.remove(c2);
+		}
+		return merges;
+	}
+
+	private static double clusterDistance(double[][] distances, double[][] squared, List<Integer> c1,
+			List<Integer> c2, int slot1, int slot2, SimilarityMeasure measure) {
+		if (!measure.isReducible() || measure == SimilarityMeasure.WARD) {
+			return squared[slot1][slot2];
+		}
+		double minDist = Double.POSITIVE_INFINITY;
+		double maxDist = 0d;
+		double sum = 0d;
+		for (int i : c1) {
+			for (int j : c2) {
+				sum += distances[i][j];
+				minDist = Math.min(minDist, distances[i][j]);
+				maxDist = Math.max(maxDist, distances[i][j]);
+			}
+		}
+		switch (measure) {
+		case SINGLE_LINK:
+			return minDist;
+		case COMPLETE_LINK:
+			return maxDist;
+		default:
+			return sum / (c1.size() + c2.size());
+		}
+	}
+
+	private static int[][] merges(double[][] distances, SimilarityMeasure measure) {
+		return new AgglomerativeClustering(distances.length, condensed(distances), measure).cluster();
+	}
+
+	@Test
+	public void testMatchesNaiveClustering() {
+		final Random random = new Random(19);
+		for (SimilarityMeasure measure : SimilarityMeasure.values()) {
+			for (int n : new int[] { 1, 2, 3, 10, 60 }) {
+				final double[][] distances = randomDistances(random, n, 0);
+				final int[][] expected = naiveMerges(distances, measure);
+				final int[][] actual = merges(distances, measure);
+				assertEquals(expected.length, actual.length);
+				for (int step = 0; step < expected.length; step++) {
+					assertArrayEquals(measure + " " + n + " step " + step, expected[step], actual[step]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTies() {
+		final Random random = new Random(7);
+		for (int run = 0; run < 5; run++) {
+			// whole numbers including zero (as between duplicates) give ties
+			final double[][] distances = new double[40 + 10 * run][];
+			for (int i = 0; i < distances.length; i++) {
+				distances[i] = new double[distances.length];
+				for (int j = 0; j < i; j++) {
+					distances[i][j] = random.nextInt(2 + run);
+					distances[j][i] = distances[i][j];
+				}
+			}
+
+			// ties are taken in the same order as by the naive clustering
+			for (SimilarityMeasure measure : SimilarityMeasure.values()) {
+				final int[][] expected = naiveMerges(distances, measure);
+				final int[][] actual = merges(distances, measure);
+				for (int step = 0; step < expected.length; step++) {
+					assertArrayEquals(measure + " run " + run + " step " + step, expected[step], actual[step]);
+				}
+			}
+		}
+	}
+
+}
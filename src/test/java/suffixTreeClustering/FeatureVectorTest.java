@@ -0,0 +1,103 @@
+package suffixTreeClustering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureVector;
+import modules.tree_building.suffixTreeClustering.features.TfIdfFeatures;
+import modules.tree_building.suffixTreeClustering.st_interface.SuffixTreeInfo;
+
+public class FeatureVectorTest {
+
+	// a positive value in about every tenth dimension
+	private static double[] randomValues(Random random, int length) {
+		final double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			if (random.nextInt(10) == 0) {
+				values[i] = random.nextDouble() * 5;
+			}
+		}
+		return values;
+	}
+
+	private static FeatureVector sparse(double[] values) {
+		int size = 0;
+		for (double value : values) {
+			if (value != 0) {
+				size++;
+			}
+		}
+		final int[] indices = new int[size];
+		final double[] nonZero = new double[size];
+		for (int i = 0, k = 0; i < values.length; i++) {
+			if (values[i] != 0) {
+				indices[k] = i;
+				nonZero[k++] = values[i];
+			}
+		}
+		return new FeatureVector(values.length, indices, nonZero);
+	}
+
+	@Test
+	public void testSparseMatchesDense() {
+		final Random random = new Random(18);
+		final List<FeatureVector> dense = new ArrayList<FeatureVector>();
+		final List<FeatureVector> sparse = new ArrayList<FeatureVector>();
+		for (int i = 0; i < 30; i++) {
+			final double[] values = randomValues(random, 500);
+			dense.add(new FeatureVector(values));
+			sparse.add(sparse(values));
+		}
+		// a vector without any value
+		dense.add(new FeatureVector(new double[500]));
+		sparse.add(new FeatureVector(500, new int[0], new double[0]));
+
+		for (int i = 0; i < dense.size(); i++) {
+			assertTrue(sparse.get(i).isSparse());
+			assertEquals(dense.get(i), sparse.get(i));
+			assertEquals(dense.get(i).hashCode(), sparse.get(i).hashCode());
+			assertArrayEquals(dense.get(i).getValues(), sparse.get(i).getValues(), 0);
+			for (int j = 0; j < dense.size(); j++) {
+				final double distance = dense.get(i).distance(dense.get(j));
+				final double similarity = dense.get(i).similarity(dense.get(j));
+				assertEquals(distance, sparse.get(i).distance(sparse.get(j)), 0);
+				assertEquals(distance, sparse.get(i).distance(dense.get(j)), 0);
+				assertEquals(distance, dense.get(i).distance(sparse.get(j)), 0);
+				assertEquals(similarity, sparse.get(i).similarity(sparse.get(j)), 0);
+				assertEquals(similarity, sparse.get(i).similarity(dense.get(j)), 0);
+				assertEquals(similarity, dense.get(i).similarity(sparse.get(j)), 0);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsortedIndices() {
+		new FeatureVector(10, new int[] { 3, 2 }, new double[] { 1, 1 });
+	}
+
+	@Test
+	public void testTfIdfOfVisitedNodes() {
+		final Random random = new Random(7);
+		final SuffixTreeInfo corpus = RandomCorpus.create(random, 5, 40, 0.25);
+
+		for (Type type : corpus.getTypes()) {
+			final TfIdfFeatures features = new TfIdfFeatures(type, corpus);
+			final double[] expected = new double[corpus.getNodes().size()];
+			for (int n = 0; n < expected.length; n++) {
+				expected[n] = features.tfIdf(corpus.getNodes().get(n));
+			}
+			final FeatureVector vector = features.vector();
+			assertTrue(vector.isSparse());
+			assertEquals(new FeatureVector(expected), vector);
+		}
+	}
+
+}
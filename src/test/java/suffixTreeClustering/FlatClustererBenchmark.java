@@ -0,0 +1,49 @@
+package suffixTreeClustering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import benchmark.Benchmark;
+import modules.tree_building.suffixTreeClustering.clustering.flat.FlatClusterer;
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureType;
+import modules.tree_building.suffixTreeClustering.st_interface.SuffixTreeInfo;
+
+/**
+ * Measures the time K-Medoids clustering takes. Clusters the types of a random
+ * corpus (of the amount of types and nodes given as arguments) for k from 2 to
+ * 50, on one thread, on the given amount of threads and in CLARA mode with
+ * samples of the given size, and prints the milliseconds taken.
+ */
+public class FlatClustererBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int typeCount = intArg(0, 2000);
+		final int nodeCount = intArg(1, 3000);
+		final int threads = intArg(2, 4);
+		final int sampleSize = intArg(3, 200);
+
+		final SuffixTreeInfo corpus = RandomCorpus.create(new Random(1), typeCount, nodeCount, 0.05);
+		final List<Type> types = new ArrayList<Type>(corpus.getTypes());
+		for (Type type : types) {
+			type.calculateVector(corpus, FeatureType.TF_IDF);
+		}
+
+		time("1 thread", new FlatClusterer(types, 1, 0), types.size());
+		time(threads + " threads", new FlatClusterer(types, threads, 0), types.size());
+		time("CLARA, samples of " + sampleSize, new FlatClusterer(types, threads, sampleSize), types.size());
+	}
+
+	private static void time(String mode, final FlatClusterer clusterer, int typeCount) throws Exception {
+		final long analyseMillis = millis(new Task() {
+			@Override
+			public void run() {
+				clusterer.analyse(2, 50, 10);
+			}
+		});
+		report("%s, %d types, k from 2 to 50: %d ms", mode, typeCount, analyseMillis);
+	}
+
+}
@@ -0,0 +1,78 @@
+package suffixTreeClustering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTreeClustering.clustering.flat.FlatCluster;
+import modules.tree_building.suffixTreeClustering.clustering.flat.FlatClusterer;
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureType;
+import modules.tree_building.suffixTreeClustering.st_interface.SuffixTreeInfo;
+
+public class FlatClustererTest {
+
+	private static List<Type> types(Random random, int typeCount, int nodeCount) {
+		final SuffixTreeInfo corpus = RandomCorpus.create(random, typeCount, nodeCount, 0.05);
+		final List<Type> types = new ArrayList<Type>(corpus.getTypes());
+		for (Type type : types) {
+			type.calculateVector(corpus, FeatureType.TF_IDF);
+		}
+		return types;
+	}
+
+	// medoids and sizes of the clusters
+	private static String describe(List<FlatCluster> clusters) {
+		final StringBuilder builder = new StringBuilder();
+		for (FlatCluster cluster : clusters) {
+			builder.append(cluster.getMedoid().getID()).append(':').append(cluster.getDocuments().size())
+					.append(' ');
+		}
+		return builder.toString();
+	}
+
+	private static void assertPartition(List<Type> types, int k, List<FlatCluster> clusters) {
+		assertEquals(k, clusters.size());
+		final Set<Type> all = new HashSet<Type>();
+		int size = 0;
+		for (FlatCluster cluster : clusters) {
+			assertTrue(cluster.getDocuments().contains(cluster.getMedoid()));
+			all.addAll(cluster.getDocuments());
+			size += cluster.getDocuments().size();
+		}
+		assertEquals(types.size(), size);
+		assertEquals(new HashSet<Type>(types), all);
+	}
+
+	@Test
+	public void testParallelMatchesSerial() {
+		final List<Type> types = types(new Random(21), 120, 400);
+		final List<List<FlatCluster>> serial = new FlatClusterer(types, 1, 0).analyse(2, 8, 10);
+		final List<List<FlatCluster>> parallel = new FlatClusterer(types, 4, 0).analyse(2, 8, 10);
+		assertEquals(7, parallel.size());
+		for (int i = 0; i < parallel.size(); i++) {
+			assertPartition(types, i + 2, parallel.get(i));
+			assertEquals(describe(serial.get(i)), describe(parallel.get(i)));
+		}
+	}
+
+	@Test
+	public void testClara() {
+		final List<Type> types = types(new Random(22), 200, 400);
+		final FlatClusterer clusterer = new FlatClusterer(types, 2, 60);
+		final List<List<FlatCluster>> clusters = clusterer.analyse(2, 5, 10);
+		for (int i = 0; i < clusters.size(); i++) {
+			assertPartition(types, i + 2, clusters.get(i));
+		}
+		// the samples are kept for further clusterings
+		assertEquals(describe(clusters.get(1)), describe(clusterer.analyse(3, 10)));
+	}
+
+}
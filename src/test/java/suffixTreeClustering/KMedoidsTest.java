@@ -0,0 +1,109 @@
+package suffixTreeClustering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTreeClustering.clustering.CondensedMatrix;
+import modules.tree_building.suffixTreeClustering.clustering.flat.KMedoids;
+
+public class KMedoidsTest {
+
+	// points in the plane around the given number of centres
+	private static double[][] points(Random random, int n, int centres, double spread) {
+		final double[][] points = new double[n][];
+		for (int i = 0; i < n; i++) {
+			final int centre = i % centres;
+			points[i] = new double[] { centre * 10 + random.nextGaussian() * spread,
+					(centre % 2) * 10 + random.nextGaussian() * spread };
+		}
+		return points;
+	}
+
+	private static KMedoids kMedoids(double[][] points) {
+		final int n = points.length;
+		final float[] distances = new float[n * (n - 1) / 2];
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				distances[CondensedMatrix.index(n, i, j)] = (float) Math
+						.hypot(points[i][0] - points[j][0], points[i][1] - points[j][1]);
+			}
+		}
+		return new KMedoids(n, distances);
+	}
+
+	private static void assertDistinct(int[] medoids) {
+		final Set<Integer> distinct = new HashSet<Integer>();
+		for (int medoid : medoids) {
+			distinct.add(medoid);
+		}
+		assertEquals(medoids.length, distinct.size());
+	}
+
+	@Test
+	public void testNoSwapImproves() {
+		final Random random = new Random(21);
+		final int n = 60;
+		final KMedoids kMedoids = kMedoids(points(random, n, 3, 4));
+		for (int k : new int[] { 2, 3, 5, 8 }) {
+			final int[] medoids = kMedoids.cluster(k, 100, random);
+			assertDistinct(medoids);
+			final double cost = kMedoids.cost(medoids);
+			final Set<Integer> isMedoid = new HashSet<Integer>();
+			for (int medoid : medoids) {
+				isMedoid.add(medoid);
+			}
+			for (int m = 0; m < k; m++) {
+				for (int c = 0; c < n; c++) {
+					if (!isMedoid.contains(c)) {
+						final int[] swapped = medoids.clone();
+						swapped[m] = c;
+						assertTrue(k + ": " + m + " with " + c, kMedoids.cost(swapped) >= cost - 1e-6);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSeparatedClusters() {
+		final double[][] points = points(new Random(4), 80, 4, 0.5);
+		final KMedoids kMedoids = kMedoids(points);
+		final int[] medoids = kMedoids.cluster(4, 100, new Random(1));
+		final int[] assignment = kMedoids.assign(medoids);
+		for (int i = 0; i < points.length; i++) {
+			// the points around the same centre, and only those, together
+			assertEquals(assignment[i % 4], assignment[i]);
+			assertEquals(i % 4, medoids[assignment[i]] % 4);
+		}
+	}
+
+	@Test
+	public void testSingleCluster() {
+		final double[][] points = points(new Random(5), 30, 2, 3);
+		final KMedoids kMedoids = kMedoids(points);
+		final int[] medoids = kMedoids.cluster(1, 10, new Random(1));
+		for (int c = 0; c < points.length; c++) {
+			assertTrue(kMedoids.cost(new int[] { c }) >= kMedoids.cost(medoids));
+		}
+	}
+
+	@Test
+	public void testSeedCoincidingElements() {
+		// all elements in the same place
+		final KMedoids kMedoids = new KMedoids(10, new float[45]);
+		assertDistinct(kMedoids.seed(10, new Random(3)));
+		assertDistinct(kMedoids.cluster(4, 10, new Random(3)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyClusters() {
+		new KMedoids(3, new float[3]).cluster(4, 10, new Random(3));
+	}
+
+}
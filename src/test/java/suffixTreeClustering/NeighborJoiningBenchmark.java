@@ -0,0 +1,42 @@
+package suffixTreeClustering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import benchmark.Benchmark;
+import modules.tree_building.suffixTreeClustering.clustering.neighborjoin.NeighborJoining;
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureType;
+import modules.tree_building.suffixTreeClustering.st_interface.SuffixTreeInfo;
+
+/**
+ * Measures the time Neighbor Joining takes with the canonical and the RapidNJ
+ * search. Joins the types of a random corpus (of the amount of types and
+ * nodes given as arguments) and prints the milliseconds taken.
+ */
+public class NeighborJoiningBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int typeCount = intArg(0, 1000);
+		final int nodeCount = intArg(1, 3000);
+
+		final SuffixTreeInfo corpus = RandomCorpus.create(new Random(1), typeCount, nodeCount, 0.05);
+		final List<Type> types = new ArrayList<Type>(corpus.getTypes());
+		for (Type type : types) {
+			type.calculateVector(corpus, FeatureType.TF_IDF);
+		}
+
+		for (final boolean rapid : new boolean[] { false, true }) {
+			final long joinMillis = millis(new Task() {
+				@Override
+				public void run() {
+					new NeighborJoining(types, rapid, false).start();
+				}
+			});
+			report("%s search, %d types: %d ms", rapid ? "RapidNJ" : "canonical", types.size(), joinMillis);
+		}
+	}
+
+}
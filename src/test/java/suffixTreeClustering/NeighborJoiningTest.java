@@ -0,0 +1,150 @@
+package suffixTreeClustering;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTreeClustering.clustering.neighborjoin.NJNode;
+import modules.tree_building.suffixTreeClustering.clustering.neighborjoin.NeighborJoining;
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureType;
+import modules.tree_building.suffixTreeClustering.st_interface.SuffixTreeInfo;
+
+public class NeighborJoiningTest {
+
+	private static List<Type> types(Random random, int typeCount, int nodeCount, FeatureType featureType) {
+		final SuffixTreeInfo corpus = RandomCorpus.create(random, typeCount, nodeCount, 0.05);
+		final List<Type> types = new ArrayList<Type>(corpus.getTypes());
+		for (Type type : types) {
+			type.calculateVector(corpus, featureType);
+		}
+		return types;
+	}
+
+	// labels, branch lengths and children in order
+	private static void describe(NJNode node, StringBuilder builder) {
+		builder.append('(').append(node.getLabel()).append(':').append(node.getBranchLength());
+		for (NJNode child : node.getChildren()) {
+			describe(child, builder);
+		}
+		builder.append(')');
+	}
+
+	private static String tree(List<Type> types, boolean rapid) {
+		final NeighborJoining nj = new NeighborJoining(types, rapid, false);
+		nj.start();
+		final StringBuilder builder = new StringBuilder();
+		describe(nj.getRoot(), builder);
+		return builder.toString();
+	}
+
+	@Test
+	public void testRapidMatchesCanonical() {
+		final Random random = new Random(20);
+		for (int typeCount : new int[] { 3, 4, 10, 150 }) {
+			for (FeatureType featureType : FeatureType.values()) {
+				final List<Type> types = types(random, typeCount, 300, featureType);
+				assertEquals(typeCount + " " + featureType, tree(types, false), tree(types, true));
+			}
+		}
+	}
+
+	/*
+	 * The implementation before the distances were kept condensed: a full
+	 * matrix and r computed anew in each step.
+	 */
+	private static String formerTree(List<Type> types) {
+		final int n = types.size();
+		final double[][] distances = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				distances[i][j] = types.get(i).getVector().distance(types.get(j).getVector());
+			}
+		}
+		final NJNode root = new NJNode(null, "root");
+		final List<NJNode> nodes = new ArrayList<NJNode>();
+		final List<Integer> alias = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++) {
+			nodes.add(new NJNode(root, types.get(i)));
+			root.addChild(nodes.get(i));
+			alias.add(i);
+		}
+
+		final double[] r = new double[n];
+		int newIndex = 1;
+		while (true) {
+			final int clusters = alias.size();
+			for (int i = 0; i < clusters; i++) {
+				r[i] = 0.0f;
+				for (int j = 0; j < clusters; j++) {
+					r[i] += distances[alias.get(i)][alias.get(j)];
+				}
+				r[i] /= (clusters - 2);
+			}
+			int bestI = 0;
+			int bestJ = 0;
+			double min = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < clusters - 1; i++) {
+				for (int j = i + 1; j < clusters; j++) {
+					final double q = distances[alias.get(i)][alias.get(j)] - r[i] - r[j];
+					if (q < min) {
+						min = q;
+						bestI = i;
+						bestJ = j;
+					}
+				}
+			}
+			final int ai = alias.get(bestI);
+			final int aj = alias.get(bestJ);
+			final double dij = distances[ai][aj];
+			final double liu = (dij / 2) + ((r[bestI] - r[bestJ]) / 2);
+			nodes.get(ai).setBranchLength(liu);
+			nodes.get(aj).setBranchLength(dij - liu);
+			if (clusters == 3) {
+				final int ak = alias.get(2);
+				root.getChild(bestJ).setBranchLength((distances[ak][ai] + distances[ak][aj] - dij) / 2.0);
+				break;
+			}
+
+			for (int k = 0; k < clusters; k++) {
+				if (k != bestI && k != bestJ) {
+					final int ak = alias.get(k);
+					distances[ak][ai] = distances[ai][ak] = (distances[ak][ai] + distances[ak][aj] - dij) / 2.0;
+				}
+			}
+			distances[ai][ai] = 0.0;
+			final NJNode joined = new NJNode(root, "U" + (newIndex++));
+			joined.addChild(nodes.get(ai));
+			joined.addChild(nodes.get(aj));
+			root.removeChild(nodes.get(ai));
+			root.removeChild(nodes.get(aj));
+			root.addChild(joined);
+			nodes.set(ai, joined);
+			alias.remove(bestJ);
+		}
+
+		final StringBuilder builder = new StringBuilder();
+		describe(root, builder);
+		return builder.toString();
+	}
+
+	@Test
+	public void testMatchesFormerImplementation() {
+		final Random random = new Random(21);
+		for (int typeCount : new int[] { 3, 4, 10, 80 }) {
+			for (FeatureType featureType : FeatureType.values()) {
+				final List<Type> types = types(random, typeCount, 200, featureType);
+				final NeighborJoining nj = new NeighborJoining(types);
+				nj.start();
+				final StringBuilder builder = new StringBuilder();
+				describe(nj.getRoot(), builder);
+				assertEquals(typeCount + " " + featureType, formerTree(types), builder.toString());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package suffixTreeClustering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import modules.tree_building.suffixTreeClustering.data.Node;
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.st_interface.SuffixTreeInfo;
+
+/**
+ * Builds corpora of types visiting random nodes, to compute vectors of.
+ */
+final class RandomCorpus {
+
+	private RandomCorpus() {
+	}
+
+	/**
+	 * @param random
+	 *            source of the visits
+	 * @param typeCount
+	 *            amount of types
+	 * @param nodeCount
+	 *            amount of nodes, each visited by at least one type
+	 * @param visitProbability
+	 *            probability of a type visiting a node
+	 * @return The corpus.
+	 */
+	static SuffixTreeInfo create(Random random, int typeCount, int nodeCount, double visitProbability) {
+		final SuffixTreeInfo corpus = new SuffixTreeInfo();
+		final List<Type> types = new ArrayList<Type>();
+		for (int i = 0; i < typeCount; i++) {
+			final Type type = new Type();
+			type.setID(i);
+			type.setTypeString("type" + i);
+			types.add(type);
+			corpus.addType(type);
+		}
+		corpus.setNumberOfTypes(types.size());
+		corpus.setNumberOfNodes(nodeCount);
+		for (int n = 0; n < nodeCount; n++) {
+			final Node node = new Node();
+			node.setNodeNumber(n + 2);
+			for (Type type : types) {
+				if (type.getID() == n % types.size() || random.nextDouble() < visitProbability) {
+					node.addType(type);
+					for (int k = random.nextInt(3); k >= 0; k--) {
+						node.getStartPositionsOfType(type).add(k);
+					}
+				}
+			}
+			corpus.addNode(node);
+		}
+		return corpus;
+	}
+
+}
@@ -0,0 +1,72 @@
+package treeSimilarityClustering;
+
+import java.util.List;
+import java.util.Random;
+
+import benchmark.Benchmark;
+import models.ExtensibleTreeNode;
+import modules.clustering.treeSimilarityClustering.MinHashCandidates;
+import modules.clustering.treeSimilarityClustering.NodeComparator;
+
+/**
+ * Measures the time and recall of MinHash candidate pairs. Links the pairs of
+ * random trees (variants of the amount of prototypes and of the amount of
+ * trees given as arguments) more similar than the given minimum, by comparing
+ * all pairs and by comparing the candidate pairs only, and prints the
+ * milliseconds taken and the share of linked pairs found.
+ */
+public class MinHashCandidatesBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int prototypeCount = intArg(0, 40);
+		final int treeCount = intArg(1, 400);
+		final double minSimilarity = doubleArg(2, 0.5d);
+
+		final List<ExtensibleTreeNode> types = RandomTrees.corpus(new Random(22), prototypeCount, treeCount);
+		final NodeComparator comparator = new NodeComparator();
+		final int n = types.size();
+
+		final int[] linked = new int[1];
+		final long exhaustiveMillis = millis(new Task() {
+			@Override
+			public void run() {
+				for (int i = 0; i < n; i++) {
+					for (int j = i + 1; j < n; j++) {
+						if (comparator.vergleiche(types.get(i), types.get(j)) > minSimilarity) {
+							linked[0]++;
+						}
+					}
+				}
+			}
+		});
+
+		final MinHashCandidates minHash = new MinHashCandidates(128, minSimilarity, -1);
+		final int[] found = new int[1];
+		final int[] compared = new int[1];
+		final long minHashMillis = millis(new Task() {
+			@Override
+			public void run() {
+				final int[][] signatures = new int[n][];
+				for (int i = 0; i < n; i++) {
+					signatures[i] = minHash.signature(types.get(i));
+				}
+				final int[][] candidates = minHash.candidates(signatures);
+				for (int i = 0; i < n; i++) {
+					compared[0] += candidates[i].length;
+					for (int j : candidates[i]) {
+						if (comparator.vergleiche(types.get(i), types.get(j)) > minSimilarity) {
+							found[0]++;
+						}
+					}
+				}
+			}
+		});
+
+		report("%d trees: all pairs %d ms, MinHash with %d bands of %d rows %d ms,"
+				+ " recall %.3f (%d of %d pairs), comparing %.3f of all pairs", n, exhaustiveMillis,
+				minHash.getBands(), minHash.getRows(), minHashMillis, found[0] / (double) linked[0], found[0],
+				linked[0], compared[0] / (n * (n - 1) / 2d));
+	}
+
+}
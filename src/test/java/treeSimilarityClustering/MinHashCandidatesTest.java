@@ -0,0 +1,89 @@
+package treeSimilarityClustering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import models.ExtensibleTreeNode;
+import modules.clustering.treeSimilarityClustering.MinHashCandidates;
+import modules.clustering.treeSimilarityClustering.NodeComparator;
+
+public class MinHashCandidatesTest {
+
+	@Test
+	public void testRecall() {
+		final List<ExtensibleTreeNode> types = RandomTrees.corpus(new Random(22), 20, 200);
+		final double minSimilarity = 0.5d;
+		final int n = types.size();
+
+		final MinHashCandidates minHash = new MinHashCandidates(128, minSimilarity, -1);
+		final int[][] signatures = new int[n][];
+		for (int i = 0; i < n; i++) {
+			signatures[i] = minHash.signature(types.get(i));
+		}
+		final int[][] candidates = minHash.candidates(signatures);
+
+		// the pairs the exhaustive comparison links, and those found of them
+		final NodeComparator comparator = new NodeComparator();
+		int linked = 0;
+		int found = 0;
+		int compared = 0;
+		for (int i = 0; i < n; i++) {
+			compared += candidates[i].length;
+			for (int j = i + 1; j < n; j++) {
+				if (comparator.vergleiche(types.get(i), types.get(j)) > minSimilarity) {
+					linked++;
+					for (int partner : candidates[i]) {
+						if (partner == j) {
+							found++;
+						}
+					}
+				}
+			}
+		}
+		final double recall = found / (double) linked;
+		final double share = compared / (n * (n - 1) / 2d);
+		assertTrue(linked > 0);
+		assertTrue(recall >= 0.95);
+		assertTrue(share < 0.25);
+	}
+
+	@Test
+	public void testCandidates() {
+		final Random random = new Random(3);
+		final ExtensibleTreeNode tree = RandomTrees.node("x", 1);
+		RandomTrees.grow(random, tree, 3);
+		final ExtensibleTreeNode other = RandomTrees.node("y", 1);
+		RandomTrees.grow(random, other, 3);
+		final ExtensibleTreeNode reversed = RandomTrees.node("x", 1);
+		RandomTrees.grow(random, reversed, 3);
+
+		final MinHashCandidates minHash = new MinHashCandidates(64, 0.8d, 2);
+		assertTrue(minHash.prunes());
+		assertTrue(minHash.getBands() * minHash.getRows() <= 64);
+		assertArrayEquals(minHash.signature(tree), minHash.signature(RandomTrees.copy(tree, "z")));
+		// trees given along with others are hashed apart from them
+		assertFalse(Arrays.equals(minHash.signature(tree, reversed), minHash.signature(reversed, tree)));
+
+		// equal trees always share bands
+		final int[][] candidates = minHash.candidates(new int[][] { minHash.signature(tree),
+				minHash.signature(other), minHash.signature(tree), minHash.signature(tree) });
+		assertArrayEquals(new int[] { 2, 3 }, candidates[0]);
+		assertArrayEquals(new int[] { 3 }, candidates[2]);
+		assertEquals(0, candidates[3].length);
+	}
+
+	@Test
+	public void testNoPruningWithoutMinimum() {
+		assertFalse(new MinHashCandidates(64, 0d, -1).prunes());
+		assertEquals(1d / 3d, MinHashCandidates.jaccardThreshold(0.5d), 1e-12);
+	}
+
+}
@@ -0,0 +1,66 @@
+package treeSimilarityClustering;
+
+import java.util.List;
+import java.util.Random;
+
+import benchmark.Benchmark;
+import models.ExtensibleTreeNode;
+import modules.clustering.treeSimilarityClustering.NodeComparator;
+
+/**
+ * Measures the time comparing trees takes. Compares all pairs of random trees
+ * (variants of the amount of prototypes and of the amount of trees given as
+ * arguments) by merging them, as done before, and by traversing both at once,
+ * and prints the milliseconds taken.
+ */
+public class NodeComparatorBenchmark extends Benchmark {
+
+	@Override
+	protected void run() throws Exception {
+		final int prototypeCount = intArg(0, 20);
+		final int treeCount = intArg(1, 300);
+
+		final List<ExtensibleTreeNode> types = RandomTrees.corpus(new Random(1), prototypeCount, treeCount);
+		final NodeComparator comparator = new NodeComparator();
+		final int pairCount = types.size() * (types.size() - 1) / 2;
+
+		final double[] merged = new double[pairCount];
+		final long mergedMillis = millis(new Task() {
+			@Override
+			public void run() {
+				int pair = 0;
+				for (int i = 0; i < types.size(); i++) {
+					for (int j = i + 1; j < types.size(); j++) {
+						final Double[] score = comparator.ermittleExtensibleTreeNodeTrefferwert(
+								comparator.verschmelzeBaeume(types.get(i), types.get(j)));
+						merged[pair++] = score[0] / score[1];
+					}
+				}
+			}
+		});
+
+		final double[] traversed = new double[pairCount];
+		final long traversedMillis = millis(new Task() {
+			@Override
+			public void run() {
+				int pair = 0;
+				for (int i = 0; i < types.size(); i++) {
+					for (int j = i + 1; j < types.size(); j++) {
+						traversed[pair++] = comparator.vergleiche(types.get(i), types.get(j));
+					}
+				}
+			}
+		});
+
+		int differing = 0;
+		for (int pair = 0; pair < pairCount; pair++) {
+			if (Double.compare(merged[pair], traversed[pair]) != 0) {
+				differing++;
+			}
+		}
+
+		report("%d pairs of trees: merging %d ms, traversing %d ms (%d scores differ)", pairCount, mergedMillis,
+				traversedMillis, differing);
+	}
+
+}
@@ -0,0 +1,39 @@
+package treeSimilarityClustering;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import models.ExtensibleTreeNode;
+import modules.clustering.treeSimilarityClustering.NodeComparator;
+
+public class NodeComparatorTest {
+
+	// the score of the merged tree, as computed before
+	private static double mergedScore(NodeComparator comparator, ExtensibleTreeNode k1, ExtensibleTreeNode k2) {
+		final Double[] score = comparator.ermittleExtensibleTreeNodeTrefferwert(comparator.verschmelzeBaeume(k1, k2));
+		return score[0] / score[1];
+	}
+
+	@Test
+	public void testMatchesMergedTree() {
+		final List<ExtensibleTreeNode> types = RandomTrees.corpus(new Random(24), 5, 40);
+		for (int maxDepth : new int[] { -1, 1, 2, 3 }) {
+			for (double exponent : new double[] { 0d, 1.5d }) {
+				for (boolean hitsOnly : new boolean[] { false, true }) {
+					final NodeComparator comparator = new NodeComparator(maxDepth, exponent, hitsOnly);
+					for (int i = 0; i < types.size(); i++) {
+						for (int j = 0; j < types.size(); j++) {
+							assertEquals(mergedScore(comparator, types.get(i), types.get(j)),
+									comparator.vergleiche(types.get(i), types.get(j)), 0d);
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package treeSimilarityClustering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import models.ExtensibleTreeNode;
+
+/**
+ * Builds random trees of types, variants of a few prototypes.
+ */
+final class RandomTrees {
+
+	private RandomTrees() {
+	}
+
+	private static final String[] LETTERS = { "a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l" };
+
+	static ExtensibleTreeNode node(String value, int counter) {
+		final ExtensibleTreeNode node = new ExtensibleTreeNode(value);
+		node.setNodeCounter(counter);
+		return node;
+	}
+
+	// a random tree of the given depth below the node
+	static void grow(Random random, ExtensibleTreeNode node, int depth) {
+		if (depth == 0) {
+			return;
+		}
+		for (String letter : LETTERS) {
+			if (random.nextInt(4) == 0) {
+				final ExtensibleTreeNode child = node(letter, 1 + random.nextInt(10));
+				node.getChildNodes().put(letter, child);
+				grow(random, child, depth - 1);
+			}
+		}
+	}
+
+	// a copy of the prototype missing some of its nodes, with some others
+	static ExtensibleTreeNode variant(Random random, ExtensibleTreeNode prototype, String value, int depth) {
+		final ExtensibleTreeNode variant = node(value, prototype.getNodeCounter());
+		for (Entry<String, ExtensibleTreeNode> child : prototype.getChildNodes().entrySet()) {
+			if (random.nextInt(10) > 0) {
+				variant.getChildNodes().put(child.getKey(),
+						variant(random, child.getValue(), child.getValue().getNodeValue(), depth - 1));
+			}
+		}
+		if (depth > 0 && random.nextInt(5) == 0) {
+			final String letter = LETTERS[random.nextInt(LETTERS.length)];
+			if (!variant.getChildNodes().containsKey(letter)) {
+				final ExtensibleTreeNode child = node(letter, 1 + random.nextInt(10));
+				variant.getChildNodes().put(letter, child);
+				grow(random, child, depth - 1);
+			}
+		}
+		return variant;
+	}
+
+	static ExtensibleTreeNode copy(ExtensibleTreeNode tree, String value) {
+		final ExtensibleTreeNode copy = node(value, tree.getNodeCounter());
+		for (Entry<String, ExtensibleTreeNode> child : tree.getChildNodes().entrySet()) {
+			copy.getChildNodes().put(child.getKey(), copy(child.getValue(), child.getValue().getNodeValue()));
+		}
+		return copy;
+	}
+
+	// variants of a few prototypes
+	static List<ExtensibleTreeNode> corpus(Random random, int prototypeCount, int typeCount) {
+		final List<ExtensibleTreeNode> prototypes = new ArrayList<ExtensibleTreeNode>();
+		for (int p = 0; p < prototypeCount; p++) {
+			final ExtensibleTreeNode prototype = node("prototype" + p, 1);
+			grow(random, prototype, 4);
+			prototypes.add(prototype);
+		}
+		final List<ExtensibleTreeNode> types = new ArrayList<ExtensibleTreeNode>();
+		for (int t = 0; t < typeCount; t++) {
+			types.add(variant(random, prototypes.get(random.nextInt(prototypeCount)), "type" + t, 4));
+		}
+		return types;
+	}
+
+}
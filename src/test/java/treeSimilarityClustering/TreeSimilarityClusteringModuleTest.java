@@ -0,0 +1,126 @@
+package treeSimilarityClustering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import models.ExtensibleTreeNode;
+import modules.CharPipe;
+import modules.InputPort;
+import modules.OutputPort;
+import modules.clustering.treeSimilarityClustering.NodeComparator;
+import modules.clustering.treeSimilarityClustering.TreeSimilarityClusteringModule;
+
+public class TreeSimilarityClusteringModuleTest {
+
+	private static String run(String tree, int threads, int minHashLength) throws Exception {
+		final Properties properties = new Properties();
+		properties.setProperty(TreeSimilarityClusteringModule.PROPERTYKEY_MINSIMILARITY, "0.5");
+		properties.setProperty(TreeSimilarityClusteringModule.PROPERTYKEY_MAXPARALLELTHREADS,
+				Integer.toString(threads));
+		properties.setProperty(TreeSimilarityClusteringModule.PROPERTYKEY_MINHASHLENGTH,
+				Integer.toString(minHashLength));
+		final TreeSimilarityClusteringModule module = new TreeSimilarityClusteringModule(null, properties);
+		module.applyProperties();
+
+		final OutputPort source = new OutputPort("source", "source", null);
+		source.addSupportedPipe(CharPipe.class);
+		final InputPort sink = new InputPort("sink", "sink", null);
+		sink.addSupportedPipe(CharPipe.class);
+		final CharPipe inputPipe = new CharPipe();
+		source.addPipe(inputPipe, module.getInputPorts().get("suffix tree"));
+		module.getInputPorts().get("suffix tree").addPipe(inputPipe, source);
+		final CharPipe outputPipe = new CharPipe();
+		module.getOutputPorts().get("GEXF graph").addPipe(outputPipe, sink);
+		sink.addPipe(outputPipe, module.getOutputPorts().get("GEXF graph"));
+
+		final Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					source.outputToAllCharPipes(tree);
+					source.close();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		final StringBuilder output = new StringBuilder();
+		final Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					final Reader in = sink.getInputReader();
+					final char[] buffer = new char[8192];
+					for (int read; (read = in.read(buffer)) >= 0;) {
+						output.append(buffer, 0, read);
+					}
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		reader.start();
+		assertTrue(module.process());
+		writer.join();
+		reader.join();
+		// the date of the metadata may change between runs, node ids are random
+		String graph = output.toString().replaceAll("lastmodifieddate=\"[^\"]*\"", "");
+		final Matcher nodes = Pattern.compile("<node id=\"([^\"]*)\" label=\"([^\"]*)\"").matcher(graph);
+		final Map<String, String> labels = new HashMap<String, String>();
+		while (nodes.find()) {
+			labels.put(nodes.group(1), nodes.group(2));
+		}
+		for (Entry<String, String> label : labels.entrySet()) {
+			graph = graph.replace("\"" + label.getKey() + "\"", "\"" + label.getValue() + "\"");
+		}
+		return graph;
+	}
+
+	private static int count(String text, String part) {
+		int count = 0;
+		for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+			count++;
+		}
+		return count;
+	}
+
+	@Test
+	public void testAllPairsCompared() throws Exception {
+		final List<ExtensibleTreeNode> types = RandomTrees.corpus(new Random(23), 10, 120);
+		final ExtensibleTreeNode root = RandomTrees.node("root", 0);
+		for (ExtensibleTreeNode type : types) {
+			root.getChildNodes().put(type.getNodeValue(), type);
+		}
+		int expectedEdges = 0;
+		final NodeComparator comparator = new NodeComparator();
+		for (int i = 0; i < types.size(); i++) {
+			for (int j = i + 1; j < types.size(); j++) {
+				if (comparator.vergleiche(types.get(i), types.get(j)) > 0.5) {
+					expectedEdges++;
+				}
+			}
+		}
+		final String tree = new Gson().toJson(root);
+
+		final String serial = run(tree, 1, 0);
+		assertEquals(expectedEdges, count(serial, "<edge "));
+		assertEquals(serial, run(tree, 4, 0));
+		assertTrue(count(run(tree, 3, 128), "<edge ") <= expectedEdges);
+	}
+
+}